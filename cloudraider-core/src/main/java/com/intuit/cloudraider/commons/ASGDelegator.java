@@ -24,18 +24,15 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.autoscaling.AmazonAutoScaling;
 import com.amazonaws.services.autoscaling.AmazonAutoScalingClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * Creating access to Amazon AutoScaling functionality through AmazonAutoScaling
  * <p>
@@ -48,12 +45,11 @@ public class ASGDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonAutoScaling asgClient;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonAutoScaling> asgClient =
+            Suppliers.memoize(() -> awsClientFactory.build("autoscaling", AmazonAutoScalingClientBuilder.standard()));
 
 
     /**
@@ -63,19 +59,6 @@ public class ASGDelegator {
 
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-        asgClient = AmazonAutoScalingClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-
-    }
-
 
     /**
      * Gets asg client.
@@ -83,6 +66,6 @@ public class ASGDelegator {
      * @return the asg client
      */
     public AmazonAutoScaling getAsgClient() {
-        return asgClient;
+        return asgClient.get();
     }
 }
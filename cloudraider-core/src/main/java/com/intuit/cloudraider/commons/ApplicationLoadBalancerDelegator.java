@@ -24,18 +24,15 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancing;
 import com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancingClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * Creating access to Application Load Balancer functionality through AmazonElasticLoadBalancing.v2
  * <p>
@@ -48,12 +45,11 @@ public class ApplicationLoadBalancerDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonElasticLoadBalancing amazonApplicationLoadBalancing;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonElasticLoadBalancing> amazonApplicationLoadBalancing =
+            Suppliers.memoize(() -> awsClientFactory.build("elbv2", AmazonElasticLoadBalancingClientBuilder.standard()));
 
 
     /**
@@ -62,19 +58,6 @@ public class ApplicationLoadBalancerDelegator {
     public ApplicationLoadBalancerDelegator() {
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-
-        amazonApplicationLoadBalancing = AmazonElasticLoadBalancingClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-    }
-
     /**
      * Gets amazon application load balancing.
      *
@@ -82,6 +65,6 @@ public class ApplicationLoadBalancerDelegator {
      */
     public AmazonElasticLoadBalancing getAmazonApplicationLoadBalancing() {
 
-        return amazonApplicationLoadBalancing;
+        return amazonApplicationLoadBalancing.get();
     }
 }
@@ -0,0 +1,416 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.PredefinedBackoffStrategies;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryUtils;
+import com.intuit.cloudraider.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client side API budget shared by every AWS client built by {@link AwsClientFactory}.
+ * <p>
+ * Every attempt of every call takes a token from the bucket of its endpoint, that is one bucket per service and
+ * region. The refill rate of a bucket adapts to what the service allows: it grows by
+ * cloudraider.aws.rateLimiter.additiveIncrease requests per second for every second of successful calls and is
+ * multiplied by cloudraider.aws.rateLimiter.multiplicativeDecrease when the service throttles, between
+ * cloudraider.aws.rateLimiter.minRate and cloudraider.aws.rateLimiter.maxRate, starting at
+ * cloudraider.aws.rateLimiter.initialRate. Throttled and other retryable calls are retried up to
+ * cloudraider.aws.maxErrorRetry times with full jitter backoff. Throttles, retries and waits are counted per endpoint.
+ * <p>
+ * A call waits for its token on the thread running it. The SDK runs a call of an async client, handlers included,
+ * on a thread of the client executor, so a throttled endpoint holds those threads rather than the caller's; the
+ * executor is sized by cloudraider.aws.client.asyncThreads, see {@link AwsClientFactory#buildAsync}.
+ */
+@Component("awsApiRateLimiter")
+public class AwsApiRateLimiter extends RequestHandler2 {
+
+    /**
+     * The constant ENABLED_PROPERTY.
+     */
+    public static final String ENABLED_PROPERTY = "cloudraider.aws.rateLimiter.enabled";
+    /**
+     * The constant INITIAL_RATE_PROPERTY.
+     */
+    public static final String INITIAL_RATE_PROPERTY = "cloudraider.aws.rateLimiter.initialRate";
+    /**
+     * The constant MIN_RATE_PROPERTY.
+     */
+    public static final String MIN_RATE_PROPERTY = "cloudraider.aws.rateLimiter.minRate";
+    /**
+     * The constant MAX_RATE_PROPERTY.
+     */
+    public static final String MAX_RATE_PROPERTY = "cloudraider.aws.rateLimiter.maxRate";
+    /**
+     * The constant BURST_PROPERTY.
+     */
+    public static final String BURST_PROPERTY = "cloudraider.aws.rateLimiter.burst";
+    /**
+     * The constant ADDITIVE_INCREASE_PROPERTY.
+     */
+    public static final String ADDITIVE_INCREASE_PROPERTY = "cloudraider.aws.rateLimiter.additiveIncrease";
+    /**
+     * The constant MULTIPLICATIVE_DECREASE_PROPERTY.
+     */
+    public static final String MULTIPLICATIVE_DECREASE_PROPERTY = "cloudraider.aws.rateLimiter.multiplicativeDecrease";
+    /**
+     * The constant MAX_ERROR_RETRY_PROPERTY.
+     */
+    public static final String MAX_ERROR_RETRY_PROPERTY = "cloudraider.aws.maxErrorRetry";
+
+    private static final HandlerContextKey<Integer> ATTEMPTS = new HandlerContextKey<>("cloudraider.attempts");
+    private static final int BASE_DELAY_MILLIS = 100;
+    private static final int THROTTLED_BASE_DELAY_MILLIS = 500;
+    private static final int MAX_BACKOFF_MILLIS = 20000;
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled = true;
+    private volatile double initialRate = 20;
+    private volatile double minRate = 1;
+    private volatile double maxRate = 200;
+    private volatile double burst = 10;
+    private volatile double additiveIncrease = 1;
+    private volatile double multiplicativeDecrease = 0.5;
+    private volatile int maxErrorRetry = 5;
+
+    /**
+     * Instantiates a new Aws api rate limiter.
+     */
+    public AwsApiRateLimiter() {
+    }
+
+    @PostConstruct
+    private void init() {
+        enabled = Boolean.parseBoolean(ConfigUtils.getConfigProperties().getProperty(ENABLED_PROPERTY, "true").trim());
+        minRate = Math.max(0.1, getDoubleProperty(MIN_RATE_PROPERTY, minRate));
+        maxRate = Math.max(minRate, getDoubleProperty(MAX_RATE_PROPERTY, maxRate));
+        initialRate = Math.min(maxRate, Math.max(minRate, getDoubleProperty(INITIAL_RATE_PROPERTY, initialRate)));
+        burst = Math.max(1, getDoubleProperty(BURST_PROPERTY, burst));
+        additiveIncrease = Math.max(0, getDoubleProperty(ADDITIVE_INCREASE_PROPERTY, additiveIncrease));
+        multiplicativeDecrease = Math.min(1, Math.max(0.01, getDoubleProperty(MULTIPLICATIVE_DECREASE_PROPERTY, multiplicativeDecrease)));
+        maxErrorRetry = (int) Math.max(0, ConfigUtils.getLongProperty(MAX_ERROR_RETRY_PROPERTY, maxErrorRetry));
+    }
+
+    /**
+     * Gets the retry policy: the SDK retry condition, which retries throttling and transient errors, with full jitter
+     * backoff, longer for throttling.
+     *
+     * @return the retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        RetryPolicy.BackoffStrategy backoff = new PredefinedBackoffStrategies.FullJitterBackoffStrategy(BASE_DELAY_MILLIS, MAX_BACKOFF_MILLIS);
+        RetryPolicy.BackoffStrategy throttledBackoff = new PredefinedBackoffStrategies.FullJitterBackoffStrategy(THROTTLED_BASE_DELAY_MILLIS, MAX_BACKOFF_MILLIS);
+        RetryPolicy.BackoffStrategy strategy = (AmazonWebServiceRequest request, AmazonClientException exception, int retriesAttempted) ->
+                RetryUtils.isThrottlingException(exception)
+                        ? throttledBackoff.delayBeforeNextRetry(request, exception, retriesAttempted)
+                        : backoff.delayBeforeNextRetry(request, exception, retriesAttempted);
+        return new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION, strategy, maxErrorRetry, true);
+    }
+
+    /**
+     * Is enabled boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets enabled.
+     *
+     * @param enabled the enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets the rate new endpoints start at and the bounds it adapts within, in requests per second.
+     *
+     * @param initialRate initial rate
+     * @param minRate     min rate
+     * @param maxRate     max rate
+     * @param burst       requests allowed at once above the rate
+     */
+    public void setRates(double initialRate, double minRate, double maxRate, double burst) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.initialRate = Math.min(maxRate, Math.max(minRate, initialRate));
+        this.burst = Math.max(1, burst);
+        buckets.clear();
+    }
+
+    @Override
+    public void beforeAttempt(HandlerBeforeAttemptContext context) {
+        Request<?> request = context.getRequest();
+        TokenBucket bucket = getBucket(request);
+        if (bucket == null) {
+            return;
+        }
+
+        Integer attempts = request.getHandlerContext(ATTEMPTS);
+        request.addHandlerContext(ATTEMPTS, attempts == null ? 1 : attempts + 1);
+        bucket.requests.incrementAndGet();
+        if (attempts != null) {
+            bucket.retries.incrementAndGet();
+        }
+
+        long waitNanos = bucket.reserve();
+        if (waitNanos > 0) {
+            bucket.waitNanos.addAndGet(waitNanos);
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void afterAttempt(HandlerAfterAttemptContext context) {
+        TokenBucket bucket = getBucket(context.getRequest());
+        if (bucket == null) {
+            return;
+        }
+
+        Exception exception = context.getException();
+        if (exception instanceof AmazonClientException && RetryUtils.isThrottlingException((AmazonClientException) exception)) {
+            bucket.throttles.incrementAndGet();
+            double rate = bucket.onThrottle();
+            logger.warn("AwsApiRateLimiter: " + bucket.name + " throttled, rate lowered to " + String.format("%.1f", rate) + "/s");
+        } else if (exception == null) {
+            bucket.onSuccess();
+        }
+    }
+
+    /**
+     * Gets live metrics of every endpoint called so far.
+     *
+     * @return metrics by endpoint
+     */
+    public Map<String, Metrics> getMetrics() {
+        Map<String, Metrics> metrics = new TreeMap<>();
+        buckets.forEach((name, bucket) -> metrics.put(name, bucket.getMetrics()));
+        return metrics;
+    }
+
+    private TokenBucket getBucket(Request<?> request) {
+        if (!enabled || request == null) {
+            return null;
+        }
+        String name = request.getEndpoint() == null ? request.getServiceName() : request.getEndpoint().getHost();
+        return buckets.computeIfAbsent(name, key -> new TokenBucket(key, initialRate, minRate, maxRate, burst,
+                additiveIncrease, multiplicativeDecrease));
+    }
+
+    private static double getDoubleProperty(String key, double defaultValue) {
+        String value = ConfigUtils.getConfigProperties().getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Token bucket whose refill rate adapts with additive increase and multiplicative decrease. Tokens are reserved
+     * ahead, so concurrent callers queue in order instead of retrying for a token.
+     */
+    private static class TokenBucket {
+        private final String name;
+        private final double minRate;
+        private final double maxRate;
+        private final double capacity;
+        private final double additiveIncrease;
+        private final double multiplicativeDecrease;
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong throttles = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+
+        private double rate;
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+        private long lastDecreaseNanos;
+
+        private TokenBucket(String name, double rate, double minRate, double maxRate, double capacity,
+                            double additiveIncrease, double multiplicativeDecrease) {
+            this.name = name;
+            this.rate = rate;
+            this.minRate = minRate;
+            this.maxRate = maxRate;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.additiveIncrease = additiveIncrease;
+            this.multiplicativeDecrease = multiplicativeDecrease;
+        }
+
+        /**
+         * Take a token and return how long to wait for it.
+         */
+        private synchronized long reserve() {
+            refill();
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        private synchronized void onSuccess() {
+            refill();
+            // one success at rate r is 1/r seconds of successful calls
+            rate = Math.min(maxRate, rate + additiveIncrease / rate);
+        }
+
+        /**
+         * Lower the rate, at most once per round trip of throttled calls that were already in flight.
+         */
+        private synchronized double onThrottle() {
+            refill();
+            long now = System.nanoTime();
+            if (now - lastDecreaseNanos >= TimeUnit.SECONDS.toNanos(1)) {
+                rate = Math.max(minRate, rate * multiplicativeDecrease);
+                lastDecreaseNanos = now;
+            }
+            return rate;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefillNanos = now;
+        }
+
+        private synchronized Metrics getMetrics() {
+            return new Metrics(rate, requests.get(), retries.get(), throttles.get(), TimeUnit.NANOSECONDS.toMillis(waitNanos.get()));
+        }
+    }
+
+    /**
+     * Live counters of one endpoint.
+     */
+    public static class Metrics {
+        private final double rate;
+        private final long requests;
+        private final long retries;
+        private final long throttles;
+        private final long waitMillis;
+
+        /**
+         * Instantiates a new Metrics.
+         *
+         * @param rate       current rate in requests per second
+         * @param requests   attempts made
+         * @param retries    attempts that were retries
+         * @param throttles  attempts throttled by the service
+         * @param waitMillis total time spent waiting for a token
+         */
+        public Metrics(double rate, long requests, long retries, long throttles, long waitMillis) {
+            this.rate = rate;
+            this.requests = requests;
+            this.retries = retries;
+            this.throttles = throttles;
+            this.waitMillis = waitMillis;
+        }
+
+        /**
+         * Gets rate.
+         *
+         * @return the rate
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        /**
+         * Gets requests.
+         *
+         * @return the requests
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Gets retries.
+         *
+         * @return the retries
+         */
+        public long getRetries() {
+            return retries;
+        }
+
+        /**
+         * Gets throttles.
+         *
+         * @return the throttles
+         */
+        public long getThrottles() {
+            return throttles;
+        }
+
+        /**
+         * Gets wait millis.
+         *
+         * @return the wait millis
+         */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("rate=%.1f/s requests=%d retries=%d throttles=%d waitMillis=%d",
+                    rate, requests, retries, throttles, waitMillis);
+        }
+    }
+}
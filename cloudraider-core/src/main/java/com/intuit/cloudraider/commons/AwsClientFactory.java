@@ -0,0 +1,538 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.client.builder.AwsAsyncClientBuilder;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+import com.intuit.cloudraider.model.Credentials;
+import com.intuit.cloudraider.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the AWS clients of the delegators with one tuned client configuration, the shared credentials provider,
+ * which renews assumed role sessions ahead of expiry, the region and {@link AwsApiRateLimiter}.
+ * <p>
+ * The connection pool and timeouts are read from config.properties under cloudraider.aws.client.*: maxConnections,
+ * connectionTimeoutMillis, socketTimeoutMillis, requestTimeoutMillis, clientExecutionTimeoutMillis, tcpKeepAlive,
+ * connectionTTLMillis, connectionMaxIdleMillis, validateAfterInactivityMillis and gzip. Each client reports the
+ * connections leased from, available in and waited for on its pool, unless cloudraider.aws.client.poolMetrics is false.
+ * <p>
+ * An async client runs every call, including the wait for a {@link AwsApiRateLimiter} token, on a thread of its
+ * executor. The executor has cloudraider.aws.client.asyncThreads daemon threads, maxConnections by default, so
+ * calls waiting for a token hold a thread but never a connection, and calls beyond that are queued.
+ * <p>
+ * The delegators build their clients on first use, so a run only pays for the services it calls. The time the
+ * credentials and each client took to initialize is kept for the startup report, logged on shutdown.
+ */
+@Component("awsClientFactory")
+public class AwsClientFactory implements ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * The constant PROPERTY_PREFIX.
+     */
+    public static final String PROPERTY_PREFIX = "cloudraider.aws.client.";
+    /**
+     * The constant CREDENTIALS, the name credentials resolution is timed under.
+     */
+    public static final String CREDENTIALS = "credentials";
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private Credentials credentials;
+
+    @Autowired
+    private AwsApiRateLimiter awsApiRateLimiter;
+
+    private final Map<String, PoolMetricCollector> pools = new ConcurrentHashMap<>();
+    private final Map<String, InitTiming> initTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final long startMillis = System.currentTimeMillis();
+    private volatile long contextMillis = -1;
+
+    private int maxConnections = 200;
+    private int connectionTimeoutMillis = 5000;
+    private int socketTimeoutMillis = 30000;
+    private int requestTimeoutMillis = 0;
+    private int clientExecutionTimeoutMillis = 0;
+    private boolean tcpKeepAlive = true;
+    private long connectionTTLMillis = 60000;
+    private long connectionMaxIdleMillis = 30000;
+    private int validateAfterInactivityMillis = 2000;
+    private boolean gzip = false;
+    private boolean poolMetrics = true;
+    private int asyncThreads;
+
+    /**
+     * Instantiates a new Aws client factory.
+     */
+    public AwsClientFactory() {
+    }
+
+    @PostConstruct
+    private void init() {
+        maxConnections = getIntProperty("maxConnections", maxConnections);
+        connectionTimeoutMillis = getIntProperty("connectionTimeoutMillis", connectionTimeoutMillis);
+        socketTimeoutMillis = getIntProperty("socketTimeoutMillis", socketTimeoutMillis);
+        requestTimeoutMillis = getIntProperty("requestTimeoutMillis", requestTimeoutMillis);
+        clientExecutionTimeoutMillis = getIntProperty("clientExecutionTimeoutMillis", clientExecutionTimeoutMillis);
+        tcpKeepAlive = getBooleanProperty("tcpKeepAlive", tcpKeepAlive);
+        connectionTTLMillis = ConfigUtils.getLongProperty(PROPERTY_PREFIX + "connectionTTLMillis", connectionTTLMillis);
+        connectionMaxIdleMillis = ConfigUtils.getLongProperty(PROPERTY_PREFIX + "connectionMaxIdleMillis", connectionMaxIdleMillis);
+        validateAfterInactivityMillis = getIntProperty("validateAfterInactivityMillis", validateAfterInactivityMillis);
+        gzip = getBooleanProperty("gzip", gzip);
+        poolMetrics = getBooleanProperty("poolMetrics", poolMetrics);
+        asyncThreads = getIntProperty("asyncThreads", maxConnections);
+    }
+
+    /**
+     * Build a client with the shared configuration, credentials and region.
+     *
+     * @param name    name the pool metrics of the client are reported under
+     * @param builder client builder
+     * @param <B>     client builder type
+     * @param <T>     client type
+     * @return the client
+     */
+    public <B extends AwsClientBuilder<B, T>, T> T build(String name, B builder) {
+        long start = System.currentTimeMillis();
+        builder.withCredentials(getCredentialsProvider())
+                .withRegion(credentials.getRegion())
+                .withClientConfiguration(getClientConfiguration())
+                .withRequestHandlers(awsApiRateLimiter);
+        if (poolMetrics) {
+            builder.withMetricsCollector(pools.computeIfAbsent(name, key -> new PoolMetricCollector(maxConnections)));
+        }
+        T client = builder.build();
+        recordInit(name, start);
+        return client;
+    }
+
+    /**
+     * Build an async client like {@link #build(String, AwsClientBuilder)}, running its calls on an executor sized
+     * by cloudraider.aws.client.asyncThreads.
+     *
+     * @param name    name the pool metrics and executor threads of the client are reported under
+     * @param builder async client builder
+     * @param <B>     client builder type
+     * @param <T>     client type
+     * @return the client
+     */
+    public <B extends AwsAsyncClientBuilder<B, T>, T> T buildAsync(String name, B builder) {
+        builder.withExecutorFactory(() -> newAsyncExecutor(name));
+        return build(name, builder);
+    }
+
+    /**
+     * Gets the number of threads of the executor of each async client.
+     *
+     * @return the number of threads
+     */
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    private ExecutorService newAsyncExecutor(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(getAsyncThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "aws-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private AWSCredentialsProvider getCredentialsProvider() {
+        AWSCredentialsProvider credentialsProvider = credentials.getAwsCredentialProvider();
+        if (initTimings.containsKey(CREDENTIALS)) {
+            return credentialsProvider;
+        }
+        synchronized (initTimings) {
+            if (!initTimings.containsKey(CREDENTIALS)) {
+                long start = System.currentTimeMillis();
+                credentialsProvider.getCredentials();
+                recordInit(CREDENTIALS, start);
+            }
+            return credentialsProvider;
+        }
+    }
+
+    private void recordInit(String name, long start) {
+        long end = System.currentTimeMillis();
+        InitTiming timing = new InitTiming(name, start - startMillis, end - start);
+        initTimings.put(name, timing);
+        logger.info("AwsClientFactory: initialized " + timing);
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        contextMillis = System.currentTimeMillis() - event.getApplicationContext().getStartupDate();
+        logger.info("AwsClientFactory: context started in " + contextMillis + " ms, AWS clients are built on first use");
+    }
+
+    /**
+     * Gets the time each AWS client and the credentials took to initialize, in the order they were first used.
+     *
+     * @return init timings by name
+     */
+    public Map<String, InitTiming> getInitTimings() {
+        synchronized (initTimings) {
+            return new LinkedHashMap<>(initTimings);
+        }
+    }
+
+    /**
+     * Gets the startup report: how long the context took to start and which AWS clients the run paid to initialize.
+     *
+     * @return the startup report
+     */
+    public String getStartupReport() {
+        Map<String, InitTiming> timings = getInitTimings();
+        StringBuilder report = new StringBuilder("startup report: context started in ")
+                .append(contextMillis < 0 ? "n/a" : contextMillis + " ms");
+        long total = 0;
+        for (InitTiming timing : timings.values()) {
+            report.append("\n  ").append(timing);
+            total += timing.getDurationMillis();
+        }
+        report.append("\n  ").append(timings.size()).append(" initialized in ").append(total).append(" ms");
+        return report.toString();
+    }
+
+    /**
+     * Log the startup report and the connection pool metrics.
+     */
+    @PreDestroy
+    public void logReport() {
+        logger.info("AwsClientFactory: " + getStartupReport());
+        logPoolMetrics();
+    }
+
+    /**
+     * Gets a new client configuration with the configured pool, timeouts and retry policy.
+     *
+     * @return the client configuration
+     */
+    public ClientConfiguration getClientConfiguration() {
+        return new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionTimeout(connectionTimeoutMillis)
+                .withSocketTimeout(socketTimeoutMillis)
+                .withRequestTimeout(requestTimeoutMillis)
+                .withClientExecutionTimeout(clientExecutionTimeoutMillis)
+                .withTcpKeepAlive(tcpKeepAlive)
+                .withConnectionTTL(connectionTTLMillis)
+                .withConnectionMaxIdleMillis(connectionMaxIdleMillis)
+                .withValidateAfterInactivityMillis(validateAfterInactivityMillis)
+                .withReaper(true)
+                .withGzip(gzip)
+                .withRetryPolicy(awsApiRateLimiter.getRetryPolicy());
+    }
+
+    /**
+     * Gets the connection pool metrics of every client built so far.
+     *
+     * @return pool metrics by client name
+     */
+    public Map<String, PoolMetrics> getPoolMetrics() {
+        Map<String, PoolMetrics> metrics = new TreeMap<>();
+        pools.forEach((name, collector) -> metrics.put(name, collector.getMetrics()));
+        return metrics;
+    }
+
+    /**
+     * Log the connection pool metrics of every client built so far.
+     */
+    public void logPoolMetrics() {
+        getPoolMetrics().forEach((name, metrics) -> logger.info("AwsClientFactory: " + name + " pool " + metrics));
+    }
+
+    private int getIntProperty(String key, int defaultValue) {
+        return (int) ConfigUtils.getLongProperty(PROPERTY_PREFIX + key, defaultValue);
+    }
+
+    private boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = ConfigUtils.getConfigProperties().getProperty(PROPERTY_PREFIX + key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Keeps the pool counters the SDK captures on every request once a metric collector is set.
+     */
+    static class PoolMetricCollector extends RequestMetricCollector {
+        private final int maxConnections;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong leased = new AtomicLong();
+        private final AtomicLong available = new AtomicLong();
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicLong peakLeased = new AtomicLong();
+        private final AtomicLong peakPending = new AtomicLong();
+
+        /**
+         * Instantiates a new Pool metric collector.
+         *
+         * @param maxConnections pool size
+         */
+        PoolMetricCollector(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        @Override
+        public void collectMetrics(Request<?> request, Response<?> response) {
+            AWSRequestMetrics awsRequestMetrics = request.getAWSRequestMetrics();
+            if (awsRequestMetrics == null) {
+                return;
+            }
+            TimingInfo timingInfo = awsRequestMetrics.getTimingInfo();
+            Number leasedCount = timingInfo.getCounter(AWSRequestMetrics.Field.HttpClientPoolLeasedCount.name());
+            if (leasedCount == null) {
+                return;
+            }
+            Number availableCount = timingInfo.getCounter(AWSRequestMetrics.Field.HttpClientPoolAvailableCount.name());
+            Number pendingCount = timingInfo.getCounter(AWSRequestMetrics.Field.HttpClientPoolPendingCount.name());
+
+            requests.incrementAndGet();
+            leased.set(leasedCount.longValue());
+            available.set(availableCount == null ? 0 : availableCount.longValue());
+            pending.set(pendingCount == null ? 0 : pendingCount.longValue());
+            peakLeased.accumulateAndGet(leased.get(), Math::max);
+            peakPending.accumulateAndGet(pending.get(), Math::max);
+        }
+
+        /**
+         * Gets metrics.
+         *
+         * @return the metrics
+         */
+        PoolMetrics getMetrics() {
+            return new PoolMetrics(maxConnections, requests.get(), leased.get(), available.get(), pending.get(),
+                    peakLeased.get(), peakPending.get());
+        }
+    }
+
+    /**
+     * Time one AWS client, or the credentials, took to initialize.
+     */
+    public static class InitTiming {
+        private final String name;
+        private final long offsetMillis;
+        private final long durationMillis;
+
+        /**
+         * Instantiates a new Init timing.
+         *
+         * @param name           client name
+         * @param offsetMillis   when initialization started, since the factory was created
+         * @param durationMillis how long initialization took
+         */
+        public InitTiming(String name, long offsetMillis, long durationMillis) {
+            this.name = name;
+            this.offsetMillis = offsetMillis;
+            this.durationMillis = durationMillis;
+        }
+
+        /**
+         * Gets name.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets offset millis.
+         *
+         * @return the offset millis
+         */
+        public long getOffsetMillis() {
+            return offsetMillis;
+        }
+
+        /**
+         * Gets duration millis.
+         *
+         * @return the duration millis
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name + " in " + durationMillis + " ms at +" + offsetMillis + " ms";
+        }
+    }
+
+    /**
+     * Connection pool counters of one client, as of its latest request.
+     */
+    public static class PoolMetrics {
+        private final int maxConnections;
+        private final long requests;
+        private final long leased;
+        private final long available;
+        private final long pending;
+        private final long peakLeased;
+        private final long peakPending;
+
+        /**
+         * Instantiates a new Pool metrics.
+         *
+         * @param maxConnections pool size
+         * @param requests       requests measured
+         * @param leased         connections in use
+         * @param available      idle connections kept open
+         * @param pending        requests waiting for a connection
+         * @param peakLeased     most connections in use at once
+         * @param peakPending    most requests waiting at once
+         */
+        public PoolMetrics(int maxConnections, long requests, long leased, long available, long pending,
+                           long peakLeased, long peakPending) {
+            this.maxConnections = maxConnections;
+            this.requests = requests;
+            this.leased = leased;
+            this.available = available;
+            this.pending = pending;
+            this.peakLeased = peakLeased;
+            this.peakPending = peakPending;
+        }
+
+        /**
+         * Gets max connections.
+         *
+         * @return the max connections
+         */
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        /**
+         * Gets requests.
+         *
+         * @return the requests
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Gets leased.
+         *
+         * @return the leased
+         */
+        public long getLeased() {
+            return leased;
+        }
+
+        /**
+         * Gets available.
+         *
+         * @return the available
+         */
+        public long getAvailable() {
+            return available;
+        }
+
+        /**
+         * Gets pending.
+         *
+         * @return the pending
+         */
+        public long getPending() {
+            return pending;
+        }
+
+        /**
+         * Gets peak leased.
+         *
+         * @return the peak leased
+         */
+        public long getPeakLeased() {
+            return peakLeased;
+        }
+
+        /**
+         * Gets peak pending.
+         *
+         * @return the peak pending
+         */
+        public long getPeakPending() {
+            return peakPending;
+        }
+
+        /**
+         * Gets utilization, the share of the pool in use.
+         *
+         * @return the utilization
+         */
+        public double getUtilization() {
+            return maxConnections == 0 ? 0 : (double) leased / maxConnections;
+        }
+
+        /**
+         * Gets peak utilization, the largest share of the pool in use at once.
+         *
+         * @return the peak utilization
+         */
+        public double getPeakUtilization() {
+            return maxConnections == 0 ? 0 : (double) peakLeased / maxConnections;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("leased=%d/%d available=%d pending=%d peakLeased=%d peakPending=%d requests=%d",
+                    leased, maxConnections, available, pending, peakLeased, peakPending, requests);
+        }
+    }
+}
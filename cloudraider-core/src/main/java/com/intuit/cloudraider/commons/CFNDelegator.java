@@ -24,18 +24,15 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
 import com.amazonaws.services.cloudformation.AmazonCloudFormationAsyncClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * Creating access to Amazon CloudFormation functionality through AmazonCloudFormation
  */
@@ -47,12 +44,11 @@ public class CFNDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonCloudFormation amazonCloudFormation;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonCloudFormation> amazonCloudFormation =
+            Suppliers.memoize(() -> awsClientFactory.buildAsync("cloudformation", AmazonCloudFormationAsyncClientBuilder.standard()));
 
 
     /**
@@ -61,24 +57,13 @@ public class CFNDelegator {
     public CFNDelegator() {
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-
-        amazonCloudFormation =  AmazonCloudFormationAsyncClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials)).withRegion(region).build();
-
-    }
-
     /**
      * Gets amazon cloud formation client.
      *
      * @return the amazon cloud formation client
      */
     public AmazonCloudFormation getAmazonCloudFormationClient() {
-        return amazonCloudFormation;
+        return amazonCloudFormation.get();
     }
 
 }
@@ -0,0 +1,201 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.services.cloudwatch.model.DescribeAlarmsRequest;
+import com.amazonaws.services.cloudwatch.model.DescribeAlarmsResult;
+import com.amazonaws.services.cloudwatch.model.MetricAlarm;
+import com.intuit.cloudraider.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Paginated CloudWatch alarm lookups with the StateValue, AlarmNamePrefix and AlarmNames filters applied by
+ * DescribeAlarms, backed by a short lived cache of alarms keyed by alarm name.
+ * <p>
+ * The cache only serves lookups by exact alarm name (getAlarms); every alarm returned by any query refreshes it.
+ * Its TTL is read from "aws.cloudwatch.alarmCacheTtlSeconds" (default 5), 0 disables it.
+ */
+@Component
+public class CloudWatchAlarmIndex {
+
+    /**
+     * The constant TTL_PROPERTY.
+     */
+    public static final String TTL_PROPERTY = "aws.cloudwatch.alarmCacheTtlSeconds";
+    /**
+     * The constant DEFAULT_TTL_SECONDS.
+     */
+    public static final long DEFAULT_TTL_SECONDS = 5;
+    /**
+     * Max number of alarm names DescribeAlarms accepts in a single request.
+     */
+    public static final int MAX_ALARM_NAMES = 100;
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private CloudWatchDelegator cloudWatchDelegator;
+
+    private final Map<String, CachedAlarm> alarms = new ConcurrentHashMap<>();
+    private volatile long ttlMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TTL_SECONDS);
+
+    /**
+     * Instantiates a new Cloud watch alarm index.
+     */
+    public CloudWatchAlarmIndex() {
+    }
+
+    @PostConstruct
+    private void init() {
+        setTtlSeconds(ConfigUtils.getLongProperty(TTL_PROPERTY, DEFAULT_TTL_SECONDS));
+    }
+
+    /**
+     * Sets the time to live of a cached alarm.
+     *
+     * @param ttlSeconds ttl in seconds, 0 to disable
+     */
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, ttlSeconds));
+    }
+
+    /**
+     * Gets every alarm whose name starts with the prefix.
+     *
+     * @param alarmNamePrefix alarm name prefix
+     * @return list of alarms
+     */
+    public List<MetricAlarm> getAlarmsByPrefix(String alarmNamePrefix) {
+        return describeAlarms(new DescribeAlarmsRequest().withAlarmNamePrefix(alarmNamePrefix));
+    }
+
+    /**
+     * Gets every alarm currently in the state.
+     *
+     * @param stateValue OK, ALARM or INSUFFICIENT_DATA (case insensitive)
+     * @return list of alarms
+     */
+    public List<MetricAlarm> getAlarmsInState(String stateValue) {
+        return describeAlarms(new DescribeAlarmsRequest().withStateValue(stateValue.toUpperCase()));
+    }
+
+    /**
+     * Gets every alarm of the account.
+     *
+     * @return list of alarms
+     */
+    public List<MetricAlarm> getAllAlarms() {
+        return describeAlarms(new DescribeAlarmsRequest());
+    }
+
+    /**
+     * Bulk lookup of alarms by exact name. Names not cached or expired are described in chunks of MAX_ALARM_NAMES.
+     *
+     * @param alarmNames alarm names
+     * @return alarms by name, alarms that do not exist are absent
+     */
+    public Map<String, MetricAlarm> getAlarms(Collection<String> alarmNames) {
+        Map<String, MetricAlarm> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (String alarmName : new LinkedHashSet<>(alarmNames)) {
+            CachedAlarm cached = alarms.get(alarmName);
+            if (cached != null && now - cached.fetchedAt < ttlMillis) {
+                result.put(alarmName, cached.alarm);
+            } else {
+                missing.add(alarmName);
+            }
+        }
+
+        result.putAll(refreshAlarms(missing));
+
+        return alarmNames.stream()
+                .filter(result::containsKey)
+                .distinct()
+                .collect(Collectors.toMap(name -> name, result::get, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Bulk lookup of alarms by exact name bypassing the cache, in chunks of MAX_ALARM_NAMES.
+     *
+     * @param alarmNames alarm names
+     * @return alarms by name, alarms that do not exist are absent
+     */
+    public Map<String, MetricAlarm> refreshAlarms(Collection<String> alarmNames) {
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(alarmNames));
+        Map<String, MetricAlarm> result = new LinkedHashMap<>();
+        for (int from = 0; from < names.size(); from += MAX_ALARM_NAMES) {
+            List<String> chunk = names.subList(from, Math.min(from + MAX_ALARM_NAMES, names.size()));
+            describeAlarms(new DescribeAlarmsRequest().withAlarmNames(chunk))
+                    .forEach(alarm -> result.put(alarm.getAlarmName(), alarm));
+        }
+        return result;
+    }
+
+    /**
+     * Drop all cached alarms.
+     */
+    public void invalidate() {
+        alarms.clear();
+    }
+
+    private List<MetricAlarm> describeAlarms(DescribeAlarmsRequest request) {
+        List<MetricAlarm> metricAlarms = new ArrayList<>();
+        String nextToken;
+        do {
+            DescribeAlarmsResult result = cloudWatchDelegator.getAmazonCloudWatch().describeAlarms(request);
+            metricAlarms.addAll(result.getMetricAlarms());
+            nextToken = result.getNextToken();
+            request.setNextToken(nextToken);
+        } while (nextToken != null && !nextToken.isEmpty());
+
+        long now = System.currentTimeMillis();
+        metricAlarms.forEach(alarm -> alarms.put(alarm.getAlarmName(), new CachedAlarm(alarm, now)));
+        logger.debug("CloudWatchAlarmIndex: " + metricAlarms.size() + " alarms for " + request);
+        return metricAlarms;
+    }
+
+    private static class CachedAlarm {
+        private final MetricAlarm alarm;
+        private final long fetchedAt;
+
+        CachedAlarm(MetricAlarm alarm, long fetchedAt) {
+            this.alarm = alarm;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
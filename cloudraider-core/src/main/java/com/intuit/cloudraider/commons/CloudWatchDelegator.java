@@ -24,18 +24,15 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatchClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * The type Cloud watch delegator.
  */
@@ -48,12 +45,11 @@ public class CloudWatchDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonCloudWatch cloudWatch;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonCloudWatch> cloudWatch =
+            Suppliers.memoize(() -> awsClientFactory.build("monitoring", AmazonCloudWatchClientBuilder.standard()));
 
 
     /**
@@ -66,25 +62,12 @@ public class CloudWatchDelegator {
 
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-        cloudWatch = AmazonCloudWatchClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-
-    }
-
     /**
      * Gets amazon cloud watch.
      *
      * @return the amazon cloud watch
      */
     public AmazonCloudWatch getAmazonCloudWatch() {
-        return cloudWatch;
+        return cloudWatch.get();
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * Completes a {@link CompletableFuture} from the callback of an Amazon*Async client call, so that async raider
+ * calls can be composed without a thread waiting on each one.
+ *
+ * @param <REQUEST> request type
+ * @param <RESULT>  result type
+ */
+public class CompletableAsyncHandler<REQUEST extends AmazonWebServiceRequest, RESULT> implements AsyncHandler<REQUEST, RESULT> {
+
+    private final CompletableFuture<RESULT> future = new CompletableFuture<>();
+
+    /**
+     * Call an async client method with a handler that completes the returned future.
+     * <p>
+     * e.g. {@code CompletableAsyncHandler.call(amazonRds::rebootDBInstanceAsync, request)}
+     *
+     * @param method    async client method taking the request and a handler
+     * @param request   request
+     * @param <REQUEST> request type
+     * @param <RESULT>  result type
+     * @return the future result
+     */
+    public static <REQUEST extends AmazonWebServiceRequest, RESULT> CompletableFuture<RESULT> call(
+            BiFunction<REQUEST, AsyncHandler<REQUEST, RESULT>, Future<RESULT>> method, REQUEST request) {
+        CompletableAsyncHandler<REQUEST, RESULT> handler = new CompletableAsyncHandler<>();
+        try {
+            method.apply(request, handler);
+        } catch (RuntimeException e) {
+            handler.onError(e);
+        }
+        return handler.getFuture();
+    }
+
+    /**
+     * Gets future.
+     *
+     * @return the future
+     */
+    public CompletableFuture<RESULT> getFuture() {
+        return future;
+    }
+
+    @Override
+    public void onError(Exception exception) {
+        future.completeExceptionally(exception);
+    }
+
+    @Override
+    public void onSuccess(REQUEST request, RESULT result) {
+        future.complete(result);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Polls a condition until it holds or a deadline passes, instead of sleeping for a fixed amount of time.
+ * <p>
+ * The delay between polls starts at initialDelayMillis and doubles up to maxDelayMillis; the last poll is made at the
+ * deadline at the latest. The outcome, including the time it took to converge, is returned as a Result.
+ */
+public class ConvergenceWaiter {
+
+    /**
+     * The constant INITIAL_DELAY_PROPERTY.
+     */
+    public static final String INITIAL_DELAY_PROPERTY = "cloudraider.convergence.pollInitialDelayMillis";
+    /**
+     * The constant MAX_DELAY_PROPERTY.
+     */
+    public static final String MAX_DELAY_PROPERTY = "cloudraider.convergence.pollMaxDelayMillis";
+    /**
+     * The constant DEFAULT_INITIAL_DELAY_MILLIS.
+     */
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
+    /**
+     * The constant DEFAULT_MAX_DELAY_MILLIS.
+     */
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 15000;
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * Instantiates a new Convergence waiter.
+     *
+     * @param initialDelayMillis delay before the second poll
+     * @param maxDelayMillis     max delay between polls
+     */
+    public ConvergenceWaiter(long initialDelayMillis, long maxDelayMillis) {
+        this.initialDelayMillis = Math.max(1, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Poll the supplier until its value matches the condition or the timeout expires. Exceptions thrown by the
+     * supplier are logged and count as a non matching poll.
+     *
+     * @param description   what is being waited for, used in logs
+     * @param supplier      reads the current value
+     * @param condition     whether the value is the expected one
+     * @param timeoutMillis time to wait for
+     * @param <T>           value type
+     * @return the outcome of the wait
+     */
+    public <T> Result<T> await(String description, Supplier<T> supplier, Predicate<T> condition, long timeoutMillis) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        long delayMillis = initialDelayMillis;
+        int attempts = 0;
+        T value = null;
+
+        while (true) {
+            attempts++;
+            try {
+                value = supplier.get();
+                if (condition.test(value)) {
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    logger.info(description + " converged in " + elapsedMillis + " ms after " + attempts + " polls: " + value);
+                    return new Result<>(true, value, elapsedMillis, attempts);
+                }
+            } catch (RuntimeException e) {
+                logger.warn(description + ": poll " + attempts + " failed", e);
+            }
+
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                logger.warn(description + " did not converge in " + elapsedMillis + " ms after " + attempts + " polls: " + value);
+                return new Result<>(false, value, elapsedMillis, attempts);
+            }
+
+            try {
+                Thread.sleep(Math.min(delayMillis, TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Result<>(false, value, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), attempts);
+            }
+            delayMillis = Math.min(delayMillis * 2, maxDelayMillis);
+        }
+    }
+
+    /**
+     * Outcome of a wait.
+     *
+     * @param <T> value type
+     */
+    public static class Result<T> {
+        private final boolean converged;
+        private final T value;
+        private final long elapsedMillis;
+        private final int attempts;
+
+        Result(boolean converged, T value, long elapsedMillis, int attempts) {
+            this.converged = converged;
+            this.value = value;
+            this.elapsedMillis = elapsedMillis;
+            this.attempts = attempts;
+        }
+
+        /**
+         * Whether the condition held before the deadline.
+         *
+         * @return true if converged
+         */
+        public boolean isConverged() {
+            return converged;
+        }
+
+        /**
+         * Gets the last value read.
+         *
+         * @return the value, null if every poll failed
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Gets the time from the first poll until the condition held, or until the deadline.
+         *
+         * @return elapsed millis
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Gets the number of polls made.
+         *
+         * @return attempts
+         */
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+}
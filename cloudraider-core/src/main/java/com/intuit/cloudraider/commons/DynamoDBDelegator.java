@@ -24,19 +24,15 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
-
 /**
  * The type Dynamo db delegator.
  */
@@ -48,12 +44,11 @@ public class DynamoDBDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonDynamoDB amazonDynamoDB;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonDynamoDB> amazonDynamoDB =
+            Suppliers.memoize(() -> awsClientFactory.build("dynamodb", AmazonDynamoDBClientBuilder.standard()));
 
 
     /**
@@ -63,25 +58,12 @@ public class DynamoDBDelegator {
 
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-        amazonDynamoDB = AmazonDynamoDBClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-
-    }
-
     /**
      * Gets amazon dynamo db.
      *
      * @return the amazon dynamo db
      */
     public AmazonDynamoDB getAmazonDynamoDB() {
-        return amazonDynamoDB;
+        return amazonDynamoDB.get();
     }
 }
\ No newline at end of file
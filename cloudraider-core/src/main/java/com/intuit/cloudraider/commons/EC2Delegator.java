@@ -24,18 +24,17 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.AmazonEC2Async;
+import com.amazonaws.services.ec2.AmazonEC2AsyncClientBuilder;
 import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * The type Ec 2 delegator.
  */
@@ -47,12 +46,13 @@ public class EC2Delegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonEC2 ec2;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonEC2> ec2 =
+            Suppliers.memoize(() -> awsClientFactory.build("ec2", AmazonEC2ClientBuilder.standard()));
+    private final Supplier<AmazonEC2Async> ec2Async =
+            Suppliers.memoize(() -> awsClientFactory.buildAsync("ec2-async", AmazonEC2AsyncClientBuilder.standard()));
 
 
     /**
@@ -62,18 +62,6 @@ public class EC2Delegator {
 
     }
 
-    @PostConstruct
-    private void init() {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-
-        ec2 = AmazonEC2ClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-    }
-
     /**
      * Gets ec2.
      *
@@ -81,6 +69,15 @@ public class EC2Delegator {
      */
     public AmazonEC2 getEc2() {
 
-        return ec2;
+        return ec2.get();
+    }
+
+    /**
+     * Gets ec2 async.
+     *
+     * @return the ec2 async
+     */
+    public AmazonEC2Async getEc2Async() {
+        return ec2Async.get();
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.intuit.cloudraider.model.Credentials;
+import com.intuit.cloudraider.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per region cache of EC2InventorySnapshot, reloaded with a full paginated DescribeInstances once older than the
+ * configured TTL ("aws.ec2.inventoryCacheTtlSeconds", default 30). A TTL of 0 disables the cache.
+ * Callers that mutate instances (terminate, stop, security group changes, ...) should call invalidate() or refresh().
+ */
+@Component
+public class EC2InventoryCache {
+
+    /**
+     * The constant TTL_PROPERTY.
+     */
+    public static final String TTL_PROPERTY = "aws.ec2.inventoryCacheTtlSeconds";
+    /**
+     * The constant DEFAULT_TTL_SECONDS.
+     */
+    public static final long DEFAULT_TTL_SECONDS = 30;
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private EC2Delegator ec2Delegator;
+
+    @Autowired
+    private Credentials credentials;
+
+    private final Map<String, EC2InventorySnapshot> snapshots = new ConcurrentHashMap<>();
+    private volatile long ttlMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TTL_SECONDS);
+
+    /**
+     * Instantiates a new EC2 inventory cache.
+     */
+    public EC2InventoryCache() {
+    }
+
+    @PostConstruct
+    private void init() {
+        setTtlSeconds(ConfigUtils.getLongProperty(TTL_PROPERTY, DEFAULT_TTL_SECONDS));
+    }
+
+    /**
+     * Whether lookups should be served from the cache.
+     *
+     * @return true if the ttl is positive
+     */
+    public boolean isEnabled() {
+        return ttlMillis > 0;
+    }
+
+    /**
+     * Sets the time to live of a snapshot.
+     *
+     * @param ttlSeconds ttl in seconds, 0 to disable
+     */
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, ttlSeconds));
+    }
+
+    /**
+     * Gets the current snapshot for the configured region, describing the fleet again if it is missing or expired.
+     *
+     * @return EC2InventorySnapshot
+     */
+    public EC2InventorySnapshot getSnapshot() {
+        String region = credentials.getRegion();
+        EC2InventorySnapshot snapshot = snapshots.get(region);
+        if (snapshot != null && System.currentTimeMillis() - snapshot.getCreatedAt() < ttlMillis) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = snapshots.get(region);
+            if (snapshot != null && System.currentTimeMillis() - snapshot.getCreatedAt() < ttlMillis) {
+                return snapshot;
+            }
+            return refresh();
+        }
+    }
+
+    /**
+     * Force a new snapshot of the configured region.
+     *
+     * @return EC2InventorySnapshot
+     */
+    public synchronized EC2InventorySnapshot refresh() {
+        String region = credentials.getRegion();
+        long start = System.currentTimeMillis();
+
+        List<Instance> instances = new ArrayList<>();
+        DescribeInstancesRequest request = new DescribeInstancesRequest();
+        String nextToken;
+        do {
+            DescribeInstancesResult result = ec2Delegator.getEc2().describeInstances(request);
+            for (Reservation reservation : result.getReservations()) {
+                instances.addAll(reservation.getInstances());
+            }
+            nextToken = result.getNextToken();
+            request.setNextToken(nextToken);
+        } while (nextToken != null && !nextToken.isEmpty());
+
+        EC2InventorySnapshot snapshot = new EC2InventorySnapshot(region, instances, start);
+        snapshots.put(region, snapshot);
+        logger.debug("EC2InventoryCache: loaded " + instances.size() + " instances in " + region + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return snapshot;
+    }
+
+    /**
+     * Drop all cached snapshots so the next lookup describes the fleet again.
+     */
+    public void invalidate() {
+        snapshots.clear();
+    }
+}
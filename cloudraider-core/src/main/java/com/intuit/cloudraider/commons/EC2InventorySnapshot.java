@@ -0,0 +1,292 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Tag;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable point in time view of every EC2 instance in a region, indexed by id, tag, availability zone, state,
+ * subnet and vpc. Index keys match exactly, as DescribeInstances filters do, so a query returns the same instances
+ * whether or not it is served from the snapshot.
+ */
+public class EC2InventorySnapshot {
+
+    private static final String TAG_FILTER_PREFIX = "tag:";
+
+    private final String region;
+    private final long createdAt;
+    private final List<Instance> instances;
+
+    private final Map<String, Instance> byId = new HashMap<>();
+    private final Map<String, Map<String, List<Instance>>> byTag = new HashMap<>();
+    private final Map<String, List<Instance>> byTagKey = new HashMap<>();
+    private final Map<String, List<Instance>> byTagValue = new HashMap<>();
+    private final Map<String, List<Instance>> byAvailabilityZone = new HashMap<>();
+    private final Map<String, List<Instance>> byState = new HashMap<>();
+    private final Map<String, List<Instance>> bySubnet = new HashMap<>();
+    private final Map<String, List<Instance>> byVpc = new HashMap<>();
+
+    /**
+     * Instantiates a new EC2 inventory snapshot.
+     *
+     * @param region    region the instances were described in
+     * @param instances all instances in the region
+     * @param createdAt time the instances were described, in epoch millis
+     */
+    public EC2InventorySnapshot(String region, List<Instance> instances, long createdAt) {
+        this.region = region;
+        this.createdAt = createdAt;
+        this.instances = Collections.unmodifiableList(new ArrayList<>(instances));
+
+        for (Instance instance : this.instances) {
+            byId.put(instance.getInstanceId(), instance);
+            if (instance.getPlacement() != null) {
+                index(byAvailabilityZone, instance.getPlacement().getAvailabilityZone(), instance);
+            }
+            if (instance.getState() != null) {
+                index(byState, instance.getState().getName(), instance);
+            }
+            index(bySubnet, instance.getSubnetId(), instance);
+            index(byVpc, instance.getVpcId(), instance);
+            for (Tag tag : instance.getTags()) {
+                index(byTag.computeIfAbsent(tag.getKey(), k -> new HashMap<>()), tag.getValue(), instance);
+                index(byTagKey, tag.getKey(), instance);
+                index(byTagValue, tag.getValue(), instance);
+            }
+        }
+    }
+
+    /**
+     * Gets region.
+     *
+     * @return the region
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Gets the time the snapshot was taken.
+     *
+     * @return epoch millis
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Gets all instances.
+     *
+     * @return list of AWS instances
+     */
+    public List<Instance> getInstances() {
+        return instances;
+    }
+
+    /**
+     * Gets the instance with the given id.
+     *
+     * @param instanceId instance id
+     * @return the instance, or null if absent
+     */
+    public Instance getInstance(String instanceId) {
+        return byId.get(instanceId);
+    }
+
+    /**
+     * Gets instances having the given tag.
+     *
+     * @param key   tag key
+     * @param value tag value
+     * @return list of AWS instances
+     */
+    public List<Instance> getInstancesByTag(String key, String value) {
+        return lookup(byTag.getOrDefault(key, Collections.emptyMap()), value);
+    }
+
+    /**
+     * Gets instances having a tag with the given key.
+     *
+     * @param key tag key
+     * @return list of AWS instances
+     */
+    public List<Instance> getInstancesByTagKey(String key) {
+        return lookup(byTagKey, key);
+    }
+
+    /**
+     * Gets instances having any tag with the given value.
+     *
+     * @param value tag value
+     * @return list of AWS instances
+     */
+    public List<Instance> getInstancesByTagValue(String value) {
+        return lookup(byTagValue, value);
+    }
+
+    /**
+     * Gets instances in the given availability zone.
+     *
+     * @param availabilityZone availability zone
+     * @return list of AWS instances
+     */
+    public List<Instance> getInstancesByAvailabilityZone(String availabilityZone) {
+        return lookup(byAvailabilityZone, availabilityZone);
+    }
+
+    /**
+     * Gets instances in the given state.
+     *
+     * @param state instance state name (e.g. "running")
+     * @return list of AWS instances
+     */
+    public List<Instance> getInstancesByState(String state) {
+        return lookup(byState, state);
+    }
+
+    /**
+     * Gets instances in the given subnet.
+     *
+     * @param subnetId subnet id
+     * @return list of AWS instances
+     */
+    public List<Instance> getInstancesBySubnet(String subnetId) {
+        return lookup(bySubnet, subnetId);
+    }
+
+    /**
+     * Gets instances in the given vpc.
+     *
+     * @param vpcId vpc id
+     * @return list of AWS instances
+     */
+    public List<Instance> getInstancesByVpc(String vpcId) {
+        return lookup(byVpc, vpcId);
+    }
+
+    /**
+     * Whether every filter can be answered from the indexes.
+     * Supported filter names are instance-id, instance-state-name, availability-zone, subnet-id, vpc-id, tag-key,
+     * tag-value and tag:key.
+     *
+     * @param filters DescribeInstances filters
+     * @return true if query() can evaluate the filters
+     */
+    public boolean supports(List<Filter> filters) {
+        return filters.stream().allMatch(f -> indexFor(f.getName()) != null);
+    }
+
+    /**
+     * Evaluate DescribeInstances style filters against the snapshot: values within a filter are OR'ed and filters are
+     * AND'ed. Each filter is resolved through its index and the results are intersected.
+     *
+     * @param filters DescribeInstances filters, all of which must be supported
+     * @return list of matching AWS instances
+     */
+    public List<Instance> query(List<Filter> filters) {
+        if (!supports(filters)) {
+            throw new IllegalArgumentException("Unsupported filter in " + filters);
+        }
+        if (filters.isEmpty()) {
+            return instances;
+        }
+
+        Iterator<Filter> iterator = filters.iterator();
+        List<Instance> candidates = new ArrayList<>(resolve(iterator.next()));
+        while (iterator.hasNext() && !candidates.isEmpty()) {
+            Set<Instance> matches = identitySet(resolve(iterator.next()));
+            candidates.removeIf(instance -> !matches.contains(instance));
+        }
+        return candidates;
+    }
+
+    private List<Instance> resolve(Filter filter) {
+        Function<String, List<Instance>> index = indexFor(filter.getName());
+        if (filter.getValues().size() == 1) {
+            return index.apply(filter.getValues().get(0));
+        }
+        Set<Instance> seen = identitySet(Collections.emptyList());
+        return filter.getValues().stream()
+                .flatMap(value -> index.apply(value).stream())
+                .filter(seen::add)
+                .collect(Collectors.toList());
+    }
+
+    private static Set<Instance> identitySet(List<Instance> instances) {
+        Set<Instance> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(instances);
+        return set;
+    }
+
+    private Function<String, List<Instance>> indexFor(String filterName) {
+        if (filterName == null) {
+            return null;
+        }
+        if (filterName.startsWith(TAG_FILTER_PREFIX)) {
+            String tagKey = filterName.substring(TAG_FILTER_PREFIX.length());
+            return value -> getInstancesByTag(tagKey, value);
+        }
+        switch (filterName) {
+            case "instance-id":
+                return value -> {
+                    Instance instance = getInstance(value);
+                    return instance == null ? Collections.emptyList() : Collections.singletonList(instance);
+                };
+            case "instance-state-name":
+                return this::getInstancesByState;
+            case "availability-zone":
+                return this::getInstancesByAvailabilityZone;
+            case "subnet-id":
+                return this::getInstancesBySubnet;
+            case "vpc-id":
+                return this::getInstancesByVpc;
+            case "tag-key":
+                return this::getInstancesByTagKey;
+            case "tag-value":
+                return this::getInstancesByTagValue;
+            default:
+                return null;
+        }
+    }
+
+    private static void index(Map<String, List<Instance>> index, String value, Instance instance) {
+        if (value != null) {
+            index.computeIfAbsent(value, k -> new ArrayList<>()).add(instance);
+        }
+    }
+
+    private static List<Instance> lookup(Map<String, List<Instance>> index, String value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(index.getOrDefault(value, Collections.emptyList()));
+    }
+}
@@ -24,18 +24,17 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.elasticache.AmazonElastiCache;
+import com.amazonaws.services.elasticache.AmazonElastiCacheAsync;
+import com.amazonaws.services.elasticache.AmazonElastiCacheAsyncClientBuilder;
 import com.amazonaws.services.elasticache.AmazonElastiCacheClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * The type Elasti cache delegator.
  */
@@ -47,12 +46,13 @@ public class ElastiCacheDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonElastiCache amazonElastiCache;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonElastiCache> amazonElastiCache =
+            Suppliers.memoize(() -> awsClientFactory.build("elasticache", AmazonElastiCacheClientBuilder.standard()));
+    private final Supplier<AmazonElastiCacheAsync> amazonElastiCacheAsync =
+            Suppliers.memoize(() -> awsClientFactory.buildAsync("elasticache-async", AmazonElastiCacheAsyncClientBuilder.standard()));
 
 
     /**
@@ -62,25 +62,21 @@ public class ElastiCacheDelegator {
 
     }
 
-    @PostConstruct
-    private void init() {
-        Logger logger = LoggerFactory.getLogger(this.getClass());
-
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-        amazonElastiCache = AmazonElastiCacheClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-    }
-
     /**
      * Gets amazon elasti cache.
      *
      * @return the amazon elasti cache
      */
     public AmazonElastiCache getAmazonElastiCache() {
-        return amazonElastiCache;
+        return amazonElastiCache.get();
+    }
+
+    /**
+     * Gets amazon elasti cache async.
+     *
+     * @return the amazon elasti cache async
+     */
+    public AmazonElastiCacheAsync getAmazonElastiCacheAsync() {
+        return amazonElastiCacheAsync.get();
     }
 }
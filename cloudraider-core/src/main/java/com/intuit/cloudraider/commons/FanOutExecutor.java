@@ -0,0 +1,273 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.intuit.cloudraider.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a blocking action against many targets (hosts, instances, domains...) on a dedicated bounded thread pool per
+ * target type instead of the JVM wide common ForkJoinPool. Every target is attempted; the outcome of each one is
+ * reported in the returned FanOutResult.
+ * <p>
+ * Max concurrency per target type is read from the config file:
+ * cloudraider.fanout.ssh.maxConcurrency, cloudraider.fanout.ssm.maxConcurrency and
+ * cloudraider.fanout.aws.maxConcurrency.
+ */
+@Component("fanOutExecutor")
+public class FanOutExecutor {
+
+    /**
+     * Kind of work being fanned out, each kind gets its own pool.
+     */
+    public enum TargetType {
+        /**
+         * Commands run over SSH through the bastion.
+         */
+        SSH(32),
+        /**
+         * Calls to AWS Systems Manager.
+         */
+        SSM(16),
+        /**
+         * Other AWS control plane calls (EC2, ELB, ...).
+         */
+        AWS(8);
+
+        private final int defaultMaxConcurrency;
+
+        TargetType(int defaultMaxConcurrency) {
+            this.defaultMaxConcurrency = defaultMaxConcurrency;
+        }
+
+        /**
+         * Gets the config property holding the max concurrency of this target type.
+         *
+         * @return property name
+         */
+        public String getMaxConcurrencyProperty() {
+            return "cloudraider.fanout." + name().toLowerCase() + ".maxConcurrency";
+        }
+
+        /**
+         * Gets default max concurrency.
+         *
+         * @return the default max concurrency
+         */
+        public int getDefaultMaxConcurrency() {
+            return defaultMaxConcurrency;
+        }
+    }
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Map<TargetType, ExecutorService> executors = new EnumMap<>(TargetType.class);
+    private final Map<TargetType, Integer> maxConcurrency = new EnumMap<>(TargetType.class);
+
+    /**
+     * Instantiates a new fan out executor.
+     */
+    public FanOutExecutor() {
+    }
+
+    @PostConstruct
+    private void init() {
+        for (TargetType type : TargetType.values()) {
+            int concurrency = (int) ConfigUtils.getLongProperty(type.getMaxConcurrencyProperty(), type.getDefaultMaxConcurrency());
+            maxConcurrency.put(type, Math.max(1, concurrency));
+        }
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        synchronized (executors) {
+            executors.values().forEach(ExecutorService::shutdownNow);
+            executors.clear();
+        }
+    }
+
+    /**
+     * Gets the max number of concurrent actions for the target type.
+     *
+     * @param type target type
+     * @return max concurrency
+     */
+    public int getMaxConcurrency(TargetType type) {
+        return maxConcurrency.getOrDefault(type, type.getDefaultMaxConcurrency());
+    }
+
+    /**
+     * Run the action against every target, at most getMaxConcurrency(type) at a time, and wait for all of them.
+     *
+     * @param type      target type
+     * @param targets   targets to run the action against
+     * @param describer how to name a target in logs and failure messages (e.g. instance id and ip)
+     * @param action    blocking action
+     * @param <T>       target type
+     * @return outcome of every target
+     */
+    public <T> FanOutResult<T> execute(TargetType type, List<T> targets, Function<T, String> describer, Consumer<T> action) {
+        FanOutResult<T> result = new FanOutResult<>(describer);
+        if (targets == null || targets.isEmpty()) {
+            return result;
+        }
+
+        ExecutorService executor = getExecutor(type);
+        List<Future<?>> futures = new ArrayList<>();
+        for (T target : targets) {
+            futures.add(executor.submit(() -> action.accept(target)));
+        }
+
+        for (int i = 0; i < targets.size(); i++) {
+            T target = targets.get(i);
+            try {
+                futures.get(i).get();
+                result.addSuccess(target);
+                logger.debug("FanOutExecutor: " + type + " action succeeded on " + describer.apply(target));
+            } catch (ExecutionException e) {
+                result.addFailure(target, e.getCause());
+                logger.error("FanOutExecutor: " + type + " action failed on " + describer.apply(target), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                result.addFailure(target, e);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Run the action against every target and throw once all of them completed if any failed.
+     *
+     * @param type      target type
+     * @param targets   targets to run the action against
+     * @param describer how to name a target in logs and failure messages
+     * @param action    blocking action
+     * @param <T>       target type
+     * @return outcome of every target, all successful
+     */
+    public <T> FanOutResult<T> executeAll(TargetType type, List<T> targets, Function<T, String> describer, Consumer<T> action) {
+        FanOutResult<T> result = execute(type, targets, describer, action);
+        result.throwIfAnyFailed();
+        return result;
+    }
+
+    private ExecutorService getExecutor(TargetType type) {
+        synchronized (executors) {
+            return executors.computeIfAbsent(type, t -> {
+                int threads = getMaxConcurrency(t);
+                AtomicInteger count = new AtomicInteger();
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "cloudraider-" + t.name().toLowerCase() + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                executor.allowCoreThreadTimeOut(true);
+                return executor;
+            });
+        }
+    }
+
+    /**
+     * Outcome of a fan out: which targets succeeded and why the others failed.
+     *
+     * @param <T> target type
+     */
+    public static class FanOutResult<T> {
+        private final Function<T, String> describer;
+        private final List<T> succeeded = Collections.synchronizedList(new ArrayList<>());
+        private final Map<T, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+
+        FanOutResult(Function<T, String> describer) {
+            this.describer = describer;
+        }
+
+        void addSuccess(T target) {
+            succeeded.add(target);
+        }
+
+        void addFailure(T target, Throwable cause) {
+            failures.put(target, cause);
+        }
+
+        /**
+         * Gets targets the action succeeded on.
+         *
+         * @return list of targets
+         */
+        public List<T> getSucceeded() {
+            return new ArrayList<>(succeeded);
+        }
+
+        /**
+         * Gets targets the action failed on with the failure cause.
+         *
+         * @return map of target to cause
+         */
+        public Map<T, Throwable> getFailures() {
+            return new LinkedHashMap<>(failures);
+        }
+
+        /**
+         * Whether the action succeeded on every target.
+         *
+         * @return true if there were no failures
+         */
+        public boolean isAllSucceeded() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * Throws a RuntimeException naming every failed target, if any.
+         */
+        public void throwIfAnyFailed() {
+            if (failures.isEmpty()) {
+                return;
+            }
+            StringBuilder message = new StringBuilder("Action failed on " + failures.size() + " of "
+                    + (failures.size() + succeeded.size()) + " targets:");
+            getFailures().forEach((target, cause) ->
+                    message.append(" [").append(describer.apply(target)).append(": ").append(cause).append("]"));
+            RuntimeException exception = new RuntimeException(message.toString());
+            failures.values().forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+}
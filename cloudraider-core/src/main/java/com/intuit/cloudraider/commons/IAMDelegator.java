@@ -24,19 +24,15 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
 import com.amazonaws.services.identitymanagement.AmazonIdentityManagementClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
-
 /**
  * The type Iam delegator.
  */
@@ -48,12 +44,11 @@ public class IAMDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-        private AmazonIdentityManagement iam;
-        private AWSCredentials awsCredentials;
-        private String region;
-
         @Autowired
-         private Credentials credentials;
+        private AwsClientFactory awsClientFactory;
+
+        private final Supplier<AmazonIdentityManagement> iam =
+                Suppliers.memoize(() -> awsClientFactory.build("iam", AmazonIdentityManagementClientBuilder.standard()));
 
 
     /**
@@ -62,17 +57,6 @@ public class IAMDelegator {
     public IAMDelegator() {
     }
 
-    @PostConstruct
-    private void init() {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-        iam = AmazonIdentityManagementClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-    }
-
     /**
      * Gets iam.
      *
@@ -80,7 +64,7 @@ public class IAMDelegator {
      */
     public AmazonIdentityManagement getIAM()
         {
-            return iam;
+            return iam.get();
         }
 
     }
\ No newline at end of file
@@ -24,18 +24,17 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancing;
+import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingAsync;
+import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingAsyncClientBuilder;
 import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * The type Load balancer delegator.
  */
@@ -47,12 +46,13 @@ public class LoadBalancerDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonElasticLoadBalancing amazonElasticLoadBalancing;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonElasticLoadBalancing> amazonElasticLoadBalancing =
+            Suppliers.memoize(() -> awsClientFactory.build("elb", AmazonElasticLoadBalancingClientBuilder.standard()));
+    private final Supplier<AmazonElasticLoadBalancingAsync> amazonElasticLoadBalancingAsync =
+            Suppliers.memoize(() -> awsClientFactory.buildAsync("elb-async", AmazonElasticLoadBalancingAsyncClientBuilder.standard()));
 
 
 
@@ -63,26 +63,21 @@ public class LoadBalancerDelegator {
 
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-
-        amazonElasticLoadBalancing = AmazonElasticLoadBalancingClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-
-    }
-
     /**
      * Gets amazon elastic load balancing.
      *
      * @return the amazon elastic load balancing
      */
     public AmazonElasticLoadBalancing getAmazonElasticLoadBalancing() {
-        return amazonElasticLoadBalancing;
+        return amazonElasticLoadBalancing.get();
+    }
+
+    /**
+     * Gets amazon elastic load balancing async.
+     *
+     * @return the amazon elastic load balancing async
+     */
+    public AmazonElasticLoadBalancingAsync getAmazonElasticLoadBalancingAsync() {
+        return amazonElasticLoadBalancingAsync.get();
     }
 }
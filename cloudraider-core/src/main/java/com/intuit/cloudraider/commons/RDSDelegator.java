@@ -24,18 +24,17 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.rds.AmazonRDS;
+import com.amazonaws.services.rds.AmazonRDSAsync;
+import com.amazonaws.services.rds.AmazonRDSAsyncClientBuilder;
 import com.amazonaws.services.rds.AmazonRDSClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * The type Rds delegator.
  */
@@ -47,12 +46,13 @@ public class RDSDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonRDS amazonRds;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonRDS> amazonRds =
+            Suppliers.memoize(() -> awsClientFactory.build("rds", AmazonRDSClientBuilder.standard()));
+    private final Supplier<AmazonRDSAsync> amazonRdsAsync =
+            Suppliers.memoize(() -> awsClientFactory.buildAsync("rds-async", AmazonRDSAsyncClientBuilder.standard()));
 
     /**
      * Instantiates a new Rds delegator.
@@ -61,25 +61,21 @@ public class RDSDelegator {
 
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-        amazonRds = AmazonRDSClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-
-    }
-
     /**
      * Gets amazon rds.
      *
      * @return the amazon rds
      */
     public AmazonRDS getAmazonRds() {
-        return amazonRds;
+        return amazonRds.get();
+    }
+
+    /**
+     * Gets amazon rds async.
+     *
+     * @return the amazon rds async
+     */
+    public AmazonRDSAsync getAmazonRdsAsync() {
+        return amazonRdsAsync.get();
     }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.google.common.hash.Hashing;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local manifest of the scripts already uploaded to each host.
+ * <p>
+ * Scripts are stored remotely under a name derived from the SHA-256 of their content, so a script is uploaded once
+ * per host and concurrent actions on the same host never overwrite each other's script.
+ * Hosts are keyed by ip and SSH host key, a replaced instance reusing an ip starts with an empty manifest.
+ */
+public class RemoteScriptCache {
+
+    /**
+     * The constant SCRIPT_DIRECTORY, relative to the user's home directory.
+     */
+    public static final String SCRIPT_DIRECTORY = ".cloudraider/scripts";
+
+    private final Map<String, Set<String>> manifest = new ConcurrentHashMap<>();
+
+    /**
+     * Hash of the script content.
+     *
+     * @param script script content
+     * @return hex encoded SHA-256
+     */
+    public static String hash(byte[] script) {
+        return Hashing.sha256().hashBytes(script).toString();
+    }
+
+    /**
+     * Gets the directory scripts are stored in.
+     *
+     * @param home home directory of the ssh user
+     * @return remote directory
+     */
+    public String getDirectory(String home) {
+        return home + "/" + SCRIPT_DIRECTORY;
+    }
+
+    /**
+     * Gets the remote path of the script with the given hash.
+     *
+     * @param home home directory of the ssh user
+     * @param hash script hash
+     * @return remote path
+     */
+    public String getRemotePath(String home, String hash) {
+        return getDirectory(home) + "/" + hash + ".sh";
+    }
+
+    /**
+     * Whether the host already has the script.
+     *
+     * @param host host key
+     * @param hash script hash
+     * @return true if the script was uploaded to the host
+     */
+    public boolean contains(String host, String hash) {
+        return manifest.getOrDefault(host, Collections.emptySet()).contains(hash);
+    }
+
+    /**
+     * Record that the host has the script.
+     *
+     * @param host host key
+     * @param hash script hash
+     */
+    public void add(String host, String hash) {
+        manifest.computeIfAbsent(host, k -> ConcurrentHashMap.newKeySet()).add(hash);
+    }
+
+    /**
+     * Forget every script recorded for the host.
+     *
+     * @param host host key
+     */
+    public void forget(String host) {
+        manifest.remove(host);
+    }
+
+    /**
+     * Forget every host.
+     */
+    public void clear() {
+        manifest.clear();
+    }
+}
@@ -24,18 +24,15 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.route53.AmazonRoute53;
 import com.amazonaws.services.route53.AmazonRoute53ClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * The type Route 53 delegator.
  */
@@ -47,12 +44,11 @@ public class Route53Delegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AmazonRoute53 amazonRoute53;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AmazonRoute53> amazonRoute53 =
+            Suppliers.memoize(() -> awsClientFactory.build("route53", AmazonRoute53ClientBuilder.standard()));
 
 
     /**
@@ -62,26 +58,13 @@ public class Route53Delegator {
 
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-        amazonRoute53 = AmazonRoute53ClientBuilder
-                .standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-
-    }
-
     /**
      * Gets amazon route 53.
      *
      * @return the amazon route 53
      */
     public AmazonRoute53 getAmazonRoute53() {
-        return amazonRoute53;
+        return amazonRoute53.get();
     }
 }
 
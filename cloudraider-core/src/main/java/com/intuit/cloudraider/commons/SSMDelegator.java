@@ -24,18 +24,15 @@
 
 package com.intuit.cloudraider.commons;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
 import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagementClientBuilder;
-import com.intuit.cloudraider.model.Credentials;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 /**
  * The type Ssm delegator.
  */
@@ -47,12 +44,11 @@ public class SSMDelegator {
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AWSSimpleSystemsManagement amazonSSM;
-    private AWSCredentials awsCredentials;
-    private String region;
-
     @Autowired
-    private Credentials credentials;
+    private AwsClientFactory awsClientFactory;
+
+    private final Supplier<AWSSimpleSystemsManagement> amazonSSM =
+            Suppliers.memoize(() -> awsClientFactory.build("ssm", AWSSimpleSystemsManagementClientBuilder.standard()));
 
     /**
      * Instantiates a new Ssm delegator.
@@ -61,18 +57,6 @@ public class SSMDelegator {
 
     }
 
-    @PostConstruct
-    private void init()
-    {
-        awsCredentials = credentials.getAwsCredentials();
-        region = credentials.getRegion();
-        amazonSSM = AWSSimpleSystemsManagementClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
-                .withRegion(region)
-                .build();
-
-    }
-
     /**
      * Gets aws simple systems management.
      *
@@ -80,6 +64,6 @@ public class SSMDelegator {
      */
     public AWSSimpleSystemsManagement getAWSSimpleSystemsManagement()
     {
-        return amazonSSM;
+        return amazonSSM.get();
     }
 }
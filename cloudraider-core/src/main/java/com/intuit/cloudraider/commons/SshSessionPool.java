@@ -0,0 +1,411 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.google.common.net.InetAddresses;
+import com.intuit.cloudraider.model.SshParameters;
+import com.intuit.cloudraider.utils.ConfigUtils;
+import com.jcraft.jsch.ChannelDirectTCPIP;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Proxy;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SocketFactory;
+import com.pastdev.jsch.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Keyed pool of authenticated SSH sessions, one key per target ip.
+ * <p>
+ * Unless "skipbastion" is set, a single bastion session is shared and every target session is tunnelled through a
+ * direct-tcpip channel of it, so only the first connection to a host pays for the bastion handshake. Idle sessions are
+ * health checked when borrowed and evicted after "cloudraider.ssh.idleTimeoutSeconds" (default 300); at most
+ * "cloudraider.ssh.maxSessionsPerHost" (default 4) sessions are open per host.
+ */
+@Component
+public class SshSessionPool {
+
+    /**
+     * The constant MAX_SESSIONS_PER_HOST_PROPERTY.
+     */
+    public static final String MAX_SESSIONS_PER_HOST_PROPERTY = "cloudraider.ssh.maxSessionsPerHost";
+    /**
+     * The constant IDLE_TIMEOUT_PROPERTY.
+     */
+    public static final String IDLE_TIMEOUT_PROPERTY = "cloudraider.ssh.idleTimeoutSeconds";
+    /**
+     * The constant BORROW_TIMEOUT_PROPERTY.
+     */
+    public static final String BORROW_TIMEOUT_PROPERTY = "cloudraider.ssh.borrowTimeoutSeconds";
+
+    private static final int DEFAULT_MAX_SESSIONS_PER_HOST = 4;
+    private static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+    private static final long DEFAULT_BORROW_TIMEOUT_SECONDS = 120;
+    private static final long EVICTION_INTERVAL_SECONDS = 30;
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private SystemDelegator systemDelegator;
+
+    private final Map<String, HostPool> pools = new ConcurrentHashMap<>();
+
+    private volatile int maxSessionsPerHost = DEFAULT_MAX_SESSIONS_PER_HOST;
+    private volatile long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_IDLE_TIMEOUT_SECONDS);
+    private volatile long borrowTimeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_BORROW_TIMEOUT_SECONDS);
+    private boolean skipBastion;
+
+    private SshParameters sessionFactoryParameters;
+    private CloudRaiderSSHSessionFactory sessionFactory;
+    private Session bastionSession;
+    private ScheduledExecutorService evictor;
+
+    /**
+     * Instantiates a new Ssh session pool.
+     */
+    public SshSessionPool() {
+    }
+
+    @PostConstruct
+    private void init() {
+        Properties prop = ConfigUtils.getConfigProperties();
+        skipBastion = "yes".equalsIgnoreCase(prop.getProperty("skipbastion"));
+        setMaxSessionsPerHost((int) ConfigUtils.getLongProperty(MAX_SESSIONS_PER_HOST_PROPERTY, DEFAULT_MAX_SESSIONS_PER_HOST));
+        setIdleTimeoutSeconds(ConfigUtils.getLongProperty(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_SECONDS));
+        setBorrowTimeoutSeconds(ConfigUtils.getLongProperty(BORROW_TIMEOUT_PROPERTY, DEFAULT_BORROW_TIMEOUT_SECONDS));
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cloudraider-ssh-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Disconnect every pooled session and the bastion session.
+     */
+    @PreDestroy
+    public void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        clear();
+    }
+
+    /**
+     * Sets the max number of sessions open at the same time to a single host. Applies to hosts not pooled yet.
+     *
+     * @param maxSessionsPerHost max sessions per host
+     */
+    public void setMaxSessionsPerHost(int maxSessionsPerHost) {
+        this.maxSessionsPerHost = Math.max(1, maxSessionsPerHost);
+    }
+
+    /**
+     * Sets how long a session may stay idle in the pool before it is disconnected.
+     *
+     * @param idleTimeoutSeconds idle timeout in seconds
+     */
+    public void setIdleTimeoutSeconds(long idleTimeoutSeconds) {
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(0, idleTimeoutSeconds));
+    }
+
+    /**
+     * Sets how long borrow() waits for a session when the host is at its max.
+     *
+     * @param borrowTimeoutSeconds borrow timeout in seconds
+     */
+    public void setBorrowTimeoutSeconds(long borrowTimeoutSeconds) {
+        this.borrowTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(0, borrowTimeoutSeconds));
+    }
+
+    /**
+     * Borrow a connected session to the given host, reusing an idle one when it is still healthy.
+     * The session must be handed back with release() or invalidate().
+     *
+     * @param ip private ip address of the host
+     * @return connected Session
+     * @throws JSchException if no session could be opened
+     */
+    public Session borrow(String ip) throws JSchException {
+        InetAddresses.forString(ip);
+        HostPool pool = pools.computeIfAbsent(ip, k -> new HostPool(maxSessionsPerHost));
+
+        try {
+            if (!pool.permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new JSchException("Timed out waiting for an ssh session to " + ip);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JSchException("Interrupted waiting for an ssh session to " + ip, e);
+        }
+
+        try {
+            IdleSession idle;
+            while ((idle = pool.idle.pollFirst()) != null) {
+                if (isHealthy(idle.session)) {
+                    logger.debug("SshSessionPool: reusing session to " + ip);
+                    return idle.session;
+                }
+                idle.session.disconnect();
+            }
+
+            Session session = newSession(ip);
+            session.connect();
+            logger.debug("SshSessionPool: opened session to " + ip);
+            return session;
+        } catch (JSchException | RuntimeException e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a healthy session to the pool.
+     *
+     * @param ip      private ip address of the host
+     * @param session session obtained from borrow()
+     */
+    public void release(String ip, Session session) {
+        HostPool pool = pools.get(ip);
+        if (pool == null) {
+            session.disconnect();
+            return;
+        }
+        pool.idle.offerFirst(new IdleSession(session, System.currentTimeMillis()));
+        pool.permits.release();
+    }
+
+    /**
+     * Disconnect a session that failed instead of returning it to the pool.
+     *
+     * @param ip      private ip address of the host
+     * @param session session obtained from borrow()
+     */
+    public void invalidate(String ip, Session session) {
+        session.disconnect();
+        HostPool pool = pools.get(ip);
+        if (pool != null) {
+            pool.permits.release();
+        }
+    }
+
+    /**
+     * Gets the number of idle sessions pooled for the host.
+     *
+     * @param ip private ip address of the host
+     * @return number of idle sessions
+     */
+    public int getIdleCount(String ip) {
+        HostPool pool = pools.get(ip);
+        return pool == null ? 0 : pool.idle.size();
+    }
+
+    /**
+     * Disconnect idle sessions older than the idle timeout, and the bastion session once nothing is pooled.
+     */
+    void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (HostPool pool : pools.values()) {
+            Iterator<IdleSession> iterator = pool.idle.iterator();
+            while (iterator.hasNext()) {
+                IdleSession idle = iterator.next();
+                if (now - idle.releasedAt >= idleTimeoutMillis && pool.idle.remove(idle)) {
+                    idle.session.disconnect();
+                }
+            }
+        }
+        disconnectBastionIfUnused();
+    }
+
+    /**
+     * Creates a new, not yet connected, session to the host.
+     *
+     * @param ip private ip address of the host
+     * @return Session
+     * @throws JSchException if the session cannot be created
+     */
+    protected Session newSession(String ip) throws JSchException {
+        SessionFactory.SessionFactoryBuilder builder = getSessionFactory()
+                .newSessionFactoryBuilder()
+                .setHostname(ip)
+                .setPort(SessionFactory.SSH_PORT);
+        if (!skipBastion) {
+            builder.setProxy(new BastionChannelProxy());
+        }
+        return builder.build().newSession();
+    }
+
+    private boolean isHealthy(Session session) {
+        if (!session.isConnected()) {
+            return false;
+        }
+        try {
+            session.sendKeepAliveMsg();
+            return true;
+        } catch (Exception e) {
+            logger.debug("SshSessionPool: dropping broken session to " + session.getHost(), e);
+            return false;
+        }
+    }
+
+    private synchronized CloudRaiderSSHSessionFactory getSessionFactory() throws JSchException {
+        SshParameters sshParameters = systemDelegator.getSshParameters();
+        if (sessionFactory == null || sessionFactoryParameters != sshParameters) {
+            clear();
+            logger.debug("SSH params = " + sshParameters);
+            CloudRaiderSSHSessionFactory factory = new CloudRaiderSSHSessionFactory(
+                    sshParameters.getUsername(), null, SessionFactory.SSH_PORT);
+            factory.addIdentityFromPrivateKey(sshParameters.getPrivateKeyPath(), sshParameters.getPassPhrase());
+            factory.printIdentities();
+
+            Map<String, String> config = new HashMap<>();
+            config.put("StrictHostKeyChecking", "no");
+            config.put("PreferredAuthentications", "publickey");
+            factory.setConfig(config);
+
+            sessionFactory = factory;
+            sessionFactoryParameters = sshParameters;
+        }
+        return sessionFactory;
+    }
+
+    private synchronized Session getBastionSession() throws JSchException {
+        if (bastionSession == null || !bastionSession.isConnected()) {
+            bastionSession = getSessionFactory()
+                    .newSessionFactoryBuilder()
+                    .setHostname(systemDelegator.getSshParameters().getBastionHost())
+                    .setPort(SessionFactory.SSH_PORT)
+                    .build()
+                    .newSession();
+            bastionSession.connect();
+            logger.debug("SshSessionPool: opened bastion session to " + bastionSession.getHost());
+        }
+        return bastionSession;
+    }
+
+    /**
+     * Disconnect the bastion session when no host has a session borrowed or idle. Runs under the lock of
+     * getBastionSession(): borrow() takes its permit before tunnelling, so a borrow either shows up here and keeps the
+     * bastion, or opens its tunnel after the disconnect on a new bastion session.
+     */
+    private synchronized void disconnectBastionIfUnused() {
+        if (pools.values().stream().allMatch(pool -> pool.idle.isEmpty() && pool.permits.availablePermits() == pool.size)) {
+            disconnectBastion();
+        }
+    }
+
+    private synchronized void disconnectBastion() {
+        if (bastionSession != null) {
+            bastionSession.disconnect();
+            bastionSession = null;
+        }
+    }
+
+    private synchronized void clear() {
+        pools.values().forEach(pool -> {
+            pool.idle.forEach(idle -> idle.session.disconnect());
+            pool.idle.clear();
+        });
+        pools.clear();
+        disconnectBastion();
+    }
+
+    private static class HostPool {
+        private final int size;
+        private final Semaphore permits;
+        private final Deque<IdleSession> idle = new ConcurrentLinkedDeque<>();
+
+        private HostPool(int size) {
+            this.size = size;
+            this.permits = new Semaphore(size, true);
+        }
+    }
+
+    private static class IdleSession {
+        private final Session session;
+        private final long releasedAt;
+
+        private IdleSession(Session session, long releasedAt) {
+            this.session = session;
+            this.releasedAt = releasedAt;
+        }
+    }
+
+    /**
+     * Tunnels a target session through a direct-tcpip channel of the shared bastion session.
+     */
+    private class BastionChannelProxy implements Proxy {
+        private ChannelDirectTCPIP channel;
+        private InputStream inputStream;
+        private OutputStream outputStream;
+
+        @Override
+        public void connect(SocketFactory socketFactory, String host, int port, int timeout) throws Exception {
+            channel = (ChannelDirectTCPIP) getBastionSession().openChannel("direct-tcpip");
+            channel.setHost(host);
+            channel.setPort(port);
+            inputStream = channel.getInputStream();
+            outputStream = channel.getOutputStream();
+            channel.connect(timeout);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public Socket getSocket() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            if (channel != null) {
+                channel.disconnect();
+            }
+        }
+    }
+}
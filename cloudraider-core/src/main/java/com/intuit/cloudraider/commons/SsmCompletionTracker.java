@@ -0,0 +1,233 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.services.simplesystemsmanagement.model.CommandInvocation;
+import com.amazonaws.services.simplesystemsmanagement.model.CommandInvocationStatus;
+import com.amazonaws.services.simplesystemsmanagement.model.ListCommandInvocationsRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.ListCommandInvocationsResult;
+import com.intuit.cloudraider.model.SsmCommandBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tracks SSM command invocations with paginated ListCommandInvocations calls per command id instead of one
+ * GetCommandInvocation call per instance.
+ * <p>
+ * Completion is polled on a single daemon thread with an adaptive backoff: the delay starts at initialDelayMillis,
+ * doubles up to maxDelayMillis while no invocation reaches a terminal state and falls back to initialDelayMillis
+ * as soon as one does.
+ */
+public class SsmCompletionTracker {
+
+    /**
+     * Statuses an invocation never leaves.
+     */
+    public static final Set<String> TERMINAL_STATUSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            CommandInvocationStatus.Success.toString(),
+            CommandInvocationStatus.Cancelled.toString(),
+            CommandInvocationStatus.TimedOut.toString(),
+            CommandInvocationStatus.Failed.toString())));
+
+    /**
+     * Status reported for instances a command was sent to but SSM does not list an invocation for yet.
+     */
+    public static final String PENDING_STATUS = CommandInvocationStatus.Pending.toString();
+
+    private static final int MAX_RESULTS = 50;
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final SSMDelegator ssmDelegator;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final long timeoutMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cloudraider-ssm-tracker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Instantiates a new Ssm completion tracker.
+     *
+     * @param ssmDelegator       ssm delegator
+     * @param initialDelayMillis delay between polls while invocations make progress
+     * @param maxDelayMillis     max delay between polls
+     * @param timeoutMillis      time after which completion fails with a TimeoutException
+     */
+    public SsmCompletionTracker(SSMDelegator ssmDelegator, long initialDelayMillis, long maxDelayMillis, long timeoutMillis) {
+        this.ssmDelegator = ssmDelegator;
+        this.initialDelayMillis = Math.max(1, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Whether the invocation status is final.
+     *
+     * @param status invocation status
+     * @return true if terminal
+     */
+    public static boolean isTerminal(String status) {
+        return TERMINAL_STATUSES.contains(status);
+    }
+
+    /**
+     * Gets the status of every invocation of the command, reading all pages.
+     *
+     * @param commandId command id
+     * @return map of instance id to status
+     */
+    public Map<String, String> getStatuses(String commandId) {
+        Map<String, String> statuses = new LinkedHashMap<>();
+        ListCommandInvocationsRequest request = new ListCommandInvocationsRequest()
+                .withCommandId(commandId)
+                .withMaxResults(MAX_RESULTS);
+        String nextToken;
+        do {
+            ListCommandInvocationsResult result = ssmDelegator.getAWSSimpleSystemsManagement().listCommandInvocations(request);
+            for (CommandInvocation invocation : result.getCommandInvocations()) {
+                statuses.put(invocation.getInstanceId(), invocation.getStatus());
+            }
+            nextToken = result.getNextToken();
+            request.setNextToken(nextToken);
+        } while (nextToken != null && !nextToken.isEmpty());
+        return statuses;
+    }
+
+    /**
+     * Gets the status of every invocation of the batch. Instances a command was sent to without a listed invocation
+     * are reported as Pending.
+     *
+     * @param batch command batch
+     * @return map of instance id to status
+     */
+    public Map<String, String> getStatuses(SsmCommandBatch batch) {
+        Map<String, String> statuses = new LinkedHashMap<>();
+        for (String commandId : batch.getCommandIds()) {
+            statuses.putAll(getStatuses(commandId, batch.getInstanceIds(commandId)));
+        }
+        return statuses;
+    }
+
+    /**
+     * Completes once every invocation of the batch reached a terminal state, with the final status of each instance.
+     * Completes exceptionally with a TimeoutException after timeoutMillis, or with the failure of a poll.
+     *
+     * @param batch command batch
+     * @return future of the map of instance id to status
+     */
+    public CompletableFuture<Map<String, String>> whenComplete(SsmCommandBatch batch) {
+        CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+        if (batch == null || batch.isEmpty()) {
+            future.complete(new LinkedHashMap<>());
+            return future;
+        }
+        scheduler.execute(new Poll(batch, future));
+        return future;
+    }
+
+    /**
+     * Stop polling.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private Map<String, String> getStatuses(String commandId, List<String> instanceIds) {
+        Map<String, String> statuses = new LinkedHashMap<>();
+        instanceIds.forEach(instanceId -> statuses.put(instanceId, PENDING_STATUS));
+        statuses.putAll(getStatuses(commandId));
+        return statuses;
+    }
+
+    /**
+     * One command is complete once it lists invocations and all of them are terminal.
+     */
+    private static boolean isComplete(Map<String, String> statuses) {
+        return !statuses.isEmpty() && statuses.values().stream().allMatch(SsmCompletionTracker::isTerminal);
+    }
+
+    private class Poll implements Runnable {
+        private final SsmCommandBatch batch;
+        private final CompletableFuture<Map<String, String>> future;
+        private final Set<String> pendingCommandIds;
+        private final Map<String, String> statuses = new LinkedHashMap<>();
+        private final long start = System.currentTimeMillis();
+        private long delayMillis = initialDelayMillis;
+        private long terminalCount;
+        private int polls;
+
+        Poll(SsmCommandBatch batch, CompletableFuture<Map<String, String>> future) {
+            this.batch = batch;
+            this.future = future;
+            this.pendingCommandIds = new LinkedHashSet<>(batch.getCommandIds());
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                polls++;
+                Iterator<String> iterator = pendingCommandIds.iterator();
+                while (iterator.hasNext()) {
+                    String commandId = iterator.next();
+                    Map<String, String> commandStatuses = getStatuses(commandId, batch.getInstanceIds(commandId));
+                    statuses.putAll(commandStatuses);
+                    if (isComplete(commandStatuses)) {
+                        iterator.remove();
+                    }
+                }
+
+                if (pendingCommandIds.isEmpty()) {
+                    logger.debug("SsmCompletionTracker: " + batch.getCommandIds() + " completed after " + polls + " polls");
+                    future.complete(new LinkedHashMap<>(statuses));
+                    return;
+                }
+                if (System.currentTimeMillis() - start >= timeoutMillis) {
+                    future.completeExceptionally(new TimeoutException("SSM commands " + pendingCommandIds
+                            + " did not complete within " + timeoutMillis + " ms: " + statuses));
+                    return;
+                }
+
+                long terminal = statuses.values().stream().filter(SsmCompletionTracker::isTerminal).count();
+                delayMillis = terminal > terminalCount ? initialDelayMillis : Math.min(maxDelayMillis, delayMillis * 2);
+                terminalCount = terminal;
+                scheduler.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
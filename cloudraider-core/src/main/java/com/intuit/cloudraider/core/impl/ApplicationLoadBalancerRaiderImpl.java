@@ -28,10 +28,16 @@ import com.amazonaws.services.elasticloadbalancing.model.Instance;
 import com.amazonaws.services.elasticloadbalancingv2.model.*;
 import com.amazonaws.util.StringUtils;
 import com.intuit.cloudraider.commons.ApplicationLoadBalancerDelegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
+import com.intuit.cloudraider.commons.EC2InventorySnapshot;
+import com.intuit.cloudraider.commons.FanOutExecutor;
+import com.intuit.cloudraider.commons.FanOutExecutor.FanOutResult;
+import com.intuit.cloudraider.commons.FanOutExecutor.TargetType;
 import com.intuit.cloudraider.core.interfaces.LoadBalancerRaider;
 import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
 import com.intuit.cloudraider.exceptions.UnSupportedFeatureException;
 import com.intuit.cloudraider.model.HealthCheckTarget;
+import com.intuit.cloudraider.model.TargetHealthSnapshot;
 import com.intuit.cloudraider.utils.HealthCheckUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +45,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -56,6 +64,12 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
     @Autowired
     private ApplicationLoadBalancerDelegator applicationLoadBalancerDelegator;
 
+    @Autowired
+    private FanOutExecutor fanOutExecutor;
+
+    @Autowired
+    private EC2InventoryCache ec2InventoryCache;
+
     /**
      * Instantiates a new Application load balancer raider.
      */
@@ -129,10 +143,8 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
      */
     @Override
     public void deregisterInstancesFromLoadBalancer(String loadBalancerName, int numberOfInstances) {
-        List<String> targetGroupArns = this.getTargetGroupArns(loadBalancerName);
-
-        List<TargetDescription> targets = new ArrayList();
-        List<Instance> instances = getAllInstances(loadBalancerName);
+        TargetHealthSnapshot snapshot = getTargetHealthSnapshot(loadBalancerName);
+        List<String> instances = snapshot.getTargetIds();
         if (numberOfInstances <= 0 || instances.isEmpty()) {
             String error = "Number of instances can't be 0 or less " + loadBalancerName;
         }
@@ -141,15 +153,7 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
             numberOfInstances = instances.size();
         }
 
-        for (int i = 0; i < numberOfInstances; i++) {
-            TargetDescription target = new TargetDescription().withId(instances.get(i).getInstanceId());
-            targets.add(target);
-        }
-
-        DeregisterTargetsRequest deregisterTargetsRequest = new DeregisterTargetsRequest().withTargetGroupArn(targetGroupArns.get(0))
-                .withTargets(targets);
-        applicationLoadBalancerDelegator.getAmazonApplicationLoadBalancing().deregisterTargets(deregisterTargetsRequest);
-
+        deregisterTargets(snapshot, instances.subList(0, Math.max(0, numberOfInstances)), targetsByGroup -> {});
     }
 
     /**
@@ -161,21 +165,11 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
      */
     @Override
     public void deregisterInstancesFromLoadBalancer(String loadBalancerName, List<String> instances) {
-        List<String> targetGroupArns = this.getTargetGroupArns(loadBalancerName);
-        List<TargetDescription> targets = new ArrayList<>();
-
-        for (String instanceId : instances) {
-            TargetDescription target = new TargetDescription().withId(instanceId);
-            targets.add(target);
-        }
-
-        DeregisterTargetsRequest deregisterTargetsRequest = new DeregisterTargetsRequest().withTargetGroupArn(targetGroupArns.get(0))
-                .withTargets(targets);
-        applicationLoadBalancerDelegator.getAmazonApplicationLoadBalancing().deregisterTargets(deregisterTargetsRequest);
-
+        deregisterTargets(loadBalancerName, instances);
     }
+
     /**
-     * Register the given instances to the specified load balancer.
+     * Register the given instances to every target group of the specified load balancer.
      *
      * @param loadBalancerName load balancer name
      * @param instances list of instance ids
@@ -183,17 +177,13 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
      */
     @Override
     public void registerInstancesFromLoadBalancer(String loadBalancerName, List<String> instances) {
-        List<String> targetGroupArns = this.getTargetGroupArns(loadBalancerName);
-        List<TargetDescription> targets = new ArrayList<>();
-
-        for (String instanceId : instances) {
-            TargetDescription target = new TargetDescription().withId(instanceId);
-            targets.add(target);
-        }
+        List<TargetDescription> targets = instances.stream()
+                .map(instanceId -> new TargetDescription().withId(instanceId))
+                .collect(Collectors.toList());
 
-        RegisterTargetsRequest registerTargetsRequest = new RegisterTargetsRequest().withTargetGroupArn(targetGroupArns.get(0)).
-                withTargets(targets);
-        applicationLoadBalancerDelegator.getAmazonApplicationLoadBalancing().registerTargets(registerTargetsRequest);
+        Map<String, List<TargetDescription>> targetsByGroup = new LinkedHashMap<>();
+        this.getTargetGroupArns(loadBalancerName).forEach(arn -> targetsByGroup.put(arn, targets));
+        registerTargets(targetsByGroup);
     }
 
     /**
@@ -204,18 +194,90 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
      */
     @Override
     public void deregisterInstancesFromLoadBalancer(String loadBalancerName) {
-        List<String> targetGroupArns = this.getTargetGroupArns(loadBalancerName);
-        List<TargetDescription> targets = new ArrayList<>();
-        List<Instance> instances = getAllInstances(loadBalancerName);
+        TargetHealthSnapshot snapshot = getTargetHealthSnapshot(loadBalancerName);
+        deregisterTargets(snapshot, snapshot.getTargetIds(), targetsByGroup -> {});
+    }
+
+    /**
+     * De-registers the given instances from every target group of the load balancer they are registered in, with
+     * one request per target group sent concurrently.
+     *
+     * @param loadBalancerName load balancer name
+     * @param instanceIds list of instance ids
+     * @return targets removed per target group arn, as registered (port included), to be given to registerTargets to undo
+     * @throws ResourceNotFoundException if the load balancer has no target group
+     */
+    public Map<String, List<TargetDescription>> deregisterTargets(String loadBalancerName, List<String> instanceIds) {
+        return deregisterTargets(loadBalancerName, instanceIds, targetsByGroup -> {});
+    }
+
+    /**
+     * De-registers the given instances from every target group of the load balancer they are registered in, with
+     * one request per target group sent concurrently. The targets removed from the groups whose request succeeded are
+     * handed to the callback before any failure is thrown, so they can still be registered back.
+     *
+     * @param loadBalancerName load balancer name
+     * @param instanceIds list of instance ids
+     * @param onDeregistered receives the targets removed per target group arn
+     * @return targets removed per target group arn, as registered (port included), to be given to registerTargets to undo
+     * @throws ResourceNotFoundException if the load balancer has no target group
+     */
+    public Map<String, List<TargetDescription>> deregisterTargets(String loadBalancerName, List<String> instanceIds,
+                                                                  Consumer<Map<String, List<TargetDescription>>> onDeregistered) {
+        return deregisterTargets(getTargetHealthSnapshot(loadBalancerName), instanceIds, onDeregistered);
+    }
+
+    /**
+     * Registers the targets to their target groups, with one request per target group sent concurrently.
+     *
+     * @param targetsByGroup targets per target group arn
+     */
+    public void registerTargets(Map<String, List<TargetDescription>> targetsByGroup) {
+        List<String> targetGroupArns = targetsByGroup.entrySet().stream()
+                .filter(e -> !e.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        fanOutExecutor.executeAll(TargetType.AWS, targetGroupArns, arn -> arn, arn ->
+                applicationLoadBalancerDelegator.getAmazonApplicationLoadBalancing().registerTargets(new RegisterTargetsRequest()
+                        .withTargetGroupArn(arn)
+                        .withTargets(targetsByGroup.get(arn))));
+        logger.info("Registered targets " + targetsByGroup);
+    }
 
-        for (Instance instance : instances) {
-            TargetDescription target = new TargetDescription().withId(instance.getInstanceId());
-            targets.add(target);
+    /**
+     * De-registers the given instances from the target groups of the snapshot they are registered in.
+     *
+     * @param snapshot target health snapshot of the load balancer
+     * @param instanceIds list of instance ids
+     * @param onDeregistered receives the targets removed per target group arn, before any failure is thrown
+     * @return targets removed per target group arn
+     */
+    private Map<String, List<TargetDescription>> deregisterTargets(TargetHealthSnapshot snapshot, Collection<String> instanceIds,
+                                                                   Consumer<Map<String, List<TargetDescription>>> onDeregistered) {
+        Set<String> ids = new HashSet<>(instanceIds);
+        Map<String, List<TargetDescription>> targetsByGroup = new LinkedHashMap<>();
+        for (String targetGroupArn : snapshot.getTargetGroupArns()) {
+            List<TargetDescription> targets = snapshot.getTargetHealthDescriptions(targetGroupArn).stream()
+                    .map(TargetHealthDescription::getTarget)
+                    .filter(t -> ids.contains(t.getId()))
+                    .collect(Collectors.toList());
+            if (!targets.isEmpty()) {
+                targetsByGroup.put(targetGroupArn, targets);
+            }
         }
 
-        DeregisterTargetsRequest deregisterTargetsRequest = new DeregisterTargetsRequest().withTargetGroupArn(targetGroupArns.get(0))
-                .withTargets(targets);
-        applicationLoadBalancerDelegator.getAmazonApplicationLoadBalancing().deregisterTargets(deregisterTargetsRequest);
+        FanOutResult<String> result = fanOutExecutor.execute(TargetType.AWS, new ArrayList<>(targetsByGroup.keySet()), arn -> arn, arn ->
+                applicationLoadBalancerDelegator.getAmazonApplicationLoadBalancing().deregisterTargets(new DeregisterTargetsRequest()
+                        .withTargetGroupArn(arn)
+                        .withTargets(targetsByGroup.get(arn))));
+
+        Map<String, List<TargetDescription>> deregistered = new LinkedHashMap<>();
+        result.getSucceeded().forEach(arn -> deregistered.put(arn, targetsByGroup.get(arn)));
+        logger.info("De-registered targets from " + snapshot.getLoadBalancerName() + ": " + deregistered);
+        onDeregistered.accept(deregistered);
+        result.throwIfAnyFailed();
+        return deregistered;
     }
 
     /**
@@ -391,7 +453,7 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
     @Override
     public List<Instance> getLoadBalancerInstances(String loadBalancerName) {
         try {
-            return getAllInstances(loadBalancerName);
+            return getAllInstances(loadBalancerName).stream().map(Instance::new).collect(Collectors.toList());
         } catch (Exception e) {
             throw new ResourceNotFoundException(e.getMessage());
         }
@@ -462,12 +524,10 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
      * Get all instances, regardless of service status.
      *
      * @param albName load balancer name
-     * @return list of AWS Instances
+     * @return list of instance ids
      */
-    private List<Instance> getAllInstances(String albName) {
-        List instances = this.getInServiceInstances(albName);
-        instances.addAll(this.getOutOfServiceInstances(albName));
-        return instances;
+    private List<String> getAllInstances(String albName) {
+        return getTargetHealthSnapshot(albName).getTargetIds();
     }
 
     /**
@@ -478,22 +538,70 @@ public class ApplicationLoadBalancerRaiderImpl implements LoadBalancerRaider {
      * @return list of instance ids
      */
     private List<String> getServiceInstances(String albName, String state) {
+        List<String> instances = getTargetHealthSnapshot(albName).getTargetIds(state);
+        Collections.shuffle(instances);
+        return instances;
+    }
+
+    /**
+     * Gets the health of every target of every target group of the given load balancer, describing the target groups
+     * concurrently.
+     *
+     * @param albName load balancer name
+     * @return TargetHealthSnapshot
+     * @throws ResourceNotFoundException if the load balancer has no target group
+     */
+    public TargetHealthSnapshot getTargetHealthSnapshot(String albName) {
+        long start = System.currentTimeMillis();
         List<String> targetGroupArns = this.getTargetGroupArns(albName);
-        DescribeTargetHealthRequest healthRequest = new DescribeTargetHealthRequest().withTargetGroupArn(targetGroupArns.get(0));
+        if (targetGroupArns.isEmpty()) {
+            throw new ResourceNotFoundException("No target groups found for " + albName);
+        }
 
-        List<String> instances = applicationLoadBalancerDelegator.getAmazonApplicationLoadBalancing().describeTargetHealth(healthRequest)
-                .getTargetHealthDescriptions()
-                .parallelStream()
-                .filter(t -> t.getTargetHealth().getState().equalsIgnoreCase(state))
+        Map<String, List<TargetHealthDescription>> descriptions = new ConcurrentHashMap<>();
+        fanOutExecutor.executeAll(TargetType.AWS, targetGroupArns, arn -> arn, arn -> descriptions.put(arn,
+                applicationLoadBalancerDelegator.getAmazonApplicationLoadBalancing()
+                        .describeTargetHealth(new DescribeTargetHealthRequest().withTargetGroupArn(arn))
+                        .getTargetHealthDescriptions()));
+
+        Map<String, List<TargetHealthDescription>> targetGroups = new LinkedHashMap<>();
+        targetGroupArns.forEach(arn -> targetGroups.put(arn, descriptions.get(arn)));
+
+        TargetHealthSnapshot snapshot = new TargetHealthSnapshot(albName, targetGroups, getAvailabilityZones(targetGroups), start);
+        logger.debug("Target health of " + albName + " in " + (System.currentTimeMillis() - start) + " ms: " + snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Looks up the availability zone of the targets that do not report one in the EC2 inventory.
+     *
+     * @param targetGroups target health descriptions per target group
+     * @return map of target id to availability zone
+     */
+    private Map<String, String> getAvailabilityZones(Map<String, List<TargetHealthDescription>> targetGroups) {
+        List<String> targetIds = targetGroups.values().stream()
+                .flatMap(List::stream)
                 .map(TargetHealthDescription::getTarget)
-                .collect(Collectors.toList())
-                .parallelStream()
+                .filter(t -> StringUtils.isNullOrEmpty(t.getAvailabilityZone()))
                 .map(TargetDescription::getId)
                 .collect(Collectors.toList());
 
-        Collections.shuffle(instances);
-
-        return instances;
+        Map<String, String> availabilityZones = new HashMap<>();
+        if (targetIds.isEmpty() || !ec2InventoryCache.isEnabled()) {
+            return availabilityZones;
+        }
+        try {
+            EC2InventorySnapshot inventory = ec2InventoryCache.getSnapshot();
+            for (String targetId : targetIds) {
+                com.amazonaws.services.ec2.model.Instance instance = inventory.getInstance(targetId);
+                if (instance != null && instance.getPlacement() != null) {
+                    availabilityZones.put(targetId, instance.getPlacement().getAvailabilityZone());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to look up availability zones of targets " + targetIds, e);
+        }
+        return availabilityZones;
     }
 
     /**
@@ -26,11 +26,18 @@ package com.intuit.cloudraider.core.impl;
 
 
 import com.amazonaws.services.cloudwatch.model.*;
+import com.intuit.cloudraider.commons.CloudWatchAlarmIndex;
 import com.intuit.cloudraider.commons.CloudWatchDelegator;
+import com.intuit.cloudraider.commons.FanOutExecutor;
+import com.intuit.cloudraider.commons.FanOutExecutor.TargetType;
 import com.intuit.cloudraider.core.interfaces.CloudWatchRaider;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
 import com.intuit.cloudraider.model.AlarmStateValue;
 import com.intuit.cloudraider.model.CloudWatchMetricNamespace;
 import com.intuit.cloudraider.model.CloudWatchMetrics;
+import com.intuit.cloudraider.model.MetricQuery;
+import com.intuit.cloudraider.model.MetricTimeSeries;
+import com.intuit.cloudraider.utils.MetricMath;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
@@ -38,9 +45,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Date;
-import java.util.HashSet;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -49,9 +55,20 @@ import java.util.stream.Collectors;
 @Component(value="cwRaiderBean")
 public class CloudWatchRaiderImpl implements CloudWatchRaider {
 
+    /**
+     * Max number of datapoints GetMetricStatistics returns for a single request.
+     */
+    public static final int MAX_DATAPOINTS_PER_REQUEST = 1440;
+
     @Autowired
     private CloudWatchDelegator cloudWatchDelegator;
 
+    @Autowired
+    private FanOutExecutor fanOutExecutor;
+
+    @Autowired
+    private CloudWatchAlarmIndex cloudWatchAlarmIndex;
+
 
     /**
      * The Logger.
@@ -72,11 +89,26 @@ public class CloudWatchRaiderImpl implements CloudWatchRaider {
     @Override
     public List<MetricAlarm> getCloudWatchAlarmByName(String alarmName) {
 
-        return cloudWatchDelegator.getAmazonCloudWatch().describeAlarms(new DescribeAlarmsRequest().withAlarmNamePrefix(alarmName))
-                .getMetricAlarms();
+        return cloudWatchAlarmIndex.getAlarmsByPrefix(alarmName);
 
     }
 
+    /**
+     * Get the current state of each alarm, looked up by exact name in bulk.
+     *
+     * @param alarmNames alarm names
+     * @return alarm state by alarm name, NON_EXISTENT for alarms that do not exist
+     */
+    @Override
+    public Map<String, String> getAlarmStates(List<String> alarmNames) {
+        Map<String, MetricAlarm> alarms = cloudWatchAlarmIndex.getAlarms(alarmNames);
+        Map<String, String> states = new LinkedHashMap<>();
+        alarmNames.forEach(alarmName -> states.put(alarmName, alarms.containsKey(alarmName)
+                ? alarms.get(alarmName).getStateValue()
+                : AlarmStateValue.NON_EXISTENT.name()));
+        return states;
+    }
+
     /**
      * Checks if any alarms with the matching name are currenlty in "ALARM" state.
      *
@@ -102,8 +134,7 @@ public class CloudWatchRaiderImpl implements CloudWatchRaider {
     @Override
     public List<MetricAlarm> getCloudWatchAlarmByNameAndDate(String alarmName, Date afterDate) {
 
-        return cloudWatchDelegator.getAmazonCloudWatch().describeAlarms()
-                .getMetricAlarms()
+        return cloudWatchAlarmIndex.getAllAlarms()
                 .stream()
                 .filter(x -> x.getAlarmName().toLowerCase().contains(alarmName.toLowerCase()) && x.getStateUpdatedTimestamp().after(afterDate))
                 .collect(Collectors.toList());
@@ -158,6 +189,110 @@ public class CloudWatchRaiderImpl implements CloudWatchRaider {
 
     }
 
+    /**
+     * Gets the average metric time series of every instance over the window.
+     *
+     * @param instanceIds   instance ids
+     * @param metricName    metric to analyze
+     * @param startTime     start of the window
+     * @param endTime       end of the window
+     * @param periodSeconds granularity of the datapoints
+     * @return time series by instance id
+     */
+    @Override
+    public Map<String, MetricTimeSeries> getEC2Metrics(List<String> instanceIds, String metricName, Date startTime, Date endTime, int periodSeconds) {
+        return getMetrics("InstanceId", instanceIds, CloudWatchMetricNamespace.EC2.getNamespace(), metricName,
+                startTime, endTime, periodSeconds);
+    }
+
+    /**
+     * Gets the average metric time series of every load balancer over the window.
+     *
+     * @param loadBalancerNames load balancer names
+     * @param metricName        metric to analyze
+     * @param startTime         start of the window
+     * @param endTime           end of the window
+     * @param periodSeconds     granularity of the datapoints
+     * @return time series by load balancer name
+     */
+    @Override
+    public Map<String, MetricTimeSeries> getELBMetrics(List<String> loadBalancerNames, String metricName, Date startTime, Date endTime, int periodSeconds) {
+        return getMetrics("LoadBalancerName", loadBalancerNames, CloudWatchMetricNamespace.ELB.getNamespace(), metricName,
+                startTime, endTime, periodSeconds);
+    }
+
+    /**
+     * Runs a batch of metric queries over the window. Metric queries are fetched concurrently on the AWS fan out
+     * pool, windows longer than MAX_DATAPOINTS_PER_REQUEST periods are split in several requests, and expression
+     * queries are then evaluated in order (see MetricMath), so they can reference any metric query or an earlier
+     * expression.
+     *
+     * @param queries       metric and expression queries, ids must be unique
+     * @param startTime     start of the window
+     * @param endTime       end of the window
+     * @param periodSeconds granularity of the datapoints
+     * @return time series by query id, in query order
+     */
+    @Override
+    public Map<String, MetricTimeSeries> getMetricData(List<MetricQuery> queries, Date startTime, Date endTime, int periodSeconds) {
+        if (periodSeconds <= 0) {
+            throw new InvalidInputDataException("Invalid period: " + periodSeconds);
+        }
+        if (!startTime.before(endTime)) {
+            throw new InvalidInputDataException("Start time " + startTime + " is not before end time " + endTime);
+        }
+        Set<String> ids = new HashSet<>();
+        queries.forEach(query -> {
+            if (!ids.add(query.getId())) {
+                throw new InvalidInputDataException("Duplicate metric query id: " + query.getId());
+            }
+            if (!query.isExpression()) {
+                try {
+                    Statistic.fromValue(query.getStatistic());
+                } catch (IllegalArgumentException e) {
+                    throw new InvalidInputDataException("Unsupported statistic in " + query);
+                }
+            }
+        });
+
+        List<MetricQuery> metricQueries = queries.stream().filter(query -> !query.isExpression()).collect(Collectors.toList());
+        List<String> metricIds = metricQueries.stream().map(MetricQuery::getId).collect(Collectors.toList());
+        Map<String, MetricTimeSeries> fetched = new ConcurrentHashMap<>();
+        fanOutExecutor.executeAll(TargetType.AWS, metricQueries, MetricQuery::toString,
+                query -> fetched.put(query.getId(), getTimeSeries(query, startTime, endTime, periodSeconds)));
+
+        Map<String, MetricTimeSeries> results = new LinkedHashMap<>();
+        Map<String, MetricTimeSeries> available = new HashMap<>(fetched);
+        for (MetricQuery query : queries) {
+            MetricTimeSeries series = query.isExpression()
+                    ? MetricMath.evaluate(query.getId(), query.getExpression(), available, metricIds)
+                    : fetched.get(query.getId());
+            available.put(query.getId(), series);
+            results.put(query.getId(), series);
+        }
+        return results;
+    }
+
+    /**
+     * Gets the average metric time series of each dimension value in one batch.
+     */
+    private Map<String, MetricTimeSeries> getMetrics(String dimensionName, List<String> dimensionValues, String namespace, String metricName,
+                                                     Date startTime, Date endTime, int periodSeconds) {
+        List<String> distinctValues = dimensionValues.stream().distinct().collect(Collectors.toList());
+        List<MetricQuery> queries = new ArrayList<>();
+        for (int i = 0; i < distinctValues.size(); i++) {
+            queries.add(MetricQuery.metric("m" + i, namespace, metricName, "Average",
+                    new Dimension().withName(dimensionName).withValue(distinctValues.get(i))));
+        }
+
+        Map<String, MetricTimeSeries> series = getMetricData(queries, startTime, endTime, periodSeconds);
+        Map<String, MetricTimeSeries> results = new LinkedHashMap<>();
+        for (int i = 0; i < distinctValues.size(); i++) {
+            results.put(distinctValues.get(i), series.get("m" + i));
+        }
+        return results;
+    }
+
     /**
      * Helper function to calculate metric given necessary informaiton.
      *
@@ -172,37 +307,64 @@ public class CloudWatchRaiderImpl implements CloudWatchRaider {
 
         Double result = 0.0;
 
-        HashSet<Dimension> dimensions = new HashSet<Dimension>();
-        Dimension loadBalancerDimension = new Dimension();
-        loadBalancerDimension
-                .setName(dimensionName);
-        loadBalancerDimension.setValue(dimensionValue);
-        dimensions.add(loadBalancerDimension);
-
-        HashSet<String> statistics = new HashSet<String>();
-        statistics.add(statisticType);
+        MetricQuery query = MetricQuery.metric("m0", namespace, metricName, statisticType,
+                new Dimension().withName(dimensionName).withValue(dimensionValue));
 
         Date currentTime = new DateTime(DateTimeZone.UTC).toDate();
         Date pastTime = new DateTime(DateTimeZone.UTC).minusSeconds(
                 60).toDate();
-        GetMetricStatisticsRequest request = new GetMetricStatisticsRequest();
-        request.setStartTime(pastTime);
-        request.setEndTime(currentTime);
-        request.setPeriod(60);
-        request.setMetricName(metricName);
-        request.setNamespace(namespace);
-        request.setStatistics(statistics);
-        request.setDimensions(dimensions);
-
-        GetMetricStatisticsResult response = cloudWatchDelegator.getAmazonCloudWatch().getMetricStatistics(request);
-
-        if (!response.getDatapoints().isEmpty()) {
-            result = response.getDatapoints().get(0).getAverage();
+        List<Datapoint> datapoints = getDatapoints(query, pastTime, currentTime, 60);
+
+        if (!datapoints.isEmpty()) {
+            result = getStatisticValue(datapoints.get(0), statisticType);
         }
 
         return result;
     }
 
+    /**
+     * Reads the datapoints of the query, in slices of at most MAX_DATAPOINTS_PER_REQUEST periods.
+     */
+    private MetricTimeSeries getTimeSeries(MetricQuery query, Date startTime, Date endTime, int periodSeconds) {
+        MetricTimeSeries series = new MetricTimeSeries(query.getId(), query.getMetricName());
+        long sliceMillis = periodSeconds * 1000L * MAX_DATAPOINTS_PER_REQUEST;
+        for (long from = startTime.getTime(); from < endTime.getTime(); from += sliceMillis) {
+            Date to = new Date(Math.min(from + sliceMillis, endTime.getTime()));
+            for (Datapoint datapoint : getDatapoints(query, new Date(from), to, periodSeconds)) {
+                series.add(datapoint.getTimestamp(), getStatisticValue(datapoint, query.getStatistic()));
+            }
+        }
+        return series;
+    }
+
+    private List<Datapoint> getDatapoints(MetricQuery query, Date startTime, Date endTime, int periodSeconds) {
+        GetMetricStatisticsRequest request = new GetMetricStatisticsRequest()
+                .withNamespace(query.getNamespace())
+                .withMetricName(query.getMetricName())
+                .withDimensions(query.getDimensions())
+                .withStatistics(query.getStatistic())
+                .withStartTime(startTime)
+                .withEndTime(endTime)
+                .withPeriod(periodSeconds);
+
+        return cloudWatchDelegator.getAmazonCloudWatch().getMetricStatistics(request).getDatapoints();
+    }
+
+    private static Double getStatisticValue(Datapoint datapoint, String statistic) {
+        switch (Statistic.fromValue(statistic)) {
+            case Sum:
+                return datapoint.getSum();
+            case Minimum:
+                return datapoint.getMinimum();
+            case Maximum:
+                return datapoint.getMaximum();
+            case SampleCount:
+                return datapoint.getSampleCount();
+            default:
+                return datapoint.getAverage();
+        }
+    }
+
     /**
      * Get the alarm history with the matching alarm name.
      *
@@ -241,6 +403,10 @@ public class CloudWatchRaiderImpl implements CloudWatchRaider {
      */
     @Override
     public String getAlarmState(String alarmName) {
+        MetricAlarm alarm = cloudWatchAlarmIndex.getAlarms(Collections.singletonList(alarmName)).get(alarmName);
+        if (alarm != null) {
+            return alarm.getStateValue();
+        }
         return getCloudWatchAlarmByName(alarmName)
                 .stream()
                 .map(MetricAlarm::getStateValue)
@@ -256,11 +422,7 @@ public class CloudWatchRaiderImpl implements CloudWatchRaider {
      */
     @Override
     public Integer countAlarmsInState(String alarmState) {
-        List<MetricAlarm> alarmMetrics = cloudWatchDelegator.getAmazonCloudWatch().describeAlarms()
-                .getMetricAlarms()
-                .stream()
-                .filter(x -> x.getStateValue().equalsIgnoreCase(alarmState))
-                .collect(Collectors.toList());
+        List<MetricAlarm> alarmMetrics = cloudWatchAlarmIndex.getAlarmsInState(alarmState);
 
         return alarmMetrics.size();
     }
@@ -0,0 +1,148 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.impl;
+
+import com.amazonaws.services.ec2.AmazonEC2Async;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.RebootInstancesRequest;
+import com.amazonaws.services.ec2.model.RebootInstancesResult;
+import com.amazonaws.services.ec2.model.StopInstancesRequest;
+import com.amazonaws.services.ec2.model.StopInstancesResult;
+import com.amazonaws.services.ec2.model.TerminateInstancesRequest;
+import com.amazonaws.services.ec2.model.TerminateInstancesResult;
+import com.intuit.cloudraider.commons.CompletableAsyncHandler;
+import com.intuit.cloudraider.commons.EC2Delegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
+import com.intuit.cloudraider.core.interfaces.EC2RaiderAsync;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AWS EC2 functionality backed by the async client.
+ */
+@Component(value="ec2RaiderAsyncBean")
+public class EC2RaiderAsyncImpl implements EC2RaiderAsync {
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private EC2Delegator ec2Delegator;
+
+    @Autowired
+    private EC2InventoryCache inventoryCache;
+
+    /**
+     * Instantiates a new Ec 2 raider async.
+     */
+    public EC2RaiderAsyncImpl() {
+    }
+
+    /**
+     * Terminates the EC2 instances with the given ids.
+     *
+     * @param instanceIds list of instance ids
+     * @return future completed once the termination is accepted
+     */
+    @Override
+    public CompletableFuture<Void> terminateEc2InstancesById(List<String> instanceIds) {
+        if (instanceIds == null || instanceIds.isEmpty()) {
+            throw new InvalidInputDataException("Invalid list of instanceIds");
+        }
+
+        logger.info("EC2RaiderAsync: Terminating instances with ids: " + instanceIds);
+        AmazonEC2Async ec2 = ec2Delegator.getEc2Async();
+        return CompletableAsyncHandler.<TerminateInstancesRequest, TerminateInstancesResult>call(ec2::terminateInstancesAsync, new TerminateInstancesRequest().withInstanceIds(instanceIds))
+                .thenRun(inventoryCache::invalidate);
+    }
+
+    /**
+     * Stop the instance with the matching id.
+     *
+     * @param instanceId instance id
+     * @return future completed once the stop is accepted
+     */
+    @Override
+    public CompletableFuture<Void> stopEc2Instances(String instanceId) {
+        if (instanceId == null || instanceId.isEmpty()) {
+            throw new InvalidInputDataException("Empty/Null instanceId provided in request");
+        }
+
+        AmazonEC2Async ec2 = ec2Delegator.getEc2Async();
+        return CompletableAsyncHandler.<StopInstancesRequest, StopInstancesResult>call(ec2::stopInstancesAsync, new StopInstancesRequest().withInstanceIds(instanceId))
+                .thenRun(inventoryCache::invalidate);
+    }
+
+    /**
+     * Restart the instance with the matching id.
+     *
+     * @param instanceId instance id
+     * @return future completed once the reboot is accepted
+     */
+    @Override
+    public CompletableFuture<Void> restartEc2Instances(String instanceId) {
+        if (instanceId == null || instanceId.isEmpty()) {
+            throw new InvalidInputDataException("Empty/Null instanceId provided in request");
+        }
+
+        AmazonEC2Async ec2 = ec2Delegator.getEc2Async();
+        return CompletableAsyncHandler.<RebootInstancesRequest, RebootInstancesResult>call(ec2::rebootInstancesAsync, new RebootInstancesRequest().withInstanceIds(instanceId))
+                .thenRun(inventoryCache::invalidate);
+    }
+
+    /**
+     * Get the status of the instance with the matching id.
+     *
+     * @param instanceId instance id
+     * @return future instance status
+     */
+    @Override
+    public CompletableFuture<String> getInstanceStatusById(String instanceId) {
+        if (instanceId == null || instanceId.isEmpty()) {
+            throw new InvalidInputDataException("Empty/Null instanceId provided in request");
+        }
+
+        AmazonEC2Async ec2 = ec2Delegator.getEc2Async();
+        return CompletableAsyncHandler.<DescribeInstancesRequest, DescribeInstancesResult>call(ec2::describeInstancesAsync, new DescribeInstancesRequest().withInstanceIds(instanceId))
+                .thenApply(result -> result.getReservations().stream()
+                        .flatMap(reservation -> reservation.getInstances().stream())
+                        .filter(instance -> instance.getInstanceId().equalsIgnoreCase(instanceId))
+                        .findFirst()
+                        .map(Instance::getState)
+                        .orElseThrow(() -> new ResourceNotFoundException("Unable to find EC2 instances for id: " + instanceId))
+                        .getName());
+    }
+}
@@ -26,6 +26,8 @@ package com.intuit.cloudraider.core.impl;
 
 import com.amazonaws.services.ec2.model.*;
 import com.intuit.cloudraider.commons.EC2Delegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
+import com.intuit.cloudraider.commons.EC2InventorySnapshot;
 import com.intuit.cloudraider.core.interfaces.EC2Raider;
 import com.intuit.cloudraider.cucumber.util.CucumberHelperFunctions;
 import com.intuit.cloudraider.exceptions.InvalidInputDataException;
@@ -40,6 +42,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -53,6 +57,26 @@ public class EC2RaiderImpl implements EC2Raider {
      * The constant AVAILABILITY_ZONE_FILTER_KEY.
      */
     public static final String AVAILABILITY_ZONE_FILTER_KEY = "availability-zone";
+    /**
+     * The constant INSTANCE_ID_FILTER_KEY.
+     */
+    public static final String INSTANCE_ID_FILTER_KEY = "instance-id";
+    /**
+     * The constant INSTANCE_STATE_FILTER_KEY.
+     */
+    public static final String INSTANCE_STATE_FILTER_KEY = "instance-state-name";
+    /**
+     * The constant TAG_KEY_FILTER_KEY.
+     */
+    public static final String TAG_KEY_FILTER_KEY = "tag-key";
+    /**
+     * The constant NAME_TAG.
+     */
+    public static final String NAME_TAG = "Name";
+    /**
+     * Maximum number of instance ids sent in a single DescribeInstances filter.
+     */
+    public static final int DESCRIBE_INSTANCES_ID_BATCH_SIZE = 200;
     /**
      * The Logger.
      */
@@ -61,6 +85,9 @@ public class EC2RaiderImpl implements EC2Raider {
     @Autowired
     private EC2Delegator ec2Delegator;
 
+    @Autowired
+    private EC2InventoryCache inventoryCache;
+
     /**
      * Instantiates a new Ec 2 raider.
      */
@@ -89,45 +116,43 @@ public class EC2RaiderImpl implements EC2Raider {
 
         List<EC2InstanceTO> instances = new ArrayList<>();
 
-        for (Reservation reservation : getReservationsByAvailabilityZone(availabilityZone)) {
-            for (Instance instance : reservation.getInstances()) {
-                if (Ec2Utils.isAwsInfrastructure(instance)) {
-                    continue;
-                }
-                if(instance.getState().getName().equalsIgnoreCase("terminated")) {
-                    continue;
-                }
+        for (Instance instance : getInstancesByAvailabilityZone(availabilityZone)) {
+            if (Ec2Utils.isAwsInfrastructure(instance)) {
+                continue;
+            }
+            if(instance.getState().getName().equalsIgnoreCase("terminated")) {
+                continue;
+            }
 
-                // OR condition with ignoreTags and AND condition with compulsoryTags
-                // 1. If any one of the ignore tags is present then instance will be ignored
-                // 2. For instance to be considered all compulsory tags should be present.
+            // OR condition with ignoreTags and AND condition with compulsoryTags
+            // 1. If any one of the ignore tags is present then instance will be ignored
+            // 2. For instance to be considered all compulsory tags should be present.
 
-                boolean flag = true;
+            boolean flag = true;
 
-                for (Tag instanceTag : instance.getTags()) {
-                    boolean instanceContainsTag = false;
-                    for (Tag ignoreTag : ignoreTags) {
-                        if (ignoreTag.equals(instanceTag)) {
-                            instanceContainsTag = true;
-                            break;
-                        }
-                    }
-                    if(instanceContainsTag) {
-                        flag = false;
+            for (Tag instanceTag : instance.getTags()) {
+                boolean instanceContainsTag = false;
+                for (Tag ignoreTag : ignoreTags) {
+                    if (ignoreTag.equals(instanceTag)) {
+                        instanceContainsTag = true;
                         break;
                     }
                 }
-
-                if (!flag) {
-                    continue;
+                if(instanceContainsTag) {
+                    flag = false;
+                    break;
                 }
+            }
 
-                flag = CucumberHelperFunctions.containsAllCompulsoryTags(compulsoryTags, instance.getTags());
+            if (!flag) {
+                continue;
+            }
 
-                if (flag) {
-                    EC2InstanceTO ec2InstanceTO = createEc2Instance(instance);
-                    instances.add(ec2InstanceTO);
-                }
+            flag = CucumberHelperFunctions.containsAllCompulsoryTags(compulsoryTags, instance.getTags());
+
+            if (flag) {
+                EC2InstanceTO ec2InstanceTO = createEc2Instance(instance);
+                instances.add(ec2InstanceTO);
             }
         }
         return instances;
@@ -148,18 +173,13 @@ public class EC2RaiderImpl implements EC2Raider {
         }
         List<String> instanceIds = new ArrayList<>();
 
-        for (Reservation reservation : getReservationsByAvailabilityZone(availabilityZone)) {
-            for (Instance instance : reservation.getInstances()) {
-                if (Ec2Utils.isAwsInfrastructure(instance)
-                        || instanceIdsToIgnore.contains(instance.getInstanceId())
-                        || instance.getState().getName().equalsIgnoreCase("terminated")) {
-                    continue;
-                }
-                if(instance.getState().getName().equalsIgnoreCase("terminated")) {
-                	continue;
-                }
-                instanceIds.add(instance.getInstanceId());
+        for (Instance instance : getInstancesByAvailabilityZone(availabilityZone)) {
+            if (Ec2Utils.isAwsInfrastructure(instance)
+                    || instanceIdsToIgnore.contains(instance.getInstanceId())
+                    || instance.getState().getName().equalsIgnoreCase("terminated")) {
+                continue;
             }
+            instanceIds.add(instance.getInstanceId());
         }
         return getEC2InstancesByIds(instanceIds);
     }
@@ -180,14 +200,12 @@ public class EC2RaiderImpl implements EC2Raider {
         }
 
         List<String> instanceIps = new ArrayList<String>();
-        for (Reservation reservation : getReservationsByAvailabilityZone(availabilityZone)) {
-            for (Instance instance : reservation.getInstances()) {
-                if (Ec2Utils.isAwsInfrastructure(instance)
-                        || instanceIdsToIgnore.contains(instance.getInstanceId())) {
-                    continue;
-                }
-                instanceIps.add(instance.getPrivateIpAddress());
+        for (Instance instance : getInstancesByAvailabilityZone(availabilityZone)) {
+            if (Ec2Utils.isAwsInfrastructure(instance)
+                    || instanceIdsToIgnore.contains(instance.getInstanceId())) {
+                continue;
             }
+            instanceIps.add(instance.getPrivateIpAddress());
         }
         return instanceIps;
     }
@@ -209,18 +227,13 @@ public class EC2RaiderImpl implements EC2Raider {
     }
 
     /**
-     * Get the reservations in the availability zone.
+     * Get the instances in the availability zone.
      *
      * @param availabilityZone availability zone
-     * @return list of EC2 Reservations
+     * @return list of EC2 Instances
      */
-    private List<Reservation> getReservationsByAvailabilityZone(String availabilityZone) {
-        Filter availabilityZoneFilter = new Filter(AVAILABILITY_ZONE_FILTER_KEY, Arrays.asList(availabilityZone));
-        DescribeInstancesResult result = ec2Delegator.getEc2().describeInstances(
-                new DescribeInstancesRequest().withFilters(availabilityZoneFilter)
-        );
-        
-        return result.getReservations();
+    private List<Instance> getInstancesByAvailabilityZone(String availabilityZone) {
+        return queryInstances(availabilityZoneFilter(availabilityZone)).collect(Collectors.toList());
     }
 
     /**
@@ -263,6 +276,7 @@ public class EC2RaiderImpl implements EC2Raider {
         }
         TerminateInstancesRequest request1 = new TerminateInstancesRequest().withInstanceIds(instanceIds);
         TerminateInstancesResult response = ec2Delegator.getEc2().terminateInstances(request1);
+        inventoryCache.invalidate();
     }
 
     /**
@@ -279,6 +293,7 @@ public class EC2RaiderImpl implements EC2Raider {
        logger.info("EC2Raider: Terminating instance with id: " + instanceId);
         TerminateInstancesRequest request1 = new TerminateInstancesRequest().withInstanceIds(instanceId);
         TerminateInstancesResult response = ec2Delegator.getEc2().terminateInstances(request1);
+        inventoryCache.invalidate();
     }
 
     /**
@@ -294,6 +309,7 @@ public class EC2RaiderImpl implements EC2Raider {
 
         TerminateInstancesRequest request1 = new TerminateInstancesRequest().withInstanceIds(instanceIds);
         TerminateInstancesResult response = ec2Delegator.getEc2().terminateInstances(request1);
+        inventoryCache.invalidate();
     }
 
     /**
@@ -311,6 +327,7 @@ public class EC2RaiderImpl implements EC2Raider {
 
         TerminateInstancesRequest request1 = new TerminateInstancesRequest().withInstanceIds(ids);
         TerminateInstancesResult response = ec2Delegator.getEc2().terminateInstances(request1);
+        inventoryCache.invalidate();
     }
 
     /**
@@ -333,6 +350,7 @@ public class EC2RaiderImpl implements EC2Raider {
 
         TerminateInstancesRequest request1 = new TerminateInstancesRequest().withInstanceIds(ids.subList(0, numberOfInstances));
         TerminateInstancesResult response = ec2Delegator.getEc2().terminateInstances(request1);
+        inventoryCache.invalidate();
     }
 
     /**
@@ -363,24 +381,11 @@ public class EC2RaiderImpl implements EC2Raider {
      */
     @Override
     public List<EC2InstanceTO> getInstancesFromAnyTags(List<Tag> tags) {
-        List<EC2InstanceTO> instances = new ArrayList<>();
-        for (Tag tag : tags) {
-            String key = tag.getKey();
-            String value = tag.getValue();
-            for (Reservation res : ec2Delegator.getEc2().describeInstances().getReservations()) {
-                for (Instance i : res.getInstances()) {
-                    if (i.getState().getName().equalsIgnoreCase("running")) {
-                        for (Tag instanceTag : i.getTags()) {
-                            if (key.equalsIgnoreCase(instanceTag.getKey()) && value.equalsIgnoreCase(instanceTag.getValue())) {
-                                instances.add(createEc2Instance(i));
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return instances;
+        // tag keys and values are both matched case insensitively here, AWS tag filters are case sensitive
+        return queryInstances(runningStateFilter())
+                .filter(i -> isRunning(i) && tags.stream().anyMatch(tag -> hasTag(i, tag)))
+                .map(this::createEc2Instance)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -396,20 +401,11 @@ public class EC2RaiderImpl implements EC2Raider {
             throw new InvalidInputDataException("Empty/Null instanceId provided in request");
         }
 
-        EC2InstanceTO ec2InstanceTO = null;
-        for (Reservation res : ec2Delegator.getEc2().describeInstances().getReservations()) {
-            for (Instance i : res.getInstances()) {
-                if (i.getInstanceId().equalsIgnoreCase(instanceId) && i.getState().getName().equalsIgnoreCase("running")) {
-                    ec2InstanceTO = this.createEc2Instance(i);
-                    break;
-                }
-            }
-        }
-
-        if (ec2InstanceTO == null) {
-            throw new ResourceNotFoundException("Unable to find EC2 Instances with given instance id: " + instanceId);
-        }
-        return ec2InstanceTO;
+        return queryInstances(instanceIdFilter(Arrays.asList(instanceId)), runningStateFilter())
+                .filter(i -> i.getInstanceId().equalsIgnoreCase(instanceId) && isRunning(i))
+                .findFirst()
+                .map(this::createEc2Instance)
+                .orElseThrow(() -> new ResourceNotFoundException("Unable to find EC2 Instances with given instance id: " + instanceId));
     }
 
     /**
@@ -420,17 +416,61 @@ public class EC2RaiderImpl implements EC2Raider {
      */
     @Override
     public List<EC2InstanceTO> getEC2InstancesByIds(List<String> instanceIds) {
+        if (instanceIds == null) {
+            throw new InvalidInputDataException("Null instanceIds provided in request");
+        }
+
         List<EC2InstanceTO> ec2InstanceTOList = new ArrayList<>();
+        if (instanceIds.isEmpty()) {
+            return ec2InstanceTOList;
+        }
 
-        instanceIds.stream().forEach(
-                instanceId -> {
-                    ec2InstanceTOList.add(getEC2InstanceById(instanceId));
-                }
-        );
+        Map<String, EC2InstanceTO> instancesById = new HashMap<>();
+        for (Instance instance : describeRunningInstancesByIds(instanceIds)) {
+            instancesById.put(instance.getInstanceId().toLowerCase(), createEc2Instance(instance));
+        }
+
+        List<String> missingIds = new ArrayList<>();
+        for (String instanceId : instanceIds) {
+            EC2InstanceTO ec2InstanceTO = instanceId == null ? null : instancesById.get(instanceId.toLowerCase());
+            if (ec2InstanceTO == null) {
+                missingIds.add(instanceId);
+            } else {
+                ec2InstanceTOList.add(ec2InstanceTO);
+            }
+        }
 
+        if (!missingIds.isEmpty()) {
+            throw new ResourceNotFoundException("Unable to find EC2 Instances with given instance ids: " + missingIds);
+        }
         return ec2InstanceTOList;
     }
 
+    /**
+     * Describe the running instances with the given ids using as few DescribeInstances calls as possible.
+     * Ids are sent in chunks of at most DESCRIBE_INSTANCES_ID_BATCH_SIZE.
+     * The ids are passed as an "instance-id" filter rather than as InstanceIds so that unknown ids are simply absent
+     * from the result instead of failing the whole call.
+     *
+     * @param instanceIds instance ids
+     * @return list of matching running AWS instances
+     */
+    private List<Instance> describeRunningInstancesByIds(List<String> instanceIds) {
+        List<String> distinctIds = instanceIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+
+        List<Instance> instances = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += DESCRIBE_INSTANCES_ID_BATCH_SIZE) {
+            List<String> chunk = distinctIds.subList(from, Math.min(from + DESCRIBE_INSTANCES_ID_BATCH_SIZE, distinctIds.size()));
+            queryInstances(instanceIdFilter(chunk), runningStateFilter())
+                    .filter(i -> chunk.contains(i.getInstanceId()) && isRunning(i))
+                    .forEach(instances::add);
+        }
+        return instances;
+    }
+
     /**
      * Get all available instances that do not contain any of the filteredWords in their names.
      *
@@ -439,35 +479,135 @@ public class EC2RaiderImpl implements EC2Raider {
      */
     @Override
     public List<EC2InstanceTO> getFilteredActiveInstances(List<String> filteredWords) {
-        DescribeInstancesRequest request = new DescribeInstancesRequest();
-        ArrayList<String> vals = new ArrayList<>();
-        vals.add("running");
-
-        Filter filter = new Filter("instance-state-name", vals);
-
-        List<Reservation> res = ec2Delegator.getEc2().describeInstances(request.withFilters(filter)).getReservations();
         List<String> ids = new ArrayList<>();
-        for (Reservation reservation : res) {
-            List<Instance> instances = reservation.getInstances();
-            for (Instance in : instances) {
-                List<Tag> tags = in.getTags();
-                Optional<Tag> name = tags.stream().filter(y -> y.getKey().equalsIgnoreCase("name")).findFirst();
-                boolean flag = true;
-                for (String word : filteredWords) {
-                    if (name.isPresent() && name.get().getValue().toLowerCase().contains(word.toLowerCase())) {
-                        flag = false;
-                        break;
-                    }
-                }
-                if (flag) {
-                    ids.add(in.getInstanceId());
+        queryInstances(runningStateFilter()).forEach(in -> {
+            List<Tag> tags = in.getTags();
+            Optional<Tag> name = tags.stream().filter(y -> y.getKey().equalsIgnoreCase("name")).findFirst();
+            boolean flag = true;
+            for (String word : filteredWords) {
+                if (name.isPresent() && name.get().getValue().toLowerCase().contains(word.toLowerCase())) {
+                    flag = false;
+                    break;
                 }
             }
-        }
+            if (flag) {
+                ids.add(in.getInstanceId());
+            }
+        });
 
         return getEC2InstancesByIds(ids.stream().distinct().collect(Collectors.toList()));
     }
 
+    /**
+     * Find the instances matching all of the given filters. When the inventory cache is enabled the filters are
+     * resolved against the indexes of the cached snapshot; lookups by instance id always go to DescribeInstances,
+     * since a filtered call is cheaper than a full snapshot and returns the current state.
+     *
+     * @param filters DescribeInstances filters
+     * @return stream of matching AWS instances
+     */
+    private Stream<Instance> queryInstances(Filter... filters) {
+        boolean byId = Arrays.stream(filters).anyMatch(f -> INSTANCE_ID_FILTER_KEY.equals(f.getName()));
+        if (inventoryCache.isEnabled() && !byId) {
+            EC2InventorySnapshot snapshot = inventoryCache.getSnapshot();
+            if (snapshot.supports(Arrays.asList(filters))) {
+                return snapshot.query(Arrays.asList(filters)).stream();
+            }
+        }
+        return describeInstances(filters);
+    }
+
+    /**
+     * Find the instances matching all of the given filters with DescribeInstances, bypassing the inventory cache.
+     * Pages are fetched lazily as the returned stream is consumed, so short-circuiting operations such as findFirst
+     * stop paginating early.
+     *
+     * @param filters DescribeInstances filters
+     * @return stream of matching AWS instances
+     */
+    private Stream<Instance> describeInstances(Filter... filters) {
+        DescribeInstancesRequest request = new DescribeInstancesRequest().withFilters(filters);
+
+        Iterator<DescribeInstancesResult> pages = new Iterator<DescribeInstancesResult>() {
+            private boolean hasMore = true;
+
+            @Override
+            public boolean hasNext() {
+                return hasMore;
+            }
+
+            @Override
+            public DescribeInstancesResult next() {
+                if (!hasMore) {
+                    throw new NoSuchElementException();
+                }
+                DescribeInstancesResult result = ec2Delegator.getEc2().describeInstances(request);
+                String nextToken = result.getNextToken();
+                hasMore = nextToken != null && !nextToken.isEmpty();
+                request.setNextToken(nextToken);
+                return result;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false)
+                .flatMap(page -> page.getReservations().stream())
+                .flatMap(reservation -> reservation.getInstances().stream());
+    }
+
+    /**
+     * Server side filter on instances having a tag with the given key, which AWS matches case sensitively. Only used
+     * for the Name tag, which these lookups always matched by exact key. Tag values are not pushed down, since AWS
+     * matches them case sensitively too; callers match them with hasTag.
+     *
+     * @param key tag key
+     * @return Filter
+     */
+    private static Filter tagKeyFilter(String key) {
+        return new Filter(TAG_KEY_FILTER_KEY, Arrays.asList(key));
+    }
+
+    /**
+     * Server side filter on instance id.
+     *
+     * @param instanceIds instance ids
+     * @return Filter
+     */
+    private static Filter instanceIdFilter(Collection<String> instanceIds) {
+        return new Filter(INSTANCE_ID_FILTER_KEY, new ArrayList<>(instanceIds));
+    }
+
+    /**
+     * Server side filter on availability zone.
+     *
+     * @param availabilityZone availability zone
+     * @return Filter
+     */
+    private static Filter availabilityZoneFilter(String availabilityZone) {
+        return new Filter(AVAILABILITY_ZONE_FILTER_KEY, Arrays.asList(availabilityZone));
+    }
+
+    /**
+     * Server side filter for running instances.
+     *
+     * @return Filter
+     */
+    private static Filter runningStateFilter() {
+        return new Filter(INSTANCE_STATE_FILTER_KEY, Arrays.asList("running"));
+    }
+
+    private boolean isRunning(Instance instance) {
+        return instance.getState().getName().equalsIgnoreCase("running");
+    }
+
+    private boolean hasTag(Instance instance, Tag tag) {
+        return hasTag(instance, tag.getKey(), tag.getValue());
+    }
+
+    private boolean hasTag(Instance instance, String key, String value) {
+        return instance.getTags().stream().anyMatch(t -> key.equalsIgnoreCase(t.getKey())
+                && value.equalsIgnoreCase(t.getValue()));
+    }
+
     /**
      * Given an EC2 instance object from AWS, create internally used EC2InstanceTO object to represent same info.
      *
@@ -504,6 +644,7 @@ public class EC2RaiderImpl implements EC2Raider {
                 .withInstanceIds(instanceId);
 
         StopInstancesResult response = ec2Delegator.getEc2().stopInstances(request);
+        inventoryCache.invalidate();
     }
 
     /**
@@ -522,6 +663,7 @@ public class EC2RaiderImpl implements EC2Raider {
                 .withInstanceIds(instanceId);
 
         RebootInstancesResult response = ec2Delegator.getEc2().rebootInstances(request);
+        inventoryCache.invalidate();
     }
 
     /**
@@ -532,22 +674,13 @@ public class EC2RaiderImpl implements EC2Raider {
      */
     @Override
     public String getInstanceStatusById(String instanceId) {
-        String result = null;
-
-        for (Reservation res : ec2Delegator.getEc2().describeInstances().getReservations()) {
-            for (Instance i : res.getInstances()) {
-                if (i.getInstanceId().equalsIgnoreCase(instanceId)) {
-
-                    result = i.getState().getName();
-                }
-            }
-        }
+        Instance instance = getInstanceDetailsById(instanceId);
 
-        if (result == null) {
+        if (instance == null) {
             throw new ResourceNotFoundException("Unable to find EC2 instances for id: " + instanceId);
         }
 
-        return result;
+        return instance.getState().getName();
     }
 
     /**
@@ -570,6 +703,7 @@ public class EC2RaiderImpl implements EC2Raider {
         if (securityGroups != null && securityGroups.contains(securityGroup)) {
             securityGroups.remove(securityGroup);
             ec2Delegator.getEc2().modifyInstanceAttribute(new ModifyInstanceAttributeRequest().withInstanceId(instanceId).withGroups(securityGroups));
+            inventoryCache.invalidate();
 
         } else {
             throw new InvalidInputDataException("Invalid SecurityGroup: " + securityGroup + " provided in request");
@@ -597,6 +731,7 @@ public class EC2RaiderImpl implements EC2Raider {
         if (securityGroups != null && !securityGroups.contains(securityGroup)) {
             securityGroups.add(securityGroup);
             ec2Delegator.getEc2().modifyInstanceAttribute(new ModifyInstanceAttributeRequest().withInstanceId(instanceId).withGroups(securityGroups));
+            inventoryCache.invalidate();
         }
 
 
@@ -641,6 +776,7 @@ public class EC2RaiderImpl implements EC2Raider {
         if (existingSecurityGroups != null && existingSecurityGroups.containsAll(Arrays.asList(securityGroups))) {
             existingSecurityGroups.removeAll(Arrays.asList(securityGroups));
             ec2Delegator.getEc2().modifyInstanceAttribute(new ModifyInstanceAttributeRequest().withInstanceId(instanceId).withGroups(existingSecurityGroups));
+            inventoryCache.invalidate();
         } else {
             throw new InvalidInputDataException("Invalid SecurityGroups: " + securityGroups + " provided in request");
         }
@@ -666,6 +802,7 @@ public class EC2RaiderImpl implements EC2Raider {
         if (existingSecurityGroups != null && !existingSecurityGroups.containsAll(Arrays.asList(securityGroups))) {
             existingSecurityGroups.addAll(Arrays.asList(securityGroups));
             ec2Delegator.getEc2().modifyInstanceAttribute(new ModifyInstanceAttributeRequest().withInstanceId(instanceId).withGroups(existingSecurityGroups));
+            inventoryCache.invalidate();
         }
 
     }
@@ -678,22 +815,10 @@ public class EC2RaiderImpl implements EC2Raider {
      */
     @Override
     public Instance getInstanceDetailsById(String instanceId) {
-        Instance result = null;
-        Iterator var3 = this.ec2Delegator.getEc2().describeInstances().getReservations().iterator();
-
-        while(var3.hasNext()) {
-            Reservation res = (Reservation)var3.next();
-            Iterator var5 = res.getInstances().iterator();
-
-            while(var5.hasNext()) {
-                Instance i = (Instance)var5.next();
-                if (i.getInstanceId().equalsIgnoreCase(instanceId)) {
-                    result = i;
-                }
-            }
-        }
-
-        return result;
+        return queryInstances(instanceIdFilter(Arrays.asList(instanceId)))
+                .filter(i -> i.getInstanceId().equalsIgnoreCase(instanceId))
+                .findFirst()
+                .orElse(null);
     }
 
     /**
@@ -708,22 +833,9 @@ public class EC2RaiderImpl implements EC2Raider {
         EC2Status ec2Status = null;
         Map instanceState = new HashMap();
 
-        List tagNames = new ArrayList();
-        tagNames.add(name);
-
-        Filter filter1 = new Filter("tag:Name", tagNames);
-
-        DescribeInstancesRequest request = new DescribeInstancesRequest();
-        DescribeInstancesResult result = ec2Delegator.getEc2().describeInstances(request.withFilters(filter1));
-
-        List<Reservation> reservations = result.getReservations();
-        for (Reservation reservation : reservations) {
-            List<Instance> instances = reservation.getInstances();
-
-            for (Instance instance : instances) {
-                instanceState.put(instance.getInstanceId(), instance.getState().getName());
-            }
-        }
+        describeInstances(tagKeyFilter(NAME_TAG))
+                .filter(instance -> hasTag(instance, NAME_TAG, name))
+                .forEach(instance -> instanceState.put(instance.getInstanceId(), instance.getState().getName()));
 
         if (instanceState.isEmpty()) {
             throw new ResourceNotFoundException("Unable to find EC2 instances for tag: " + name);
@@ -755,21 +867,9 @@ public class EC2RaiderImpl implements EC2Raider {
     @Deprecated
     public List getInstancesIpsForAZ(String tag, String availabilityZoneName) {
 
-        DescribeInstancesRequest request = new DescribeInstancesRequest();
-
-        ArrayList<String> tags = new ArrayList<>();
-        tags.add(tag);
-
-        Filter filter1 = new Filter("tag:Name", tags);
-
         List result =
-                ec2Delegator.getEc2().describeInstances(request.withFilters(filter1))
-                        .getReservations()
-                        .stream()
-                        .map(Reservation::getInstances)
-                        .flatMap(l -> l.stream())
-                        .collect(Collectors.toList())
-                        .stream()
+                queryInstances(tagKeyFilter(NAME_TAG), availabilityZoneFilter(availabilityZoneName), runningStateFilter())
+                        .filter(x -> hasTag(x, NAME_TAG, tag))
                         .filter(x -> x.getPlacement().getAvailabilityZone().equalsIgnoreCase(availabilityZoneName) && x.getState().getName().equalsIgnoreCase("running"))
                         .map(Instance::getPrivateIpAddress)
                         .collect(Collectors.toList());
@@ -789,32 +889,11 @@ public class EC2RaiderImpl implements EC2Raider {
     @Deprecated
     public List<EC2InstanceTO> getInstancesIdsForOneTag(String tagName) {
 
-        List<String> instanceIds = new ArrayList<String>();
-
-
-        List tagNames = new ArrayList();
-
-        tagNames.add(tagName);
-
-
-        DescribeInstancesRequest request = new DescribeInstancesRequest();
-
-        Filter filter1 = new Filter("tag:Name", tagNames);
-
-        DescribeInstancesResult result = ec2Delegator.getEc2().describeInstances(request.withFilters(filter1));
-
-        List<Reservation> reservations = result.getReservations();
-
-        for (Reservation reservation : reservations) {
-            List<Instance> instances = reservation.getInstances();
-
+        List<String> instanceIds = queryInstances(tagKeyFilter(NAME_TAG), runningStateFilter())
+                .filter(i -> isRunning(i) && hasTag(i, NAME_TAG, tagName))
+                .map(Instance::getInstanceId)
+                .collect(Collectors.toList());
 
-            for (Instance instance : instances) {
-                if (instance.getState().getName().equalsIgnoreCase("running")) {
-                    instanceIds.add(instance.getInstanceId());
-                }
-            }
-        }
         return getEC2InstancesByIds(instanceIds);
     }
 
@@ -824,23 +903,10 @@ public class EC2RaiderImpl implements EC2Raider {
      */
     @Deprecated
     public void terminateEc2InstancesByTags(String... tagName) {
-        List<String> instanceIds = new ArrayList<String>();
-
-        DescribeInstancesRequest request = new DescribeInstancesRequest();
-
-        Filter filter1 = new Filter("tag:Name", Arrays.asList(tagName));
-
-        DescribeInstancesResult result = ec2Delegator.getEc2().describeInstances(request.withFilters(filter1));
-        List<Reservation> reservations = result.getReservations();
-
-        for (Reservation reservation : reservations) {
-            List<Instance> instances = reservation.getInstances();
-
-
-            for (Instance instance : instances) {
-                instanceIds.add(instance.getInstanceId());
-            }
-        }
+        List<String> instanceIds = queryInstances(tagKeyFilter(NAME_TAG))
+                .filter(i -> Arrays.stream(tagName).anyMatch(name -> hasTag(i, NAME_TAG, name)))
+                .map(Instance::getInstanceId)
+                .collect(Collectors.toList());
 
         if (instanceIds.isEmpty()) {
             throw new ResourceNotFoundException("No Instances are avaialble");
@@ -848,6 +914,7 @@ public class EC2RaiderImpl implements EC2Raider {
 
         TerminateInstancesRequest request1 = new TerminateInstancesRequest().withInstanceIds(instanceIds);
         TerminateInstancesResult response = ec2Delegator.getEc2().terminateInstances(request1);
+        inventoryCache.invalidate();
 
     }
 
@@ -857,26 +924,10 @@ public class EC2RaiderImpl implements EC2Raider {
      */
     @Deprecated
     public void terminateEc2InstancesByTags(String tagName, int numberOfInstances) {
-        List<String> instanceIds = new ArrayList<String>();
-
-        List tags = new ArrayList<String>();
-        tags.add(tagName);
-
-        DescribeInstancesRequest request = new DescribeInstancesRequest();
-
-        Filter filter1 = new Filter("tag:Name", tags);
-
-        DescribeInstancesResult result = ec2Delegator.getEc2().describeInstances(request.withFilters(filter1));
-        List<Reservation> reservations = result.getReservations();
-
-        for (Reservation reservation : reservations) {
-            List<Instance> instances = reservation.getInstances();
-
-
-            for (Instance instance : instances) {
-                instanceIds.add(instance.getInstanceId());
-            }
-        }
+        List<String> instanceIds = queryInstances(tagKeyFilter(NAME_TAG))
+                .filter(i -> hasTag(i, NAME_TAG, tagName))
+                .map(Instance::getInstanceId)
+                .collect(Collectors.toList());
 
         if (instanceIds.isEmpty()) {
             throw new ResourceNotFoundException("No Instances are avaialble");
@@ -889,6 +940,7 @@ public class EC2RaiderImpl implements EC2Raider {
         TerminateInstancesRequest request1 = new TerminateInstancesRequest().withInstanceIds(instanceIds.subList(0, numberOfInstances));
 
         TerminateInstancesResult response = ec2Delegator.getEc2().terminateInstances(request1);
+        inventoryCache.invalidate();
     }
 
     /**
@@ -905,21 +957,9 @@ public class EC2RaiderImpl implements EC2Raider {
             throw new InvalidInputDataException("Empty/Null availabilityZoneName provided in request");
         }
 
-        DescribeInstancesRequest request = new DescribeInstancesRequest();
-
-        ArrayList<String> tags = new ArrayList<>();
-        tags.add(tag);
-
-        Filter filter1 = new Filter("tag:Name", tags);
-
         List<String> result =
-                ec2Delegator.getEc2().describeInstances(request.withFilters(filter1))
-                        .getReservations()
-                        .stream()
-                        .map(Reservation::getInstances)
-                        .flatMap(l -> l.stream())
-                        .collect(Collectors.toList())
-                        .stream()
+                queryInstances(tagKeyFilter(NAME_TAG), availabilityZoneFilter(availabilityZoneName), runningStateFilter())
+                        .filter(x -> hasTag(x, NAME_TAG, tag))
                         .filter(x -> x.getPlacement().getAvailabilityZone().equalsIgnoreCase(availabilityZoneName) && x.getState().getName().equalsIgnoreCase("running"))
                         .map(Instance::getInstanceId)
                         .collect(Collectors.toList());
@@ -941,24 +981,11 @@ public class EC2RaiderImpl implements EC2Raider {
      */
     @Deprecated
     public EC2InstanceTO getEC2StatusByTag(String tag) {
-        EC2InstanceTO ec2InstanceTO = null;
-        for (Reservation res : ec2Delegator.getEc2().describeInstances().getReservations()) {
-            for (Instance i : res.getInstances()) {
-                if (i.getState().getName().equalsIgnoreCase("running")) {
-                    for (Tag t : i.getTags()) {
-                        if (t.getValue().equalsIgnoreCase(tag)) {
-                            ec2InstanceTO = this.createEc2Instance(i);
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-
-        if (ec2InstanceTO == null) {
-            throw new ResourceNotFoundException("Unable to find EC2 Instances with given tag: " + tag);
-        }
-        return ec2InstanceTO;
+        return queryInstances(runningStateFilter())
+                .filter(i -> isRunning(i) && i.getTags().stream().anyMatch(t -> t.getValue().equalsIgnoreCase(tag)))
+                .findFirst()
+                .map(this::createEc2Instance)
+                .orElseThrow(() -> new ResourceNotFoundException("Unable to find EC2 Instances with given tag: " + tag));
 
     }
 
@@ -0,0 +1,163 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.impl;
+
+import com.amazonaws.services.elasticache.AmazonElastiCacheAsync;
+import com.amazonaws.services.elasticache.model.CacheCluster;
+import com.amazonaws.services.elasticache.model.CacheNode;
+import com.amazonaws.services.elasticache.model.DescribeCacheClustersRequest;
+import com.amazonaws.services.elasticache.model.DescribeCacheClustersResult;
+import com.amazonaws.services.elasticache.model.RebootCacheClusterRequest;
+import com.intuit.cloudraider.commons.CompletableAsyncHandler;
+import com.intuit.cloudraider.commons.ElastiCacheDelegator;
+import com.intuit.cloudraider.core.interfaces.ElastiCacheRaiderAsync;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * AWS ElastiCache functionality backed by the async client.
+ */
+@Component(value="elastiCacheRaiderAsyncBean")
+public class ElastiCacheRaiderAsyncImpl implements ElastiCacheRaiderAsync {
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private ElastiCacheDelegator elastiCacheDelegator;
+
+    /**
+     * Instantiates a new Elasti cache raider async.
+     */
+    public ElastiCacheRaiderAsyncImpl() {
+    }
+
+    /**
+     * Reboot the given number of nodes of the cluster.
+     *
+     * @param clusterName cluster name
+     * @param numNodes    number of nodes
+     * @return future completed once the reboot is accepted
+     */
+    @Override
+    public CompletableFuture<Void> rebootElastiCacheCluster(String clusterName, Integer numNodes) {
+        if (clusterName == null || clusterName.isEmpty()) {
+            throw new InvalidInputDataException("Empty/Null clusterName provided in request");
+        }
+
+        RebootCacheClusterRequest rebootCacheClusterRequest = new RebootCacheClusterRequest()
+                .withCacheClusterId(clusterName)
+                .withCacheNodeIdsToReboot(IntStream.range(1, numNodes + 1)
+                        .mapToObj(i -> String.format("%04d", i))
+                        .collect(Collectors.toList()));
+
+        AmazonElastiCacheAsync elastiCache = elastiCacheDelegator.getAmazonElastiCacheAsync();
+        return CompletableAsyncHandler.<RebootCacheClusterRequest, CacheCluster>call(elastiCache::rebootCacheClusterAsync, rebootCacheClusterRequest)
+                .thenAccept(cacheCluster -> {});
+    }
+
+    /**
+     * Reboot the node with the given endpoint address.
+     *
+     * @param nodeName node endpoint address
+     * @return future completed once the reboot is accepted
+     */
+    @Override
+    public CompletableFuture<Void> rebootElasticCacheNode(String nodeName) {
+        if (nodeName == null || nodeName.isEmpty()) {
+            throw new InvalidInputDataException("Null/Empty node name");
+        }
+
+        AmazonElastiCacheAsync elastiCache = elastiCacheDelegator.getAmazonElastiCacheAsync();
+        return findNode(nodeName)
+                .thenCompose(node -> CompletableAsyncHandler.<RebootCacheClusterRequest, CacheCluster>call(elastiCache::rebootCacheClusterAsync, new RebootCacheClusterRequest()
+                        .withCacheClusterId(node.getKey().getCacheClusterId())
+                        .withCacheNodeIdsToReboot(node.getValue().getCacheNodeId())))
+                .thenAccept(cacheCluster -> {
+                    if (cacheCluster == null) {
+                        throw new ResourceNotFoundException("Unable to reboot Ec instance: " + nodeName);
+                    }
+                });
+    }
+
+    /**
+     * Get the status of the cluster.
+     *
+     * @param clusterName cluster name
+     * @return future cluster status
+     */
+    @Override
+    public CompletableFuture<String> getElastiCacheClusterStatus(String clusterName) {
+        if (clusterName == null || clusterName.isEmpty()) {
+            throw new InvalidInputDataException("Empty/Null clusterName provided in request");
+        }
+
+        AmazonElastiCacheAsync elastiCache = elastiCacheDelegator.getAmazonElastiCacheAsync();
+        return CompletableAsyncHandler.<DescribeCacheClustersRequest, DescribeCacheClustersResult>call(elastiCache::describeCacheClustersAsync, new DescribeCacheClustersRequest().withCacheClusterId(clusterName))
+                .thenApply(result -> result.getCacheClusters().get(0).getCacheClusterStatus());
+    }
+
+    /**
+     * Get the status of the node with the given endpoint address.
+     *
+     * @param nodeName node endpoint address
+     * @return future node status
+     */
+    @Override
+    public CompletableFuture<String> getElastiCacheNodeStatus(String nodeName) {
+        if (nodeName == null || nodeName.isEmpty()) {
+            throw new InvalidInputDataException("Null/Empty node name");
+        }
+
+        return findNode(nodeName).thenApply(node -> node.getValue().getCacheNodeStatus());
+    }
+
+    /**
+     * Find the node with the given endpoint address and its cluster.
+     */
+    private CompletableFuture<Map.Entry<CacheCluster, CacheNode>> findNode(String nodeName) {
+        AmazonElastiCacheAsync elastiCache = elastiCacheDelegator.getAmazonElastiCacheAsync();
+        return CompletableAsyncHandler.<DescribeCacheClustersRequest, DescribeCacheClustersResult>call(elastiCache::describeCacheClustersAsync, new DescribeCacheClustersRequest().withShowCacheNodeInfo(true))
+                .thenApply(result -> result.getCacheClusters().stream()
+                        .flatMap(cacheCluster -> cacheCluster.getCacheNodes().stream()
+                                .map(cacheNode -> new AbstractMap.SimpleImmutableEntry<>(cacheCluster, cacheNode)))
+                        .filter(entry -> entry.getValue().getEndpoint().getAddress().equalsIgnoreCase(nodeName))
+                        .findFirst()
+                        .<Map.Entry<CacheCluster, CacheNode>>map(entry -> entry)
+                        .orElseThrow(() -> new ResourceNotFoundException("Unable to find Ec node: " + nodeName)));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.impl;
+
+import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingAsync;
+import com.amazonaws.services.elasticloadbalancing.model.DeregisterInstancesFromLoadBalancerRequest;
+import com.amazonaws.services.elasticloadbalancing.model.DeregisterInstancesFromLoadBalancerResult;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeInstanceHealthRequest;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeInstanceHealthResult;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeLoadBalancersRequest;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeLoadBalancersResult;
+import com.amazonaws.services.elasticloadbalancing.model.Instance;
+import com.amazonaws.services.elasticloadbalancing.model.RegisterInstancesWithLoadBalancerRequest;
+import com.amazonaws.services.elasticloadbalancing.model.RegisterInstancesWithLoadBalancerResult;
+import com.intuit.cloudraider.commons.CompletableAsyncHandler;
+import com.intuit.cloudraider.commons.LoadBalancerDelegator;
+import com.intuit.cloudraider.core.interfaces.LoadBalancerRaiderAsync;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * AWS Elastic Load Balancer functionality backed by the async client.
+ */
+@Component(value="loadBalancerRaiderAsyncBean")
+public class LoadBalancerRaiderAsyncImpl implements LoadBalancerRaiderAsync {
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private LoadBalancerDelegator loadBalancerDelegator;
+
+    /**
+     * Instantiates a new Load balancer raider async.
+     */
+    public LoadBalancerRaiderAsyncImpl() {
+    }
+
+    /**
+     * Gets all in service instances attached to the provided load balancer.
+     *
+     * @param elbName load balancer name
+     * @return future list of instance ids
+     */
+    @Override
+    public CompletableFuture<List<String>> getInServiceInstances(String elbName) {
+        return getServiceInstances(elbName, "InService");
+    }
+
+    /**
+     * Gets all out of service instances attached to the provided load balancer.
+     *
+     * @param elbName load balancer name
+     * @return future list of instance ids
+     */
+    @Override
+    public CompletableFuture<List<String>> getOutOfServiceInstances(String elbName) {
+        return getServiceInstances(elbName, "OutOfService");
+    }
+
+    /**
+     * Deregister the given instances from the specified load balancer.
+     *
+     * @param loadBalancerName load balancer name
+     * @param instances        list of instance ids
+     * @return future completed once the instances are deregistered
+     */
+    @Override
+    public CompletableFuture<Void> deregisterInstancesFromLoadBalancer(String loadBalancerName, List<String> instances) {
+        validate(loadBalancerName, instances);
+
+        AmazonElasticLoadBalancingAsync elb = loadBalancerDelegator.getAmazonElasticLoadBalancingAsync();
+        return requireLoadBalancer(loadBalancerName)
+                .thenCompose(exists -> CompletableAsyncHandler.<DeregisterInstancesFromLoadBalancerRequest, DeregisterInstancesFromLoadBalancerResult>call(elb::deregisterInstancesFromLoadBalancerAsync,
+                        new DeregisterInstancesFromLoadBalancerRequest()
+                                .withLoadBalancerName(loadBalancerName)
+                                .withInstances(toInstances(instances))))
+                .thenAccept(result -> {});
+    }
+
+    /**
+     * Register the given instances to the specified load balancer.
+     *
+     * @param loadBalancerName load balancer name
+     * @param instances        list of instance ids
+     * @return future completed once the instances are registered
+     */
+    @Override
+    public CompletableFuture<Void> registerInstancesFromLoadBalancer(String loadBalancerName, List<String> instances) {
+        validate(loadBalancerName, instances);
+
+        AmazonElasticLoadBalancingAsync elb = loadBalancerDelegator.getAmazonElasticLoadBalancingAsync();
+        return requireLoadBalancer(loadBalancerName)
+                .thenCompose(exists -> CompletableAsyncHandler.<RegisterInstancesWithLoadBalancerRequest, RegisterInstancesWithLoadBalancerResult>call(elb::registerInstancesWithLoadBalancerAsync,
+                        new RegisterInstancesWithLoadBalancerRequest()
+                                .withLoadBalancerName(loadBalancerName)
+                                .withInstances(toInstances(instances))))
+                .thenAccept(result -> {});
+    }
+
+    /**
+     * Helper function for getting In or Out Service instances.
+     */
+    private CompletableFuture<List<String>> getServiceInstances(String elbName, String state) {
+        if (elbName == null || elbName.isEmpty()) {
+            throw new InvalidInputDataException("Empty/Null load balancer name provided in request");
+        }
+
+        AmazonElasticLoadBalancingAsync elb = loadBalancerDelegator.getAmazonElasticLoadBalancingAsync();
+        return CompletableAsyncHandler.<DescribeInstanceHealthRequest, DescribeInstanceHealthResult>call(elb::describeInstanceHealthAsync, new DescribeInstanceHealthRequest().withLoadBalancerName(elbName))
+                .thenApply(result -> {
+                    List<String> instances = result.getInstanceStates().stream()
+                            .filter(x -> x.getState().equalsIgnoreCase(state))
+                            .map(x -> x.getInstanceId())
+                            .collect(Collectors.toList());
+                    Collections.shuffle(instances);
+                    return instances;
+                });
+    }
+
+    private CompletableFuture<Void> requireLoadBalancer(String loadBalancerName) {
+        AmazonElasticLoadBalancingAsync elb = loadBalancerDelegator.getAmazonElasticLoadBalancingAsync();
+        return CompletableAsyncHandler.<DescribeLoadBalancersRequest, DescribeLoadBalancersResult>call(elb::describeLoadBalancersAsync, new DescribeLoadBalancersRequest().withLoadBalancerNames(loadBalancerName))
+                .thenAccept(result -> {
+                    if (result.getLoadBalancerDescriptions().isEmpty()) {
+                        throw new ResourceNotFoundException("Unable to find load balancer: " + loadBalancerName);
+                    }
+                });
+    }
+
+    private void validate(String loadBalancerName, List<String> instances) {
+        if (loadBalancerName == null || loadBalancerName.isEmpty()) {
+            throw new InvalidInputDataException("Empty/Null load balancer name provided in request");
+        } else if (instances == null || instances.isEmpty()) {
+            throw new InvalidInputDataException("Empty/Null instances provided in request");
+        }
+    }
+
+    private List<Instance> toInstances(List<String> instances) {
+        return instances.stream()
+                .map(Instance::new)
+                .collect(Collectors.toList());
+    }
+}
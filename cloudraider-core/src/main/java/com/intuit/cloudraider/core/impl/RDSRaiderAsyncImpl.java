@@ -0,0 +1,177 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.impl;
+
+import com.amazonaws.services.rds.AmazonRDSAsync;
+import com.amazonaws.services.rds.model.DBInstance;
+import com.amazonaws.services.rds.model.DescribeDBInstancesRequest;
+import com.amazonaws.services.rds.model.DescribeDBInstancesResult;
+import com.amazonaws.services.rds.model.RebootDBInstanceRequest;
+import com.amazonaws.services.rds.model.StartDBInstanceRequest;
+import com.amazonaws.services.rds.model.StopDBInstanceRequest;
+import com.intuit.cloudraider.commons.CompletableAsyncHandler;
+import com.intuit.cloudraider.commons.RDSDelegator;
+import com.intuit.cloudraider.core.interfaces.RDSRaiderAsync;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import com.intuit.cloudraider.model.DBStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * AWS Relational Database Service functionality backed by the async client.
+ */
+@Component(value="rdsRaiderAsyncBean")
+public class RDSRaiderAsyncImpl implements RDSRaiderAsync {
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private RDSDelegator rdsDelegator;
+
+    /**
+     * Instantiates a new Rds raider async.
+     */
+    public RDSRaiderAsyncImpl() {
+    }
+
+    /**
+     * Get the database statuses for the database instances requested.
+     *
+     * @param dbInstanceIds list of database ids
+     * @return future list of database status, one status per database instance
+     */
+    @Override
+    public CompletableFuture<List<DBStatus>> getInstancesStatus(List<String> dbInstanceIds) {
+        AmazonRDSAsync amazonRds = rdsDelegator.getAmazonRdsAsync();
+        return CompletableAsyncHandler.<DescribeDBInstancesRequest, DescribeDBInstancesResult>call(amazonRds::describeDBInstancesAsync, new DescribeDBInstancesRequest())
+                .thenApply(result -> result.getDBInstances().stream()
+                        .filter(dbInstance -> dbInstanceIds.contains(dbInstance.getDBInstanceIdentifier()))
+                        .map(dbInstance -> new DBStatus(dbInstance.getDBInstanceIdentifier(), dbInstance.getDBInstanceStatus()))
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Get the status for the specified database.
+     *
+     * @param dbName database name
+     * @return future database status
+     */
+    @Override
+    public CompletableFuture<String> getDBInstanceStatus(String dbName) {
+        if (dbName == null || dbName.isEmpty()) {
+            throw new InvalidInputDataException("Null/Empty db name");
+        }
+
+        AmazonRDSAsync amazonRds = rdsDelegator.getAmazonRdsAsync();
+        return CompletableAsyncHandler.<DescribeDBInstancesRequest, DescribeDBInstancesResult>call(amazonRds::describeDBInstancesAsync, new DescribeDBInstancesRequest().withDBInstanceIdentifier(dbName))
+                .thenApply(result -> result.getDBInstances().get(0).getDBInstanceStatus());
+    }
+
+    /**
+     * Reboot the given database instance.
+     *
+     * @param dbName database name
+     * @return future completed once the reboot is accepted
+     */
+    @Override
+    public CompletableFuture<Void> rebootDbInstance(String dbName) {
+        if (dbName == null || dbName.isEmpty()) {
+            throw new InvalidInputDataException("Null/Empty db name");
+        }
+
+        AmazonRDSAsync amazonRds = rdsDelegator.getAmazonRdsAsync();
+        return CompletableAsyncHandler.<RebootDBInstanceRequest, DBInstance>call(amazonRds::rebootDBInstanceAsync, new RebootDBInstanceRequest().withDBInstanceIdentifier(dbName))
+                .thenAccept(dbInstance -> requireInstance(dbInstance, "Unable to reboot DB instance: " + dbName));
+    }
+
+    /**
+     * Reboot the database instances that match the provided names, all at once.
+     *
+     * @param dbNames database names
+     * @return future completed once every reboot is accepted
+     */
+    @Override
+    public CompletableFuture<Void> rebootDbInstances(List<String> dbNames) {
+        return forEach(dbNames, this::rebootDbInstance);
+    }
+
+    /**
+     * Stop the database instances that match the provided names, all at once.
+     *
+     * @param dbNames database names
+     * @return future completed once every stop is accepted
+     */
+    @Override
+    public CompletableFuture<Void> stopInstances(List<String> dbNames) {
+        AmazonRDSAsync amazonRds = rdsDelegator.getAmazonRdsAsync();
+        return forEach(dbNames, dbName -> CompletableAsyncHandler.<StopDBInstanceRequest, DBInstance>call(amazonRds::stopDBInstanceAsync,
+                new StopDBInstanceRequest().withDBInstanceIdentifier(dbName))
+                .thenAccept(dbInstance -> requireInstance(dbInstance, "Unable to stop DB instance: " + dbName)));
+    }
+
+    /**
+     * Start the database instances that match the provided names, all at once.
+     *
+     * @param dbNames database names
+     * @return future completed once every start is accepted
+     */
+    @Override
+    public CompletableFuture<Void> startInstances(List<String> dbNames) {
+        AmazonRDSAsync amazonRds = rdsDelegator.getAmazonRdsAsync();
+        return forEach(dbNames, dbName -> CompletableAsyncHandler.<StartDBInstanceRequest, DBInstance>call(amazonRds::startDBInstanceAsync,
+                new StartDBInstanceRequest().withDBInstanceIdentifier(dbName))
+                .thenAccept(dbInstance -> requireInstance(dbInstance, "Unable to start DB instance: " + dbName)));
+    }
+
+    /**
+     * Start the action on every database at once and complete when all of them have.
+     */
+    private CompletableFuture<Void> forEach(List<String> dbNames, Function<String, CompletableFuture<Void>> action) {
+        if (dbNames == null || dbNames.isEmpty()) {
+            throw new InvalidInputDataException("Empty dbNames list");
+        }
+
+        return CompletableFuture.allOf(dbNames.stream()
+                .map(action)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private void requireInstance(DBInstance dbInstance, String message) {
+        if (dbInstance == null) {
+            throw new ResourceNotFoundException(message);
+        }
+    }
+}
@@ -28,17 +28,30 @@ import com.amazonaws.services.simplesystemsmanagement.model.GetCommandInvocation
 import com.amazonaws.services.simplesystemsmanagement.model.GetCommandInvocationResult;
 import com.amazonaws.services.simplesystemsmanagement.model.SendCommandRequest;
 import com.amazonaws.services.simplesystemsmanagement.model.SendCommandResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Target;
+import com.intuit.cloudraider.commons.FanOutExecutor;
+import com.intuit.cloudraider.commons.FanOutExecutor.TargetType;
 import com.intuit.cloudraider.commons.SSMDelegator;
+import com.intuit.cloudraider.commons.SsmCompletionTracker;
 import com.intuit.cloudraider.core.interfaces.SSMRaider;
 import com.intuit.cloudraider.exceptions.InvalidInputDataException;
 import com.intuit.cloudraider.model.Command;
+import com.intuit.cloudraider.model.SsmCommandBatch;
 import com.intuit.cloudraider.utils.CommandUtility;
+import com.intuit.cloudraider.utils.ConfigUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * AWS SSM functionality.
@@ -46,6 +59,27 @@ import java.util.List;
 @Component (value = "ssmRaiderBean")
 public class SSMRaiderImpl implements SSMRaider{
 
+    /**
+     * The constant BATCH_SIZE_PROPERTY.
+     */
+    public static final String BATCH_SIZE_PROPERTY = "aws.ssm.sendCommandBatchSize";
+    /**
+     * Max number of instance ids SSM accepts in a single SendCommand request.
+     */
+    public static final int MAX_BATCH_SIZE = 50;
+    /**
+     * The constant POLL_INITIAL_DELAY_PROPERTY.
+     */
+    public static final String POLL_INITIAL_DELAY_PROPERTY = "aws.ssm.pollInitialDelayMillis";
+    /**
+     * The constant POLL_MAX_DELAY_PROPERTY.
+     */
+    public static final String POLL_MAX_DELAY_PROPERTY = "aws.ssm.pollMaxDelayMillis";
+    /**
+     * The constant COMMAND_TIMEOUT_PROPERTY.
+     */
+    public static final String COMMAND_TIMEOUT_PROPERTY = "aws.ssm.commandTimeoutSeconds";
+
     /**
      * The Logger.
      */
@@ -54,6 +88,11 @@ public class SSMRaiderImpl implements SSMRaider{
     @Autowired
     private SSMDelegator ssmDelegator;
 
+    @Autowired
+    private FanOutExecutor fanOutExecutor;
+
+    private SsmCompletionTracker completionTracker;
+
     /**
      * Instantiates a new Ssm raider.
      */
@@ -61,30 +100,164 @@ public class SSMRaiderImpl implements SSMRaider{
 
     }
 
+    @PostConstruct
+    private void init() {
+        completionTracker = new SsmCompletionTracker(ssmDelegator,
+                ConfigUtils.getLongProperty(POLL_INITIAL_DELAY_PROPERTY, 1000),
+                ConfigUtils.getLongProperty(POLL_MAX_DELAY_PROPERTY, 15000),
+                TimeUnit.SECONDS.toMillis(ConfigUtils.getLongProperty(COMMAND_TIMEOUT_PROPERTY, 600)));
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        completionTracker.shutdown();
+    }
+
     /**
      * Runs the commands to execute on each instance provided.
+     * Replaced with sendShellCommands(), since a single command id only covers instances sent in one chunk.
      *
      * @param instances instances to run commands on
      * @param commands list of commands to execute
      * @return sent command's id
+     * @throws RuntimeException if the instances took more than one chunk or a chunk could not be sent
      */
     @Override
+    @Deprecated
     public String executeShellCommands(List<String> instances, List<String> commands) {
+        SsmCommandBatch batch = sendShellCommands(instances, commands);
+        if (!batch.getFailedInstanceIds().isEmpty()) {
+            throw new RuntimeException("Unable to send commands to " + batch.getFailedInstanceIds()
+                    + ", use sendShellCommands to track the instances sent");
+        }
+        if (batch.getCommandIds().size() > 1) {
+            throw new RuntimeException("Commands were sent as " + batch.getCommandIds()
+                    + ", use sendShellCommands to track more than " + getBatchSize() + " instances");
+        }
+        return batch.getFirstCommandId();
+    }
 
-        SendCommandRequest sendCommandRequest = new SendCommandRequest()
-                .withInstanceIds(instances)
-                .withComment("Cloud-Raider FMEA Execution")
-                .withDocumentName("AWS-RunShellScript")
-                .addParametersEntry("commands",commands);
+    /**
+     * Runs the commands on each instance provided, splitting the instances in chunks of at most
+     * "aws.ssm.sendCommandBatchSize" (default and max 50) sent concurrently on the SSM fan out pool.
+     * Chunks that could not be sent are reported in the batch; it throws only if no chunk was sent.
+     *
+     * @param instances instances to run commands on
+     * @param commands list of commands to execute
+     * @return command ids mapped to the instances they were sent to
+     */
+    @Override
+    public SsmCommandBatch sendShellCommands(List<String> instances, List<String> commands) {
+        if (instances == null || instances.isEmpty()) {
+            throw new InvalidInputDataException("No instances available to execute commands");
+        }
+
+        List<String> distinctInstances = instances.stream().distinct().collect(Collectors.toList());
+        int batchSize = getBatchSize();
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinctInstances.size(); from += batchSize) {
+            chunks.add(new ArrayList<>(distinctInstances.subList(from, Math.min(from + batchSize, distinctInstances.size()))));
+        }
 
         logger.info("SSMRaider execCommands: " + commands);
-        logger.info("SSMRaider Instances " + instances );
+        logger.info("SSMRaider Instances " + distinctInstances + " in " + chunks.size() + " chunk(s)");
+
+        SsmCommandBatch batch = new SsmCommandBatch();
+        FanOutExecutor.FanOutResult<List<String>> result = fanOutExecutor.execute(TargetType.SSM, chunks,
+                chunk -> chunk.size() + " instances starting at " + chunk.get(0),
+                chunk -> batch.addCommand(sendCommand(new SendCommandRequest().withInstanceIds(chunk), commands), chunk));
+
+        result.getFailures().keySet().forEach(batch::addFailedInstances);
+        if (batch.isEmpty()) {
+            result.throwIfAnyFailed();
+        }
+        if (!result.isAllSucceeded()) {
+            logger.error("SSMRaider: unable to send commands to " + batch.getFailedInstanceIds());
+        }
+        return batch;
+    }
+
+    /**
+     * Execute the shell command with the parameters on the given instances, in chunks sent concurrently.
+     *
+     * @param instances instances to execute on
+     * @param command command to execute
+     * @param params parameters for command
+     * @return command ids mapped to the instances they were sent to
+     */
+    @Override
+    public SsmCommandBatch sendShellCommand(List<String> instances, Command command, String... params) {
+        return this.sendShellCommands(instances, getCommandsFromFile(command.getCommandName() + ".txt", params));
+    }
+
+    /**
+     * Runs the commands on every instance matching the targets (e.g. tag:Name), letting SSM resolve the instances.
+     *
+     * @param targets targets selecting the instances
+     * @param commands list of commands to execute
+     * @return command id, with no instances mapped
+     */
+    @Override
+    public SsmCommandBatch sendShellCommandsToTargets(List<Target> targets, List<String> commands) {
+        if (targets == null || targets.isEmpty()) {
+            throw new InvalidInputDataException("No targets available to execute commands");
+        }
+
+        logger.info("SSMRaider execCommands: " + commands);
+        logger.info("SSMRaider Targets " + targets);
+
+        return new SsmCommandBatch(sendCommand(new SendCommandRequest().withTargets(targets), commands), null);
+    }
+
+    private String sendCommand(SendCommandRequest sendCommandRequest, List<String> commands) {
+        sendCommandRequest
+                .withComment("Cloud-Raider FMEA Execution")
+                .withDocumentName("AWS-RunShellScript")
+                .addParametersEntry("commands", commands);
 
         SendCommandResult result = ssmDelegator.getAWSSimpleSystemsManagement().sendCommand(sendCommandRequest);
 
         return result.getCommand().getCommandId();
     }
 
+    private int getBatchSize() {
+        long batchSize = ConfigUtils.getLongProperty(BATCH_SIZE_PROPERTY, MAX_BATCH_SIZE);
+        return (int) Math.max(1, Math.min(MAX_BATCH_SIZE, batchSize));
+    }
+
+    private List<String> getCommandsFromFile(String fileName, String... params) {
+        List<String> commands = CommandUtility.getCommandsFromFile(fileName, params);
+
+        if (commands.isEmpty()) {
+            throw new InvalidInputDataException("No commands available to execute");
+        }
+        return commands;
+    }
+
+    /**
+     * Get status of every invocation of the batch with one paginated ListCommandInvocations per command.
+     *
+     * @param batch command batch
+     * @return map of instance id to status
+     */
+    @Override
+    public Map<String, String> getCommandStatuses(SsmCommandBatch batch) {
+        return completionTracker.getStatuses(batch);
+    }
+
+    /**
+     * Track the invocations of the batch until every one of them reached a terminal state, polling with an
+     * adaptive backoff between "aws.ssm.pollInitialDelayMillis" and "aws.ssm.pollMaxDelayMillis". The future fails
+     * with a TimeoutException after "aws.ssm.commandTimeoutSeconds".
+     *
+     * @param batch command batch
+     * @return future of the map of instance id to final status
+     */
+    @Override
+    public CompletableFuture<Map<String, String>> trackCommandCompletion(SsmCommandBatch batch) {
+        return completionTracker.whenComplete(batch);
+    }
+
     /**
      * Get status of the command execution.
      *
@@ -139,33 +312,33 @@ public class SSMRaiderImpl implements SSMRaider{
 
     /**
      * Execute the shell command with the parameters on the given instances.
+     * Replaced with sendShellCommands().
      *
      * @param instances instances to execute on
      * @param fileName file name
      * @param params parameters for command
      * @return command's id
+     * @throws RuntimeException if the instances took more than one chunk or a chunk could not be sent
      */
     @Override
+    @Deprecated
     public String executeShellCommandsFromFile(List<String> instances, String fileName, String... params) {
 
-        List<String> commands = CommandUtility.getCommandsFromFile(fileName, params);
-
-        if (commands.isEmpty()) {
-            throw new InvalidInputDataException("No commands available to execute");
-        }
-
-        return this.executeShellCommands(instances, commands);
+        return this.executeShellCommands(instances, getCommandsFromFile(fileName, params));
     }
 
     /**
      * Execute the shell command with the parameters on the given instances.
+     * Replaced with sendShellCommand().
      *
      * @param instances instances to execute on
      * @param command command to execute
      * @param params parameters for command
      * @return command's id
+     * @throws RuntimeException if the instances took more than one chunk or a chunk could not be sent
      */
     @Override
+    @Deprecated
     public String executeShellCommand(List<String> instances, Command command, String... params) {
 
         return this.executeShellCommandsFromFile(instances, command.getCommandName()+".txt", params);
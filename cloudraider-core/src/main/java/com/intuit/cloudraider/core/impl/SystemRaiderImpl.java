@@ -24,54 +24,86 @@
 
 package com.intuit.cloudraider.core.impl;
 
-import com.google.common.base.Strings;
-import com.google.common.net.InetAddresses;
-import com.intuit.cloudraider.commons.CloudRaiderSSHSessionFactory;
+import com.google.common.io.ByteStreams;
+import com.intuit.cloudraider.commons.RemoteScriptCache;
+import com.intuit.cloudraider.commons.SshSessionPool;
 import com.intuit.cloudraider.commons.SystemDelegator;
 import com.intuit.cloudraider.core.interfaces.SystemRaider;
+import com.intuit.cloudraider.model.ScriptExecutionResult;
 import com.intuit.cloudraider.utils.ConfigUtils;
-import com.jcraft.jsch.Channel;
+import com.intuit.cloudraider.utils.RingBufferOutputStream;
 import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.HostKey;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
-import com.pastdev.jsch.SessionFactory;
-import com.pastdev.jsch.proxy.SshProxy;
-import com.pastdev.jsch.scp.ScpFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.io.*;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Script Execution functionality.
  * <p>
+ * Sessions are borrowed from the SshSessionPool, so the upload and the execution of a script, and later scripts run
+ * on the same host, share one authenticated connection. Scripts are uploaded once per host under their content hash.
   */
 @Component (value="systemRaiderBean")
 public class SystemRaiderImpl implements SystemRaider {
 
+    /**
+     * The constant COMMAND_TIMEOUT_PROPERTY.
+     */
+    public static final String COMMAND_TIMEOUT_PROPERTY = "cloudraider.ssh.commandTimeoutSeconds";
+
+    private static final String DETACH_MARKER = "executing..";
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_COMMAND_TIMEOUT_SECONDS = 600;
+    private static final long EXIT_STATUS_WAIT_MILLIS = 2000;
+    private static final int SCRIPT_MISSING_EXIT_STATUS = 200;
+    private static final String SCRIPT_MISSING_MARKER = "cloudraider: script missing";
+
     /**
      * The System delegator.
      */
     @Autowired
     private SystemDelegator systemDelegator;
 
+    @Autowired
+    private SshSessionPool sshSessionPool;
+
+    private final RemoteScriptCache remoteScriptCache = new RemoteScriptCache();
+
     /**
      * The Logger.
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    private long commandTimeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_COMMAND_TIMEOUT_SECONDS);
+
     /**
      * Instantiates a new System raider.
      */
     public SystemRaiderImpl() {
            }
 
+    @PostConstruct
+    private void init() {
+        commandTimeoutMillis = TimeUnit.SECONDS.toMillis(
+                ConfigUtils.getLongProperty(COMMAND_TIMEOUT_PROPERTY, DEFAULT_COMMAND_TIMEOUT_SECONDS));
+    }
+
 
     /**
      * Execute the given script on the specified instance with parameters.
@@ -83,23 +115,7 @@ public class SystemRaiderImpl implements SystemRaider {
      */
     @Override
     public String executeScript(String ip, String path, String... params) {
-        String response;
-        SessionFactory sessionFactory;
-        try {
-            sessionFactory = createSessionFactory(ip);
-            scpScript(sessionFactory, path);
-            response = executer(ip, params);
-
-        } catch (JSchException e) {
-            return "unable to connect to " + ip;
-        } catch (IOException e) {
-            return "unable to copy file to the host, error: " + e;
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
-        return response;
-
+        return executeScript(ip, path, toList(params));
     }
 
     /**
@@ -112,256 +128,378 @@ public class SystemRaiderImpl implements SystemRaider {
      */
     @Override
     public String executeScript(String ip, String path, List<String> params) {
-        String response;
-        SessionFactory sessionFactory;
+        byte[] script;
         try {
-            sessionFactory = createSessionFactory(ip);
-            scpScript(sessionFactory, path);
-            response = executer(ip, params);
+            script = readScript(path);
+        } catch (IOException e) {
+            return "unable to copy file to the host, error: " + e;
+        }
+        return executeScript(ip, path, script, params);
+    }
+
+    /**
+     * Execute the given script content on the specified instance with parameters.
+     *
+     * @param ip private ip address of AWS resources
+     * @param script script content
+     * @param params parameters for commands
+     * @return execution response
+     */
+    @Override
+    public String executeScript(String ip, byte[] script, String... params) {
+        return executeScript(ip, "script " + RemoteScriptCache.hash(script), script, toList(params));
+    }
 
+    private String executeScript(String ip, String name, byte[] script, List<String> params) {
+        try {
+            ScriptExecutionResult result = execute(ip, script, params);
+            if (!result.isSuccess()) {
+                logger.warn(name + " failed on " + ip + " with exit status " + result.getExitStatus()
+                        + ", stderr: " + result.getStderr());
+            }
         } catch (JSchException e) {
             return "unable to connect to " + ip;
         } catch (IOException e) {
             return "unable to copy file to the host, error: " + e;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
-        return response;
-
+        return "success";
     }
 
-
     /**
-     * Generates SSH session with the given ip address.
+     * Execute the given script on the specified instance with parameters and report its exit status, output and
+     * timing.
      *
-     * @param ip ip address
-     * @return SessionFactory
+     * @param ip private ip address of AWS resources
+     * @param path path to script
+     * @param params list of command parameters
+     * @return ScriptExecutionResult
      */
-    private SessionFactory createSessionFactory(String ip) throws JSchException, IOException {
-
-    	Properties prop = new Properties();
-        InputStream input;
-
-        String configfile = ConfigUtils.getConfigFilePath();
-        input = ClassLoader.getSystemResourceAsStream(configfile);
-        prop.load(input);
-
-        String skipbastion = prop.getProperty("skipbastion");
-
-        InetAddresses.forString(ip);
-        logger.debug("SSH params = " + systemDelegator.getSshParameters());
-        CloudRaiderSSHSessionFactory sessionFactory = new CloudRaiderSSHSessionFactory(
-                systemDelegator.getSshParameters().getUsername(), ip, SessionFactory.SSH_PORT );
-
-
-        sessionFactory.addIdentityFromPrivateKey(systemDelegator.getSshParameters().getPrivateKeyPath(), systemDelegator.getSshParameters().getPassPhrase());
+    @Override
+    public ScriptExecutionResult executeScriptForResult(String ip, String path, List<String> params) {
+        try {
+            return execute(ip, readScript(path), params);
+        } catch (JSchException | IOException e) {
+            throw new RuntimeException("Unable to execute " + path + " on " + ip, e);
+        }
+    }
 
-        sessionFactory.printIdentities();
-        Map<String,String> config = new HashMap<String, String>();
+    /**
+     * Execute the given script content on the specified instance with parameters and report its exit status, output
+     * and timing.
+     *
+     * @param ip private ip address of AWS resources
+     * @param script script content
+     * @param params list of command parameters
+     * @return ScriptExecutionResult
+     */
+    @Override
+    public ScriptExecutionResult executeScriptForResult(String ip, byte[] script, List<String> params) {
+        try {
+            return execute(ip, script, params);
+        } catch (JSchException | IOException e) {
+            throw new RuntimeException("Unable to execute script " + RemoteScriptCache.hash(script) + " on " + ip, e);
+        }
+    }
 
-        config.put("StrictHostKeyChecking", "no");
-        config.put("PreferredAuthentications", "publickey");
+    private ScriptExecutionResult execute(String ip, byte[] script, List<String> params) throws JSchException, IOException {
+        Session session = null;
+        try {
+            String hash = RemoteScriptCache.hash(script);
+            session = sshSessionPool.borrow(ip);
+            String host = getHostKey(ip, session);
+            String remotePath = remoteScriptCache.getRemotePath(getScriptHome(), hash);
+            String commandLine = "sudo sh " + remotePath + joinParams(params);
+
+            if (!remoteScriptCache.contains(host, hash)) {
+                uploadScript(ip, session, script, hash);
+                remoteScriptCache.add(host, hash);
+            }
+            ScriptExecutionResult result = executer(ip, guardExists(remotePath, commandLine), commandLine, session);
+
+            // the guard failed before the script started, so running it after the upload cannot run it twice
+            if (isScriptMissing(result)) {
+                logger.debug("Script " + hash + " no longer on " + ip + ", uploading it again");
+                remoteScriptCache.forget(host);
+                uploadScript(ip, session, script, hash);
+                remoteScriptCache.add(host, hash);
+                result = executer(ip, commandLine, session);
+            }
+            logger.debug("SSH " + result + " stdout: " + result.getStdout());
+            sshSessionPool.release(ip, session);
+            return result;
+        } catch (JSchException | IOException | RuntimeException e) {
+            invalidate(ip, session);
+            throw e;
+        }
+    }
 
-        sessionFactory.setConfig(config);
+    private void invalidate(String ip, Session session) {
+        if (session != null) {
+            sshSessionPool.invalidate(ip, session);
+        }
+    }
 
- //   	logger.debug(skipbastion);
+    private String getScriptHome() {
+        return "/home/" + systemDelegator.getSshParameters().getUsername();
+    }
 
-        if(skipbastion!=null && skipbastion.equalsIgnoreCase("yes"))
-        {
-        	SessionFactory destinationSessionFactory = sessionFactory
-                    .newSessionFactoryBuilder()
-                    .build();
+    /**
+     * Identify the host by ip and host key, so an instance replaced behind the same ip is not trusted to have the
+     * scripts of its predecessor.
+     */
+    private String getHostKey(String ip, Session session) {
+        HostKey hostKey = session.getHostKey();
+        return hostKey == null ? ip : ip + " " + hostKey.getKey();
+    }
 
-            logger.debug("SSH HostName: " + destinationSessionFactory.getHostname());
-            logger.debug("SSH Port: " +String.valueOf(destinationSessionFactory.getPort()));
+    private List<String> toList(String... params) {
+        return params == null ? Collections.emptyList() : Arrays.asList(params);
+    }
 
-            return destinationSessionFactory;
+    private String joinParams(List<String> params) {
+        String parameters = "";
+        for (String p : params) {
+            parameters += " " + p;
         }
-        else
-        {
-	        SessionFactory proxySessionFactory = sessionFactory
-	                .newSessionFactoryBuilder()
-	                .setHostname( systemDelegator.getSshParameters().getBastionHost() )
-	                .setPort( SessionFactory.SSH_PORT )
-	                .build();
-
-	        SessionFactory destinationSessionFactory = sessionFactory
-	                .newSessionFactoryBuilder()
-	                .setProxy( new SshProxy( proxySessionFactory ) )
-	                .build();
+        return parameters;
+    }
 
-            logger.debug("SSH HostName: " + destinationSessionFactory.getHostname());
-            logger.debug("SSH Port: " +String.valueOf(destinationSessionFactory.getPort()));
+    /**
+     * Prefix the command with a check that the script exists, so a script removed from the host is detected before
+     * anything runs rather than inferred from the exit status of a run that may have started.
+     */
+    private String guardExists(String remotePath, String commandLine) {
+        return "[ -f " + remotePath + " ] || { echo '" + SCRIPT_MISSING_MARKER + "' >&2; exit "
+                + SCRIPT_MISSING_EXIT_STATUS + "; }; " + commandLine;
+    }
 
+    private boolean isScriptMissing(ScriptExecutionResult result) {
+        return result.getExitStatus() != null && result.getExitStatus() == SCRIPT_MISSING_EXIT_STATUS
+                && result.getStderr().contains(SCRIPT_MISSING_MARKER);
+    }
 
-	        return destinationSessionFactory;
+    private byte[] readScript(String scriptPath) throws IOException {
+        try (InputStream in = new FileInputStream(scriptPath)) {
+            return ByteStreams.toByteArray(in);
         }
     }
 
     /**
-     * Copy the provided script over to the SSH'd instance using SCP.
+     * Upload the script to its content addressed path. The copy goes to a unique temporary file first and is then
+     * renamed, so concurrent uploads of the same script never expose a partial file.
      *
-     * @param sessionFactory SessionFactory
-     * @param scriptPath path to find script
-     * @throws FileNotFoundException
+     * @param ip host the session is connected to
+     * @param session connected Session
+     * @param script script content
+     * @param hash script hash
+     * @throws JSchException if a channel cannot be opened
+     * @throws IOException if the host rejected the copy
      */
-    private void scpScript(SessionFactory sessionFactory, String scriptPath) throws FileNotFoundException {
-        FileReader fr = new FileReader(scriptPath);
-        File file = new File(scriptPath);
-
-        try {
-            // ScpFile to = new ScpFile( sessionFactory, "/home/"+systemDelegator.getSshParameters().getUsername()+"/action.sh" );
-            ScpFile to = new ScpFile(sessionFactory, "/", "home", "/", systemDelegator.getSshParameters().getUsername(), "/", "action.sh");
-            to.copyFrom(file);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
+    private void uploadScript(String ip, Session session, byte[] script, String hash) throws JSchException, IOException {
+        String directory = remoteScriptCache.getDirectory(getScriptHome());
+        String tempName = hash + ".sh." + UUID.randomUUID().toString().substring(0, 8);
+        scpScript(session, script, directory, tempName);
+
+        ScriptExecutionResult result = executer(ip, "mv -f " + directory + "/" + tempName + " "
+                + remoteScriptCache.getRemotePath(getScriptHome(), hash), session);
+        if (!result.isSuccess()) {
+            throw new IOException("unable to install script " + hash + ": " + result.getStderr());
         }
+        logger.debug("Uploaded script " + hash + " to " + ip);
     }
 
-    private String executer(String ip) throws Exception {
-        executer("sh /home/" + systemDelegator.getSshParameters().getUsername() + "/action.sh", createSessionFactory(ip).newSession());
-        return "success";
+    /**
+     * Copy the provided script over to the SSH'd instance using the SCP sink protocol on the given session.
+     *
+     * @param session connected Session
+     * @param script script content
+     * @param directory remote directory, created if missing
+     * @param name remote file name
+     * @throws JSchException if the channel cannot be opened
+     * @throws IOException if the host rejected the copy
+     */
+    private void scpScript(Session session, byte[] script, String directory, String name) throws JSchException, IOException {
+        ChannelExec channel = (ChannelExec) session.openChannel("exec");
+        try {
+            channel.setCommand("mkdir -p " + directory + " && scp -t " + directory + "/" + name);
+            OutputStream out = channel.getOutputStream();
+            InputStream in = channel.getInputStream();
+            channel.connect();
+            checkAck(in);
+
+            out.write(("C0644 " + script.length + " " + name + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            checkAck(in);
+
+            out.write(script);
+            out.write(0);
+            out.flush();
+            checkAck(in);
+            out.close();
+        } finally {
+            channel.disconnect();
+        }
     }
 
-    private String executer(String ip, String... params) throws Exception {
-        executer("sh /home/" + systemDelegator.getSshParameters().getUsername() + "/action.sh", createSessionFactory(ip).newSession(), params);
-        return "success";
+    private void checkAck(InputStream in) throws IOException {
+        int status = in.read();
+        if (status == 0) {
+            return;
+        }
+        if (status == -1) {
+            throw new IOException("scp: connection closed by host");
+        }
+        StringBuilder message = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            message.append((char) c);
+        }
+        throw new IOException("scp: " + message);
     }
 
-    private String executer(String ip, List<String> params) throws Exception {
-        executer("sh /home/" + systemDelegator.getSshParameters().getUsername() + "/action.sh", createSessionFactory(ip).newSession(), params);
-        return "success";
+    /**
+     * Executes the given command and its paramters on the specified session.
+     * Output is pushed by the session's reader thread into bounded buffers; the call completes when the host closes
+     * stdout or the script prints "executing.." and keeps running in the background.
+     *
+     * @param ip host the session is connected to
+     * @param commandLine command and its parameters
+     * @param session connected Session to run command on
+     * @return ScriptExecutionResult
+     * @throws JSchException if the channel cannot be opened
+     */
+    private ScriptExecutionResult executer(String ip, String commandLine, Session session) throws JSchException {
+        return executer(ip, commandLine, commandLine, session);
     }
 
     /**
-     * Executes the given command and its paramters on the specified session.
+     * Executes the given command on the specified session, reporting it as the given command line.
      *
-     * @param command command to run
-     * @param session Session to run command on
-     * @param params command parameters
-     * @return true
-     * @throws Exception if error occurred during execution
+     * @param ip host the session is connected to
+     * @param command command sent to the host
+     * @param commandLine command line reported in the result
+     * @param session connected Session to run command on
+     * @return ScriptExecutionResult
+     * @throws JSchException if the channel cannot be opened
      */
-    private Boolean executer(String command, Session session, String... params) throws Exception {
+    private ScriptExecutionResult executer(String ip, String command, String commandLine, Session session) throws JSchException {
+        RingBufferOutputStream stdout = new RingBufferOutputStream(OUTPUT_BUFFER_SIZE);
+        RingBufferOutputStream stderr = new RingBufferOutputStream(OUTPUT_BUFFER_SIZE);
+        CompletableFuture<Boolean> completion = new CompletableFuture<>();
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+
+        ChannelExec channel = (ChannelExec) session.openChannel("exec");
+        long start = System.currentTimeMillis();
         try {
-            session.connect();
-            Channel channel = session.openChannel("exec");
-
+            channel.setCommand(command);
             channel.setInputStream(null);
-
-            channel.setOutputStream(System.out);
-
-            String parameters = "";
-            for (String p : params) {
-                parameters += " " + p;
-            }
-            ((ChannelExec) channel).setCommand("sudo " + command + parameters);
-
-            OutputStream out = channel.getOutputStream();
-
+            channel.setOutputStream(new CompletionOutputStream(stdout, DETACH_MARKER, completion));
+            channel.setErrStream(new CloseSignalOutputStream(stderr, closed));
             channel.connect();
 
-            InputStream in = channel.getInputStream();
-            Boolean exit = false;
-            byte[] tmp = new byte[1024];
-
-            while (true) {
-                while (in.available() > 0) {
-                    int i = in.read(tmp, 0, 1024);
-                    if (i < 0) {
-                        exit = true;
-                        break;
-                    }
-                    String output = new String(tmp, 0, i);
-                    if (output.contains("executing..")) {
-                        exit = true;
-                        break;
-                    }
-                }
-                if (channel.isClosed()) {
-                    logger.debug("SSH exit-status:" + channel.getExitStatus());
-                    break;
-                }
-                if (exit) {
-                    break;
-                }
-                try {
-                    Thread.sleep(200);
-                } catch (Exception ee) {
-                    throw new Exception(ee);
-                }
-            }
+            boolean detached = awaitCompletion(completion, ip);
+            Integer exitStatus = detached ? null : awaitExitStatus(channel, closed, ip);
+            return new ScriptExecutionResult(ip, commandLine, exitStatus, detached, stdout.toString(),
+                    stderr.toString(), start, System.currentTimeMillis() - start);
+        } finally {
             channel.disconnect();
-            session.disconnect();
-            return true;
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    private boolean awaitCompletion(CompletableFuture<Boolean> completion, String ip) {
+        try {
+            return completion.get(commandTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Script did not complete on " + ip + " within " + commandTimeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for script on " + ip);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
         }
     }
 
     /**
-     *
-     * @param command
-     * @param session
-     * @param params
-     * @return
-     * @throws Exception
+     * The exit-status message trails the end of stdout. The session reader thread records it before it handles the
+     * channel close, which closes the stderr stream and completes the future, so no polling is needed.
      */
-    private Boolean executer(String command, Session session, List<String> params) throws Exception {
+    private Integer awaitExitStatus(ChannelExec channel, CompletableFuture<Void> closed, String ip) {
         try {
-            session.connect();
-            Channel channel = session.openChannel("exec");
+            closed.get(EXIT_STATUS_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            logger.debug("Channel to " + ip + " not closed after stdout ended, exit status may be missing");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int exitStatus = channel.getExitStatus();
+        return exitStatus < 0 ? null : exitStatus;
+    }
 
-            channel.setInputStream(null);
+    /**
+     * Copies channel output into a buffer and completes the future with false when the host closes the stream, or
+     * with true as soon as the marker is seen.
+     */
+    private static class CompletionOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private final String marker;
+        private final CompletableFuture<Boolean> completion;
+        private String tail = "";
+
+        private CompletionOutputStream(OutputStream delegate, String marker, CompletableFuture<Boolean> completion) {
+            this.delegate = delegate;
+            this.marker = marker;
+            this.completion = completion;
+        }
 
-            channel.setOutputStream(System.out);
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
 
-            String parameters = "";
-            for (String p : params) {
-                parameters += " " + p;
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            if (!completion.isDone()) {
+                String window = tail + new String(b, off, len, StandardCharsets.ISO_8859_1);
+                if (window.contains(marker)) {
+                    completion.complete(true);
+                }
+                tail = window.substring(Math.max(0, window.length() - marker.length() + 1));
             }
-            ((ChannelExec) channel).setCommand("sudo " + command + parameters);
+        }
 
-            OutputStream out = channel.getOutputStream();
+        @Override
+        public void close() {
+            completion.complete(false);
+        }
+    }
 
-            channel.connect();
+    /**
+     * Copies channel stderr into a buffer and completes the future when the stream is closed. JSch closes the stderr
+     * stream only when the channel itself closes, after the exit status has been received.
+     */
+    private static class CloseSignalOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private final CompletableFuture<Void> closed;
 
-            InputStream in = channel.getInputStream();
-            Boolean exit = false;
-            byte[] tmp = new byte[1024];
-
-            while (true) {
-                while (in.available() > 0) {
-                    int i = in.read(tmp, 0, 1024);
-                    if (i < 0) {
-                        exit = true;
-                        break;
-                    }
-                    String output = new String(tmp, 0, i);
-                    if (output.contains("executing..")) {
-                        exit = true;
-                        break;
-                    }
-                }
-                if (channel.isClosed()) {
-                    logger.debug("SSH exit-status:" + channel.getExitStatus());
-                    break;
-                }
-                if (exit) {
-                    break;
-                }
-                try {
-                    Thread.sleep(200);
-                } catch (Exception ee) {
-                    throw new Exception(ee);
-                }
-            }
-            channel.disconnect();
-            session.disconnect();
-            return true;
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
+        private CloseSignalOutputStream(OutputStream delegate, CompletableFuture<Void> closed) {
+            this.delegate = delegate;
+            this.closed = closed;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closed.complete(null);
         }
     }
 }
@@ -27,9 +27,12 @@ package com.intuit.cloudraider.core.interfaces;
 import com.amazonaws.services.cloudwatch.model.AlarmHistoryItem;
 import com.amazonaws.services.cloudwatch.model.MetricAlarm;
 import com.intuit.cloudraider.model.AlarmStateValue;
+import com.intuit.cloudraider.model.MetricQuery;
+import com.intuit.cloudraider.model.MetricTimeSeries;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * AWS Cloud Watch functionality.
@@ -87,6 +90,41 @@ public interface CloudWatchRaider {
      */
     public Double getEC2Metric(String instanceId, String metricName);
 
+    /**
+     * Gets the average metric time series of every instance over the window.
+     *
+     * @param instanceIds   instance ids
+     * @param metricName    metric to analyze
+     * @param startTime     start of the window
+     * @param endTime       end of the window
+     * @param periodSeconds granularity of the datapoints
+     * @return time series by instance id
+     */
+    public Map<String, MetricTimeSeries> getEC2Metrics(List<String> instanceIds, String metricName, Date startTime, Date endTime, int periodSeconds);
+
+    /**
+     * Gets the average metric time series of every load balancer over the window.
+     *
+     * @param loadBalancerNames load balancer names
+     * @param metricName        metric to analyze
+     * @param startTime         start of the window
+     * @param endTime           end of the window
+     * @param periodSeconds     granularity of the datapoints
+     * @return time series by load balancer name
+     */
+    public Map<String, MetricTimeSeries> getELBMetrics(List<String> loadBalancerNames, String metricName, Date startTime, Date endTime, int periodSeconds);
+
+    /**
+     * Runs a batch of metric and metric math queries over the window.
+     *
+     * @param queries       metric and expression queries, ids must be unique
+     * @param startTime     start of the window
+     * @param endTime       end of the window
+     * @param periodSeconds granularity of the datapoints
+     * @return time series by query id, in query order
+     */
+    public Map<String, MetricTimeSeries> getMetricData(List<MetricQuery> queries, Date startTime, Date endTime, int periodSeconds);
+
     /**
      * Checks if any alarms with the matching name are currenlty in "ALARM" state.
      *
@@ -103,6 +141,14 @@ public interface CloudWatchRaider {
      */
     public String getAlarmState(String alarmName);
 
+    /**
+     * Get the current state of each alarm, looked up by exact name in bulk.
+     *
+     * @param alarmNames alarm names
+     * @return alarm state by alarm name, NON_EXISTENT for alarms that do not exist
+     */
+    public Map<String, String> getAlarmStates(List<String> alarmNames);
+
     /**
      * Get the current status of the alarm with the matching name.
      *
@@ -0,0 +1,69 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.interfaces;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AWS EC2 functionality backed by the async client. Calls return as soon as the request is sent; the futures
+ * complete when AWS answers, so calls on many instances overlap without a thread waiting on each one.
+ * Invalid input is rejected right away with an exception, AWS errors complete the future exceptionally.
+ * <p>
+  */
+public interface EC2RaiderAsync {
+
+    /**
+     * Terminates the EC2 instances with the given ids.
+     *
+     * @param instanceIds list of instance ids
+     * @return future completed once the termination is accepted
+     */
+    public CompletableFuture<Void> terminateEc2InstancesById(List<String> instanceIds);
+
+    /**
+     * Stop the instance with the matching id.
+     *
+     * @param instanceId instance id
+     * @return future completed once the stop is accepted
+     */
+    public CompletableFuture<Void> stopEc2Instances(String instanceId);
+
+    /**
+     * Restart the instance with the matching id.
+     *
+     * @param instanceId instance id
+     * @return future completed once the reboot is accepted
+     */
+    public CompletableFuture<Void> restartEc2Instances(String instanceId);
+
+    /**
+     * Get the status of the instance with the matching id.
+     *
+     * @param instanceId instance id
+     * @return future instance status; completes with ResourceNotFoundException if there is no such instance
+     */
+    public CompletableFuture<String> getInstanceStatusById(String instanceId);
+}
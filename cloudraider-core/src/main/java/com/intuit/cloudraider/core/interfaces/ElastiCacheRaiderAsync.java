@@ -0,0 +1,70 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.interfaces;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AWS ElastiCache functionality backed by the async client. Calls return as soon as the request is sent; the
+ * futures complete when AWS answers, so calls on many nodes overlap without a thread waiting on each one.
+ * Invalid input is rejected right away with an exception, AWS errors complete the future exceptionally.
+ * <p>
+  */
+public interface ElastiCacheRaiderAsync {
+
+    /**
+     * Reboot the given number of nodes of the cluster.
+     *
+     * @param clusterName cluster name
+     * @param numNodes    number of nodes
+     * @return future completed once the reboot is accepted
+     */
+    public CompletableFuture<Void> rebootElastiCacheCluster(String clusterName, Integer numNodes);
+
+    /**
+     * Reboot the node with the given endpoint address.
+     *
+     * @param nodeName node endpoint address
+     * @return future completed once the reboot is accepted; completes with ResourceNotFoundException if there is no
+     * such node
+     */
+    public CompletableFuture<Void> rebootElasticCacheNode(String nodeName);
+
+    /**
+     * Get the status of the cluster.
+     *
+     * @param clusterName cluster name
+     * @return future cluster status
+     */
+    public CompletableFuture<String> getElastiCacheClusterStatus(String clusterName);
+
+    /**
+     * Get the status of the node with the given endpoint address.
+     *
+     * @param nodeName node endpoint address
+     * @return future node status; completes with ResourceNotFoundException if there is no such node
+     */
+    public CompletableFuture<String> getElastiCacheNodeStatus(String nodeName);
+}
@@ -0,0 +1,71 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.interfaces;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AWS Elastic Load Balancer functionality backed by the async client. Calls return as soon as the request is sent;
+ * the futures complete when AWS answers, so health checks can overlap with faults on other services.
+ * Invalid input is rejected right away with an exception, AWS errors complete the future exceptionally.
+ * <p>
+  */
+public interface LoadBalancerRaiderAsync {
+
+    /**
+     * Gets all in service instances attached to the provided load balancer.
+     *
+     * @param elbName load balancer name
+     * @return future list of instance ids
+     */
+    public CompletableFuture<List<String>> getInServiceInstances(String elbName);
+
+    /**
+     * Gets all out of service instances attached to the provided load balancer.
+     *
+     * @param elbName load balancer name
+     * @return future list of instance ids
+     */
+    public CompletableFuture<List<String>> getOutOfServiceInstances(String elbName);
+
+    /**
+     * Deregister the given instances from the specified load balancer.
+     *
+     * @param loadBalancerName load balancer name
+     * @param instances        list of instance ids
+     * @return future completed once the instances are deregistered
+     */
+    public CompletableFuture<Void> deregisterInstancesFromLoadBalancer(String loadBalancerName, List<String> instances);
+
+    /**
+     * Register the given instances to the specified load balancer.
+     *
+     * @param loadBalancerName load balancer name
+     * @param instances        list of instance ids
+     * @return future completed once the instances are registered
+     */
+    public CompletableFuture<Void> registerInstancesFromLoadBalancer(String loadBalancerName, List<String> instances);
+}
@@ -0,0 +1,87 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.interfaces;
+
+import com.intuit.cloudraider.model.DBStatus;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AWS Relational Database Service functionality backed by the async client. Calls return as soon as the requests
+ * are sent; the futures complete when AWS answers, so calls on many databases overlap without a thread waiting on
+ * each one. Invalid input is rejected right away with an exception, AWS errors complete the future exceptionally.
+ * <p>
+  */
+public interface RDSRaiderAsync {
+
+    /**
+     * Get the database statuses for the database instances requested.
+     *
+     * @param dbInstanceIds list of database ids
+     * @return future list of database status, one status per database instance
+     */
+    public CompletableFuture<List<DBStatus>> getInstancesStatus(List<String> dbInstanceIds);
+
+    /**
+     * Get the status for the specified database.
+     *
+     * @param dbName database name
+     * @return future database status
+     */
+    public CompletableFuture<String> getDBInstanceStatus(String dbName);
+
+    /**
+     * Reboot the given database instance.
+     *
+     * @param dbName database name
+     * @return future completed once the reboot is accepted
+     */
+    public CompletableFuture<Void> rebootDbInstance(String dbName);
+
+    /**
+     * Reboot the database instances that match the provided names, all at once.
+     *
+     * @param dbNames database names
+     * @return future completed once every reboot is accepted
+     */
+    public CompletableFuture<Void> rebootDbInstances(List<String> dbNames);
+
+    /**
+     * Stop the database instances that match the provided names, all at once.
+     *
+     * @param dbNames database names
+     * @return future completed once every stop is accepted
+     */
+    public CompletableFuture<Void> stopInstances(List<String> dbNames);
+
+    /**
+     * Start the database instances that match the provided names, all at once.
+     *
+     * @param dbNames database names
+     * @return future completed once every start is accepted
+     */
+    public CompletableFuture<Void> startInstances(List<String> dbNames);
+}
@@ -24,9 +24,13 @@
 
 package com.intuit.cloudraider.core.interfaces;
 
+import com.amazonaws.services.simplesystemsmanagement.model.Target;
 import com.intuit.cloudraider.model.Command;
+import com.intuit.cloudraider.model.SsmCommandBatch;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * AWS SSM functionality.
@@ -35,33 +39,85 @@ public interface SSMRaider {
 
     /**
      * Runs the commands to execute on each instance provided.
+     * Replaced with sendShellCommands(), since a single command id only covers instances sent in one chunk.
      *
      * @param instances instances to run commands on
      * @param commands  list of commands to execute
      * @return sent command's id
      */
+    @Deprecated
     public String executeShellCommands(List<String> instances, List<String> commands);
 
     /**
      * Execute the shell command with the parameters on the given instances.
+     * Replaced with sendShellCommand().
      *
      * @param instances instances to execute on
      * @param command   command to execute
      * @param params    parameters for command
      * @return command 's id
      */
+    @Deprecated
     public String executeShellCommand(List<String> instances, Command command, String... params);
 
     /**
      * Execute the shell command with the parameters on the given instances.
+     * Replaced with sendShellCommands().
      *
      * @param instances instances to execute on
      * @param fileName  file name
      * @param params    parameters for command
      * @return command 's id
      */
+    @Deprecated
     public String executeShellCommandsFromFile(List<String> instances, String fileName, String... params);
 
+    /**
+     * Runs the commands on each instance provided, splitting the instances in chunks within the SendCommand
+     * instance limit and sending the chunks concurrently. Instances of chunks that could not be sent are only reported
+     * in the returned batch's failed instance ids, callers that must reach every instance have to check them.
+     *
+     * @param instances instances to run commands on
+     * @param commands  list of commands to execute
+     * @return command ids mapped to the instances they were sent to
+     */
+    public SsmCommandBatch sendShellCommands(List<String> instances, List<String> commands);
+
+    /**
+     * Execute the shell command with the parameters on the given instances, in chunks sent concurrently.
+     *
+     * @param instances instances to execute on
+     * @param command   command to execute
+     * @param params    parameters for command
+     * @return command ids mapped to the instances they were sent to
+     */
+    public SsmCommandBatch sendShellCommand(List<String> instances, Command command, String... params);
+
+    /**
+     * Runs the commands on every instance matching the targets (e.g. tag:Name), letting SSM resolve the instances.
+     *
+     * @param targets  targets selecting the instances
+     * @param commands list of commands to execute
+     * @return command id, with no instances mapped
+     */
+    public SsmCommandBatch sendShellCommandsToTargets(List<Target> targets, List<String> commands);
+
+    /**
+     * Get status of every invocation of the batch with one paginated listing per command.
+     *
+     * @param batch command batch
+     * @return map of instance id to status
+     */
+    public Map<String, String> getCommandStatuses(SsmCommandBatch batch);
+
+    /**
+     * Track the invocations of the batch until every one of them reached a terminal state.
+     *
+     * @param batch command batch
+     * @return future of the map of instance id to final status
+     */
+    public CompletableFuture<Map<String, String>> trackCommandCompletion(SsmCommandBatch batch);
+
     /**
      * Get status of the command execution.
      *
@@ -24,6 +24,8 @@
 
 package com.intuit.cloudraider.core.interfaces;
 
+import com.intuit.cloudraider.model.ScriptExecutionResult;
+
 import java.util.List;
 
 /**
@@ -52,4 +54,36 @@ public interface SystemRaider {
      * @return execution response
      */
     public String executeScript(String ip, String path, List<String> params);
+
+    /**
+     * Execute the given script content on the specified instance with parameters.
+     *
+     * @param ip     private ip address of AWS resources
+     * @param script script content
+     * @param params parameters for commands
+     * @return execution response
+     */
+    public String executeScript(String ip, byte[] script, String... params);
+
+    /**
+     * Execute the given script on the specified instance with parameters and report its exit status, output and
+     * timing.
+     *
+     * @param ip     private ip address of AWS resources
+     * @param path   path to script
+     * @param params list of command parameters
+     * @return ScriptExecutionResult
+     */
+    public ScriptExecutionResult executeScriptForResult(String ip, String path, List<String> params);
+
+    /**
+     * Execute the given script content on the specified instance with parameters and report its exit status, output
+     * and timing.
+     *
+     * @param ip     private ip address of AWS resources
+     * @param script script content
+     * @param params list of command parameters
+     * @return ScriptExecutionResult
+     */
+    public ScriptExecutionResult executeScriptForResult(String ip, byte[] script, List<String> params);
 }
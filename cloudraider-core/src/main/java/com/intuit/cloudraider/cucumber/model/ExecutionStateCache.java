@@ -25,32 +25,54 @@
 package com.intuit.cloudraider.cucumber.model;
 
 import com.amazonaws.services.ec2.model.Tag;
+import com.amazonaws.services.elasticloadbalancingv2.model.TargetDescription;
+import com.intuit.cloudraider.cucumber.util.FaultJournal;
 import com.intuit.cloudraider.model.EC2InstanceTO;
+import com.intuit.cloudraider.model.SsmCommandBatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 
 /**
  * Cache that keeps track of state during the execution of cucumber features/scenarios.
  * One important feature to note: each execution of getInstances() is randomized -- different order is returned
+ * <p>
+ * The cache is scenario scoped: cucumber-spring creates a fresh instance for every scenario and discards it when the
+ * scenario ends, so no state leaks from one scenario into the next.
+ * <p>
+ * When a FaultJournal is enabled every change to the recoverable faults is journaled, so they can still be healed
+ * if the process dies before recover runs.
+ * <p>
+ * Faults are injected under the shared side of a scenario lock and recovered under its exclusive side, so a recovery
+ * started by an abort waits for injections in flight and no injection starts once the scenario was aborted.
  */
 @Component
+@Scope(ExecutionStateCache.SCENARIO_SCOPE)
 public class ExecutionStateCache {
 
-    private List<EC2InstanceTO> instances;
-    private List<EC2InstanceTO> unhealthyInstances;
-    private List<EC2InstanceTO> stoppedInstances;
-    private List<EC2InstanceTO> ssmCommandInvocationInstances;
-    private List<EC2InstanceTO> deregisteredInstances;
-    private List<String> blockedDomains;
-    private List<String> detachedSubnets;
-    private List<String> detachedSecurityGroups;
+    /**
+     * Name of the cucumber-spring scope that binds a bean to the lifetime of a single scenario.
+     */
+    public static final String SCENARIO_SCOPE = "cucumber-glue";
+
+    private final Set<EC2InstanceTO> instances = newOrderedSet();
+    private final Set<EC2InstanceTO> unhealthyInstances = newOrderedSet();
+    private final Set<EC2InstanceTO> stoppedInstances = newOrderedSet();
+    private final Set<EC2InstanceTO> ssmCommandInvocationInstances = newOrderedSet();
+    private final Set<EC2InstanceTO> deregisteredInstances = newOrderedSet();
+    private Map<String, List<TargetDescription>> deregisteredTargets = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Set<String> blockedDomains = newOrderedSet();
+    private final Set<String> detachedSubnets = newOrderedSet();
+    private final Set<String> detachedSecurityGroups = newOrderedSet();
     private String ec2Tag;
     private String loadBalancerName;
-    private List<String> processNames;
+    private final Set<String> processNames = newOrderedSet();
     private boolean healProcess;
     private boolean healNetwork;
     private boolean cpuSpiked;
@@ -61,7 +83,7 @@ public class ExecutionStateCache {
 
     private boolean ramDiskFull;
     private boolean blockPort;
-    private List<Integer> portNums;
+    private final Set<Integer> portNums = newOrderedSet();
     private boolean blockDynamoDB;
 
     private boolean blockS3;
@@ -71,11 +93,13 @@ public class ExecutionStateCache {
 
     private String cacheNodeName;
     private String commandId;
+    private SsmCommandBatch ssmCommandBatch;
+    private Map<String, Long> convergenceTimes = Collections.synchronizedMap(new LinkedHashMap<>());
     private String elastiCacheClusterName;
-    private List<String> dbInstances;
+    private final Set<String> dbInstances = newOrderedSet();
 
 
-    private List<String> cacheNodes;
+    private final Set<String> cacheNodes = newOrderedSet();
 
 
     private String dynamoDBTable;
@@ -87,34 +111,17 @@ public class ExecutionStateCache {
     private List<Tag> ignoreTags;
     private String[] availaibilityzones;
 
+    @Autowired(required = false)
+    private FaultJournal faultJournal;
+    private volatile String journalId = UUID.randomUUID().toString();
+    private volatile boolean journaled;
+    private final ReadWriteLock faultLock = new ReentrantReadWriteLock();
+    private volatile boolean aborted;
+
     /**
      * Instantiates a new Execution state cache.
      */
     public ExecutionStateCache() {
-
-
-        instances = new ArrayList<>();
-        unhealthyInstances = new ArrayList<>();
-        detachedSubnets = new ArrayList<>();
-        blockedDomains = new ArrayList<>();
-        deregisteredInstances = new ArrayList<>();
-        stoppedInstances = new ArrayList<>();
-        dbInstances = new ArrayList<>();
-        cacheNodes = new ArrayList<>();
-        detachedSecurityGroups = new ArrayList<>();
-        ssmCommandInvocationInstances = new ArrayList<>();
-        portNums = new ArrayList<>();
-
-        processNames = new ArrayList<>();
-        instances = new CopyOnWriteArrayList<>();
-        unhealthyInstances = new CopyOnWriteArrayList<>();
-        detachedSubnets = new CopyOnWriteArrayList<>();
-        blockedDomains = new CopyOnWriteArrayList<>();
-        dbInstances = new CopyOnWriteArrayList<>();
-        detachedSecurityGroups = new CopyOnWriteArrayList<>();
-        ssmCommandInvocationInstances = new CopyOnWriteArrayList<>();
-        deregisteredInstances = new CopyOnWriteArrayList<>();
-
     }
 
 
@@ -124,7 +131,7 @@ public class ExecutionStateCache {
      * @return the cache nodes
      */
     public List<String> getCacheNodes() {
-        return cacheNodes;
+        return copy(cacheNodes);
     }
 
     /**
@@ -133,7 +140,7 @@ public class ExecutionStateCache {
      * @param cacheNodes the cache nodes
      */
     public void setCacheNodes(List<String> cacheNodes) {
-        this.cacheNodes = cacheNodes;
+        replace(this.cacheNodes, cacheNodes);
     }
 
     /**
@@ -161,9 +168,11 @@ public class ExecutionStateCache {
      * @return the ec 2 instance to
      */
     public EC2InstanceTO findEC2InstanceGivenID(String instanceID) {
-        for (EC2InstanceTO inst : instances) {
-            if (inst.getInstanceId().equalsIgnoreCase(instanceID)) {
-                return inst;
+        synchronized (instances) {
+            for (EC2InstanceTO inst : instances) {
+                if (inst.getInstanceId().equalsIgnoreCase(instanceID)) {
+                    return inst;
+                }
             }
         }
         return null;
@@ -175,8 +184,7 @@ public class ExecutionStateCache {
      * @return the instances
      */
     public List<EC2InstanceTO> getInstances() {
-        Collections.shuffle(instances);
-        return instances;
+        return shuffledCopy(instances);
     }
 
     /**
@@ -185,7 +193,7 @@ public class ExecutionStateCache {
      * @param instances the instances
      */
     public void setInstances(List<EC2InstanceTO> instances) {
-        this.instances = instances;
+        replace(this.instances, instances);
     }
 
     /**
@@ -202,8 +210,6 @@ public class ExecutionStateCache {
      */
     public void addInstances(List<EC2InstanceTO> instancesList) {
         instances.addAll(instancesList);
-        instances = instances.stream().distinct().collect(Collectors.toList());
-
     }
 
     /**
@@ -212,7 +218,7 @@ public class ExecutionStateCache {
      * @return the stopped instances
      */
     public List<EC2InstanceTO> getStoppedInstances() {
-        return stoppedInstances;
+        return copy(stoppedInstances);
     }
 
     /**
@@ -221,7 +227,7 @@ public class ExecutionStateCache {
      * @param stoppedInstances the stopped instances
      */
     public void setStoppedInstances(List<EC2InstanceTO> stoppedInstances) {
-        this.stoppedInstances = stoppedInstances;
+        replace(this.stoppedInstances, stoppedInstances);
     }
 
     /**
@@ -230,8 +236,7 @@ public class ExecutionStateCache {
      * @return the db instances
      */
     public List<String> getDBInstances() {
-        Collections.shuffle(dbInstances);
-        return dbInstances;
+        return shuffledCopy(dbInstances);
     }
 
     /**
@@ -240,7 +245,7 @@ public class ExecutionStateCache {
      * @param dbInstances the db instances
      */
     public void setDBInstances(List<String> dbInstances) {
-        this.dbInstances = dbInstances;
+        replace(this.dbInstances, dbInstances);
     }
 
     /**
@@ -250,7 +255,6 @@ public class ExecutionStateCache {
      */
     public void addDBInstances(List<String> dbInstancesList) {
         dbInstances.addAll(dbInstancesList);
-        dbInstances = dbInstances.stream().distinct().collect(Collectors.toList());
     }
 
     /**
@@ -260,7 +264,6 @@ public class ExecutionStateCache {
      */
     public void addDeregisteredInstance(EC2InstanceTO deregistered) {
         deregisteredInstances.add(deregistered);
-        deregisteredInstances = deregisteredInstances.stream().distinct().collect(Collectors.toList());
     }
 
     /**
@@ -270,7 +273,6 @@ public class ExecutionStateCache {
      */
     public void addDeregisteredInstance(List<EC2InstanceTO> deregistered) {
         deregisteredInstances.addAll(deregistered);
-        deregisteredInstances = deregisteredInstances.stream().distinct().collect(Collectors.toList());
     }
 
     /**
@@ -286,7 +288,41 @@ public class ExecutionStateCache {
      * @return the deregisted instance
      */
     public List<EC2InstanceTO> getDeregistedInstance() {
-        return deregisteredInstances;
+        return copy(deregisteredInstances);
+    }
+
+    /**
+     * Add targets de-registered from ALB/NLB target groups.
+     *
+     * @param targetsByGroup targets per target group arn
+     */
+    public void addDeregisteredTargets(Map<String, List<TargetDescription>> targetsByGroup) {
+        synchronized (deregisteredTargets) {
+            targetsByGroup.forEach((targetGroupArn, targets) -> {
+                List<TargetDescription> existing = deregisteredTargets.computeIfAbsent(targetGroupArn, k -> new ArrayList<>());
+                targets.stream().filter(t -> !existing.contains(t)).forEach(existing::add);
+            });
+        }
+    }
+
+    /**
+     * Gets targets de-registered from ALB/NLB target groups.
+     *
+     * @return targets per target group arn
+     */
+    public Map<String, List<TargetDescription>> getDeregisteredTargets() {
+        synchronized (deregisteredTargets) {
+            Map<String, List<TargetDescription>> copy = new LinkedHashMap<>();
+            deregisteredTargets.forEach((targetGroupArn, targets) -> copy.put(targetGroupArn, new ArrayList<>(targets)));
+            return copy;
+        }
+    }
+
+    /**
+     * Clear deregistered targets.
+     */
+    public void clearDeregisteredTargets() {
+        deregisteredTargets.clear();
     }
 
     /**
@@ -314,7 +350,7 @@ public class ExecutionStateCache {
      */
     public void addUnHealthyInstance(EC2InstanceTO ec2InstanceTO) {
         unhealthyInstances.add(ec2InstanceTO);
-        unhealthyInstances = unhealthyInstances.stream().distinct().collect(Collectors.toList());
+        journalFaults();
     }
 
     /**
@@ -324,7 +360,15 @@ public class ExecutionStateCache {
      */
     public void addUnHealthyInstances(List<EC2InstanceTO> ec2InstanceTOList) {
         unhealthyInstances.addAll(ec2InstanceTOList);
-        unhealthyInstances = unhealthyInstances.stream().distinct().collect(Collectors.toList());
+        journalFaults();
+    }
+
+    /**
+     * Clear unhealthy instances.
+     */
+    public void clearUnhealthyInstances() {
+        unhealthyInstances.clear();
+        journalFaults();
     }
 
     /**
@@ -334,7 +378,6 @@ public class ExecutionStateCache {
      */
     public void addDetachedSubnet(String subnet) {
         detachedSubnets.add(subnet);
-        detachedSubnets = detachedSubnets.stream().distinct().collect(Collectors.toList());
     }
 
     /**
@@ -361,7 +404,7 @@ public class ExecutionStateCache {
      * @return the detached subnets
      */
     public List<String> getDetachedSubnets() {
-        return detachedSubnets;
+        return copy(detachedSubnets);
     }
 
     /**
@@ -371,7 +414,6 @@ public class ExecutionStateCache {
      */
     public void addDetachedSecurityGroup(String group) {
         detachedSecurityGroups.add(group);
-        detachedSecurityGroups = detachedSecurityGroups.stream().distinct().collect(Collectors.toList());
     }
 
     /**
@@ -398,7 +440,7 @@ public class ExecutionStateCache {
      * @return the detached security groups
      */
     public List<String> getDetachedSecurityGroups() {
-        return detachedSecurityGroups;
+        return copy(detachedSecurityGroups);
     }
 
     /**
@@ -407,7 +449,7 @@ public class ExecutionStateCache {
      * @return the unhealthy instances
      */
     public List<EC2InstanceTO> getUnhealthyInstances() {
-        return unhealthyInstances;
+        return copy(unhealthyInstances);
     }
 
     /**
@@ -416,7 +458,8 @@ public class ExecutionStateCache {
      * @param unhealthyInstances the unhealthy instances
      */
     public void setUnhealthyInstances(List<EC2InstanceTO> unhealthyInstances) {
-        this.unhealthyInstances = unhealthyInstances;
+        replace(this.unhealthyInstances, unhealthyInstances);
+        journalFaults();
     }
 
     /**
@@ -443,7 +486,7 @@ public class ExecutionStateCache {
      * @return the process names
      */
     public List<String> getProcessNames() {
-        return processNames;
+        return copy(processNames);
     }
 
     /**
@@ -453,7 +496,7 @@ public class ExecutionStateCache {
      */
     public void addProcessName(String processName) {
         processNames.add(processName);
-        processNames = processNames.stream().distinct().collect(Collectors.toList());
+        journalFaults();
     }
 
     /**
@@ -461,6 +504,7 @@ public class ExecutionStateCache {
      */
     public void clearProcessNames() {
         processNames.clear();
+        journalFaults();
     }
 
     /**
@@ -479,6 +523,7 @@ public class ExecutionStateCache {
      */
     public void setHealProcess(boolean healProcess) {
         this.healProcess = healProcess;
+        journalFaults();
     }
 
     /**
@@ -497,6 +542,7 @@ public class ExecutionStateCache {
      */
     public void setHealNetwork(boolean healNetwork) {
         this.healNetwork = healNetwork;
+        journalFaults();
     }
 
     /**
@@ -523,7 +569,17 @@ public class ExecutionStateCache {
      * @return the blocked domains
      */
     public List<String> getBlockedDomains() {
-        return blockedDomains;
+        return copy(blockedDomains);
+    }
+
+    /**
+     * Add blocked domain.
+     *
+     * @param domainName the domain name
+     */
+    public void addBlockedDomain(String domainName) {
+        blockedDomains.add(domainName);
+        journalFaults();
     }
 
     /**
@@ -532,7 +588,8 @@ public class ExecutionStateCache {
      * @param blockedDomains the blocked domains
      */
     public void setBlockedDomains(List<String> blockedDomains) {
-        this.blockedDomains = blockedDomains;
+        replace(this.blockedDomains, blockedDomains);
+        journalFaults();
     }
 
     /**
@@ -551,6 +608,7 @@ public class ExecutionStateCache {
      */
     public void setCpuSpiked(boolean cpuSpiked) {
         this.cpuSpiked = cpuSpiked;
+        journalFaults();
     }
 
     /**
@@ -577,7 +635,7 @@ public class ExecutionStateCache {
      * @return the ssm command invocation instances
      */
     public List<EC2InstanceTO> getSsmCommandInvocationInstances() {
-        return ssmCommandInvocationInstances;
+        return copy(ssmCommandInvocationInstances);
     }
 
     /**
@@ -586,7 +644,8 @@ public class ExecutionStateCache {
      * @param ssmCommandInvocationInstances the ssm command invocation instances
      */
     public void setSsmCommandInvocationInstances(List<EC2InstanceTO> ssmCommandInvocationInstances) {
-        this.ssmCommandInvocationInstances = ssmCommandInvocationInstances;
+        replace(this.ssmCommandInvocationInstances, ssmCommandInvocationInstances);
+        journalFaults();
     }
 
     /**
@@ -596,8 +655,7 @@ public class ExecutionStateCache {
      */
     public void addSsmCommandInvocationInstances(EC2InstanceTO instance) {
         ssmCommandInvocationInstances.add(instance);
-        ssmCommandInvocationInstances = ssmCommandInvocationInstances.stream().distinct().collect(Collectors.toList());
-
+        journalFaults();
     }
 
     /**
@@ -610,12 +668,71 @@ public class ExecutionStateCache {
     }
 
     /**
-     * Sets command id.
+     * Sets command id, dropping the ssm command batch if it does not contain the command.
      *
      * @param commandId the command id
      */
     public void setCommandId(String commandId) {
         this.commandId = commandId;
+        if (ssmCommandBatch != null && !ssmCommandBatch.getCommandIds().contains(commandId)) {
+            ssmCommandBatch = null;
+        }
+    }
+
+    /**
+     * Gets ssm command batch.
+     *
+     * @return the ssm command batch
+     */
+    public SsmCommandBatch getSsmCommandBatch() {
+        return ssmCommandBatch;
+    }
+
+    /**
+     * Sets ssm command batch, the command id is set to the first command of the batch.
+     *
+     * @param ssmCommandBatch the ssm command batch
+     */
+    public void setSsmCommandBatch(SsmCommandBatch ssmCommandBatch) {
+        this.ssmCommandBatch = ssmCommandBatch;
+        this.commandId = ssmCommandBatch == null ? null : ssmCommandBatch.getFirstCommandId();
+    }
+
+    /**
+     * Gets the id of the command sent to the instance, falling back to the command id.
+     *
+     * @param instanceId instance id
+     * @return the command id
+     */
+    public String getCommandId(String instanceId) {
+        if (ssmCommandBatch != null) {
+            String batchCommandId = ssmCommandBatch.getCommandId(instanceId);
+            if (batchCommandId != null) {
+                return batchCommandId;
+            }
+        }
+        return commandId;
+    }
+
+    /**
+     * Record how long it took for a condition to converge after a fault, e.g. the healthy host count to be reached.
+     *
+     * @param name   what converged
+     * @param millis time to converge in millis
+     */
+    public void recordConvergenceTime(String name, long millis) {
+        convergenceTimes.put(name, millis);
+    }
+
+    /**
+     * Gets the recorded convergence times in the order they were recorded.
+     *
+     * @return map of name to time to converge in millis
+     */
+    public Map<String, Long> getConvergenceTimes() {
+        synchronized (convergenceTimes) {
+            return new LinkedHashMap<>(convergenceTimes);
+        }
     }
 
     /**
@@ -634,6 +751,7 @@ public class ExecutionStateCache {
      */
     public void setBlockPort(boolean blockPort) {
         this.blockPort = blockPort;
+        journalFaults();
     }
 
     /**
@@ -642,7 +760,7 @@ public class ExecutionStateCache {
      * @return the port nums
      */
     public List<Integer> getPortNums() {
-        return portNums;
+        return copy(portNums);
     }
 
     /**
@@ -652,7 +770,7 @@ public class ExecutionStateCache {
      */
     public void addPortNum(int portNum) {
         portNums.add(portNum);
-        portNums = portNums.stream().distinct().collect(Collectors.toList());
+        journalFaults();
     }
 
     /**
@@ -660,6 +778,7 @@ public class ExecutionStateCache {
      */
     public void clearPortNums() {
         portNums.clear();
+        journalFaults();
     }
 
     /**
@@ -678,6 +797,7 @@ public class ExecutionStateCache {
      */
     public void setRamDiskFull(boolean ramDiskFull) {
         this.ramDiskFull = ramDiskFull;
+        journalFaults();
     }
 
     /**
@@ -724,6 +844,7 @@ public class ExecutionStateCache {
      */
     public void setBlockDynamoDB(boolean blockDynamoDB) {
         this.blockDynamoDB = blockDynamoDB;
+        journalFaults();
     }
 
     /**
@@ -742,6 +863,7 @@ public class ExecutionStateCache {
      */
     public void setBlockS3(boolean blockS3) {
         this.blockS3 = blockS3;
+        journalFaults();
     }
 
 
@@ -873,6 +995,7 @@ public class ExecutionStateCache {
                 ", stoppedInstances=" + stoppedInstances +
                 ", ssmCommandInvocationInstances=" + ssmCommandInvocationInstances +
                 ", deregisteredInstances=" + deregisteredInstances +
+                ", deregisteredTargets=" + deregisteredTargets +
                 ", blockedDomains=" + blockedDomains +
                 ", detachedSubnets=" + detachedSubnets +
                 ", detachedSecurityGroups=" + detachedSecurityGroups +
@@ -892,6 +1015,8 @@ public class ExecutionStateCache {
                 ", portNum=" + portNum +
                 ", dbName='" + dbName + '\'' +
                 ", commandId='" + commandId + '\'' +
+                ", ssmCommandBatch=" + ssmCommandBatch +
+                ", convergenceTimes=" + convergenceTimes +
                 ", elastiCacheClusterName='" + elastiCacheClusterName + '\'' +
                 ", dbInstances=" + dbInstances +
                 ", cacheNodes=" + cacheNodes +
@@ -905,21 +1030,172 @@ public class ExecutionStateCache {
     }
 
 
+    /**
+     * Whether a fault that recover() knows how to heal was injected.
+     *
+     * @return true if a recoverable fault is active
+     */
+    public boolean hasRecoverableFaults() {
+        return healProcess || healNetwork || cpuSpiked || ramDiskFull || blockPort || blockDynamoDB || blockS3
+                || !blockedDomains.isEmpty();
+    }
+
+    /**
+     * Gets the id the faults of this cache are journaled under.
+     *
+     * @return the journal id
+     */
+    public String getJournalId() {
+        return journalId;
+    }
+
+    /**
+     * Record in the fault journal that the faults of this cache were healed, and stop counting them as recoverable so
+     * a later change does not journal them again.
+     */
+    public void markFaultsHealed() {
+        healProcess = false;
+        healNetwork = false;
+        cpuSpiked = false;
+        ramDiskFull = false;
+        blockPort = false;
+        blockDynamoDB = false;
+        blockS3 = false;
+        blockedDomains.clear();
+
+        if (journaled && faultJournal != null) {
+            faultJournal.recordHeal(journalId);
+            journaled = false;
+        }
+    }
+
+    private void journalFaults() {
+        if (faultJournal == null || !faultJournal.isEnabled()) {
+            return;
+        }
+
+        if (hasRecoverableFaults()) {
+            faultJournal.recordInject(journalId, this);
+            journaled = true;
+        } else {
+            markFaultsHealed();
+        }
+    }
+
+    /**
+     * Inject a fault and record it, unless the scenario was aborted. Injections run concurrently with each other but
+     * never with a recovery. Do not nest: a fan-out should inject each target, not the whole fan-out.
+     *
+     * @param injection injects the fault and records it in this cache
+     * @throws RuntimeException if the scenario was aborted
+     */
+    public void injectFault(Runnable injection) {
+        faultLock.readLock().lock();
+        try {
+            if (aborted) {
+                throw new RuntimeException("Scenario aborted by guardrail alarms, not injecting fault");
+            }
+            injection.run();
+        } finally {
+            faultLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recover once no injection is in flight, no injection can start until the recovery finished.
+     *
+     * @param recovery heals the faults recorded in this cache
+     */
+    public void recoverFaults(Runnable recovery) {
+        faultLock.writeLock().lock();
+        try {
+            recovery.run();
+        } finally {
+            faultLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Abort the scenario: faults injected from now on are refused.
+     *
+     * @return true if this call aborted the scenario, false if it was already aborted
+     */
+    public synchronized boolean abort() {
+        if (aborted) {
+            return false;
+        }
+        aborted = true;
+        return true;
+    }
+
+    /**
+     * Whether the scenario was aborted.
+     *
+     * @return true if aborted
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Insertion ordered set safe for concurrent adds, deduplicating in O(1).
+     */
+    private static <T> Set<T> newOrderedSet() {
+        return Collections.synchronizedSet(new LinkedHashSet<>());
+    }
+
+    /**
+     * Copy of the set, in insertion order, that callers may modify freely.
+     */
+    private static <T> List<T> copy(Set<T> set) {
+        synchronized (set) {
+            return new ArrayList<>(set);
+        }
+    }
+
+    /**
+     * Shuffled copy of the set, the set itself keeps its order.
+     */
+    private static <T> List<T> shuffledCopy(Set<T> set) {
+        List<T> list = copy(set);
+        Collections.shuffle(list);
+        return list;
+    }
+
+    /**
+     * Replace the content of the set, a null list empties it.
+     */
+    private static <T> void replace(Set<T> set, List<T> values) {
+        synchronized (set) {
+            set.clear();
+            if (values != null) {
+                set.addAll(values);
+            }
+        }
+    }
+
     /**
      * Clear.
      */
     public void clear() {
+        if (journaled) {
+            // faults that were not healed stay outstanding in the journal
+            journalId = UUID.randomUUID().toString();
+            journaled = false;
+        }
 
-        instances = new CopyOnWriteArrayList<>();
-        unhealthyInstances = new CopyOnWriteArrayList<>();
-        detachedSubnets = new CopyOnWriteArrayList<>();
-        blockedDomains = new CopyOnWriteArrayList<>();
-        dbInstances = new CopyOnWriteArrayList<>();
-        cacheNodes = new CopyOnWriteArrayList<>();
-        detachedSecurityGroups = new CopyOnWriteArrayList<>();
-        ssmCommandInvocationInstances = new CopyOnWriteArrayList<>();
-        deregisteredInstances = new CopyOnWriteArrayList<>();
-        processNames = new CopyOnWriteArrayList<>();
+        instances.clear();
+        unhealthyInstances.clear();
+        detachedSubnets.clear();
+        blockedDomains.clear();
+        dbInstances.clear();
+        cacheNodes.clear();
+        detachedSecurityGroups.clear();
+        ssmCommandInvocationInstances.clear();
+        deregisteredInstances.clear();
+        deregisteredTargets.clear();
+        processNames.clear();
+        portNums.clear();
         ignoreTags = new CopyOnWriteArrayList<>();
         availaibilityzones = null;
 
@@ -928,6 +1204,8 @@ public class ExecutionStateCache {
         loadBalancerName = null;
         dbName = null;
         commandId = null;
+        ssmCommandBatch = null;
+        convergenceTimes.clear();
         elastiCacheClusterName = null;
         dynamoDBTable = null;
 
@@ -942,6 +1220,7 @@ public class ExecutionStateCache {
         portNum = 0;
         dynamoReadCapacity = 0l;
         dynamoWriteCapacity = 0l;
+        aborted = false;
     }
 
 }
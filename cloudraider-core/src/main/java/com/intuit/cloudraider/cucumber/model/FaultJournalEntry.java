@@ -0,0 +1,408 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.cucumber.model;
+
+import com.intuit.cloudraider.model.EC2InstanceTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One record of the fault journal: the recoverable faults of a scenario when a fault was injected, or the fact that
+ * they were healed. Replaying the last record of every scenario tells which faults are still outstanding.
+ */
+public class FaultJournalEntry {
+
+    /**
+     * Kind of journal record.
+     */
+    public enum Event {
+        /**
+         * A fault was injected, the record holds every recoverable fault of the scenario.
+         */
+        INJECT,
+        /**
+         * The faults of the scenario were healed.
+         */
+        HEAL
+    }
+
+    private String journalId;
+    private Event event;
+    private long timestamp;
+
+    private boolean healProcess;
+    private boolean healNetwork;
+    private boolean cpuSpiked;
+    private boolean ramDiskFull;
+    private boolean blockPort;
+    private boolean blockDynamoDB;
+    private boolean blockS3;
+
+    private List<String> processNames = new ArrayList<>();
+    private List<Integer> portNums = new ArrayList<>();
+    private List<String> blockedDomains = new ArrayList<>();
+    private List<EC2InstanceTO> unhealthyInstances = new ArrayList<>();
+    private List<EC2InstanceTO> ssmCommandInvocationInstances = new ArrayList<>();
+
+    /**
+     * Instantiates a new Fault journal entry.
+     */
+    public FaultJournalEntry() {
+    }
+
+    /**
+     * Record the recoverable faults currently held by the execution state cache.
+     *
+     * @param journalId           id of the scenario the faults belong to
+     * @param executionStateCache execution state cache
+     * @return the inject entry
+     */
+    public static FaultJournalEntry inject(String journalId, ExecutionStateCache executionStateCache) {
+        FaultJournalEntry entry = new FaultJournalEntry();
+        entry.journalId = journalId;
+        entry.event = Event.INJECT;
+        entry.timestamp = System.currentTimeMillis();
+        entry.healProcess = executionStateCache.isHealProcess();
+        entry.healNetwork = executionStateCache.isHealNetwork();
+        entry.cpuSpiked = executionStateCache.isCpuSpiked();
+        entry.ramDiskFull = executionStateCache.isRamDiskFull();
+        entry.blockPort = executionStateCache.isBlockPort();
+        entry.blockDynamoDB = executionStateCache.isBlockDynamoDB();
+        entry.blockS3 = executionStateCache.isBlockS3();
+        entry.processNames = executionStateCache.getProcessNames();
+        entry.portNums = executionStateCache.getPortNums();
+        entry.blockedDomains = executionStateCache.getBlockedDomains();
+        entry.unhealthyInstances = executionStateCache.getUnhealthyInstances();
+        entry.ssmCommandInvocationInstances = executionStateCache.getSsmCommandInvocationInstances();
+        return entry;
+    }
+
+    /**
+     * Record that the faults of a scenario were healed.
+     *
+     * @param journalId id of the scenario the faults belong to
+     * @return the heal entry
+     */
+    public static FaultJournalEntry heal(String journalId) {
+        FaultJournalEntry entry = new FaultJournalEntry();
+        entry.journalId = journalId;
+        entry.event = Event.HEAL;
+        entry.timestamp = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * Rebuild an execution state cache holding the recorded faults, so they can be recovered by another process.
+     *
+     * @return the execution state cache
+     */
+    public ExecutionStateCache toExecutionStateCache() {
+        ExecutionStateCache executionStateCache = new ExecutionStateCache();
+        processNames.forEach(executionStateCache::addProcessName);
+        portNums.forEach(executionStateCache::addPortNum);
+        executionStateCache.setBlockedDomains(blockedDomains);
+        executionStateCache.setUnhealthyInstances(unhealthyInstances);
+        executionStateCache.setSsmCommandInvocationInstances(ssmCommandInvocationInstances);
+        executionStateCache.setHealProcess(healProcess);
+        executionStateCache.setHealNetwork(healNetwork);
+        executionStateCache.setCpuSpiked(cpuSpiked);
+        executionStateCache.setRamDiskFull(ramDiskFull);
+        executionStateCache.setBlockPort(blockPort);
+        executionStateCache.setBlockDynamoDB(blockDynamoDB);
+        executionStateCache.setBlockS3(blockS3);
+        return executionStateCache;
+    }
+
+    /**
+     * Gets journal id.
+     *
+     * @return the journal id
+     */
+    public String getJournalId() {
+        return journalId;
+    }
+
+    /**
+     * Sets journal id.
+     *
+     * @param journalId the journal id
+     */
+    public void setJournalId(String journalId) {
+        this.journalId = journalId;
+    }
+
+    /**
+     * Gets event.
+     *
+     * @return the event
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Sets event.
+     *
+     * @param event the event
+     */
+    public void setEvent(Event event) {
+        this.event = event;
+    }
+
+    /**
+     * Gets timestamp.
+     *
+     * @return the timestamp
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Sets timestamp.
+     *
+     * @param timestamp the timestamp
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Is heal process boolean.
+     *
+     * @return the heal process
+     */
+    public boolean isHealProcess() {
+        return healProcess;
+    }
+
+    /**
+     * Sets heal process.
+     *
+     * @param healProcess the heal process
+     */
+    public void setHealProcess(boolean healProcess) {
+        this.healProcess = healProcess;
+    }
+
+    /**
+     * Is heal network boolean.
+     *
+     * @return the heal network
+     */
+    public boolean isHealNetwork() {
+        return healNetwork;
+    }
+
+    /**
+     * Sets heal network.
+     *
+     * @param healNetwork the heal network
+     */
+    public void setHealNetwork(boolean healNetwork) {
+        this.healNetwork = healNetwork;
+    }
+
+    /**
+     * Is cpu spiked boolean.
+     *
+     * @return the cpu spiked
+     */
+    public boolean isCpuSpiked() {
+        return cpuSpiked;
+    }
+
+    /**
+     * Sets cpu spiked.
+     *
+     * @param cpuSpiked the cpu spiked
+     */
+    public void setCpuSpiked(boolean cpuSpiked) {
+        this.cpuSpiked = cpuSpiked;
+    }
+
+    /**
+     * Is ram disk full boolean.
+     *
+     * @return the ram disk full
+     */
+    public boolean isRamDiskFull() {
+        return ramDiskFull;
+    }
+
+    /**
+     * Sets ram disk full.
+     *
+     * @param ramDiskFull the ram disk full
+     */
+    public void setRamDiskFull(boolean ramDiskFull) {
+        this.ramDiskFull = ramDiskFull;
+    }
+
+    /**
+     * Is block port boolean.
+     *
+     * @return the block port
+     */
+    public boolean isBlockPort() {
+        return blockPort;
+    }
+
+    /**
+     * Sets block port.
+     *
+     * @param blockPort the block port
+     */
+    public void setBlockPort(boolean blockPort) {
+        this.blockPort = blockPort;
+    }
+
+    /**
+     * Is block dynamo db boolean.
+     *
+     * @return the block dynamo db
+     */
+    public boolean isBlockDynamoDB() {
+        return blockDynamoDB;
+    }
+
+    /**
+     * Sets block dynamo db.
+     *
+     * @param blockDynamoDB the block dynamo db
+     */
+    public void setBlockDynamoDB(boolean blockDynamoDB) {
+        this.blockDynamoDB = blockDynamoDB;
+    }
+
+    /**
+     * Is block s 3 boolean.
+     *
+     * @return the block s 3
+     */
+    public boolean isBlockS3() {
+        return blockS3;
+    }
+
+    /**
+     * Sets block s 3.
+     *
+     * @param blockS3 the block s 3
+     */
+    public void setBlockS3(boolean blockS3) {
+        this.blockS3 = blockS3;
+    }
+
+    /**
+     * Gets process names.
+     *
+     * @return the process names
+     */
+    public List<String> getProcessNames() {
+        return processNames;
+    }
+
+    /**
+     * Sets process names.
+     *
+     * @param processNames the process names
+     */
+    public void setProcessNames(List<String> processNames) {
+        this.processNames = processNames;
+    }
+
+    /**
+     * Gets port nums.
+     *
+     * @return the port nums
+     */
+    public List<Integer> getPortNums() {
+        return portNums;
+    }
+
+    /**
+     * Sets port nums.
+     *
+     * @param portNums the port nums
+     */
+    public void setPortNums(List<Integer> portNums) {
+        this.portNums = portNums;
+    }
+
+    /**
+     * Gets blocked domains.
+     *
+     * @return the blocked domains
+     */
+    public List<String> getBlockedDomains() {
+        return blockedDomains;
+    }
+
+    /**
+     * Sets blocked domains.
+     *
+     * @param blockedDomains the blocked domains
+     */
+    public void setBlockedDomains(List<String> blockedDomains) {
+        this.blockedDomains = blockedDomains;
+    }
+
+    /**
+     * Gets unhealthy instances.
+     *
+     * @return the unhealthy instances
+     */
+    public List<EC2InstanceTO> getUnhealthyInstances() {
+        return unhealthyInstances;
+    }
+
+    /**
+     * Sets unhealthy instances.
+     *
+     * @param unhealthyInstances the unhealthy instances
+     */
+    public void setUnhealthyInstances(List<EC2InstanceTO> unhealthyInstances) {
+        this.unhealthyInstances = unhealthyInstances;
+    }
+
+    /**
+     * Gets ssm command invocation instances.
+     *
+     * @return the ssm command invocation instances
+     */
+    public List<EC2InstanceTO> getSsmCommandInvocationInstances() {
+        return ssmCommandInvocationInstances;
+    }
+
+    /**
+     * Sets ssm command invocation instances.
+     *
+     * @param ssmCommandInvocationInstances the ssm command invocation instances
+     */
+    public void setSsmCommandInvocationInstances(List<EC2InstanceTO> ssmCommandInvocationInstances) {
+        this.ssmCommandInvocationInstances = ssmCommandInvocationInstances;
+    }
+}
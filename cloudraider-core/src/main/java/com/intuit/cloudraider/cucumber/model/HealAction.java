@@ -0,0 +1,156 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.cucumber.model;
+
+import java.util.*;
+
+/**
+ * One step of a recovery plan: the script that heals a fault over SSH and the commands that heal it over SSM.
+ */
+public class HealAction {
+
+    /**
+     * Kind of fault healed, the dependencies between categories decide the order heal actions run in on a host.
+     */
+    public enum Category {
+        /**
+         * Network latency, loss and corruption.
+         */
+        NETWORK,
+        /**
+         * Blocked domain.
+         */
+        DOMAIN,
+        /**
+         * Blocked port.
+         */
+        PORT,
+        /**
+         * Blocked DynamoDB.
+         */
+        DYNAMODB,
+        /**
+         * Blocked S3.
+         */
+        S3,
+        /**
+         * CPU spike.
+         */
+        CPU,
+        /**
+         * Full RAM disk.
+         */
+        RAM_DISK,
+        /**
+         * Stopped or killed process, restarted once everything it depends on is healed.
+         */
+        PROCESS;
+
+        /**
+         * Gets the categories that must be healed on a host before this one.
+         *
+         * @return the dependencies
+         */
+        public Set<Category> getDependencies() {
+            if (this == PROCESS) {
+                return Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(PROCESS)));
+            }
+            return Collections.emptySet();
+        }
+    }
+
+    private final Category category;
+    private final String name;
+    private final String scriptName;
+    private final List<String> arguments;
+    private final List<String> ssmCommands;
+
+    /**
+     * Instantiates a new Heal action.
+     *
+     * @param category    fault category
+     * @param name        name of the action in logs and reports
+     * @param scriptName  script run over SSH, without the .sh extension
+     * @param arguments   script arguments
+     * @param ssmCommands commands run over SSM
+     */
+    public HealAction(Category category, String name, String scriptName, List<String> arguments, List<String> ssmCommands) {
+        this.category = category;
+        this.name = name;
+        this.scriptName = scriptName;
+        this.arguments = arguments == null ? Collections.emptyList() : new ArrayList<>(arguments);
+        this.ssmCommands = ssmCommands == null ? Collections.emptyList() : new ArrayList<>(ssmCommands);
+    }
+
+    /**
+     * Gets category.
+     *
+     * @return the category
+     */
+    public Category getCategory() {
+        return category;
+    }
+
+    /**
+     * Gets name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets script name.
+     *
+     * @return the script name
+     */
+    public String getScriptName() {
+        return scriptName;
+    }
+
+    /**
+     * Gets arguments.
+     *
+     * @return the arguments
+     */
+    public List<String> getArguments() {
+        return Collections.unmodifiableList(arguments);
+    }
+
+    /**
+     * Gets ssm commands.
+     *
+     * @return the ssm commands
+     */
+    public List<String> getSsmCommands() {
+        return Collections.unmodifiableList(ssmCommands);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
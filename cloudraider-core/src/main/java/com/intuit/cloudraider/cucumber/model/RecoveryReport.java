@@ -0,0 +1,206 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.cucumber.model;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of a recovery: the result of every heal action on every host and the total time to recover.
+ */
+public class RecoveryReport {
+
+    /**
+     * Result of one heal action on one host.
+     */
+    public static class ActionResult {
+        private final String host;
+        private final String action;
+        private final boolean success;
+        private final String message;
+        private final long durationMillis;
+
+        /**
+         * Instantiates a new Action result.
+         *
+         * @param host           host (ip or instance id) the action ran on
+         * @param action         heal action name
+         * @param success        whether the action succeeded
+         * @param message        exit status, command id or error
+         * @param durationMillis duration of the invocation that ran the action
+         */
+        public ActionResult(String host, String action, boolean success, String message, long durationMillis) {
+            this.host = host;
+            this.action = action;
+            this.success = success;
+            this.message = message;
+            this.durationMillis = durationMillis;
+        }
+
+        /**
+         * Gets host.
+         *
+         * @return the host
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Gets action.
+         *
+         * @return the action
+         */
+        public String getAction() {
+            return action;
+        }
+
+        /**
+         * Is success boolean.
+         *
+         * @return the boolean
+         */
+        public boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * Gets message.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Gets duration millis.
+         *
+         * @return the duration millis
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return action + " on " + host + ": " + (success ? "healed" : "failed") + " (" + message + ", " + durationMillis + " ms)";
+        }
+    }
+
+    private final List<ActionResult> actionResults = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private volatile long totalMillis;
+
+    /**
+     * Instantiates a new Recovery report.
+     */
+    public RecoveryReport() {
+    }
+
+    /**
+     * Add the result of a heal action.
+     *
+     * @param actionResult action result
+     */
+    public void addActionResult(ActionResult actionResult) {
+        actionResults.add(actionResult);
+    }
+
+    /**
+     * Record a host or invocation that could not be healed at all.
+     *
+     * @param error error description
+     */
+    public void addError(String error) {
+        errors.add(error);
+    }
+
+    /**
+     * Gets action results.
+     *
+     * @return the action results
+     */
+    public List<ActionResult> getActionResults() {
+        synchronized (actionResults) {
+            return new ArrayList<>(actionResults);
+        }
+    }
+
+    /**
+     * Gets the heal actions that did not succeed.
+     *
+     * @return the failed action results
+     */
+    public List<ActionResult> getFailedActions() {
+        return getActionResults().stream().filter(result -> !result.isSuccess()).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the hosts or invocations that could not be healed at all.
+     *
+     * @return the errors
+     */
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    /**
+     * Whether every host could be reached to run its heal actions.
+     *
+     * @return the boolean
+     */
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * Gets the time it took to recover, from planning to the last heal action.
+     *
+     * @return the total millis
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * Sets total millis.
+     *
+     * @param totalMillis the total millis
+     */
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    @Override
+    public String toString() {
+        List<ActionResult> results = getActionResults();
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        return "recovered in " + totalMillis + " ms: " + results.size() + " heal actions, " + failed + " failed, "
+                + errors.size() + " errors";
+    }
+}
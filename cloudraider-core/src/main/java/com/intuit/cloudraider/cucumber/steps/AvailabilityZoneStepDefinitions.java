@@ -25,6 +25,8 @@
 package com.intuit.cloudraider.cucumber.steps;
 
 import com.amazonaws.services.ec2.model.Tag;
+import com.intuit.cloudraider.commons.FanOutExecutor;
+import com.intuit.cloudraider.commons.FanOutExecutor.TargetType;
 import com.intuit.cloudraider.core.interfaces.EC2Raider;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
 import com.intuit.cloudraider.cucumber.util.CucumberHelperFunctions;
@@ -42,7 +44,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Cucumber Step Definitions for filtering EC2 instances based in a certain availability zone.
@@ -53,6 +54,10 @@ public class AvailabilityZoneStepDefinitions {
     @Qualifier("ec2raiderBean")
     private EC2Raider ec2Raider;
 
+    @Autowired
+    @Qualifier("fanOutExecutor")
+    private FanOutExecutor fanOutExecutor;
+
     /**
      * The Logger.
      */
@@ -141,15 +146,13 @@ public class AvailabilityZoneStepDefinitions {
         //Added to include randomness
         Collections.shuffle(instances);
 
-        IntStream.range(0, numInstances )
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            logger.info("AZ Terminated Instance : ");
-                            logger.info(instances.get(i).getInstanceId());
-                            ec2Raider.terminateEc2InstancesById(instances.get(i).getInstanceId());
-                        } );
+        fanOutExecutor.executeAll(TargetType.AWS, new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> {
+                    logger.info("AZ Terminated Instance : ");
+                    logger.info(instance.getInstanceId());
+                    ec2Raider.terminateEc2InstancesById(instance.getInstanceId());
+                });
 
         return this;
     }
@@ -26,6 +26,7 @@ package com.intuit.cloudraider.cucumber.steps;
 
 import com.intuit.cloudraider.core.interfaces.CloudWatchRaider;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.util.AlarmWatcher;
 import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
 import org.slf4j.Logger;
@@ -34,6 +35,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.testng.Assert;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 /**
  * Cucumber Step Definitions for CloudWatch functionality.
  */
@@ -52,6 +58,10 @@ public class CloudWatchStepDefinitions {
     @Autowired
     private ExecutionStateCache executionStateCache;
 
+    @Autowired
+    @Qualifier("alarmWatcher")
+    private AlarmWatcher alarmWatcher;
+
     public ExecutionStateCache getExecutionStateCache() {
         return executionStateCache;
     }
@@ -96,6 +106,42 @@ public class CloudWatchStepDefinitions {
         Assert.assertEquals(cloudWatchRaider.getAlarmState(alarm), expectedState);
     }
 
+    /**
+     * Watch the comma separated alarms in the background and abort the experiment as soon as one enters ALARM while a
+     * fault is active.
+     *
+     * @param alarms comma separated alarm names
+     */
+    @Given("^guardrail CloudWatch alarms \"([^\"]*)\"$")
+    public CloudWatchStepDefinitions givenGuardrailAlarms(String alarms) {
+        alarmWatcher.setGuardrailAlarms(Arrays.asList(alarms.split(",\\s*")));
+        return this;
+    }
+
+    /**
+     * Assert that no guardrail alarm aborted the experiment.
+     */
+    @Then("^assertCW guardrail alarms not triggered$")
+    public void assertGuardrailAlarmsNotTriggered() {
+        Assert.assertFalse(alarmWatcher.isAborted(), "Guardrail alarms triggered: " + alarmWatcher.getTriggeredAlarms());
+    }
+
+    /**
+     * Assert that every one of the comma separated alarms is in the expected state, looked up with one call.
+     *
+     * @param alarms        comma separated alarm names
+     * @param expectedState String expected alarm state
+     */
+    @Then("^assertCW alarms \"([^\"]*)\" = \"([^\"]*)\"$")
+    public void assertCloudWatchAlarmStates(String alarms, String expectedState) {
+        Map<String, String> states = cloudWatchRaider.getAlarmStates(Arrays.asList(alarms.split(",\\s*")));
+        List<String> unexpected = states.entrySet().stream()
+                .filter(entry -> !entry.getValue().equalsIgnoreCase(expectedState))
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.toList());
+        Assert.assertTrue(unexpected.isEmpty(), "Alarms not in state " + expectedState + ": " + unexpected);
+    }
+
     /**
      * Returns true if the previously set alarm is active.
      *
@@ -27,6 +27,7 @@ package com.intuit.cloudraider.cucumber.steps;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.util.AlarmWatcher;
 
 import cucumber.api.java.en.Then;
 
@@ -55,6 +56,9 @@ public class EndScenarioStepDefinitions {
     @Autowired
     private ExecutionStateCache executionStateCache;
 
+    @Autowired
+    private AlarmWatcher alarmWatcher;
+
     /**
      * Instantiates a new End scenario step definitions.
      */
@@ -68,7 +72,8 @@ public class EndScenarioStepDefinitions {
     @Then("^end scenario$")
     public void endScenario()
     {
-    	executionStateCache = new ExecutionStateCache();
+    	alarmWatcher.stop();
+    	executionStateCache.clear();
 
     	System.out.println("---------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------");
     }
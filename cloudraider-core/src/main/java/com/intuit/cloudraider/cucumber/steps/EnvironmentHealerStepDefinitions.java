@@ -24,12 +24,21 @@
 
 package com.intuit.cloudraider.cucumber.steps;
 
+import com.intuit.cloudraider.commons.FanOutExecutor;
+import com.intuit.cloudraider.commons.FanOutExecutor.TargetType;
 import com.intuit.cloudraider.core.interfaces.SSMRaider;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.model.FaultJournalEntry;
+import com.intuit.cloudraider.cucumber.model.RecoveryReport;
+import com.intuit.cloudraider.cucumber.util.AlarmWatcher;
+import com.intuit.cloudraider.cucumber.util.CucumberHelperFunctions;
+import com.intuit.cloudraider.cucumber.util.FaultJournal;
+import com.intuit.cloudraider.cucumber.util.RecoveryPlanner;
 import com.intuit.cloudraider.cucumber.util.ScriptExecutor;
 import com.intuit.cloudraider.model.Actions;
 import com.intuit.cloudraider.model.Command;
 import com.intuit.cloudraider.model.EC2InstanceTO;
+import com.intuit.cloudraider.model.SsmCommandBatch;
 import com.intuit.cloudraider.utils.CommandUtility;
 import com.intuit.cloudraider.utils.Ec2Utils;
 import cucumber.api.java.en.Then;
@@ -38,14 +47,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
+import javax.annotation.PostConstruct;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Cucumber Step Definitions for restoring AWS infrastructure to previous state.
  */
 public class EnvironmentHealerStepDefinitions {
 
+    /**
+     * Name the time to recover is recorded under in the execution state cache convergence times.
+     */
+    public static final String RECOVERY_TIME = "recover";
+
     @Autowired
     @Qualifier("scriptExecutor")
     private ScriptExecutor scriptExecutor;
@@ -59,9 +76,28 @@ public class EnvironmentHealerStepDefinitions {
     @Qualifier("ssmRaiderBean")
     private SSMRaider ssmRaider;
 
+    @Autowired
+    @Qualifier("fanOutExecutor")
+    private FanOutExecutor fanOutExecutor;
+
     @Autowired
     private ExecutionStateCache executionStateCache;
 
+    @Autowired
+    @Qualifier("alarmWatcher")
+    private AlarmWatcher alarmWatcher;
+
+    @Autowired
+    @Qualifier("faultJournal")
+    private FaultJournal faultJournal;
+
+    @Autowired
+    @Qualifier("recoveryPlanner")
+    private RecoveryPlanner recoveryPlanner;
+
+    private volatile RecoveryReport lastRecoveryReport;
+    private volatile boolean recoveredOnAbort;
+
     public ExecutionStateCache getExecutionStateCache() {
         return executionStateCache;
     }
@@ -74,109 +110,78 @@ public class EnvironmentHealerStepDefinitions {
 
     }
 
+    /**
+     * Abort the scenario and recover as soon as a guardrail alarm enters ALARM while a fault is active. The recovery
+     * waits for injections in flight, later injections are refused.
+     */
+    @PostConstruct
+    private void registerAbortCallback() {
+        alarmWatcher.registerAbortCallback(getClass().getSimpleName(), alarms -> {
+            if (executionStateCache.abort()) {
+                recover();
+                recoveredOnAbort = true;
+            }
+        });
+    }
+
     /**
      * Recovers from instance-specific failures (other than termination and hard disk manipulation) during testing.
      */
     @Then("^recover$")
     public void recover() {
-        boolean isSSM = !executionStateCache.getSsmCommandInvocationInstances().isEmpty();
-
-        if (executionStateCache.isHealProcess()) {
-            List<String> processes = executionStateCache.getProcessNames();
-            for (String process : processes) {
-                if (isSSM) {
-
-                    healGivenSSMInstancesByProcess(process, executionStateCache.getSsmCommandInvocationInstances());
-                } else {
-                    healGivenInstancesByProcess(process, executionStateCache.getUnhealthyInstances());
-                }
-            }
-        }
-
-        if (executionStateCache.isHealNetwork()) {
-
-            if (isSSM) {
-                healSSMGivenInstancesFixingNetworkIssues(executionStateCache.getSsmCommandInvocationInstances());
-            }
-            else {
-                healGivenInstancesFixingNetworkIssues(executionStateCache.getUnhealthyInstances());
-            }
-        }
-
-        if (!executionStateCache.getBlockedDomains().isEmpty()) {
-            if (isSSM) {
-
-                executionStateCache.getBlockedDomains().parallelStream()
-                        .forEach(domain -> healSSMGivenInstancesByDomainName(domain, executionStateCache.getSsmCommandInvocationInstances()));
-            } else {
-                executionStateCache.getBlockedDomains().parallelStream()
-                        .forEach(domain -> healGivenInstancesByDomainName(domain, executionStateCache.getUnhealthyInstances()));
-            }
-        }
-
-        if (executionStateCache.isCpuSpiked()) {
-            if (isSSM) {
-
-                healSSMGivenInstancesByFixingCPU(executionStateCache.getSsmCommandInvocationInstances());
-            } else {
-                healGivenInstancesByFixingCPU(executionStateCache.getUnhealthyInstances());
-            }
-        }
-
-        if (executionStateCache.isBlockPort()) {
-            List<Integer> portNums = executionStateCache.getPortNums();
-            for (Integer port : portNums) {
-                if (isSSM) {
-
-                    healSSMGivenInstancesByFixingPort(port, executionStateCache.getSsmCommandInvocationInstances());
-                } else {
-                    healGivenInstancesByFixingPort(executionStateCache.getUnhealthyInstances());
-                }
-            }
-        }
-
-        if (executionStateCache.isRamDiskFull()) {
-            if (isSSM) {
-                healSSMGivenInstancesByFixingRamDisk(executionStateCache.getSsmCommandInvocationInstances());
-            } else {
-                healGivenInstancesByFixingRamDisk(executionStateCache.getUnhealthyInstances());
-            }
-        }
-
-
-        if (executionStateCache.isBlockDynamoDB())
-        {
-            if (isSSM) {
-
-                healSSMGivenInstancesByUnblockingDynamoDB(executionStateCache.getSsmCommandInvocationInstances());
-            }
-            else
-            {
-                healGivenInstancesByUnblockingDynamoDB(executionStateCache.getUnhealthyInstances());
-
+        executionStateCache.recoverFaults(() -> {
+            if (recoveredOnAbort) {
+                logger.info("EnvironmentHealerStepDefinitions - already recovered when the scenario was aborted");
+                return;
             }
-        }
-
-        if (executionStateCache.isBlockS3())
-        {
-            if (isSSM) {
+            recover(executionStateCache);
+        });
+    }
 
-                healSSMGivenInstancesByUnblockingS3(executionStateCache.getSsmCommandInvocationInstances());
-            }
-            else
-            {
-                healGivenInstancesByUnblockingS3(executionStateCache.getUnhealthyInstances());
+    /**
+     * Heals the faults that the fault journal still records as outstanding, for example after a run was killed before
+     * it could recover. Every scenario with outstanding faults is healed in parallel.
+     */
+    @Then("^heal outstanding faults from journal$")
+    public void healOutstandingFaults() {
+        Map<String, FaultJournalEntry> outstanding = faultJournal.getOutstandingFaults();
+        logger.info("EnvironmentHealerStepDefinitions - healing outstanding faults of " + outstanding.size() + " scenarios");
+
+        fanOutExecutor.executeAll(TargetType.AWS, new ArrayList<>(outstanding.keySet()), journalId -> journalId,
+                journalId -> {
+                    recover(outstanding.get(journalId).toExecutionStateCache());
+                    faultJournal.recordHeal(journalId);
+                });
+    }
 
-            }
+    private void recover(ExecutionStateCache executionStateCache) {
+        RecoveryReport report = recoveryPlanner.recover(executionStateCache);
+        lastRecoveryReport = report;
+        executionStateCache.recordConvergenceTime(RECOVERY_TIME, report.getTotalMillis());
+        if (!report.isSuccess()) {
+            throw new RuntimeException("Unable to recover " + String.join(", ", report.getErrors()));
         }
 
+        executionStateCache.setBlockDynamoDB(false);
+        executionStateCache.setBlockS3(false);
+        executionStateCache.markFaultsHealed();
+    }
 
+    /**
+     * Gets the report of the last recovery, with the result of every heal action and the time it took.
+     *
+     * @return the last recovery report, null if nothing was recovered yet
+     */
+    public RecoveryReport getLastRecoveryReport() {
+        return lastRecoveryReport;
     }
 
     @Then("^clearCache$")
     public void clearCache() {
 
+        alarmWatcher.stop();
         executionStateCache.clear();
+        recoveredOnAbort = false;
     }
 
         /**
@@ -188,12 +193,8 @@ public class EnvironmentHealerStepDefinitions {
     public EnvironmentHealerStepDefinitions healGivenInstancesByProcess(String processName, List<EC2InstanceTO> instances)
     {
 
-        instances.parallelStream()
-                .forEach(i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript("healInstance", ip, processName);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instances, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript("healInstance", instance.getPrivateIpAddress(), processName));
 
         return this;
     }
@@ -206,12 +207,8 @@ public class EnvironmentHealerStepDefinitions {
      */
     public EnvironmentHealerStepDefinitions healGivenInstancesByDomainName(String domainName, List<EC2InstanceTO> instances) {
 
-        instances.parallelStream()
-                .forEach(i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript(Actions.UNBLOCKDOMAIN, ip, domainName);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instances, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript(Actions.UNBLOCKDOMAIN, instance.getPrivateIpAddress(), domainName));
 
         return this;
     }
@@ -223,12 +220,8 @@ public class EnvironmentHealerStepDefinitions {
      */
     public EnvironmentHealerStepDefinitions healGivenInstancesByFixingRamDisk(List<EC2InstanceTO> instanceList) {
 
-        instanceList.parallelStream()
-                .forEach(i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript("clear-ramdiskfull.sh", ip);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instanceList, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript("clear-ramdiskfull.sh", instance.getPrivateIpAddress()));
 
         return this;
     }
@@ -240,12 +233,8 @@ public class EnvironmentHealerStepDefinitions {
      */
     public EnvironmentHealerStepDefinitions healGivenInstancesByFixingNetworkIssues(List<EC2InstanceTO> instances) {
 
-        instances.parallelStream()
-                .forEach(i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript("clear-networkfailures", ip);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instances, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript("clear-networkfailures", instance.getPrivateIpAddress()));
 
         return this;
     }
@@ -257,12 +246,8 @@ public class EnvironmentHealerStepDefinitions {
      */
     public EnvironmentHealerStepDefinitions healGivenInstancesByFixingCPU(List<EC2InstanceTO> instances) {
 
-        instances.parallelStream()
-                .forEach(i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript("killcpuspike", ip);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instances, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript("killcpuspike", instance.getPrivateIpAddress()));
 
         return this;
     }
@@ -274,12 +259,8 @@ public class EnvironmentHealerStepDefinitions {
      */
     public EnvironmentHealerStepDefinitions healGivenInstancesByFixingPort(List<EC2InstanceTO> instances) {
 
-        instances.parallelStream()
-                .forEach(i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript(Actions.UNBLOCKPORT, ip);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instances, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript(Actions.UNBLOCKPORT, instance.getPrivateIpAddress()));
 
         return this;
     }
@@ -292,7 +273,7 @@ public class EnvironmentHealerStepDefinitions {
     public EnvironmentHealerStepDefinitions healSSMGivenInstancesByFixingCPU(List<EC2InstanceTO> instanceList) {
 
         List<String> commands = CommandUtility.getCommandsFromFile("killcpuspikeCommand.txt");
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
+        sendHealCommands(instanceList, commands);
         return this;
     }
 
@@ -305,7 +286,7 @@ public class EnvironmentHealerStepDefinitions {
     {
 
         List<String> commands = CommandUtility.getCommandsFromFile("clear-networkfailuresCommand.txt");
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList),commands);
+        sendHealCommands(instanceList, commands);
         return this;
     }
 
@@ -317,12 +298,8 @@ public class EnvironmentHealerStepDefinitions {
     public EnvironmentHealerStepDefinitions healGivenInstancesFixingNetworkIssues(List<EC2InstanceTO> instances )
     {
 
-        instances.parallelStream()
-                .forEach( i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript("clear-networkfailures", ip);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instances, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript("clear-networkfailures", instance.getPrivateIpAddress()));
 
         return this;
     }
@@ -332,7 +309,7 @@ public class EnvironmentHealerStepDefinitions {
     {
 
         List<String> commands = CommandUtility.getCommandsFromFile(Command.UNBLOCKDYNAMODB.getCommandName()+".txt");
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList),commands);
+        sendHealCommands(instanceList, commands);
         executionStateCache.setBlockDynamoDB(false);
         return this;
     }
@@ -341,7 +318,7 @@ public class EnvironmentHealerStepDefinitions {
     {
 
         List<String> commands = CommandUtility.getCommandsFromFile(Command.UNBLOCKS3.getCommandName()+".txt");
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList),commands);
+        sendHealCommands(instanceList, commands);
         executionStateCache.setBlockS3(false);
         return this;
     }
@@ -355,7 +332,7 @@ public class EnvironmentHealerStepDefinitions {
     public EnvironmentHealerStepDefinitions healSSMGivenInstancesByFixingPort(int portNum, List<EC2InstanceTO> instanceList) {
 
         List<String> commands = CommandUtility.getCommandsFromFile(Command.UNBLOCKPORT.getCommandName() + ".txt", String.valueOf(portNum));
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
+        sendHealCommands(instanceList, commands);
         return this;
     }
 
@@ -368,7 +345,7 @@ public class EnvironmentHealerStepDefinitions {
     public EnvironmentHealerStepDefinitions healGivenSSMInstancesByProcess(String processName, List<EC2InstanceTO> instanceList) {
         List<String> commands = CommandUtility.getCommandsFromFile("healCommand.txt", processName);
 
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
+        sendHealCommands(instanceList, commands);
         return this;
 
     }
@@ -382,7 +359,7 @@ public class EnvironmentHealerStepDefinitions {
     public EnvironmentHealerStepDefinitions healSSMGivenInstancesByDomainName(String domainName, List<EC2InstanceTO> instanceList) {
 
         List<String> commands = CommandUtility.getCommandsFromFile(Command.UNBLOCKDOMAIN.getCommandName() + ".txt", domainName);
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
+        sendHealCommands(instanceList, commands);
         return this;
     }
 
@@ -395,7 +372,7 @@ public class EnvironmentHealerStepDefinitions {
 
         List<String> commands = new ArrayList<>();
         commands.add("sudo rm /dev/shm/remove_me");
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
+        sendHealCommands(instanceList, commands);
         return this;
     }
 
@@ -408,12 +385,8 @@ public class EnvironmentHealerStepDefinitions {
     public EnvironmentHealerStepDefinitions healGivenInstancesByUnblockingDynamoDB(List<EC2InstanceTO> instances )
     {
 
-        instances.parallelStream()
-                .forEach( i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript(Actions.UNBLOCKDYNAMO, ip);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instances, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript(Actions.UNBLOCKDYNAMO, instance.getPrivateIpAddress()));
 
 
         executionStateCache.setBlockDynamoDB(false);
@@ -430,18 +403,26 @@ public class EnvironmentHealerStepDefinitions {
     public EnvironmentHealerStepDefinitions healGivenInstancesByUnblockingS3(List<EC2InstanceTO> instances )
     {
 
-        instances.parallelStream()
-                .forEach( i ->
-                {
-                    String ip = i.getPrivateIpAddress();
-                    scriptExecutor.executeScript(Actions.UNBLOCKS3, ip);
-                });
+        fanOutExecutor.executeAll(TargetType.SSH, instances, CucumberHelperFunctions::describeInstance,
+                instance -> scriptExecutor.executeScript(Actions.UNBLOCKS3, instance.getPrivateIpAddress()));
 
         executionStateCache.setBlockS3(false);
 
         return this;
     }
 
-
+    /**
+     * Send the heal commands and fail the step if a chunk of instances could not be reached, since those instances
+     * would otherwise silently stay faulted.
+     *
+     * @param instanceList instances to heal
+     * @param commands heal commands
+     */
+    private void sendHealCommands(List<EC2InstanceTO> instanceList, List<String> commands) {
+        SsmCommandBatch batch = ssmRaider.sendShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
+        if (!batch.getFailedInstanceIds().isEmpty()) {
+            throw new RuntimeException("Unable to send heal commands to " + batch.getFailedInstanceIds());
+        }
+    }
 
 }
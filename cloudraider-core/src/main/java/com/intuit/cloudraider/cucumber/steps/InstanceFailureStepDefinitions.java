@@ -26,6 +26,8 @@ package com.intuit.cloudraider.cucumber.steps;
 
 
 import com.amazonaws.services.ec2.model.Tag;
+import com.intuit.cloudraider.commons.FanOutExecutor;
+import com.intuit.cloudraider.commons.FanOutExecutor.TargetType;
 import com.intuit.cloudraider.core.interfaces.EC2Raider;
 import com.intuit.cloudraider.cucumber.interfaces.EC2StepFunctions;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
@@ -43,7 +45,6 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.IntStream;
 
 /**
  * Cucumber Step Definitions for AWS EC2 functionality.
@@ -58,6 +59,10 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
     @Qualifier("ec2raiderBean")
     private EC2Raider ec2Raider;
 
+    @Autowired
+    @Qualifier("fanOutExecutor")
+    private FanOutExecutor fanOutExecutor;
+
     /**
      * The Logger.
      */
@@ -135,9 +140,8 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
     @Given("^EC2 with a tags \"([^\"]*)\"$")
     public InstanceFailureStepDefinitions givenEC2InstanceTags(String... tags) {
         List<String> tagsList = Arrays.asList(tags);
-        tagsList.parallelStream().forEach(
-                t -> executionStateCache.addInstances(findAllInstancesByTag(t))
-        );
+        fanOutExecutor.executeAll(TargetType.AWS, tagsList, t -> t,
+                t -> executionStateCache.addInstances(findAllInstancesByTag(t)));
         return this;
     }
 
@@ -266,9 +270,11 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
      */
     @When("^CPU spike for (\\d+) cores on instance with id \"([^\"]*)\" and ip \"([^\"]*)\"$")
     public InstanceFailureStepDefinitions spikeCPUGivenInstanceCucumber(int cores, String instanceID, String instanceIP) {
-        spikeCPUHelper(cores, instanceID, instanceIP);
-        executionStateCache.setCpuSpiked(true);
-        executionStateCache.addUnHealthyInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setCpuSpiked(true);
+            executionStateCache.addUnHealthyInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
+            spikeCPUHelper(cores, instanceID, instanceIP);
+        });
         return this;
     }
 
@@ -302,15 +308,13 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numHosts = instances.size();
         }
 
-        IntStream.range(0, numHosts)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            spikeCPUHelper(cores, instances.get(i).getInstanceId(), instances.get(i).getPrivateIpAddress());
-                            executionStateCache.addUnHealthyInstance(instances.get(i));
-                            executionStateCache.setCpuSpiked(true);
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numHosts)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    executionStateCache.addUnHealthyInstance(instance);
+                    executionStateCache.setCpuSpiked(true);
+                    spikeCPUHelper(cores, instance.getInstanceId(), instance.getPrivateIpAddress());
+                }));
 
         return this;
     }
@@ -327,10 +331,9 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             throw new RuntimeException("No Instances are available");
         }
 
-        instances.parallelStream()
-                .forEach(i ->  {
-                    terminationHelper(i.getInstanceId(), i.getPrivateIpAddress());
-                });
+        fanOutExecutor.executeAll(TargetType.AWS, new ArrayList<>(instances),
+                CucumberHelperFunctions::describeInstance,
+                instance -> terminationHelper(instance.getInstanceId(), instance.getPrivateIpAddress()));
 
         return this;
     }
@@ -386,13 +389,11 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = instances.size();
         }
 
-        IntStream.range(0, numInstances)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            terminationHelper(instances.get(i).getInstanceId(), instances.get(i).getPrivateIpAddress());
-                        });
+        fanOutExecutor.executeAll(TargetType.AWS, new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> {
+                    terminationHelper(instance.getInstanceId(), instance.getPrivateIpAddress());
+                });
 
         return this;
     }
@@ -454,16 +455,14 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = instances.size();
         }
 
-        IntStream.range(0, numInstances)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            ec2Raider.stopEc2Instances(instances.get(i).getInstanceId());
-                            stoppedInstances.add(instances.get(i));
-                        } );
+        FanOutExecutor.FanOutResult<EC2InstanceTO> result = fanOutExecutor.execute(TargetType.AWS,
+                new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> ec2Raider.stopEc2Instances(instance.getInstanceId()));
 
+        stoppedInstances.addAll(result.getSucceeded());
         executionStateCache.setStoppedInstances(stoppedInstances);
+        result.throwIfAnyFailed();
 
         return this;
     }
@@ -477,7 +476,6 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
     @Then("^start (\\d+) instance$")
     public InstanceFailureStepDefinitions startInstanceOnNumInstances(int numInstances ) {
         List<EC2InstanceTO> stoppedInstances = executionStateCache.getStoppedInstances();
-        List<EC2InstanceTO> restartedInstances = new ArrayList<>();
 
         if (stoppedInstances == null  || stoppedInstances.isEmpty()) {
             logger.debug("EC2RaiderStepDefinitions - All instances are active");
@@ -488,17 +486,14 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = stoppedInstances.size();
         }
 
-        IntStream.range(0, numInstances)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            restartedInstances.add(stoppedInstances.get(i));
-                            ec2Raider.restartEc2Instances(stoppedInstances.get(i).getInstanceId());
-                        } );
+        FanOutExecutor.FanOutResult<EC2InstanceTO> result = fanOutExecutor.execute(TargetType.AWS,
+                new ArrayList<>(stoppedInstances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> ec2Raider.restartEc2Instances(instance.getInstanceId()));
 
-        stoppedInstances.removeAll(restartedInstances);
+        stoppedInstances.removeAll(result.getSucceeded());
         executionStateCache.setStoppedInstances(stoppedInstances);
+        result.throwIfAnyFailed();
 
         return this;
     }
@@ -527,9 +522,11 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
      */
     @When("^\"([^\"]*)\" disk full with (\\d+) GB on instance with id \"([^\"]*)\" and ip \"([^\"]*)\"$")
     public InstanceFailureStepDefinitions diskFullGivenInstanceCucumber(String volumeType, int size, String instanceID, String instanceIP) {
-        diskFullHelper(volumeType, size, instanceID, instanceIP);
-        executionStateCache.setHealProcess(true);
-        executionStateCache.addUnHealthyInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setHealProcess(true);
+            executionStateCache.addUnHealthyInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
+            diskFullHelper(volumeType, size, instanceID, instanceIP);
+        });
         return this;
     }
 
@@ -567,16 +564,13 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
         }
 
 
-        IntStream.range(0, instanceCount)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-
-                            diskFullHelper(volumeType, size, instances.get(i).getInstanceId(), instances.get(i).getPrivateIpAddress());
-                            executionStateCache.setHealProcess(true);
-                            executionStateCache.addUnHealthyInstance(instances.get(i));
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, instanceCount)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    executionStateCache.setHealProcess(true);
+                    executionStateCache.addUnHealthyInstance(instance);
+                    diskFullHelper(volumeType, size, instance.getInstanceId(), instance.getPrivateIpAddress());
+                }));
 
         return this;
     }
@@ -599,19 +593,17 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = instances.size();
         }
 
-        IntStream.range(0, numInstances )
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            EC2InstanceTO ec2Instance = ec2Raider.getEC2InstanceById(instances.get(i).getInstanceId());
-                            String ip = ec2Instance.getPrivateIpAddress();
-                            String id = ec2Instance.getInstanceId();
-                            logger.info("blocking domain " + domainName + " on: " + id + " @ " + ip);
-                            scriptExecutor.executeBlockDomain(ip, domainName);
-                            executionStateCache.getBlockedDomains().add(domainName);
-                            executionStateCache.addUnHealthyInstance(ec2Instance);
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    EC2InstanceTO ec2Instance = ec2Raider.getEC2InstanceById(instance.getInstanceId());
+                    String ip = ec2Instance.getPrivateIpAddress();
+                    String id = ec2Instance.getInstanceId();
+                    logger.info("blocking domain " + domainName + " on: " + id + " @ " + ip);
+                    executionStateCache.addBlockedDomain(domainName);
+                    executionStateCache.addUnHealthyInstance(ec2Instance);
+                    scriptExecutor.executeBlockDomain(ip, domainName);
+                }));
 
         return this;
     }
@@ -637,10 +629,12 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
      */
     @When("^block port (\\d+) on instance with id \"([^\"]*)\" and ip \"([^\"]*)\"$")
     public InstanceFailureStepDefinitions blockPortGivenInstanceCucumber(int portNum, String instanceID, String instanceIP) {
-        blockPortHelper(portNum, instanceID, instanceIP);
-        executionStateCache.setBlockPort(true);
-        executionStateCache.addPortNum(portNum);
-        executionStateCache.addUnHealthyInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setBlockPort(true);
+            executionStateCache.addPortNum(portNum);
+            executionStateCache.addUnHealthyInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
+            blockPortHelper(portNum, instanceID, instanceIP);
+        });
         return this;
     }
 
@@ -674,16 +668,14 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = instances.size();
         }
 
-        IntStream.range(0, numInstances)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            blockPortHelper(portNum, instances.get(i).getInstanceId(), instances.get(i).getPrivateIpAddress());
-                            executionStateCache.setBlockPort(true);
-                            executionStateCache.addPortNum(portNum);
-                            executionStateCache.addUnHealthyInstance(instances.get(i));
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    executionStateCache.setBlockPort(true);
+                    executionStateCache.addPortNum(portNum);
+                    executionStateCache.addUnHealthyInstance(instance);
+                    blockPortHelper(portNum, instance.getInstanceId(), instance.getPrivateIpAddress());
+                }));
 
         return this;
     }
@@ -705,17 +697,15 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = instances.size();
         }
 
-        IntStream.range(0, numInstances)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            EC2InstanceTO ec2SInstance = ec2Raider.getEC2InstanceById(instances.get(i).getInstanceId());
-                            String ip = ec2SInstance.getPrivateIpAddress();
-                            scriptExecutor.executeBlockDynamoDB(ip);
-                            executionStateCache.setBlockDynamoDB(true);
-                            executionStateCache.addUnHealthyInstance(ec2SInstance);
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    EC2InstanceTO ec2SInstance = ec2Raider.getEC2InstanceById(instance.getInstanceId());
+                    String ip = ec2SInstance.getPrivateIpAddress();
+                    executionStateCache.setBlockDynamoDB(true);
+                    executionStateCache.addUnHealthyInstance(ec2SInstance);
+                    scriptExecutor.executeBlockDynamoDB(ip);
+                }));
 
         return this;
     }
@@ -738,17 +728,15 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = instances.size();
         }
 
-        IntStream.range(0, numInstances)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            EC2InstanceTO ec2SInstance = ec2Raider.getEC2InstanceById(instances.get(i).getInstanceId());
-                            String ip = ec2SInstance.getPrivateIpAddress();
-                            scriptExecutor.executeBlockS3(ip);
-                            executionStateCache.setBlockS3(true);
-                            executionStateCache.addUnHealthyInstance(ec2SInstance);
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    EC2InstanceTO ec2SInstance = ec2Raider.getEC2InstanceById(instance.getInstanceId());
+                    String ip = ec2SInstance.getPrivateIpAddress();
+                    executionStateCache.setBlockS3(true);
+                    executionStateCache.addUnHealthyInstance(ec2SInstance);
+                    scriptExecutor.executeBlockS3(ip);
+                }));
 
         return this;
     }
@@ -813,16 +801,14 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numHosts = instances.size();
         }
 
-        IntStream.range(0, numHosts)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            String ip = instances.get(i).getPrivateIpAddress();
-                            String id = instances.get(i).getInstanceId();
-                            logger.info("starting process on: " + id + " @ " + ip);
-                            scriptExecutor.executeStartProcess(ip, processName);
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numHosts)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> {
+                    String ip = instance.getPrivateIpAddress();
+                    String id = instance.getInstanceId();
+                    logger.info("starting process on: " + id + " @ " + ip);
+                    scriptExecutor.executeStartProcess(ip, processName);
+                });
         return this;
     }
 
@@ -849,9 +835,11 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
      */
     @When("^inject network latency (\\d+) ms to (\\d+) ms on instance with id \"([^\"]*)\" and ip \"([^\"]*)\"$")
     public InstanceFailureStepDefinitions injectNetworkLatencyGivenInstanceCucumber(int lowerBound, int upperBound, String instanceID, String instanceIP) {
-        injectNetworkLatencyHelper(lowerBound, upperBound, instanceID, instanceIP);
-        executionStateCache.setHealNetwork(true);
-        executionStateCache.addUnHealthyInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setHealNetwork(true);
+            executionStateCache.addUnHealthyInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
+            injectNetworkLatencyHelper(lowerBound, upperBound, instanceID, instanceIP);
+        });
         return this;
     }
 
@@ -888,15 +876,13 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = instances.size();
         }
 
-        IntStream.range(0, numInstances)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            injectNetworkLatencyHelper(lowerBound, upperBound, instances.get(i).getInstanceId(), instances.get(i).getPrivateIpAddress());
-                            executionStateCache.setHealNetwork(true);
-                            executionStateCache.addUnHealthyInstance(instances.get(i));
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    executionStateCache.setHealNetwork(true);
+                    executionStateCache.addUnHealthyInstance(instance);
+                    injectNetworkLatencyHelper(lowerBound, upperBound, instance.getInstanceId(), instance.getPrivateIpAddress());
+                }));
 
         return this;
     }
@@ -922,17 +908,15 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
             numInstances = instances.size();
         }
 
-        IntStream.range(0, numInstances)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            String ip = instances.get(i).getPrivateIpAddress();
-                            logger.info("injecting domain latency on ip: " + ip + " for domain " + domainName);
-                            scriptExecutor.executeRandomDomainNetworkLatency(ip, String.valueOf(upperBound), String.valueOf(lowerBound), domainName);
-                            executionStateCache.setHealNetwork(true);
-                            executionStateCache.addUnHealthyInstance(instances.get(i));
-                        } );
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numInstances)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    String ip = instance.getPrivateIpAddress();
+                    logger.info("injecting domain latency on ip: " + ip + " for domain " + domainName);
+                    executionStateCache.setHealNetwork(true);
+                    executionStateCache.addUnHealthyInstance(instance);
+                    scriptExecutor.executeRandomDomainNetworkLatency(ip, String.valueOf(upperBound), String.valueOf(lowerBound), domainName);
+                }));
 
         return this;
     }
@@ -945,18 +929,16 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
      * @param instances instances to perform action on
      */
     private void terminateProcess(String processName, int numHosts, List<EC2InstanceTO> instances) {
-        IntStream.range(0, numHosts )
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            String ip = instances.get(i).getPrivateIpAddress();
-                            String id = instances.get(i).getInstanceId();
-                            logger.info("starting process termination on: " + id + " @ " + ip);
-                            scriptExecutor.executeProcessTermination(ip, processName);
-                            executionStateCache.setHealProcess(true);
-                            executionStateCache.addUnHealthyInstance(instances.get(i));
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numHosts)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    String ip = instance.getPrivateIpAddress();
+                    String id = instance.getInstanceId();
+                    logger.info("starting process termination on: " + id + " @ " + ip);
+                    executionStateCache.setHealProcess(true);
+                    executionStateCache.addUnHealthyInstance(instance);
+                    scriptExecutor.executeProcessTermination(ip, processName);
+                }));
     }
 
     
@@ -970,18 +952,16 @@ public class InstanceFailureStepDefinitions implements EC2StepFunctions {
      * @param instances instances to perform action on
      */
     private void stopProcess(String processName, int numHosts, List<EC2InstanceTO> instances) {
-        IntStream.range(0, numHosts)
-                .parallel()
-                .forEach(
-                        i ->
-                        {
-                            String ip = instances.get(i).getPrivateIpAddress();
-                            String id = instances.get(i).getInstanceId();
-                            logger.info("starting process termination on: " + id + " @ " + ip);
-                            scriptExecutor.executeStopProcess(ip, processName);
-                            executionStateCache.setHealProcess(true);
-                            executionStateCache.addUnHealthyInstance(instances.get(i));
-                        });
+        fanOutExecutor.executeAll(TargetType.SSH, new ArrayList<>(instances.subList(0, numHosts)),
+                CucumberHelperFunctions::describeInstance,
+                instance -> executionStateCache.injectFault(() -> {
+                    String ip = instance.getPrivateIpAddress();
+                    String id = instance.getInstanceId();
+                    logger.info("starting process termination on: " + id + " @ " + ip);
+                    executionStateCache.setHealProcess(true);
+                    executionStateCache.addUnHealthyInstance(instance);
+                    scriptExecutor.executeStopProcess(ip, processName);
+                }));
     }
 
     /**
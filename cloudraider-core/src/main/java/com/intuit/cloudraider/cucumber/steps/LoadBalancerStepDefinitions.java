@@ -24,6 +24,8 @@
 
 package com.intuit.cloudraider.cucumber.steps;
 
+import com.amazonaws.services.elasticloadbalancingv2.model.TargetDescription;
+import com.intuit.cloudraider.commons.ConvergenceWaiter;
 import com.intuit.cloudraider.core.impl.ApplicationLoadBalancerRaiderImpl;
 import com.intuit.cloudraider.core.impl.LoadBalancerRaiderImpl;
 import com.intuit.cloudraider.core.interfaces.EC2Raider;
@@ -31,6 +33,7 @@ import com.intuit.cloudraider.core.interfaces.LoadBalancerRaider;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
 import com.intuit.cloudraider.model.Credentials;
 import com.intuit.cloudraider.model.EC2InstanceTO;
+import com.intuit.cloudraider.utils.ConfigUtils;
 import com.intuit.cloudraider.utils.Ec2Utils;
 import com.intuit.cloudraider.utils.Randomizer;
 import cucumber.api.java.en.Given;
@@ -45,6 +48,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -272,8 +276,33 @@ public class LoadBalancerStepDefinitions {
      */
     @Then("^assertEC2 healthy host count = (\\d+)$")
     public void assertHealthyHostCount(int expected) throws Throwable {
-        logger.info("healthy host count " + findAllInServiceInstances().size());
-        Assert.assertTrue("Healthy host count mismatched ", this.confirmHealthyHostCount(expected));
+        int healthyHostCount = findAllInServiceInstances().size();
+        logger.info("healthy host count " + healthyHostCount);
+        Assert.assertTrue("Healthy host count mismatched ", healthyHostCount == expected);
+    }
+
+    /**
+     * Assert that the number of healthy hosts attached to the load balancer reaches what is expected within the
+     * given time, polling with an exponential backoff. The time it took is recorded in the execution state cache.
+     *
+     * @param expected expected number of healthy hosts
+     * @param seconds  max time to wait in seconds
+     */
+    @Then("^assertEC2 healthy host count = (\\d+) within (\\d+) seconds$")
+    public void assertHealthyHostCountWithin(int expected, int seconds) throws Throwable {
+        ConvergenceWaiter waiter = new ConvergenceWaiter(
+                ConfigUtils.getLongProperty(ConvergenceWaiter.INITIAL_DELAY_PROPERTY, ConvergenceWaiter.DEFAULT_INITIAL_DELAY_MILLIS),
+                ConfigUtils.getLongProperty(ConvergenceWaiter.MAX_DELAY_PROPERTY, ConvergenceWaiter.DEFAULT_MAX_DELAY_MILLIS));
+        String description = "healthy host count of " + executionStateCache.getLoadBalancerName() + " = " + expected;
+
+        ConvergenceWaiter.Result<Integer> result = waiter.await(description, () -> findAllInServiceInstances().size(),
+                count -> count == expected, TimeUnit.SECONDS.toMillis(seconds));
+
+        if (result.isConverged()) {
+            executionStateCache.recordConvergenceTime(description, result.getElapsedMillis());
+        }
+        Assert.assertTrue("Healthy host count mismatched, expected " + expected + " within " + seconds
+                + " seconds but was " + result.getValue(), result.isConverged());
     }
 
     /**
@@ -313,7 +342,7 @@ public class LoadBalancerStepDefinitions {
         list.add(instanceID);
         logger.info("Detaching instance  " + instanceID + " from " + executionStateCache.getLoadBalancerName());
         executionStateCache.addDeregisteredInstance(executionStateCache.findEC2InstanceGivenID(instanceID));
-        loadBalancerRaider.deregisterInstancesFromLoadBalancer(executionStateCache.getLoadBalancerName(), list);
+        deregisterInstances(list);
     }
 
     /**
@@ -336,7 +365,7 @@ public class LoadBalancerStepDefinitions {
             instanceList = instances.subList(0,numInstances);
         }
 
-        loadBalancerRaider.deregisterInstancesFromLoadBalancer(executionStateCache.getLoadBalancerName(), Ec2Utils.generateInstanceIdList(instanceList));
+        deregisterInstances(Ec2Utils.generateInstanceIdList(instanceList));
         executionStateCache.addDeregisteredInstance(instanceList);
 
         return this;
@@ -369,7 +398,7 @@ public class LoadBalancerStepDefinitions {
         logger.info("Detaching instances " + instanceList.stream().map(x -> x.getInstanceId()).collect(Collectors.toList())
                 + " from " + executionStateCache.getLoadBalancerName());
 
-        loadBalancerRaider.deregisterInstancesFromLoadBalancer(executionStateCache.getLoadBalancerName(), Ec2Utils.generateInstanceIdList(instanceList));
+        deregisterInstances(Ec2Utils.generateInstanceIdList(instanceList));
         executionStateCache.addDeregisteredInstance(instanceList);
 
         return this;
@@ -398,7 +427,7 @@ public class LoadBalancerStepDefinitions {
         }
 
 
-        loadBalancerRaider.deregisterInstancesFromLoadBalancer(executionStateCache.getLoadBalancerName(),Ec2Utils.generateInstanceIdList(instanceList));
+        deregisterInstances(Ec2Utils.generateInstanceIdList(instanceList));
         executionStateCache.addDeregisteredInstance(instanceList);
 
         return this;
@@ -408,6 +437,14 @@ public class LoadBalancerStepDefinitions {
 
     @When("^attach unregistered instances$")
     public LoadBalancerStepDefinitions registerInstances() {
+        Map<String, List<TargetDescription>> deregisteredTargets = executionStateCache.getDeregisteredTargets();
+        if (loadBalancerRaider == applicationLoadBalancerRaider && !deregisteredTargets.isEmpty()) {
+            applicationLoadBalancerRaider.registerTargets(deregisteredTargets);
+            executionStateCache.clearDeregisteredTargets();
+            executionStateCache.clearDeregisteredInstance();
+            return this;
+        }
+
         List<EC2InstanceTO> instances = executionStateCache.getDeregistedInstance();
         if (instances == null || instances.isEmpty()) {
             throw new RuntimeException("No Instances are available");
@@ -419,6 +456,22 @@ public class LoadBalancerStepDefinitions {
         return this;
     }
 
+    /**
+     * De-registers the instances from the load balancer. For an ALB/NLB they are removed from every target group in one
+     * request per group and the removed targets are kept so that attaching them back is a single step, including the
+     * groups that were removed from when the request for another group failed.
+     *
+     * @param instanceIds list of instance ids
+     */
+    private void deregisterInstances(List<String> instanceIds) {
+        if (loadBalancerRaider == applicationLoadBalancerRaider) {
+            applicationLoadBalancerRaider.deregisterTargets(executionStateCache.getLoadBalancerName(), instanceIds,
+                    executionStateCache::addDeregisteredTargets);
+        } else {
+            loadBalancerRaider.deregisterInstancesFromLoadBalancer(executionStateCache.getLoadBalancerName(), instanceIds);
+        }
+    }
+
     /**
      * Checks if the number of unhealthy hosts matches what is expected.
      *
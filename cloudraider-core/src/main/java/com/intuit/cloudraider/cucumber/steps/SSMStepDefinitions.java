@@ -24,11 +24,13 @@
 
 package com.intuit.cloudraider.cucumber.steps;
 
+import com.intuit.cloudraider.commons.SsmCompletionTracker;
 import com.intuit.cloudraider.core.interfaces.SSMRaider;
 import com.intuit.cloudraider.cucumber.interfaces.EC2StepFunctions;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
 import com.intuit.cloudraider.model.Command;
 import com.intuit.cloudraider.model.EC2InstanceTO;
+import com.intuit.cloudraider.model.SsmCommandBatch;
 import com.intuit.cloudraider.utils.CommandUtility;
 import com.intuit.cloudraider.utils.Ec2Utils;
 import cucumber.api.java.en.When;
@@ -40,6 +42,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Cucumber Step Definitions for AWS Systems Manager functionality.
@@ -90,8 +94,8 @@ public class SSMStepDefinitions implements EC2StepFunctions {
         List<EC2InstanceTO> instanceList = getInstancesForExecution(numHosts);
         List<String> commands = Arrays.asList(command.split("\\s*,\\s*"));
 
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
-        executionStateCache.setCommandId(commandId);
+        SsmCommandBatch commandBatch = ssmRaider.sendShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
+        executionStateCache.setSsmCommandBatch(commandBatch);
         executionStateCache.setSsmCommandInvocationInstances(instanceList);
 
         return this;
@@ -106,15 +110,17 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @Override
     public void terminateProcessGivenInstance(String processName, String instanceID, String instanceIP) {
-        List<String> list = new ArrayList<>();
-        list.add(instanceID);
+        executionStateCache.injectFault(() -> {
+            List<String> list = new ArrayList<>();
+            list.add(instanceID);
 
-        executionStateCache.addProcessName(processName);
-        String commandId = ssmRaider.executeShellCommand(list, Command.KILLPROCESS, processName);
+            executionStateCache.addProcessName(processName);
+            executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
+            executionStateCache.setHealProcess(true);
+            SsmCommandBatch commandBatch = ssmRaider.sendShellCommand(list, Command.KILLPROCESS, processName);
 
-        executionStateCache.setCommandId(commandId);
-        executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
-        executionStateCache.setHealProcess(true);
+            executionStateCache.setSsmCommandBatch(commandBatch);
+        });
     }
 
     /**
@@ -126,20 +132,22 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM terminate process  \"([^\"]*)\" on (\\d+) instance$")
     public SSMStepDefinitions terminateCommandOnHealthyInstances(String processName, int numHosts) {
-        List<EC2InstanceTO> instanceList = getInstancesForExecution(numHosts);
+        executionStateCache.injectFault(() -> {
+            List<EC2InstanceTO> instanceList = getInstancesForExecution(numHosts);
 
-        executionStateCache.addProcessName(processName);
-        String commandId = ssmRaider.executeShellCommand(Ec2Utils.generateInstanceIdList(instanceList), Command.KILLPROCESS, processName);
-
-        executionStateCache.setCommandId(commandId);
-        executionStateCache.setSsmCommandInvocationInstances(instanceList);
-        executionStateCache.setHealProcess(true);
+            executionStateCache.addProcessName(processName);
+            executionStateCache.setSsmCommandInvocationInstances(instanceList);
+            executionStateCache.setHealProcess(true);
+            SsmCommandBatch commandBatch = ssmRaider.sendShellCommand(Ec2Utils.generateInstanceIdList(instanceList), Command.KILLPROCESS, processName);
 
+            executionStateCache.setSsmCommandBatch(commandBatch);
+        });
         return this;
     }
 
     /**
-     * Assert that current execution status matches what is expected
+     * Assert that current execution status matches what is expected.
+     * When the expected status is terminal (Success, Failed, ...) it waits for every invocation to complete first.
      *
      * @param expectedCommandStatus expected status
      */
@@ -155,16 +163,53 @@ public class SSMStepDefinitions implements EC2StepFunctions {
             throw new RuntimeException("No instances are available to check command execution status");
         }
 
+        Map<String, String> statuses = SsmCompletionTracker.isTerminal(expectedCommandStatus)
+                ? waitForCommandCompletion()
+                : ssmRaider.getCommandStatuses(getCommandBatch());
+
         instances.stream().forEach(
                 instanceTO ->
                 {
-                    String actualCommandStatus = ssmRaider.getCommandStatus(commandId, instanceTO.getInstanceId());
+                    String actualCommandStatus = statuses.get(instanceTO.getInstanceId());
                     org.testng.Assert.assertEquals(actualCommandStatus, expectedCommandStatus);
                 }
         );
 
     }
 
+    /**
+     * Wait until every invocation of the last sent commands reached a terminal state.
+     *
+     * @return map of instance id to final status
+     */
+    @When("^wait for command completion$")
+    public Map<String, String> waitForCommandCompletion() {
+        try {
+            return ssmRaider.trackCommandCompletion(getCommandBatch()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for command completion", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unable to track command completion: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Gets the batch of the last sent commands, or a single command batch when only the command id is known.
+     */
+    private SsmCommandBatch getCommandBatch() {
+        SsmCommandBatch batch = executionStateCache.getSsmCommandBatch();
+        if (batch != null && !batch.isEmpty()) {
+            return batch;
+        }
+        String commandId = executionStateCache.getCommandId();
+        if (commandId == null || commandId.isEmpty()) {
+            throw new RuntimeException("Missing command-id information, unable to check status");
+        }
+        return new SsmCommandBatch(commandId,
+                Ec2Utils.generateInstanceIdList(executionStateCache.getSsmCommandInvocationInstances()));
+    }
+
     /**
      * Terminate the given process on the specified number of instances within the denoted availability zone.
      *
@@ -175,10 +220,11 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM terminate process  \"([^\"]*)\" on (\\d+) instance in zone \"([^\"]*)\"$")
     public SSMStepDefinitions terminateProcessInAvailabilityZone(String processName, int numHosts, String zoneId) {
-        this.executeCommand(numHosts, Command.KILLPROCESS, processName);
-        executionStateCache.addProcessName(processName);
-        executionStateCache.setHealProcess(true);
-
+        executionStateCache.injectFault(() -> {
+            executionStateCache.addProcessName(processName);
+            executionStateCache.setHealProcess(true);
+            this.executeCommand(numHosts, Command.KILLPROCESS, processName);
+        });
         return this;
     }
 
@@ -191,19 +237,21 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @Override
     public void spikeCPUGivenInstance(int cores, String instanceID, String instanceIP) {
-        List<String> commands = new ArrayList<>();
-        List<String> list = new ArrayList<>();
-        list.add(instanceID);
+        executionStateCache.injectFault(() -> {
+            List<String> commands = new ArrayList<>();
+            List<String> list = new ArrayList<>();
+            list.add(instanceID);
 
-        for (int i = 0; i < cores; i++) {
-            commands.addAll(CommandUtility.getCommandsFromFile(Command.SPIKECPU.getCommandName() + ".txt"));
-        }
+            for (int i = 0; i < cores; i++) {
+                commands.addAll(CommandUtility.getCommandsFromFile(Command.SPIKECPU.getCommandName() + ".txt"));
+            }
 
-        String commandId = ssmRaider.executeShellCommands(list, commands);
+            executionStateCache.setCpuSpiked(true);
+            executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
+            SsmCommandBatch commandBatch = ssmRaider.sendShellCommands(list, commands);
 
-        executionStateCache.setCpuSpiked(true);
-        executionStateCache.setCommandId(commandId);
-        executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
+            executionStateCache.setSsmCommandBatch(commandBatch);
+        });
     }
 
     /**
@@ -225,26 +273,20 @@ public class SSMStepDefinitions implements EC2StepFunctions {
             throw new RuntimeException("Invalid number of cores provided");
         }
 
-        if (numHosts > instances.size()) {
-            numHosts = instances.size();
-        }
-
-        List<EC2InstanceTO> instanceList = instances;
-        if (instanceList.size() != numHosts) {
-            instanceList = instances.subList(0, numHosts);
-        }
+        List<EC2InstanceTO> instanceList = getInstancesForExecution(numHosts);
 
         List<String> commands = new ArrayList<>();
         for (int i = 0; i < cores; i++) {
             commands.addAll(CommandUtility.getCommandsFromFile(Command.SPIKECPU.getCommandName() + ".txt"));
         }
 
-        String commandId = ssmRaider.executeShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
-
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setCpuSpiked(true);
+            executionStateCache.setSsmCommandInvocationInstances(instanceList);
+            SsmCommandBatch commandBatch = ssmRaider.sendShellCommands(Ec2Utils.generateInstanceIdList(instanceList), commands);
 
-        executionStateCache.setCpuSpiked(true);
-        executionStateCache.setCommandId(commandId);
-        executionStateCache.setSsmCommandInvocationInstances(instanceList);
+            executionStateCache.setSsmCommandBatch(commandBatch);
+        });
 
         return this;
     }
@@ -258,10 +300,11 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM terminate process \"([^\"]*)\"$")
     public SSMStepDefinitions terminateProcessOnAllHealthyInstances(String processName) throws Throwable {
-        this.executeCommand(executionStateCache.getInstances().size(), Command.KILLPROCESS, processName);
-        executionStateCache.addProcessName(processName);
-        executionStateCache.setHealProcess(true);
-
+        executionStateCache.injectFault(() -> {
+            executionStateCache.addProcessName(processName);
+            executionStateCache.setHealProcess(true);
+            this.executeCommand(executionStateCache.getInstances().size(), Command.KILLPROCESS, processName);
+        });
         return this;
     }
 
@@ -278,8 +321,8 @@ public class SSMStepDefinitions implements EC2StepFunctions {
         List<String> list = new ArrayList<>();
         list.add(instanceID);
 
-        String commandId = ssmRaider.executeShellCommand(list, Command.DISKFULL, volumeType, String.valueOf(size));
-        executionStateCache.setCommandId(commandId);
+        SsmCommandBatch commandBatch = ssmRaider.sendShellCommand(list, Command.DISKFULL, volumeType, String.valueOf(size));
+        executionStateCache.setSsmCommandBatch(commandBatch);
         executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
     }
 
@@ -310,12 +353,11 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM RAM disk full with (\\d+) GB on (\\d+) instance$")
     public SSMStepDefinitions ramDiskFullOnInstance(int size, int numHosts) throws Throwable {
-
-        this.executeCommand(numHosts, Command.RAMDISKFULL, String.valueOf(size));
-        executionStateCache.setRamDiskFull(true);
-
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setRamDiskFull(true);
+            this.executeCommand(numHosts, Command.RAMDISKFULL, String.valueOf(size));
+        });
         return this;
-
     }
 
     /**
@@ -327,8 +369,10 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM block domain \"([^\"]*)\" on (\\d+) instances$")
     public SSMStepDefinitions blockDomain(String domainName, int numHosts) {
-        this.executeCommand(numHosts, Command.BLOCKDOMAIN, domainName);
-        executionStateCache.getBlockedDomains().add(domainName);
+        executionStateCache.injectFault(() -> {
+            executionStateCache.addBlockedDomain(domainName);
+            this.executeCommand(numHosts, Command.BLOCKDOMAIN, domainName);
+        });
         return this;
     }
 
@@ -342,8 +386,10 @@ public class SSMStepDefinitions implements EC2StepFunctions {
     @When("^SSM block DynamoDB on (\\d+) instances$")
     public SSMStepDefinitions blockDynamoDB( int numHosts)
     {
-        this.executeCommand(numHosts, Command.BLOCKDYNAMODB,null);
-        executionStateCache.setBlockDynamoDB(true);
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setBlockDynamoDB(true);
+            this.executeCommand(numHosts, Command.BLOCKDYNAMODB,null);
+        });
         return this;
     }
 
@@ -357,8 +403,10 @@ public class SSMStepDefinitions implements EC2StepFunctions {
     @When("^SSM block S3 on (\\d+) instances$")
     public SSMStepDefinitions blockS3(int numHosts)
     {
-        this.executeCommand(numHosts, Command.BLOCKS3,null);
-        executionStateCache.setBlockS3(true);
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setBlockS3(true);
+            this.executeCommand(numHosts, Command.BLOCKS3,null);
+        });
         return this;
     }
 
@@ -372,10 +420,11 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM stop (service|process) \"([^\"]*)\" on (\\d+) instance$")
     public SSMStepDefinitions stopProcessOnHealthyInstances(String serviceOrProcessType, String processName, int numHosts) {
-        executionStateCache.addProcessName(processName);
-        this.executeCommand(numHosts, Command.STOPSERVICE, processName);
-        executionStateCache.setHealProcess(true);
-
+        executionStateCache.injectFault(() -> {
+            executionStateCache.addProcessName(processName);
+            executionStateCache.setHealProcess(true);
+            this.executeCommand(numHosts, Command.STOPSERVICE, processName);
+        });
         return this;
     }
 
@@ -403,10 +452,11 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM corrupt network (\\d+) percent on (\\d+) instances$")
     public SSMStepDefinitions corruptNetwork(int corruptPercent, int numHosts) {
-        this.executeCommand(numHosts, Command.CORRUPTNETWORK, String.valueOf(corruptPercent));
-        executionStateCache.setHealNetwork(true);
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setHealNetwork(true);
+            this.executeCommand(numHosts, Command.CORRUPTNETWORK, String.valueOf(corruptPercent));
+        });
         return this;
-
     }
 
     /**
@@ -419,13 +469,15 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @Override
     public void injectNetworkLatencyGivenInstance(int lowerBound, int upperBound, String instanceID, String instanceIP) {
-        List<String> list = new ArrayList<>();
-        list.add(instanceID);
-
-        String commandId = ssmRaider.executeShellCommand(list, Command.DELAYNETWORK, String.valueOf(lowerBound), String.valueOf(upperBound));
-        executionStateCache.setCommandId(commandId);
-        executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
-        executionStateCache.setHealNetwork(true);
+        executionStateCache.injectFault(() -> {
+            List<String> list = new ArrayList<>();
+            list.add(instanceID);
+
+            executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
+            executionStateCache.setHealNetwork(true);
+            SsmCommandBatch commandBatch = ssmRaider.sendShellCommand(list, Command.DELAYNETWORK, String.valueOf(lowerBound), String.valueOf(upperBound));
+            executionStateCache.setSsmCommandBatch(commandBatch);
+        });
     }
 
     /**
@@ -438,12 +490,11 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM inject network latency (\\d+) ms to (\\d+) ms on (\\d+) instances$")
     public SSMStepDefinitions injectNetworkLatency(int lowerBound, int upperBound, int numHosts) {
-
-        this.executeCommand(numHosts, Command.DELAYNETWORK, String.valueOf(lowerBound), String.valueOf(upperBound));
-        executionStateCache.setHealNetwork(true);
-
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setHealNetwork(true);
+            this.executeCommand(numHosts, Command.DELAYNETWORK, String.valueOf(lowerBound), String.valueOf(upperBound));
+        });
         return this;
-
     }
 
     /**
@@ -455,8 +506,10 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM inject network packet loss (\\d+) percent on (\\d+) instances$")
     public SSMStepDefinitions injectPacketLoss(int percentLoss, int numHosts) {
-        this.executeCommand(numHosts, Command.PACKETLOSS, String.valueOf(percentLoss));
-        executionStateCache.setHealNetwork(true);
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setHealNetwork(true);
+            this.executeCommand(numHosts, Command.PACKETLOSS, String.valueOf(percentLoss));
+        });
         return this;
     }
 
@@ -469,14 +522,16 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @Override
     public void blockPortGivenInstance(int portNum, String instanceID, String instanceIP) {
-        List<String> list = new ArrayList<>();
-        list.add(instanceID);
-
-        String commandId = ssmRaider.executeShellCommand(list, Command.BLOCKPORT, String.valueOf(portNum));
-        executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
-        executionStateCache.setCommandId(commandId);
-        executionStateCache.setBlockPort(true);
-        executionStateCache.addPortNum(portNum);
+        executionStateCache.injectFault(() -> {
+            List<String> list = new ArrayList<>();
+            list.add(instanceID);
+
+            executionStateCache.addSsmCommandInvocationInstances(executionStateCache.findEC2InstanceGivenID(instanceID));
+            executionStateCache.setBlockPort(true);
+            executionStateCache.addPortNum(portNum);
+            SsmCommandBatch commandBatch = ssmRaider.sendShellCommand(list, Command.BLOCKPORT, String.valueOf(portNum));
+            executionStateCache.setSsmCommandBatch(commandBatch);
+        });
     }
 
     /**
@@ -488,9 +543,11 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM block network port (\\d+) on (\\d+) instances$")
     public SSMStepDefinitions blockPort(int portNum, int numHosts) {
-        this.executeCommand(numHosts, Command.BLOCKPORT, String.valueOf(portNum));
-        executionStateCache.setBlockPort(true);
-        executionStateCache.addPortNum(portNum);
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setBlockPort(true);
+            executionStateCache.addPortNum(portNum);
+            this.executeCommand(numHosts, Command.BLOCKPORT, String.valueOf(portNum));
+        });
         return this;
     }
 
@@ -503,9 +560,11 @@ public class SSMStepDefinitions implements EC2StepFunctions {
      */
     @When("^SSM block outbound network port (\\d+) on (\\d+) instances$")
     public SSMStepDefinitions blockOutboundPort(int portNum, int numHosts) {
-        this.executeCommand(numHosts, Command.BLOCKOUTBOUNDPORT, String.valueOf(portNum));
-        executionStateCache.setBlockPort(true);
-        executionStateCache.addPortNum(portNum);
+        executionStateCache.injectFault(() -> {
+            executionStateCache.setBlockPort(true);
+            executionStateCache.addPortNum(portNum);
+            this.executeCommand(numHosts, Command.BLOCKOUTBOUNDPORT, String.valueOf(portNum));
+        });
         return this;
     }
 
@@ -532,10 +591,10 @@ public class SSMStepDefinitions implements EC2StepFunctions {
             instanceList = instances.subList(0, numHosts);
         }
 
-        String commandId = ssmRaider.executeShellCommand(Ec2Utils.generateInstanceIdList(instanceList), command, params);
-
-        executionStateCache.setCommandId(commandId);
         executionStateCache.setSsmCommandInvocationInstances(instanceList);
+        SsmCommandBatch commandBatch = ssmRaider.sendShellCommand(Ec2Utils.generateInstanceIdList(instanceList), command, params);
+
+        executionStateCache.setSsmCommandBatch(commandBatch);
     }
 
     /**
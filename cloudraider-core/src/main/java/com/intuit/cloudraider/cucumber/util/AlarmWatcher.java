@@ -0,0 +1,272 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.cucumber.util;
+
+import com.amazonaws.services.cloudwatch.model.MetricAlarm;
+import com.google.common.base.Splitter;
+import com.intuit.cloudraider.commons.CloudWatchAlarmIndex;
+import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Watches a set of guardrail CloudWatch alarms in the background while a fault is active and aborts the experiment
+ * as soon as one of them enters ALARM, instead of waiting for the next step to check the alarms.
+ * <p>
+ * Once armed with guardrail alarms (config property cloudraider.alarmWatcher.alarms, comma separated, or
+ * setGuardrailAlarms) the watcher ticks every cloudraider.alarmWatcher.pollIntervalMillis (default 1000) plus a random
+ * jitter of up to cloudraider.alarmWatcher.jitterMillis (default 200). A tick only describes the alarms, in one
+ * batched call, when ExecutionStateCache reports a recoverable fault. The first guardrail alarm found in ALARM runs
+ * every registered abort callback once and disarms the watcher.
+ * <p>
+ * Like ExecutionStateCache the watcher is scenario scoped, so each scenario watches its own guardrails and faults.
+ */
+@Component("alarmWatcher")
+@Scope(ExecutionStateCache.SCENARIO_SCOPE)
+public class AlarmWatcher {
+
+    /**
+     * The constant ALARMS_PROPERTY.
+     */
+    public static final String ALARMS_PROPERTY = "cloudraider.alarmWatcher.alarms";
+    /**
+     * The constant POLL_INTERVAL_PROPERTY.
+     */
+    public static final String POLL_INTERVAL_PROPERTY = "cloudraider.alarmWatcher.pollIntervalMillis";
+    /**
+     * The constant JITTER_PROPERTY.
+     */
+    public static final String JITTER_PROPERTY = "cloudraider.alarmWatcher.jitterMillis";
+
+    private static final String ALARM_STATE = "ALARM";
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private CloudWatchAlarmIndex cloudWatchAlarmIndex;
+
+    @Autowired
+    private ExecutionStateCache executionStateCache;
+
+    private final Set<String> guardrailAlarms = new CopyOnWriteArraySet<>();
+    private final Map<String, Consumer<List<String>>> abortCallbacks = new ConcurrentHashMap<>();
+    private final List<String> triggeredAlarms = new CopyOnWriteArrayList<>();
+    private volatile long pollIntervalMillis = 1000;
+    private volatile long jitterMillis = 200;
+    private volatile boolean armed;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> tick;
+
+    /**
+     * Instantiates a new Alarm watcher.
+     */
+    public AlarmWatcher() {
+    }
+
+    @PostConstruct
+    private void init() {
+        pollIntervalMillis = Math.max(1, ConfigUtils.getLongProperty(POLL_INTERVAL_PROPERTY, pollIntervalMillis));
+        jitterMillis = Math.max(0, ConfigUtils.getLongProperty(JITTER_PROPERTY, jitterMillis));
+        String alarms = ConfigUtils.getConfigProperties().getProperty(ALARMS_PROPERTY, "");
+        setGuardrailAlarms(Splitter.on(',').trimResults().omitEmptyStrings().splitToList(alarms));
+    }
+
+    /**
+     * Sets the alarms to watch and arms the watcher, disarms it if there are none.
+     *
+     * @param alarmNames alarm names
+     */
+    public synchronized void setGuardrailAlarms(Collection<String> alarmNames) {
+        guardrailAlarms.clear();
+        guardrailAlarms.addAll(alarmNames);
+        if (guardrailAlarms.isEmpty()) {
+            stop();
+        } else {
+            start();
+        }
+    }
+
+    /**
+     * Gets the alarms being watched.
+     *
+     * @return alarm names
+     */
+    public Set<String> getGuardrailAlarms() {
+        return Collections.unmodifiableSet(guardrailAlarms);
+    }
+
+    /**
+     * Register a callback run when a guardrail alarm enters ALARM, replacing any callback with the same name.
+     *
+     * @param name     callback name
+     * @param callback receives the names of the alarms in ALARM
+     */
+    public void registerAbortCallback(String name, Consumer<List<String>> callback) {
+        abortCallbacks.put(name, callback);
+    }
+
+    /**
+     * Unregister an abort callback.
+     *
+     * @param name callback name
+     */
+    public void unregisterAbortCallback(String name) {
+        abortCallbacks.remove(name);
+    }
+
+    /**
+     * Arm the watcher, forgetting alarms that triggered before. No-op without guardrail alarms.
+     */
+    public synchronized void start() {
+        if (guardrailAlarms.isEmpty()) {
+            logger.debug("AlarmWatcher: no guardrail alarms configured");
+            return;
+        }
+        triggeredAlarms.clear();
+        armed = true;
+        if (tick == null) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "cloudraider-alarm-watcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            scheduleNext(0);
+        }
+    }
+
+    /**
+     * Disarm the watcher.
+     */
+    public synchronized void stop() {
+        armed = false;
+        if (tick != null) {
+            tick.cancel(false);
+            tick = null;
+        }
+    }
+
+    /**
+     * Whether the watcher is armed.
+     *
+     * @return true if armed
+     */
+    public boolean isArmed() {
+        return armed;
+    }
+
+    /**
+     * Whether a guardrail alarm triggered an abort since the watcher was last armed.
+     *
+     * @return true if aborted
+     */
+    public boolean isAborted() {
+        return !triggeredAlarms.isEmpty();
+    }
+
+    /**
+     * Gets the guardrail alarms that triggered the abort.
+     *
+     * @return alarm names
+     */
+    public List<String> getTriggeredAlarms() {
+        return new ArrayList<>(triggeredAlarms);
+    }
+
+    @PreDestroy
+    private synchronized void shutdown() {
+        stop();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Single poll: describe the guardrail alarms if a fault is active and abort if any is in ALARM.
+     */
+    void poll() {
+        if (!armed || !executionStateCache.hasRecoverableFaults()) {
+            return;
+        }
+        Map<String, MetricAlarm> alarms = cloudWatchAlarmIndex.refreshAlarms(guardrailAlarms);
+        List<String> inAlarm = alarms.values().stream()
+                .filter(alarm -> ALARM_STATE.equalsIgnoreCase(alarm.getStateValue()))
+                .map(MetricAlarm::getAlarmName)
+                .collect(Collectors.toList());
+        if (!inAlarm.isEmpty()) {
+            abort(inAlarm);
+        }
+    }
+
+    private void abort(List<String> inAlarm) {
+        synchronized (this) {
+            if (!armed) {
+                return;
+            }
+            stop();
+            triggeredAlarms.addAll(inAlarm);
+        }
+        logger.error("AlarmWatcher: guardrail alarms " + inAlarm + " in ALARM, aborting experiment");
+        abortCallbacks.forEach((name, callback) -> {
+            try {
+                callback.accept(inAlarm);
+            } catch (Exception e) {
+                logger.error("AlarmWatcher: abort callback " + name + " failed", e);
+            }
+        });
+    }
+
+    private synchronized void scheduleNext(long delayMillis) {
+        if (!armed || scheduler == null) {
+            tick = null;
+            return;
+        }
+        tick = scheduler.schedule(() -> {
+            try {
+                poll();
+            } catch (Exception e) {
+                logger.warn("AlarmWatcher: unable to describe guardrail alarms " + guardrailAlarms, e);
+            }
+            scheduleNext(pollIntervalMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0));
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
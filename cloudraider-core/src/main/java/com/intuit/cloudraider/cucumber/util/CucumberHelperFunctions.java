@@ -25,6 +25,7 @@
 package com.intuit.cloudraider.cucumber.util;
 
 import com.amazonaws.services.ec2.model.Tag;
+import com.intuit.cloudraider.model.EC2InstanceTO;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -87,4 +88,14 @@ public class CucumberHelperFunctions {
         return flag;
     }
 
+    /**
+     * Short description of the instance for logs and failure messages.
+     *
+     * @param instance instance
+     * @return "instance id @ private ip"
+     */
+    public static String describeInstance(EC2InstanceTO instance) {
+        return instance.getInstanceId() + " @ " + instance.getPrivateIpAddress();
+    }
+
 }
@@ -0,0 +1,405 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.cucumber.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.model.FaultJournalEntry;
+import com.intuit.cloudraider.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal on local disk of every fault injected and healed, so the faults a killed run left behind can be
+ * healed by a new process instead of by hand.
+ * <p>
+ * The journal is compacted when it is opened, keeping only the last record of every scenario with outstanding faults,
+ * and emptied as soon as no fault it records is outstanding, so it does not grow from run to run.
+ * <p>
+ * Each record is the length and CRC32 of its payload followed by the payload, a FaultJournalEntry as JSON. Records are
+ * written as soon as they are appended, which survives the death of the JVM, and forced to disk in batches at most
+ * every cloudraider.faultJournal.syncIntervalMillis (default 200), which bounds what a host crash can lose. The
+ * journal is enabled by setting cloudraider.faultJournal.path. Replay memory-maps the file and stops at the first
+ * torn record, which is truncated away before anything new is appended.
+ */
+@Component("faultJournal")
+public class FaultJournal {
+
+    /**
+     * The constant PATH_PROPERTY.
+     */
+    public static final String PATH_PROPERTY = "cloudraider.faultJournal.path";
+    /**
+     * The constant SYNC_INTERVAL_PROPERTY.
+     */
+    public static final String SYNC_INTERVAL_PROPERTY = "cloudraider.faultJournal.syncIntervalMillis";
+
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private volatile Path path;
+    private volatile long syncIntervalMillis = 200;
+
+    private FileChannel channel;
+    private final Set<String> outstandingIds = new HashSet<>();
+    private boolean dirty;
+    private boolean syncScheduled;
+    private ScheduledExecutorService syncer;
+
+    /**
+     * Instantiates a new Fault journal.
+     */
+    public FaultJournal() {
+    }
+
+    @PostConstruct
+    private void init() {
+        syncIntervalMillis = Math.max(0, ConfigUtils.getLongProperty(SYNC_INTERVAL_PROPERTY, syncIntervalMillis));
+        String configuredPath = ConfigUtils.getConfigProperties().getProperty(PATH_PROPERTY, "").trim();
+        if (!configuredPath.isEmpty()) {
+            setPath(Paths.get(configuredPath));
+        }
+    }
+
+    /**
+     * Gets the journal file, null when journaling is disabled.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Sets the journal file, null disables journaling.
+     *
+     * @param path the path
+     */
+    public synchronized void setPath(Path path) {
+        closeChannel();
+        this.path = path;
+    }
+
+    /**
+     * Sets the max time between a record being written and being forced to disk, 0 forces every record.
+     *
+     * @param syncIntervalMillis sync interval in millis
+     */
+    public void setSyncIntervalMillis(long syncIntervalMillis) {
+        this.syncIntervalMillis = Math.max(0, syncIntervalMillis);
+    }
+
+    /**
+     * Is journaling enabled.
+     *
+     * @return the boolean
+     */
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * Record the recoverable faults currently held by the execution state cache.
+     *
+     * @param journalId           id of the scenario the faults belong to
+     * @param executionStateCache execution state cache
+     */
+    public void recordInject(String journalId, ExecutionStateCache executionStateCache) {
+        if (isEnabled()) {
+            append(FaultJournalEntry.inject(journalId, executionStateCache));
+        }
+    }
+
+    /**
+     * Record that the faults of a scenario were healed.
+     *
+     * @param journalId id of the scenario the faults belong to
+     */
+    public void recordHeal(String journalId) {
+        if (isEnabled()) {
+            append(FaultJournalEntry.heal(journalId));
+        }
+    }
+
+    /**
+     * Append a record to the journal. A record that cannot be written is logged, it never fails the experiment.
+     *
+     * @param entry journal entry
+     */
+    public synchronized void append(FaultJournalEntry entry) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        try {
+            FileChannel fileChannel = openChannel();
+            write(fileChannel, entry);
+            dirty = true;
+
+            if (entry.getEvent() == FaultJournalEntry.Event.INJECT) {
+                outstandingIds.add(entry.getJournalId());
+            } else {
+                outstandingIds.remove(entry.getJournalId());
+                if (outstandingIds.isEmpty()) {
+                    // nothing left to heal, the records are of no use to a later run
+                    fileChannel.truncate(0);
+                }
+            }
+
+            if (syncIntervalMillis == 0) {
+                sync();
+            } else {
+                scheduleSync();
+            }
+        } catch (IOException e) {
+            logger.error("FaultJournal: unable to record " + entry.getEvent() + " of " + entry.getJournalId() + " in " + path, e);
+        }
+    }
+
+    /**
+     * Force every record written so far to disk.
+     */
+    public synchronized void sync() {
+        syncScheduled = false;
+        if (!dirty || channel == null) {
+            return;
+        }
+
+        try {
+            channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            logger.error("FaultJournal: unable to sync " + path, e);
+        }
+    }
+
+    /**
+     * Read every intact record of the journal, in the order they were appended.
+     *
+     * @return journal entries
+     */
+    public List<FaultJournalEntry> replay() {
+        List<FaultJournalEntry> entries = new ArrayList<>();
+        Path journalPath = path;
+        if (journalPath == null || !Files.exists(journalPath)) {
+            return entries;
+        }
+
+        try {
+            read(journalPath, entries);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to replay fault journal " + journalPath, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Rebuild, from the journal, the faults that were injected and never healed, keyed by the id of their scenario.
+     *
+     * @return the last inject entry of every scenario with outstanding faults
+     */
+    public Map<String, FaultJournalEntry> getOutstandingFaults() {
+        return getOutstandingFaults(replay());
+    }
+
+    /**
+     * Sync and close the journal file.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        closeChannel();
+        if (syncer != null) {
+            syncer.shutdownNow();
+            syncer = null;
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            List<FaultJournalEntry> entries = new ArrayList<>();
+            long validLength = Files.exists(path) ? read(path, entries) : 0;
+            Map<String, FaultJournalEntry> outstanding = getOutstandingFaults(entries);
+            if (entries.size() > outstanding.size() || (Files.exists(path) && Files.size(path) > validLength)) {
+                compact(outstanding.values());
+            }
+
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            outstandingIds.clear();
+            outstandingIds.addAll(outstanding.keySet());
+        }
+        return channel;
+    }
+
+    /**
+     * Replace the journal with the given records, written to a temporary file first so a crash leaves either the old
+     * or the new journal.
+     *
+     * @param entries records to keep
+     */
+    private void compact(Collection<FaultJournalEntry> entries) throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel compactChannel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (FaultJournalEntry entry : entries) {
+                write(compactChannel, entry);
+            }
+            compactChannel.force(false);
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("FaultJournal: compacted " + path + " to " + entries.size() + " outstanding records");
+    }
+
+    private void write(FileChannel fileChannel, FaultJournalEntry entry) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(entry);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        byte[] bytes = new byte[HEADER_BYTES + payload.length];
+        ByteBuffer.wrap(bytes).putInt(payload.length).putLong(crc.getValue()).put(payload);
+        ByteBuffer record = ByteBuffer.wrap(bytes);
+        while (record.hasRemaining()) {
+            fileChannel.write(record);
+        }
+    }
+
+    private static Map<String, FaultJournalEntry> getOutstandingFaults(List<FaultJournalEntry> entries) {
+        Map<String, FaultJournalEntry> outstanding = new LinkedHashMap<>();
+        for (FaultJournalEntry entry : entries) {
+            if (entry.getEvent() == FaultJournalEntry.Event.INJECT) {
+                outstanding.put(entry.getJournalId(), entry);
+            } else {
+                outstanding.remove(entry.getJournalId());
+            }
+        }
+        return outstanding;
+    }
+
+    private void closeChannel() {
+        sync();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("FaultJournal: unable to close " + path, e);
+            }
+            channel = null;
+        }
+    }
+
+    private void scheduleSync() {
+        if (syncScheduled) {
+            return;
+        }
+
+        if (syncer == null) {
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "cloudraider-fault-journal");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        syncScheduled = true;
+        syncer.schedule(this::sync, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Memory-map the journal and decode its intact records.
+     *
+     * @param journalPath journal file
+     * @param entries     receives the decoded entries, null to only validate them
+     * @return length of the intact part of the journal
+     */
+    private long read(Path journalPath, List<FaultJournalEntry> entries) throws IOException {
+        try (FileChannel readChannel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            long size = readChannel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Fault journal " + journalPath + " is too large to replay: " + size + " bytes");
+            }
+
+            // typed as Buffer where repositioning, so the class also runs on Java 8 when built by a newer JDK
+            ByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                long checksum = buffer.getLong();
+                if (length < 0 || length > MAX_RECORD_BYTES || length > buffer.remaining()) {
+                    ((Buffer) buffer).position(start);
+                    break;
+                }
+
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    ((Buffer) buffer).position(start);
+                    break;
+                }
+
+                if (entries != null) {
+                    entries.add(objectMapper.readValue(payload, FaultJournalEntry.class));
+                }
+            }
+
+            if (buffer.hasRemaining()) {
+                logger.warn("FaultJournal: ignoring " + buffer.remaining() + " bytes of torn records at the end of " + journalPath);
+            }
+            return buffer.position();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.cucumber.util;
+
+import com.amazonaws.services.simplesystemsmanagement.model.CommandInvocationStatus;
+import com.intuit.cloudraider.commons.FanOutExecutor;
+import com.intuit.cloudraider.commons.FanOutExecutor.TargetType;
+import com.intuit.cloudraider.core.interfaces.SSMRaider;
+import com.intuit.cloudraider.core.interfaces.SystemRaider;
+import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.model.HealAction;
+import com.intuit.cloudraider.cucumber.model.HealAction.Category;
+import com.intuit.cloudraider.cucumber.model.RecoveryReport;
+import com.intuit.cloudraider.cucumber.model.RecoveryReport.ActionResult;
+import com.intuit.cloudraider.model.Actions;
+import com.intuit.cloudraider.model.Command;
+import com.intuit.cloudraider.model.EC2InstanceTO;
+import com.intuit.cloudraider.model.ScriptExecutionResult;
+import com.intuit.cloudraider.model.SsmCommandBatch;
+import com.intuit.cloudraider.utils.CommandUtility;
+import com.intuit.cloudraider.utils.Ec2Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Plans and runs the recovery of every fault recorded in an ExecutionStateCache.
+ * <p>
+ * The heal actions are ordered by the dependencies between their categories (processes are restarted last, once the
+ * network, ports, domains and resources they need are healed). Over SSH all the heal actions of a host are merged into
+ * one script run in a single invocation, and independent hosts are healed concurrently. Over SSM all the heal commands
+ * are sent to every instance in one invocation. Either way each action runs in its own subshell and reports its exit
+ * status on stdout, which gives the result of every action.
+ * <p>
+ * Both paths fail the same way: a host the heal could not run on at all (unreachable over SSH, or an SSM invocation
+ * not sent or not completed with Success) is an error of the report, while an action that ran and failed is only a
+ * failed action result. The report also holds the total time to recover.
+ */
+@Component("recoveryPlanner")
+public class RecoveryPlanner {
+
+    private static final String RESULT_MARKER = "cloudraider-heal-result";
+    private static final Pattern RESULT_PATTERN = Pattern.compile(RESULT_MARKER + " (\\d+) (\\d+)");
+    private static final String SSM_SUCCESS_STATUS = CommandInvocationStatus.Success.toString();
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    @Qualifier("systemRaiderBean")
+    private SystemRaider systemRaider;
+
+    @Autowired
+    @Qualifier("ssmRaiderBean")
+    private SSMRaider ssmRaider;
+
+    @Autowired
+    @Qualifier("scriptRegistry")
+    private ScriptRegistry scriptRegistry;
+
+    @Autowired
+    @Qualifier("fanOutExecutor")
+    private FanOutExecutor fanOutExecutor;
+
+    /**
+     * Instantiates a new Recovery planner.
+     */
+    public RecoveryPlanner() {
+    }
+
+    /**
+     * Heal every fault recorded in the execution state cache.
+     *
+     * @param executionStateCache execution state cache
+     * @return the recovery report
+     */
+    public RecoveryReport recover(ExecutionStateCache executionStateCache) {
+        long start = System.nanoTime();
+        List<EC2InstanceTO> ssmInstances = executionStateCache.getSsmCommandInvocationInstances();
+        boolean isSSM = !ssmInstances.isEmpty();
+        List<HealAction> actions = plan(executionStateCache, isSSM);
+
+        RecoveryReport report = new RecoveryReport();
+        if (!actions.isEmpty()) {
+            logger.info("RecoveryPlanner: healing " + actions + (isSSM ? " over SSM" : " over SSH"));
+            if (isSSM) {
+                healOverSSM(ssmInstances, actions, report);
+            } else {
+                healOverSSH(executionStateCache.getUnhealthyInstances(), actions, report);
+            }
+        }
+        report.setTotalMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        logger.info("RecoveryPlanner: " + report);
+        report.getFailedActions().forEach(result -> logger.warn("RecoveryPlanner: " + result));
+        return report;
+    }
+
+    /**
+     * Build the heal actions for the faults recorded in the execution state cache, in the order they must run on a host.
+     *
+     * @param executionStateCache execution state cache
+     * @param isSSM               whether the faults are healed over SSM instead of SSH
+     * @return ordered heal actions
+     */
+    public List<HealAction> plan(ExecutionStateCache executionStateCache, boolean isSSM) {
+        List<HealAction> actions = new ArrayList<>();
+
+        if (executionStateCache.isHealNetwork()) {
+            actions.add(new HealAction(Category.NETWORK, "clear network failures", "clear-networkfailures",
+                    null, ssmCommands(isSSM, "clear-networkfailuresCommand.txt")));
+        }
+        for (String domain : executionStateCache.getBlockedDomains()) {
+            actions.add(new HealAction(Category.DOMAIN, "unblock domain " + domain, Actions.UNBLOCKDOMAIN.getActionName(),
+                    Collections.singletonList(domain), ssmCommands(isSSM, Command.UNBLOCKDOMAIN.getCommandName() + ".txt", domain)));
+        }
+        if (executionStateCache.isBlockPort()) {
+            for (Integer port : executionStateCache.getPortNums()) {
+                String portNum = String.valueOf(port);
+                actions.add(new HealAction(Category.PORT, "unblock port " + portNum, Actions.UNBLOCKPORT.getActionName(),
+                        Collections.singletonList(portNum), ssmCommands(isSSM, Command.UNBLOCKPORT.getCommandName() + ".txt", portNum)));
+            }
+        }
+        if (executionStateCache.isBlockDynamoDB()) {
+            actions.add(new HealAction(Category.DYNAMODB, "unblock DynamoDB", Actions.UNBLOCKDYNAMO.getActionName(),
+                    null, ssmCommands(isSSM, Command.UNBLOCKDYNAMODB.getCommandName() + ".txt")));
+        }
+        if (executionStateCache.isBlockS3()) {
+            actions.add(new HealAction(Category.S3, "unblock S3", Actions.UNBLOCKS3.getActionName(),
+                    null, ssmCommands(isSSM, Command.UNBLOCKS3.getCommandName() + ".txt")));
+        }
+        if (executionStateCache.isCpuSpiked()) {
+            actions.add(new HealAction(Category.CPU, "stop CPU spike", "killcpuspike",
+                    null, ssmCommands(isSSM, "killcpuspikeCommand.txt")));
+        }
+        if (executionStateCache.isRamDiskFull()) {
+            actions.add(new HealAction(Category.RAM_DISK, "clear RAM disk", "clear-ramdiskfull",
+                    null, Collections.singletonList("sudo rm /dev/shm/remove_me")));
+        }
+        if (executionStateCache.isHealProcess()) {
+            for (String process : executionStateCache.getProcessNames()) {
+                actions.add(new HealAction(Category.PROCESS, "restart process " + process, "healInstance",
+                        Collections.singletonList(process), ssmCommands(isSSM, "healCommand.txt", process)));
+            }
+        }
+
+        List<Category> order = orderCategories();
+        actions.sort(Comparator.comparingInt(action -> order.indexOf(action.getCategory())));
+        return actions;
+    }
+
+    /**
+     * Order the categories so every category comes after the ones it depends on.
+     *
+     * @return ordered categories
+     */
+    static List<Category> orderCategories() {
+        List<Category> ordered = new ArrayList<>();
+        Set<Category> remaining = EnumSet.allOf(Category.class);
+        while (!remaining.isEmpty()) {
+            Category next = remaining.stream()
+                    .filter(category -> ordered.containsAll(category.getDependencies()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Cyclic heal action dependencies between " + remaining));
+            ordered.add(next);
+            remaining.remove(next);
+        }
+        return ordered;
+    }
+
+    private List<String> ssmCommands(boolean isSSM, String fileName, String... params) {
+        return isSSM ? CommandUtility.getCommandsFromFile(fileName, params) : null;
+    }
+
+    private void healOverSSM(List<EC2InstanceTO> instances, List<HealAction> actions, RecoveryReport report) {
+        List<String> instanceIds = Ec2Utils.generateInstanceIdList(instances);
+        List<String> commands = buildSsmCommands(actions);
+
+        long start = System.nanoTime();
+        SsmCommandBatch batch;
+        Map<String, String> statuses;
+        try {
+            batch = ssmRaider.sendShellCommands(instanceIds, commands);
+            if (batch == null) {
+                throw new RuntimeException("no command sent");
+            }
+            statuses = ssmRaider.trackCommandCompletion(batch).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failOverSSM(instanceIds, actions, report, "interrupted while waiting for heal commands", start);
+            return;
+        } catch (ExecutionException e) {
+            logger.error("RecoveryPlanner: unable to track heal commands on " + instanceIds, e.getCause());
+            failOverSSM(instanceIds, actions, report, String.valueOf(e.getCause().getMessage()), start);
+            return;
+        } catch (RuntimeException e) {
+            logger.error("RecoveryPlanner: unable to send heal commands to " + instanceIds, e);
+            failOverSSM(instanceIds, actions, report, String.valueOf(e.getMessage()), start);
+            return;
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        List<String> completed = new ArrayList<>();
+        for (String instanceId : instanceIds) {
+            String commandId = batch.getCommandId(instanceId);
+            String status = commandId == null ? null : statuses.get(instanceId);
+            if (SSM_SUCCESS_STATUS.equals(status)) {
+                completed.add(instanceId);
+            } else {
+                String error = commandId == null ? "heal commands could not be sent" : "command " + commandId + " " + status;
+                report.addError("SSM " + instanceId + ": " + error);
+                actions.forEach(action -> report.addActionResult(
+                        new ActionResult(instanceId, action.getName(), false, error, millis)));
+            }
+        }
+
+        FanOutExecutor.FanOutResult<String> result = fanOutExecutor.execute(TargetType.SSM, completed, instanceId -> instanceId,
+                instanceId -> addActionResults(instanceId, actions,
+                        ssmRaider.getCommandStandardOutput(batch.getCommandId(instanceId), instanceId), millis, report));
+
+        result.getFailures().forEach((instanceId, error) -> {
+            report.addError("SSM " + instanceId + ": " + error.getMessage());
+            actions.forEach(action -> report.addActionResult(new ActionResult(instanceId, action.getName(), false,
+                    String.valueOf(error.getMessage()), millis)));
+        });
+    }
+
+    private void failOverSSM(List<String> instanceIds, List<HealAction> actions, RecoveryReport report, String error, long start) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        report.addError("SSM " + instanceIds + ": " + error);
+        for (String instanceId : instanceIds) {
+            actions.forEach(action -> report.addActionResult(
+                    new ActionResult(instanceId, action.getName(), false, error, millis)));
+        }
+    }
+
+    private void healOverSSH(List<EC2InstanceTO> instances, List<HealAction> actions, RecoveryReport report) {
+        byte[] script = buildScript(actions);
+
+        FanOutExecutor.FanOutResult<EC2InstanceTO> result = fanOutExecutor.execute(TargetType.SSH, instances,
+                CucumberHelperFunctions::describeInstance, instance -> healHost(instance, script, actions, report));
+
+        result.getFailures().forEach((instance, error) -> {
+            report.addError(CucumberHelperFunctions.describeInstance(instance) + ": " + error.getMessage());
+            actions.forEach(action -> report.addActionResult(new ActionResult(instance.getPrivateIpAddress(),
+                    action.getName(), false, String.valueOf(error.getMessage()), 0)));
+        });
+    }
+
+    private void healHost(EC2InstanceTO instance, byte[] script, List<HealAction> actions, RecoveryReport report) {
+        String ip = instance.getPrivateIpAddress();
+        ScriptExecutionResult result = systemRaider.executeScriptForResult(ip, script, Collections.emptyList());
+        if (result == null) {
+            throw new RuntimeException("No result healing " + ip);
+        }
+
+        addActionResults(ip, actions, result.getStdout(), result.getDurationMillis(), report);
+    }
+
+    /**
+     * Record the result of every heal action from the exit statuses the merged heal reported on stdout.
+     */
+    private void addActionResults(String host, List<HealAction> actions, String stdout, long durationMillis,
+                                  RecoveryReport report) {
+        Map<Integer, Integer> exitStatuses = new HashMap<>();
+        Matcher matcher = RESULT_PATTERN.matcher(stdout == null ? "" : stdout);
+        while (matcher.find()) {
+            exitStatuses.put(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        }
+
+        for (int i = 0; i < actions.size(); i++) {
+            Integer exitStatus = exitStatuses.get(i);
+            report.addActionResult(new ActionResult(host, actions.get(i).getName(), exitStatus != null && exitStatus == 0,
+                    exitStatus == null ? "no result" : "exit status " + exitStatus, durationMillis));
+        }
+    }
+
+    /**
+     * Merge the scripts of the heal actions into one script. Each one runs in its own subshell with its own
+     * arguments, so an exit in one does not skip the others, and reports its exit status on stdout.
+     */
+    private byte[] buildScript(List<HealAction> actions) {
+        StringBuilder script = new StringBuilder("#!/bin/sh\n");
+        for (int i = 0; i < actions.size(); i++) {
+            HealAction action = actions.get(i);
+            script.append("(\n");
+            if (!action.getArguments().isEmpty()) {
+                script.append("set --");
+                action.getArguments().forEach(argument -> script.append(' ').append(quote(argument)));
+                script.append('\n');
+            }
+            script.append(new String(scriptRegistry.getScript(action.getScriptName()), StandardCharsets.UTF_8));
+            script.append("\n)\n");
+            script.append("echo \"").append(RESULT_MARKER).append(' ').append(i).append(" $?\"\n");
+        }
+        return script.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Merge the SSM commands of the heal actions like buildScript(), each action in its own subshell followed by its
+     * exit status on stdout, so the invocation completes with Success even when an action fails.
+     */
+    private List<String> buildSsmCommands(List<HealAction> actions) {
+        List<String> commands = new ArrayList<>();
+        for (int i = 0; i < actions.size(); i++) {
+            commands.add("(");
+            commands.addAll(actions.get(i).getSsmCommands());
+            commands.add(")");
+            commands.add("echo \"" + RESULT_MARKER + " " + i + " $?\"");
+        }
+        return commands;
+    }
+
+    private static String quote(String argument) {
+        return "'" + argument.replace("'", "'\\''") + "'";
+    }
+}
@@ -29,8 +29,6 @@ import com.intuit.cloudraider.model.Actions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-
 /**
  * For a specific instance, execute EC2 failures by running a respective script.
  */
@@ -40,6 +38,9 @@ public class ScriptExecutor {
     @Autowired
     private SystemRaider systemRaider;
 
+    @Autowired
+    private ScriptRegistry scriptRegistry;
+
     /**
      * Instantiates a new Script executor.
      */
@@ -203,10 +204,7 @@ public class ScriptExecutor {
      * @param arguments arguments for the given action
      */
     public void executeScript(Actions action, String ip, String... arguments) {
-        String fileName = action.getActionName() + ".sh";
-        File file = new File(ClassLoader.getSystemResource(fileName).getFile());
-
-        systemRaider.executeScript(ip, file.getAbsolutePath(), arguments);
+        systemRaider.executeScript(ip, scriptRegistry.getScript(action), arguments);
     }
 
     /**
@@ -217,9 +215,6 @@ public class ScriptExecutor {
      * @param arguments arguments for the given action
      */
     public void executeScript(String action, String ip, String... arguments) {
-        String fileName = action + ".sh";
-        File file = new File(ClassLoader.getSystemResource(fileName).getFile());
-
-        systemRaider.executeScript(ip, file.getAbsolutePath(), arguments);
+        systemRaider.executeScript(ip, scriptRegistry.getScript(action), arguments);
     }
 }
\ No newline at end of file
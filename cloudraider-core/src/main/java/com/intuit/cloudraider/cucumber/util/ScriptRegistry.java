@@ -0,0 +1,110 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.cucumber.util;
+
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import com.intuit.cloudraider.model.Actions;
+import com.intuit.cloudraider.model.Command;
+import com.intuit.cloudraider.utils.CommandUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Startup loaded registry of the fault scripts ({@link Actions}) and SSM command templates ({@link Command}) found on
+ * the classpath, so repeated faults are served from memory without any filesystem access.
+ * Scripts missing at startup are looked up again on first use.
+ */
+@Component(value = "scriptRegistry")
+public class ScriptRegistry {
+
+    private static final String SCRIPT_EXTENSION = ".sh";
+    private static final String COMMAND_EXTENSION = ".txt";
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Map<String, byte[]> scripts = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Script registry.
+     */
+    public ScriptRegistry() {
+    }
+
+    /**
+     * Load every known script and command template.
+     */
+    @PostConstruct
+    public void loadAll() {
+        for (Actions action : Actions.values()) {
+            byte[] script = CommandUtility.readResource(action.getActionName() + SCRIPT_EXTENSION);
+            if (script != null) {
+                scripts.put(action.getActionName(), script);
+            }
+        }
+        int templates = 0;
+        for (Command command : Command.values()) {
+            if (!CommandUtility.getTemplates(command.getCommandName() + COMMAND_EXTENSION).isEmpty()) {
+                templates++;
+            }
+        }
+        logger.info("ScriptRegistry: loaded " + scripts.size() + " scripts and " + templates + " command templates");
+    }
+
+    /**
+     * Gets the content of the script for the given action.
+     *
+     * @param action action
+     * @return script content
+     */
+    public byte[] getScript(Actions action) {
+        return getScript(action.getActionName());
+    }
+
+    /**
+     * Gets the content of the script with the given name.
+     *
+     * @param actionName script name without the .sh extension
+     * @return script content
+     */
+    public byte[] getScript(String actionName) {
+        byte[] script = scripts.get(actionName);
+        if (script == null) {
+            script = CommandUtility.readResource(actionName + SCRIPT_EXTENSION);
+            if (script == null) {
+                throw new ResourceNotFoundException("Unable to find script " + actionName + SCRIPT_EXTENSION + " on the classpath");
+            }
+            scripts.put(actionName, script);
+        }
+        return script;
+    }
+}
@@ -29,16 +29,17 @@ import com.amazonaws.auth.profile.ProfileCredentialsProvider;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClientBuilder;
-import com.amazonaws.services.securitytoken.model.AssumeRoleRequest;
 import com.google.common.base.Strings;
 import com.intuit.cloudraider.utils.ConfigUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Creates credentials for accessing AWS resources based on multiple sources including direct key input and the
@@ -52,7 +53,9 @@ public class BasicCredentials implements Credentials{
      */
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private AWSCredentials awsCredentials;
+    private final Properties prop = new Properties();
+    private volatile AWSCredentialsProvider credentialsProvider;
+    private RefreshingCredentialsProvider assumerProvider;
     private String region;
 
     private String AWSAccessKeyId;
@@ -68,9 +71,11 @@ public class BasicCredentials implements Credentials{
      * starting with "aws.accessKeyId", "aws.secretKey", "aws.sessionToken".
      * If the above were not specified, the credentials found locally within ~/.aws/credentials will be used.
      * To use any non-default profiles, use the "aws.profile" option within config.properties.
+     * Only the region is read here; the credentials are resolved on first use.
+     * Assumed role sessions and profile credentials are renewed in the background "aws.credentials.refreshAheadSeconds"
+     * before they expire, or every "aws.credentials.refreshIntervalSeconds" when they have no expiry.
      */
     public BasicCredentials() {
-        Properties prop = new Properties();
         InputStream input;
         try {
             String configfile = ConfigUtils.getConfigFilePath();
@@ -82,7 +87,21 @@ public class BasicCredentials implements Credentials{
             if(Strings.isNullOrEmpty(region)){
                 throw new RuntimeException("No Region defined in the configuration file");
             }
+        } catch (IOException e) {
+            throw new RuntimeException("config file is not found");
+        }
+    }
 
+    /**
+     * Builds the credentials provider on first use, so that runs which never call AWS skip the STS round trips.
+     */
+    private synchronized void resolveCredentials() {
+        if (credentialsProvider != null) {
+            return;
+        }
+        long refreshAheadMillis = TimeUnit.SECONDS.toMillis(getLongProperty("aws.credentials.refreshAheadSeconds", 300));
+        long refreshIntervalMillis = TimeUnit.SECONDS.toMillis(getLongProperty("aws.credentials.refreshIntervalSeconds", 300));
+        try {
             String profile = prop.getProperty("aws.profile");
             boolean keyless = Boolean.valueOf(prop.getProperty("aws.keyless"));
 
@@ -93,80 +112,88 @@ public class BasicCredentials implements Credentials{
 
                 Regions awsRegion = Regions.fromName(region);
 
-                final AssumeRoleRequest assumeRole = new AssumeRoleRequest()
-                        .withRoleArn(roleArn)
-                        .withRoleSessionName("chaos-session");
                 final AWSSecurityTokenService sts = AWSSecurityTokenServiceClientBuilder
                         .standard()
                         .withRegion(awsRegion)
                         .build();
-
-                final com.amazonaws.services.securitytoken.model.Credentials credentials = sts.assumeRole(assumeRole).getCredentials();
-
-                final AWSCredentials awsSessionCredentials = new BasicSessionCredentials(
-                        credentials.getAccessKeyId(),
-                        credentials.getSecretAccessKey(),
-                        credentials.getSessionToken());
-
-                final AssumeRoleRequest assumeRole2 = new AssumeRoleRequest()
-                        .withRoleArn(roleArn2)
-                        .withRoleSessionName("chaos-session-2")
-                        .withExternalId(extID);
+                assumerProvider = new RefreshingCredentialsProvider("chaos-session",
+                        RefreshingCredentialsProvider.assumeRole(sts, roleArn, "chaos-session", null),
+                        refreshAheadMillis, refreshIntervalMillis);
 
                 final AWSSecurityTokenService sts2 = AWSSecurityTokenServiceClientBuilder
                         .standard()
-                        .withCredentials(new AWSStaticCredentialsProvider(awsSessionCredentials))
+                        .withCredentials(assumerProvider)
                         .withRegion(awsRegion)
                         .build();
-
-                final com.amazonaws.services.securitytoken.model.Credentials credentials2 = sts2.assumeRole(assumeRole2).getCredentials();
-
-                AWSAccessKeyId = credentials2.getAccessKeyId();
-                AWSSecretKey = credentials2.getSecretAccessKey();
-                AWSSessionToken = credentials2.getSessionToken();
-            }
-            else {
-                AWSAccessKeyId = prop.getProperty("aws.accessKeyId");
-                AWSSecretKey = prop.getProperty("aws.secretKey");
-                AWSSessionToken = prop.getProperty("aws.sessionToken");
+                credentialsProvider = new RefreshingCredentialsProvider("chaos-session-2",
+                        RefreshingCredentialsProvider.assumeRole(sts2, roleArn2, "chaos-session-2", extID),
+                        refreshAheadMillis, refreshIntervalMillis);
+                return;
             }
 
+            AWSAccessKeyId = prop.getProperty("aws.accessKeyId");
+            AWSSecretKey = prop.getProperty("aws.secretKey");
+            AWSSessionToken = prop.getProperty("aws.sessionToken");
+
             if (!Strings.isNullOrEmpty(AWSAccessKeyId) && !Strings.isNullOrEmpty(AWSSecretKey) && !Strings.isNullOrEmpty(AWSSessionToken)) {
-                awsCredentials = new BasicSessionCredentials(AWSAccessKeyId, AWSSecretKey, AWSSessionToken);
+                credentialsProvider = new AWSStaticCredentialsProvider(new BasicSessionCredentials(AWSAccessKeyId, AWSSecretKey, AWSSessionToken));
             } else if (!Strings.isNullOrEmpty(AWSAccessKeyId) && !Strings.isNullOrEmpty(AWSSecretKey)) {
-                awsCredentials = new BasicAWSCredentials(AWSAccessKeyId, AWSSecretKey);
+                credentialsProvider = new AWSStaticCredentialsProvider(new BasicAWSCredentials(AWSAccessKeyId, AWSSecretKey));
             } else {
-                if (Strings.isNullOrEmpty(profile)) {
-                    awsCredentials = new ProfileCredentialsProvider().getCredentials();
-                } else {
-                    awsCredentials = new ProfileCredentialsProvider(profile).getCredentials();
+                ProfileCredentialsProvider profileProvider = Strings.isNullOrEmpty(profile)
+                        ? new ProfileCredentialsProvider()
+                        : new ProfileCredentialsProvider(profile);
+                if (profileProvider.getCredentials() == null) {
+                    logger.error("No BasicCredentials provided");
+                    throw new RuntimeException("AWS credentials missing");
                 }
+                credentialsProvider = new RefreshingCredentialsProvider(Strings.isNullOrEmpty(profile) ? "default" : profile,
+                        RefreshingCredentialsProvider.reload(profileProvider), refreshAheadMillis, refreshIntervalMillis);
             }
-            if (awsCredentials == null) {
-                logger.error("No BasicCredentials provided");
-                throw new RuntimeException("AWS credentials missing");
-            }
-
-        } catch (IOException e) {
-            throw new RuntimeException("config file is not found");
         } catch (IllegalArgumentException e) {
             //ignore to use amazon default provider
+            credentialsProvider = new DefaultAWSCredentialsProviderChain();
         }
     }
 
     /**
      * Returns AWSCredentials for the given user/account. Reverts to default credentials provider if no credentials exist.
+     * These are the current credentials only; use {@link #getAwsCredentialProvider()} to keep getting renewed ones.
      * @return AWSCredentials
      */
     public AWSCredentials getAwsCredentials() {
-        if (awsCredentials == null) {
-            awsCredentials = new DefaultAWSCredentialsProviderChain().getCredentials();
-        }
-        return awsCredentials;
+        return getAwsCredentialProvider().getCredentials();
     }
 
+    /**
+     * Returns the provider of the credentials for the given user/account. Assumed role sessions and profile
+     * credentials are renewed in the background ahead of expiry.
+     * @return AWSCredentialsProvider
+     */
     public AWSCredentialsProvider getAwsCredentialProvider() {
-        return new DefaultAWSCredentialsProviderChain();
+        resolveCredentials();
+        return credentialsProvider;
+    }
+
+    /**
+     * Stops renewing the credentials, of both sessions of a keyless role chain.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (credentialsProvider instanceof RefreshingCredentialsProvider) {
+            ((RefreshingCredentialsProvider) credentialsProvider).close();
+        }
+        if (assumerProvider != null) {
+            assumerProvider.close();
+        }
+    }
+
+    private long getLongProperty(String key, long defaultValue) {
+        String value = prop.getProperty(key);
+        if (Strings.isNullOrEmpty(value) || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Long.parseLong(value.trim());
     }
 
     /**
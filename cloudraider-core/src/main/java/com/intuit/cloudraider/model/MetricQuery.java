@@ -0,0 +1,157 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.model;
+
+import com.amazonaws.services.cloudwatch.model.Dimension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A query of a batched CloudWatch metric request: either one metric statistic or a metric math expression over the
+ * results of other queries of the same request.
+ */
+public class MetricQuery {
+
+    private final String id;
+    private final String namespace;
+    private final String metricName;
+    private final String statistic;
+    private final List<Dimension> dimensions;
+    private final String expression;
+
+    private MetricQuery(String id, String namespace, String metricName, String statistic, List<Dimension> dimensions, String expression) {
+        this.id = id;
+        this.namespace = namespace;
+        this.metricName = metricName;
+        this.statistic = statistic;
+        this.dimensions = dimensions;
+        this.expression = expression;
+    }
+
+    /**
+     * Query of a metric statistic.
+     *
+     * @param id         query id, used as key of the result and in expressions
+     * @param namespace  metric namespace
+     * @param metricName metric name
+     * @param statistic  statistic (Average, Sum, Minimum, Maximum or SampleCount)
+     * @param dimensions metric dimensions
+     * @return the metric query
+     */
+    public static MetricQuery metric(String id, String namespace, String metricName, String statistic, Dimension... dimensions) {
+        return new MetricQuery(id, namespace, metricName, statistic, new ArrayList<>(Arrays.asList(dimensions)), null);
+    }
+
+    /**
+     * Query of a metric math expression, e.g. "100 * errors / requests" or "AVG(METRICS())".
+     *
+     * @param id         query id
+     * @param expression metric math expression
+     * @return the metric query
+     */
+    public static MetricQuery expression(String id, String expression) {
+        return new MetricQuery(id, null, null, null, new ArrayList<>(), expression);
+    }
+
+    /**
+     * Whether this query is a metric math expression.
+     *
+     * @return true if expression
+     */
+    public boolean isExpression() {
+        return expression != null;
+    }
+
+    /**
+     * Gets id.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets namespace.
+     *
+     * @return the namespace
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Gets metric name.
+     *
+     * @return the metric name
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+
+    /**
+     * Gets statistic.
+     *
+     * @return the statistic
+     */
+    public String getStatistic() {
+        return statistic;
+    }
+
+    /**
+     * Gets dimensions.
+     *
+     * @return the dimensions
+     */
+    public List<Dimension> getDimensions() {
+        return Collections.unmodifiableList(dimensions);
+    }
+
+    /**
+     * Gets expression.
+     *
+     * @return the expression
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        if (isExpression()) {
+            return "MetricQuery{id='" + id + "', expression='" + expression + "'}";
+        }
+        return "MetricQuery{" +
+                "id='" + id + '\'' +
+                ", namespace='" + namespace + '\'' +
+                ", metricName='" + metricName + '\'' +
+                ", statistic='" + statistic + '\'' +
+                ", dimensions=" + dimensions +
+                '}';
+    }
+}
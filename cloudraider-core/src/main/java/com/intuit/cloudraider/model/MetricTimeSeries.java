@@ -0,0 +1,180 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.model;
+
+import java.util.*;
+
+/**
+ * Datapoints of a metric query ordered by timestamp.
+ */
+public class MetricTimeSeries {
+
+    private final String id;
+    private final String label;
+    private final TreeMap<Date, Double> points = new TreeMap<>();
+
+    /**
+     * Instantiates a new Metric time series.
+     *
+     * @param id    query id
+     * @param label label (metric name or expression)
+     */
+    public MetricTimeSeries(String id, String label) {
+        this.id = id;
+        this.label = label;
+    }
+
+    /**
+     * Instantiates a new Metric time series with the given datapoints.
+     *
+     * @param id     query id
+     * @param label  label (metric name or expression)
+     * @param points datapoints by timestamp
+     */
+    public MetricTimeSeries(String id, String label, Map<Date, Double> points) {
+        this(id, label);
+        points.forEach(this::add);
+    }
+
+    /**
+     * Add a datapoint, ignored if the value is null or not a number.
+     *
+     * @param timestamp timestamp
+     * @param value     value
+     */
+    public void add(Date timestamp, Double value) {
+        if (timestamp != null && value != null && !value.isNaN() && !value.isInfinite()) {
+            points.put(timestamp, value);
+        }
+    }
+
+    /**
+     * Gets id.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets label.
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets datapoints by timestamp, oldest first.
+     *
+     * @return the points
+     */
+    public SortedMap<Date, Double> getPoints() {
+        return Collections.unmodifiableSortedMap(points);
+    }
+
+    /**
+     * Gets timestamps, oldest first.
+     *
+     * @return the timestamps
+     */
+    public List<Date> getTimestamps() {
+        return new ArrayList<>(points.keySet());
+    }
+
+    /**
+     * Gets values, oldest first.
+     *
+     * @return the values
+     */
+    public List<Double> getValues() {
+        return new ArrayList<>(points.values());
+    }
+
+    /**
+     * Gets the most recent value.
+     *
+     * @return the latest value, null if there are no datapoints
+     */
+    public Double getLatestValue() {
+        return points.isEmpty() ? null : points.lastEntry().getValue();
+    }
+
+    /**
+     * Gets the average of the values.
+     *
+     * @return the average, null if there are no datapoints
+     */
+    public Double getAverage() {
+        return points.isEmpty() ? null : points.values().stream().mapToDouble(Double::doubleValue).average().getAsDouble();
+    }
+
+    /**
+     * Gets the maximum value.
+     *
+     * @return the maximum, null if there are no datapoints
+     */
+    public Double getMaximum() {
+        return points.isEmpty() ? null : Collections.max(points.values());
+    }
+
+    /**
+     * Gets the minimum value.
+     *
+     * @return the minimum, null if there are no datapoints
+     */
+    public Double getMinimum() {
+        return points.isEmpty() ? null : Collections.min(points.values());
+    }
+
+    /**
+     * Number of datapoints.
+     *
+     * @return the size
+     */
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Whether there are no datapoints.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "MetricTimeSeries{" +
+                "id='" + id + '\'' +
+                ", label='" + label + '\'' +
+                ", points=" + points +
+                '}';
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.model;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
+import com.amazonaws.services.securitytoken.model.AssumeRoleRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credentials provider that renews its credentials in the background ahead of their expiry.
+ * <p>
+ * Callers always get the current credentials without waiting; only the very first call, or a call after the
+ * credentials expired because every renewal failed, loads them inline. Credentials without an expiry, such as
+ * those of a profile, are reloaded every refresh interval.
+ */
+public class RefreshingCredentialsProvider implements AWSCredentialsProvider, Closeable {
+
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * The Logger.
+     */
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String name;
+    private final Loader loader;
+    private final long refreshAheadMillis;
+    private final long refreshIntervalMillis;
+    private final Object lock = new Object();
+
+    private volatile Session current;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextRefresh;
+    private boolean closed;
+
+    /**
+     * Instantiates a new Refreshing credentials provider.
+     *
+     * @param name                  name used in logs and for the refresh thread
+     * @param loader                loads a new session
+     * @param refreshAheadMillis    how long before expiry to renew
+     * @param refreshIntervalMillis how often to reload credentials that do not expire
+     */
+    public RefreshingCredentialsProvider(String name, Loader loader, long refreshAheadMillis, long refreshIntervalMillis) {
+        this.name = name;
+        this.loader = loader;
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    /**
+     * Loader that assumes a role with the given STS client. The STS client is reused for every renewal.
+     *
+     * @param sts             STS client
+     * @param roleArn         role to assume
+     * @param roleSessionName session name
+     * @param externalId      external id, or null
+     * @return the loader
+     */
+    public static Loader assumeRole(AWSSecurityTokenService sts, String roleArn, String roleSessionName, String externalId) {
+        return () -> {
+            AssumeRoleRequest assumeRoleRequest = new AssumeRoleRequest()
+                    .withRoleArn(roleArn)
+                    .withRoleSessionName(roleSessionName);
+            if (externalId != null && !externalId.isEmpty()) {
+                assumeRoleRequest.withExternalId(externalId);
+            }
+            com.amazonaws.services.securitytoken.model.Credentials credentials = sts.assumeRole(assumeRoleRequest).getCredentials();
+            return new Session(new BasicSessionCredentials(credentials.getAccessKeyId(), credentials.getSecretAccessKey(),
+                    credentials.getSessionToken()), credentials.getExpiration());
+        };
+    }
+
+    /**
+     * Loader that reloads another provider, for credentials without an expiry.
+     *
+     * @param provider provider to reload
+     * @return the loader
+     */
+    public static Loader reload(AWSCredentialsProvider provider) {
+        return () -> {
+            provider.refresh();
+            return new Session(provider.getCredentials(), null);
+        };
+    }
+
+    @Override
+    public AWSCredentials getCredentials() {
+        Session session = current;
+        if (session == null || session.isExpired()) {
+            synchronized (lock) {
+                session = current;
+                if (session == null || session.isExpired()) {
+                    session = load();
+                }
+            }
+        }
+        return session.getCredentials();
+    }
+
+    @Override
+    public void refresh() {
+        synchronized (lock) {
+            load();
+        }
+    }
+
+    /**
+     * Gets the expiration of the current credentials.
+     *
+     * @return the expiration, or null if not loaded yet or they do not expire
+     */
+    public Date getExpiration() {
+        Session session = current;
+        return session == null ? null : session.getExpiration();
+    }
+
+    /**
+     * Stops renewing the credentials. They can still be loaded inline, but are no longer renewed in the background.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            nextRefresh = null;
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+    }
+
+    private Session load() {
+        Session session = loader.load();
+        current = session;
+        long delay = session.getExpiration() == null
+                ? refreshIntervalMillis
+                : session.getExpiration().getTime() - System.currentTimeMillis() - refreshAheadMillis;
+        schedule(Math.max(0, delay));
+        return session;
+    }
+
+    private void backgroundRefresh() {
+        try {
+            synchronized (lock) {
+                load();
+            }
+            logger.info("RefreshingCredentialsProvider: renewed " + name + " credentials, expiring " + getExpiration());
+        } catch (RuntimeException e) {
+            Session session = current;
+            long left = session == null || session.getExpiration() == null
+                    ? RETRY_DELAY_MILLIS
+                    : session.getExpiration().getTime() - System.currentTimeMillis();
+            logger.warn("RefreshingCredentialsProvider: unable to renew " + name + " credentials, retrying", e);
+            synchronized (lock) {
+                schedule(Math.max(1000, Math.min(RETRY_DELAY_MILLIS, left / 2)));
+            }
+        }
+    }
+
+    private void schedule(long delayMillis) {
+        if (closed) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "credentials-refresh-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        nextRefresh = scheduler.schedule(this::backgroundRefresh, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads a new session.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * Load session.
+         *
+         * @return the session
+         */
+        Session load();
+    }
+
+    /**
+     * Credentials and when they expire.
+     */
+    public static class Session {
+        private final AWSCredentials credentials;
+        private final Date expiration;
+
+        /**
+         * Instantiates a new Session.
+         *
+         * @param credentials the credentials
+         * @param expiration  the expiration, or null if they do not expire
+         */
+        public Session(AWSCredentials credentials, Date expiration) {
+            this.credentials = credentials;
+            this.expiration = expiration;
+        }
+
+        /**
+         * Gets credentials.
+         *
+         * @return the credentials
+         */
+        public AWSCredentials getCredentials() {
+            return credentials;
+        }
+
+        /**
+         * Gets expiration.
+         *
+         * @return the expiration
+         */
+        public Date getExpiration() {
+            return expiration;
+        }
+
+        /**
+         * Is expired boolean.
+         *
+         * @return the boolean
+         */
+        public boolean isExpired() {
+            return expiration != null && expiration.getTime() <= System.currentTimeMillis();
+        }
+    }
+}
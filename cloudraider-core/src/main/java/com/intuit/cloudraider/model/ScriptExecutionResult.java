@@ -0,0 +1,159 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.model;
+
+/**
+ * Outcome of a script run over SSH: exit status, captured output and timing.
+ * <p>
+ * A script printing "executing.." is considered detached: it keeps running on the host after the call returned, so
+ * its exit status is unknown.
+ */
+public class ScriptExecutionResult {
+
+    private final String host;
+    private final String command;
+    private final Integer exitStatus;
+    private final boolean detached;
+    private final String stdout;
+    private final String stderr;
+    private final long startTime;
+    private final long durationMillis;
+
+    /**
+     * Instantiates a new Script execution result.
+     *
+     * @param host           host the script ran on
+     * @param command        command line executed
+     * @param exitStatus     exit status, null when unknown
+     * @param detached       whether the script detached before exiting
+     * @param stdout         tail of the standard output
+     * @param stderr         tail of the standard error
+     * @param startTime      start time in epoch millis
+     * @param durationMillis time until completion or detach
+     */
+    public ScriptExecutionResult(String host, String command, Integer exitStatus, boolean detached, String stdout,
+                                 String stderr, long startTime, long durationMillis) {
+        this.host = host;
+        this.command = command;
+        this.exitStatus = exitStatus;
+        this.detached = detached;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.startTime = startTime;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Gets host.
+     *
+     * @return the host
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets command.
+     *
+     * @return the command
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Gets exit status.
+     *
+     * @return the exit status, null if the script detached or the host did not report it
+     */
+    public Integer getExitStatus() {
+        return exitStatus;
+    }
+
+    /**
+     * Whether the script detached ("executing..") and is still running on the host.
+     *
+     * @return true if detached
+     */
+    public boolean isDetached() {
+        return detached;
+    }
+
+    /**
+     * Whether the script detached or exited with status 0.
+     *
+     * @return true if successful
+     */
+    public boolean isSuccess() {
+        return detached || (exitStatus != null && exitStatus == 0);
+    }
+
+    /**
+     * Gets the tail of the standard output.
+     *
+     * @return the stdout
+     */
+    public String getStdout() {
+        return stdout;
+    }
+
+    /**
+     * Gets the tail of the standard error.
+     *
+     * @return the stderr
+     */
+    public String getStderr() {
+        return stderr;
+    }
+
+    /**
+     * Gets start time.
+     *
+     * @return the start time in epoch millis
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Gets duration.
+     *
+     * @return the duration in millis
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptExecutionResult{" +
+                "host='" + host + '\'' +
+                ", command='" + command + '\'' +
+                ", exitStatus=" + exitStatus +
+                ", detached=" + detached +
+                ", durationMillis=" + durationMillis +
+                '}';
+    }
+}
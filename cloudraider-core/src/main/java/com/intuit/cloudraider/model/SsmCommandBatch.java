@@ -0,0 +1,160 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.model;
+
+import java.util.*;
+
+/**
+ * Command ids returned by a batched SSM SendCommand, each one mapped to the instances of the chunk it was sent to.
+ * Chunks sent to tag based targets have no instance ids until their invocations are listed.
+ */
+public class SsmCommandBatch {
+
+    private final Map<String, List<String>> commands = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<String> failedInstanceIds = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Instantiates a new Ssm command batch.
+     */
+    public SsmCommandBatch() {
+    }
+
+    /**
+     * Instantiates a new Ssm command batch holding a single command.
+     *
+     * @param commandId   command id
+     * @param instanceIds instances the command was sent to
+     */
+    public SsmCommandBatch(String commandId, List<String> instanceIds) {
+        addCommand(commandId, instanceIds);
+    }
+
+    /**
+     * Record a command sent to a chunk of instances.
+     *
+     * @param commandId   command id
+     * @param instanceIds instances the command was sent to
+     */
+    public void addCommand(String commandId, List<String> instanceIds) {
+        commands.put(commandId, instanceIds == null ? new ArrayList<>() : new ArrayList<>(instanceIds));
+    }
+
+    /**
+     * Record instances of a chunk the command could not be sent to.
+     *
+     * @param instanceIds instances of the failed chunk
+     */
+    public void addFailedInstances(List<String> instanceIds) {
+        failedInstanceIds.addAll(instanceIds);
+    }
+
+    /**
+     * Gets command ids in the order the chunks were sent.
+     *
+     * @return the command ids
+     */
+    public List<String> getCommandIds() {
+        synchronized (commands) {
+            return new ArrayList<>(commands.keySet());
+        }
+    }
+
+    /**
+     * Gets the first command id, the only one for batches that fit in a single chunk.
+     *
+     * @return the command id, null if nothing was sent
+     */
+    public String getFirstCommandId() {
+        synchronized (commands) {
+            return commands.isEmpty() ? null : commands.keySet().iterator().next();
+        }
+    }
+
+    /**
+     * Gets the instances a command was sent to.
+     *
+     * @param commandId command id
+     * @return the instance ids
+     */
+    public List<String> getInstanceIds(String commandId) {
+        List<String> instanceIds = commands.get(commandId);
+        return instanceIds == null ? new ArrayList<>() : new ArrayList<>(instanceIds);
+    }
+
+    /**
+     * Gets every instance a command was sent to.
+     *
+     * @return the instance ids
+     */
+    public List<String> getInstanceIds() {
+        synchronized (commands) {
+            List<String> instanceIds = new ArrayList<>();
+            commands.values().forEach(instanceIds::addAll);
+            return instanceIds;
+        }
+    }
+
+    /**
+     * Gets the id of the command sent to the instance.
+     *
+     * @param instanceId instance id
+     * @return the command id, null if no chunk contained the instance
+     */
+    public String getCommandId(String instanceId) {
+        synchronized (commands) {
+            return commands.entrySet().stream()
+                    .filter(entry -> entry.getValue().contains(instanceId))
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    /**
+     * Gets instances the command could not be sent to.
+     *
+     * @return the failed instance ids
+     */
+    public List<String> getFailedInstanceIds() {
+        return new ArrayList<>(failedInstanceIds);
+    }
+
+    /**
+     * Whether no command was sent.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "SsmCommandBatch{" +
+                "commands=" + commands +
+                ", failedInstanceIds=" + failedInstanceIds +
+                '}';
+    }
+}
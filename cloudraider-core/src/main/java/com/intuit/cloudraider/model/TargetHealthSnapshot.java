@@ -0,0 +1,188 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.model;
+
+import com.amazonaws.services.elasticloadbalancingv2.model.TargetHealthDescription;
+
+import java.util.*;
+
+/**
+ * Health of every target of every target group of an Application or Network Load Balancer, taken in one round of
+ * DescribeTargetHealth calls and indexed by state, target group and availability zone.
+ * States are the lower case TargetHealthStateEnum values (healthy, unhealthy, initial, draining, ...).
+ * A target registered in several target groups is listed under each state it has in any of them.
+ */
+public class TargetHealthSnapshot {
+
+    /**
+     * The constant UNKNOWN_AVAILABILITY_ZONE.
+     */
+    public static final String UNKNOWN_AVAILABILITY_ZONE = "unknown";
+
+    private final String loadBalancerName;
+    private final long createdAt;
+    private final Map<String, List<TargetHealthDescription>> targetGroups = new LinkedHashMap<>();
+    private final Map<String, Set<String>> targetIdsByState = new LinkedHashMap<>();
+    private final Map<String, Map<String, Integer>> countsByTargetGroup = new LinkedHashMap<>();
+    private final Map<String, Map<String, Integer>> countsByAvailabilityZone = new TreeMap<>();
+    private final Map<String, String> availabilityZones = new HashMap<>();
+
+    /**
+     * Instantiates a new Target health snapshot.
+     *
+     * @param loadBalancerName  load balancer name
+     * @param targetGroups      target health descriptions per target group arn
+     * @param availabilityZones availability zone per target id, for targets that do not report one
+     * @param createdAt         time the snapshot was requested, in millis
+     */
+    public TargetHealthSnapshot(String loadBalancerName, Map<String, List<TargetHealthDescription>> targetGroups,
+                                Map<String, String> availabilityZones, long createdAt) {
+        this.loadBalancerName = loadBalancerName;
+        this.createdAt = createdAt;
+
+        targetGroups.forEach((targetGroupArn, descriptions) -> {
+            this.targetGroups.put(targetGroupArn, Collections.unmodifiableList(new ArrayList<>(descriptions)));
+            Map<String, Integer> groupCounts = countsByTargetGroup.computeIfAbsent(targetGroupArn, k -> new TreeMap<>());
+            for (TargetHealthDescription description : descriptions) {
+                String targetId = description.getTarget().getId();
+                String state = description.getTargetHealth().getState().toLowerCase();
+                String availabilityZone = description.getTarget().getAvailabilityZone();
+                if (availabilityZone == null || availabilityZone.isEmpty()) {
+                    availabilityZone = availabilityZones.getOrDefault(targetId, UNKNOWN_AVAILABILITY_ZONE);
+                }
+                this.availabilityZones.put(targetId, availabilityZone);
+
+                targetIdsByState.computeIfAbsent(state, k -> new LinkedHashSet<>()).add(targetId);
+                groupCounts.merge(state, 1, Integer::sum);
+                countsByAvailabilityZone.computeIfAbsent(availabilityZone, k -> new TreeMap<>()).merge(state, 1, Integer::sum);
+            }
+        });
+    }
+
+    /**
+     * Gets load balancer name.
+     *
+     * @return the load balancer name
+     */
+    public String getLoadBalancerName() {
+        return loadBalancerName;
+    }
+
+    /**
+     * Gets the time the snapshot was requested.
+     *
+     * @return epoch millis
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Gets the arns of the target groups in the snapshot.
+     *
+     * @return list of target group arns
+     */
+    public List<String> getTargetGroupArns() {
+        return new ArrayList<>(targetGroups.keySet());
+    }
+
+    /**
+     * Gets the target health descriptions of a target group.
+     *
+     * @param targetGroupArn target group arn
+     * @return list of target health descriptions, empty if the group is not in the snapshot
+     */
+    public List<TargetHealthDescription> getTargetHealthDescriptions(String targetGroupArn) {
+        return targetGroups.getOrDefault(targetGroupArn, Collections.emptyList());
+    }
+
+    /**
+     * Gets the ids of the targets in the given state in any target group.
+     *
+     * @param state target health state, case insensitive
+     * @return list of target ids
+     */
+    public List<String> getTargetIds(String state) {
+        return new ArrayList<>(targetIdsByState.getOrDefault(state.toLowerCase(), Collections.emptySet()));
+    }
+
+    /**
+     * Gets the ids of all targets, regardless of state.
+     *
+     * @return list of target ids
+     */
+    public List<String> getTargetIds() {
+        Set<String> targetIds = new LinkedHashSet<>();
+        targetIdsByState.values().forEach(targetIds::addAll);
+        return new ArrayList<>(targetIds);
+    }
+
+    /**
+     * Gets the number of targets in the given state across all target groups.
+     *
+     * @param state target health state, case insensitive
+     * @return number of targets
+     */
+    public int getCount(String state) {
+        return targetIdsByState.getOrDefault(state.toLowerCase(), Collections.emptySet()).size();
+    }
+
+    /**
+     * Gets the number of targets per state of every target group.
+     *
+     * @return map of target group arn to (state, count)
+     */
+    public Map<String, Map<String, Integer>> getCountsByTargetGroup() {
+        return Collections.unmodifiableMap(countsByTargetGroup);
+    }
+
+    /**
+     * Gets the number of targets per state in every availability zone.
+     *
+     * @return map of availability zone to (state, count)
+     */
+    public Map<String, Map<String, Integer>> getCountsByAvailabilityZone() {
+        return Collections.unmodifiableMap(countsByAvailabilityZone);
+    }
+
+    /**
+     * Gets the availability zone of a target.
+     *
+     * @param targetId target id
+     * @return availability zone, null if the target is not in the snapshot
+     */
+    public String getAvailabilityZone(String targetId) {
+        return availabilityZones.get(targetId);
+    }
+
+    @Override
+    public String toString() {
+        return "TargetHealthSnapshot{" +
+                "loadBalancerName='" + loadBalancerName + '\'' +
+                ", countsByTargetGroup=" + countsByTargetGroup +
+                ", countsByAvailabilityZone=" + countsByAvailabilityZone +
+                '}';
+    }
+}
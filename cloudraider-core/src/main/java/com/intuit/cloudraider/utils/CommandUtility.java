@@ -24,21 +24,33 @@
 
 package com.intuit.cloudraider.utils;
 
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Utility class to read and parse commands with parameters.
+ * <p>
+ * Command files are read from the classpath once and kept as pre-compiled MessageFormat templates.
  */
 public class CommandUtility {
 
+    private static final Logger logger = LoggerFactory.getLogger(CommandUtility.class);
+
+    private static final Map<String, List<MessageFormat>> templates = new ConcurrentHashMap<>();
+
     /**
      * Parses file provided to generate commands with the given parameters.
      *
@@ -48,22 +60,66 @@ public class CommandUtility {
      */
     public static List<String> getCommandsFromFile(String fileName, String... params) {
         List<String> commands = new ArrayList<>();
+        for (MessageFormat template : getTemplates(fileName)) {
+            // MessageFormat is not thread safe
+            synchronized (template) {
+                commands.add(template.format(params));
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Gets the command templates of the file, reading and compiling it on first use.
+     * Comments and empty lines are ignored.
+     *
+     * @param fileName name of file to parse
+     * @return list of command templates, empty if the file is missing
+     */
+    public static List<MessageFormat> getTemplates(String fileName) {
+        List<MessageFormat> cached = templates.get(fileName);
+        if (cached != null) {
+            return cached;
+        }
 
-        try (Stream<String> stream = Files.lines(Paths.get(ClassLoader.getSystemResource(fileName).toURI()))) {
+        byte[] content = readResource(fileName);
+        if (content == null) {
+            logger.error("Unable to find command file " + fileName + " on the classpath");
+            return Collections.emptyList();
+        }
 
-            // stream to ignore comments and empty lines
-            // replace parameters using MessageFormat
-            commands = stream
+        // stream to ignore comments and empty lines
+        List<MessageFormat> parsed;
+        try (Stream<String> stream = Stream.of(new String(content, StandardCharsets.UTF_8).split("\\r?\\n|\\r"))) {
+            parsed = Collections.unmodifiableList(stream
                     .filter(line -> !line.startsWith("#") && (!line.isEmpty()))
-                    .map(line-> MessageFormat.format(line, params))
-                    .collect(Collectors.toList());
-
-        } catch (URISyntaxException e) {
-            e.printStackTrace();
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
+                    .map(MessageFormat::new)
+                    .collect(Collectors.toList()));
         }
+        templates.put(fileName, parsed);
+        return parsed;
+    }
 
-        return commands;
+    /**
+     * Reads a file from the classpath. Works for files packaged in a jar as well.
+     *
+     * @param fileName name of the file
+     * @return the file content, null if the file is missing
+     */
+    public static byte[] readResource(String fileName) {
+        ClassLoader classLoader = CommandUtility.class.getClassLoader();
+        InputStream input = classLoader.getResourceAsStream(fileName);
+        if (input == null) {
+            input = ClassLoader.getSystemResourceAsStream(fileName);
+        }
+        if (input == null) {
+            return null;
+        }
+        try (InputStream in = input) {
+            return ByteStreams.toByteArray(in);
+        } catch (IOException e) {
+            logger.error("Unable to read " + fileName, e);
+            return null;
+        }
     }
 }
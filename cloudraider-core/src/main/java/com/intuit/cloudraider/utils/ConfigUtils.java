@@ -25,11 +25,20 @@
 package com.intuit.cloudraider.utils;
 
 import com.google.common.base.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
 
 /**
  * Utility class to manage config files
  */
 public class ConfigUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigUtils.class);
+
     /**
      * Gets the config file path.
      *
@@ -45,4 +54,37 @@ public class ConfigUtils {
 
         return configfile;
     }
+
+    /**
+     * Loads the config file from the classpath.
+     *
+     * @return the config properties, empty if the config file cannot be read
+     */
+    public static Properties getConfigProperties() {
+        Properties prop = new Properties();
+        String configfile = getConfigFilePath();
+        try (InputStream input = ConfigUtils.class.getClassLoader().getResourceAsStream(configfile)) {
+            if (input != null) {
+                prop.load(input);
+            }
+        } catch (IOException ex) {
+            logger.warn("Unable to read config file " + configfile, ex);
+        }
+        return prop;
+    }
+
+    /**
+     * Gets a numeric property from the config file.
+     *
+     * @param key          property name
+     * @param defaultValue value used when the property is missing or blank
+     * @return the property value
+     */
+    public static long getLongProperty(String key, long defaultValue) {
+        String value = getConfigProperties().getProperty(key);
+        if (Strings.isNullOrEmpty(value) || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Long.parseLong(value.trim());
+    }
 }
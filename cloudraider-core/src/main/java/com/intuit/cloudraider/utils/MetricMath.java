@@ -0,0 +1,257 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.utils;
+
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.model.MetricTimeSeries;
+
+import java.util.*;
+import java.util.function.DoubleBinaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class evaluating metric math expressions over the time series of a batched metric request.
+ * <p>
+ * Supported: numbers, query ids, + - * / and parentheses, and the functions SUM, AVG, MIN and MAX over a comma
+ * separated list of series or METRICS() (every metric query of the request). Operations between series are applied
+ * on the timestamps present in both; functions aggregate the series per timestamp.
+ */
+public class MetricMath {
+
+    private static final Set<String> FUNCTIONS = new HashSet<>(Arrays.asList("SUM", "AVG", "MIN", "MAX", "METRICS"));
+    private static final Pattern TOKEN = Pattern.compile("\\s*(\\d+(?:\\.\\d+)?|[A-Za-z_][A-Za-z0-9_]*|[-+*/(),])");
+
+    /**
+     * Evaluate the expression.
+     *
+     * @param id         id of the resulting series
+     * @param expression metric math expression
+     * @param series     series referenced by the expression, by query id
+     * @param metricIds  ids of the metric (non expression) queries, the result of METRICS()
+     * @return the resulting time series
+     */
+    public static MetricTimeSeries evaluate(String id, String expression, Map<String, MetricTimeSeries> series, List<String> metricIds) {
+        Parser parser = new Parser(expression, series, metricIds);
+        Operand result = parser.parseExpression();
+        if (parser.hasNext()) {
+            throw new InvalidInputDataException("Unexpected token '" + parser.peek() + "' in metric expression: " + expression);
+        }
+        if (result.series == null) {
+            throw new InvalidInputDataException("Metric expression does not reference any metric: " + expression);
+        }
+        return new MetricTimeSeries(id, expression, result.series);
+    }
+
+    /**
+     * A constant or a series.
+     */
+    private static class Operand {
+        private final Double scalar;
+        private final SortedMap<Date, Double> series;
+
+        Operand(Double scalar, SortedMap<Date, Double> series) {
+            this.scalar = scalar;
+            this.series = series;
+        }
+
+        Operand apply(Operand other, DoubleBinaryOperator operator) {
+            if (series == null && other.series == null) {
+                return new Operand(operator.applyAsDouble(scalar, other.scalar), null);
+            }
+            SortedMap<Date, Double> result = new TreeMap<>();
+            Set<Date> timestamps = series != null ? series.keySet() : other.series.keySet();
+            for (Date timestamp : timestamps) {
+                Double left = series != null ? series.get(timestamp) : scalar;
+                Double right = other.series != null ? other.series.get(timestamp) : other.scalar;
+                if (left != null && right != null) {
+                    double value = operator.applyAsDouble(left, right);
+                    if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+                        result.put(timestamp, value);
+                    }
+                }
+            }
+            return new Operand(null, result);
+        }
+    }
+
+    /**
+     * Recursive descent parser: expression := term (('+'|'-') term)*, term := factor (('*'|'/') factor)*,
+     * factor := number | id | function '(' arguments ')' | '(' expression ')' | '-' factor.
+     */
+    private static class Parser {
+        private final String expression;
+        private final Map<String, MetricTimeSeries> series;
+        private final List<String> metricIds;
+        private final List<String> tokens = new ArrayList<>();
+        private int position;
+
+        Parser(String expression, Map<String, MetricTimeSeries> series, List<String> metricIds) {
+            this.expression = expression;
+            this.series = series;
+            this.metricIds = metricIds;
+            Matcher matcher = TOKEN.matcher(expression);
+            int end = 0;
+            while (matcher.lookingAt()) {
+                tokens.add(matcher.group(1));
+                end = matcher.end();
+                matcher.region(end, expression.length());
+            }
+            if (!expression.substring(end).trim().isEmpty()) {
+                throw new InvalidInputDataException("Invalid metric expression: " + expression);
+            }
+        }
+
+        boolean hasNext() {
+            return position < tokens.size();
+        }
+
+        String peek() {
+            return hasNext() ? tokens.get(position) : null;
+        }
+
+        String next() {
+            if (!hasNext()) {
+                throw new InvalidInputDataException("Unexpected end of metric expression: " + expression);
+            }
+            return tokens.get(position++);
+        }
+
+        void expect(String token) {
+            String actual = next();
+            if (!token.equals(actual)) {
+                throw new InvalidInputDataException("Expected '" + token + "' but found '" + actual + "' in metric expression: " + expression);
+            }
+        }
+
+        Operand parseExpression() {
+            Operand result = parseTerm();
+            while ("+".equals(peek()) || "-".equals(peek())) {
+                String operator = next();
+                Operand right = parseTerm();
+                result = "+".equals(operator) ? result.apply(right, (a, b) -> a + b) : result.apply(right, (a, b) -> a - b);
+            }
+            return result;
+        }
+
+        Operand parseTerm() {
+            Operand result = parseFactor();
+            while ("*".equals(peek()) || "/".equals(peek())) {
+                String operator = next();
+                Operand right = parseFactor();
+                result = "*".equals(operator) ? result.apply(right, (a, b) -> a * b) : result.apply(right, (a, b) -> a / b);
+            }
+            return result;
+        }
+
+        Operand parseFactor() {
+            String token = next();
+            if ("-".equals(token)) {
+                return new Operand(-1.0, null).apply(parseFactor(), (a, b) -> a * b);
+            }
+            if ("(".equals(token)) {
+                Operand result = parseExpression();
+                expect(")");
+                return result;
+            }
+            if (Character.isDigit(token.charAt(0))) {
+                return new Operand(Double.valueOf(token), null);
+            }
+            if ("(".equals(peek())) {
+                return parseFunction(token.toUpperCase());
+            }
+            MetricTimeSeries referenced = series.get(token);
+            if (referenced == null) {
+                throw new InvalidInputDataException("Unknown query id '" + token + "' in metric expression: " + expression);
+            }
+            return new Operand(null, referenced.getPoints());
+        }
+
+        Operand parseFunction(String function) {
+            if (!FUNCTIONS.contains(function)) {
+                throw new InvalidInputDataException("Unsupported function " + function + " in metric expression: " + expression);
+            }
+            expect("(");
+            List<SortedMap<Date, Double>> arguments = new ArrayList<>();
+            if ("METRICS".equals(function)) {
+                expect(")");
+                metricIds.stream().filter(series::containsKey).forEach(metricId -> arguments.add(series.get(metricId).getPoints()));
+                return new Operand(null, new ListSeries(arguments));
+            }
+            while (true) {
+                Operand argument = parseExpression();
+                if (argument.series instanceof ListSeries) {
+                    arguments.addAll(((ListSeries) argument.series).members);
+                } else if (argument.series != null) {
+                    arguments.add(argument.series);
+                } else {
+                    throw new InvalidInputDataException(function + " expects metrics in metric expression: " + expression);
+                }
+                if (!",".equals(peek())) {
+                    break;
+                }
+                next();
+            }
+            expect(")");
+            return aggregate(function, arguments);
+        }
+
+        Operand aggregate(String function, List<SortedMap<Date, Double>> arguments) {
+            SortedMap<Date, List<Double>> values = new TreeMap<>();
+            arguments.forEach(argument -> argument.forEach((timestamp, value) ->
+                    values.computeIfAbsent(timestamp, t -> new ArrayList<>()).add(value)));
+
+            SortedMap<Date, Double> result = new TreeMap<>();
+            values.forEach((timestamp, list) -> {
+                DoubleSummaryStatistics statistics = list.stream().mapToDouble(Double::doubleValue).summaryStatistics();
+                switch (function) {
+                    case "SUM":
+                        result.put(timestamp, statistics.getSum());
+                        break;
+                    case "AVG":
+                        result.put(timestamp, statistics.getAverage());
+                        break;
+                    case "MIN":
+                        result.put(timestamp, statistics.getMin());
+                        break;
+                    default:
+                        result.put(timestamp, statistics.getMax());
+                }
+            });
+            return new Operand(null, result);
+        }
+    }
+
+    /**
+     * Result of METRICS(): only valid as a function argument.
+     */
+    private static class ListSeries extends TreeMap<Date, Double> {
+        private final List<SortedMap<Date, Double>> members;
+
+        ListSeries(List<SortedMap<Date, Double>> members) {
+            this.members = members;
+        }
+    }
+}
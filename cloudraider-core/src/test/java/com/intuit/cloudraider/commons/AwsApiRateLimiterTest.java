@@ -0,0 +1,176 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.retry.RetryPolicy;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * The type Aws api rate limiter test.
+ */
+public class AwsApiRateLimiterTest {
+
+    private AwsApiRateLimiter rateLimiter;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        rateLimiter = new AwsApiRateLimiter();
+    }
+
+    /**
+     * Test calls beyond the burst wait for the rate.
+     */
+    @Test
+    public void testWaitsBeyondBurst() {
+        rateLimiter.setRates(10, 1, 10, 2);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            attempt(request("ec2.us-west-2.amazonaws.com"), null);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        AwsApiRateLimiter.Metrics metrics = rateLimiter.getMetrics().get("ec2.us-west-2.amazonaws.com");
+        Assert.assertEquals(4, metrics.getRequests());
+        Assert.assertEquals(0, metrics.getRetries());
+        Assert.assertTrue(elapsed >= 150);
+        Assert.assertTrue(metrics.getWaitMillis() >= 150);
+    }
+
+    /**
+     * Test throttling halves the rate once per cooldown and counts retries.
+     */
+    @Test
+    public void testThrottlingLowersRate() {
+        rateLimiter.setRates(20, 1, 100, 10);
+        Request<?> request = request("ssm.us-west-2.amazonaws.com");
+
+        attempt(request, throttlingException());
+        attempt(request, throttlingException());
+        attempt(request, null);
+
+        AwsApiRateLimiter.Metrics metrics = rateLimiter.getMetrics().get("ssm.us-west-2.amazonaws.com");
+        Assert.assertEquals(3, metrics.getRequests());
+        Assert.assertEquals(2, metrics.getRetries());
+        Assert.assertEquals(2, metrics.getThrottles());
+        Assert.assertTrue(metrics.getRate() > 10 && metrics.getRate() < 11);
+    }
+
+    /**
+     * Test successful calls raise the rate up to the max, and other errors leave it alone.
+     */
+    @Test
+    public void testSuccessRaisesRate() {
+        rateLimiter.setRates(5, 1, 6, 10);
+
+        for (int i = 0; i < 10; i++) {
+            attempt(request("rds.us-west-2.amazonaws.com"), null);
+        }
+        AmazonServiceException notFound = new AmazonServiceException("not found");
+        notFound.setErrorCode("DBInstanceNotFound");
+        notFound.setStatusCode(404);
+        attempt(request("rds.us-west-2.amazonaws.com"), notFound);
+
+        AwsApiRateLimiter.Metrics metrics = rateLimiter.getMetrics().get("rds.us-west-2.amazonaws.com");
+        Assert.assertEquals(6, metrics.getRate(), 0.001);
+        Assert.assertEquals(0, metrics.getThrottles());
+    }
+
+    /**
+     * Test every endpoint has its own bucket.
+     */
+    @Test
+    public void testBucketPerEndpoint() {
+        rateLimiter.setRates(20, 1, 100, 10);
+
+        attempt(request("ec2.us-west-2.amazonaws.com"), throttlingException());
+        attempt(request("ec2.us-east-1.amazonaws.com"), null);
+
+        Map<String, AwsApiRateLimiter.Metrics> metrics = rateLimiter.getMetrics();
+        Assert.assertEquals(2, metrics.size());
+        Assert.assertEquals(10, metrics.get("ec2.us-west-2.amazonaws.com").getRate(), 0.001);
+        Assert.assertTrue(metrics.get("ec2.us-east-1.amazonaws.com").getRate() > 20);
+    }
+
+    /**
+     * Test nothing is limited or counted when disabled.
+     */
+    @Test
+    public void testDisabled() {
+        rateLimiter.setEnabled(false);
+
+        attempt(request("ec2.us-west-2.amazonaws.com"), throttlingException());
+
+        Assert.assertTrue(rateLimiter.getMetrics().isEmpty());
+    }
+
+    /**
+     * Test the retry policy retries throttling with bounded backoff.
+     */
+    @Test
+    public void testRetryPolicy() {
+        RetryPolicy retryPolicy = rateLimiter.getRetryPolicy();
+        AmazonServiceException throttled = throttlingException();
+
+        Assert.assertEquals(5, retryPolicy.getMaxErrorRetry());
+        Assert.assertTrue(retryPolicy.getRetryCondition().shouldRetry(AmazonWebServiceRequest.NOOP, throttled, 0));
+        for (int retries = 0; retries < 10; retries++) {
+            long delay = retryPolicy.getBackoffStrategy().delayBeforeNextRetry(AmazonWebServiceRequest.NOOP, throttled, retries);
+            Assert.assertTrue(delay >= 0 && delay <= 20000);
+        }
+    }
+
+    private void attempt(Request<?> request, Exception exception) {
+        rateLimiter.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(request).build());
+        rateLimiter.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request).withException(exception).build());
+    }
+
+    private Request<?> request(String host) {
+        DefaultRequest<?> request = new DefaultRequest<>("service");
+        request.setEndpoint(URI.create("https://" + host));
+        return request;
+    }
+
+    private AmazonServiceException throttlingException() {
+        AmazonServiceException exception = new AmazonServiceException("Rate exceeded");
+        exception.setErrorCode("Throttling");
+        exception.setStatusCode(400);
+        return exception;
+    }
+}
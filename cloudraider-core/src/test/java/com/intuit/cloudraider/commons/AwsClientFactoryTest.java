@@ -0,0 +1,202 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.AmazonEC2AsyncClient;
+import com.amazonaws.services.ec2.AmazonEC2AsyncClientBuilder;
+import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import com.intuit.cloudraider.model.BasicCredentials;
+import com.intuit.cloudraider.model.Credentials;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * The type Aws client factory test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class AwsClientFactoryTest {
+
+    @Autowired
+    private AwsClientFactory awsClientFactory;
+
+    @Autowired
+    private RDSDelegator rdsDelegator;
+
+    /**
+     * Test clients are built and their pools reported.
+     */
+    @Test
+    public void testBuild() {
+        AmazonEC2 ec2 = awsClientFactory.build("ec2", AmazonEC2ClientBuilder.standard());
+
+        Assert.assertNotNull(ec2);
+        Assert.assertTrue(awsClientFactory.getPoolMetrics().containsKey("ec2"));
+        Assert.assertEquals(0, awsClientFactory.getPoolMetrics().get("ec2").getRequests());
+    }
+
+    /**
+     * Test async clients run their calls on daemon threads sized by asyncThreads.
+     */
+    @Test
+    public void testBuildAsync() throws Exception {
+        AmazonEC2AsyncClient ec2Async = (AmazonEC2AsyncClient) awsClientFactory.buildAsync("ec2-async",
+                AmazonEC2AsyncClientBuilder.standard());
+
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ec2Async.getExecutorService();
+        Assert.assertEquals(awsClientFactory.getAsyncThreads(), executor.getMaximumPoolSize());
+        Assert.assertEquals(200, awsClientFactory.getAsyncThreads());
+        Thread thread = executor.submit(Thread::currentThread).get();
+        Assert.assertTrue(thread.isDaemon());
+        Assert.assertEquals("aws-ec2-async-1", thread.getName());
+        ec2Async.shutdown();
+    }
+
+    /**
+     * Test delegators build their client on first use and the startup report shows it.
+     */
+    @Test
+    public void testLazyInit() {
+        Assert.assertFalse(awsClientFactory.getInitTimings().containsKey("rds"));
+
+        Assert.assertNotNull(rdsDelegator.getAmazonRds());
+        Assert.assertSame(rdsDelegator.getAmazonRds(), rdsDelegator.getAmazonRds());
+
+        Map<String, AwsClientFactory.InitTiming> timings = awsClientFactory.getInitTimings();
+        Assert.assertTrue(timings.containsKey(AwsClientFactory.CREDENTIALS));
+        Assert.assertTrue(timings.get("rds").getDurationMillis() >= 0);
+        Assert.assertTrue(awsClientFactory.getStartupReport().contains("rds in "));
+    }
+
+    /**
+     * Test the client configuration defaults.
+     */
+    @Test
+    public void testClientConfiguration() {
+        ClientConfiguration clientConfiguration = awsClientFactory.getClientConfiguration();
+
+        Assert.assertEquals(200, clientConfiguration.getMaxConnections());
+        Assert.assertEquals(5000, clientConfiguration.getConnectionTimeout());
+        Assert.assertEquals(30000, clientConfiguration.getSocketTimeout());
+        Assert.assertTrue(clientConfiguration.useTcpKeepAlive());
+        Assert.assertTrue(clientConfiguration.useReaper());
+        Assert.assertFalse(clientConfiguration.useGzip());
+        Assert.assertEquals(60000, clientConfiguration.getConnectionTTL());
+        Assert.assertEquals(5, clientConfiguration.getRetryPolicy().getMaxErrorRetry());
+    }
+
+    /**
+     * Test pool counters captured by the SDK are kept with their peaks.
+     */
+    @Test
+    public void testPoolMetrics() {
+        AwsClientFactory.PoolMetricCollector collector = new AwsClientFactory.PoolMetricCollector(10);
+
+        collector.collectMetrics(request(6, 4, 2), null);
+        collector.collectMetrics(request(3, 7, 0), null);
+        collector.collectMetrics(new DefaultRequest<>("service"), null);
+
+        AwsClientFactory.PoolMetrics metrics = collector.getMetrics();
+        Assert.assertEquals(2, metrics.getRequests());
+        Assert.assertEquals(3, metrics.getLeased());
+        Assert.assertEquals(7, metrics.getAvailable());
+        Assert.assertEquals(0, metrics.getPending());
+        Assert.assertEquals(6, metrics.getPeakLeased());
+        Assert.assertEquals(2, metrics.getPeakPending());
+        Assert.assertEquals(0.3, metrics.getUtilization(), 0.001);
+        Assert.assertEquals(0.6, metrics.getPeakUtilization(), 0.001);
+    }
+
+    private DefaultRequest<?> request(long leased, long available, long pending) {
+        AWSRequestMetrics awsRequestMetrics = new AWSRequestMetricsFullSupport();
+        awsRequestMetrics.setCounter(AWSRequestMetrics.Field.HttpClientPoolLeasedCount, leased);
+        awsRequestMetrics.setCounter(AWSRequestMetrics.Field.HttpClientPoolAvailableCount, available);
+        awsRequestMetrics.setCounter(AWSRequestMetrics.Field.HttpClientPoolPendingCount, pending);
+        DefaultRequest<?> request = new DefaultRequest<>("service");
+        request.setAWSRequestMetrics(awsRequestMetrics);
+        return request;
+    }
+
+    /**
+     * The type Aws client factory test context configuration.
+     */
+    @Configuration
+    protected static class AwsClientFactoryTestContextConfiguration {
+
+        /**
+         * Rds delegator rds delegator.
+         *
+         * @return the rds delegator
+         */
+        @Bean
+        public RDSDelegator rdsDelegator() {
+            return new RDSDelegator();
+        }
+
+        /**
+         * Credentials credentials.
+         *
+         * @return the credentials
+         */
+        @Bean
+        public Credentials credentials() {
+            return new BasicCredentials();
+        }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+    }
+}
@@ -81,5 +81,25 @@ public class CFNDelegatorTest {
         public Credentials credentials() {
             return new BasicCredentials();
         }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
     }
 }
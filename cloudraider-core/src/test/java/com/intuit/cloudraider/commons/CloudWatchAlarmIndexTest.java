@@ -0,0 +1,188 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.DescribeAlarmsRequest;
+import com.amazonaws.services.cloudwatch.model.DescribeAlarmsResult;
+import com.amazonaws.services.cloudwatch.model.MetricAlarm;
+import com.intuit.cloudraider.model.BasicCredentials;
+import com.intuit.cloudraider.model.Credentials;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The type Cloud watch alarm index test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class CloudWatchAlarmIndexTest {
+
+    @Autowired
+    private CloudWatchAlarmIndex cloudWatchAlarmIndex;
+
+    @Autowired
+    private CloudWatchDelegator cloudWatchDelegator;
+
+    private AmazonCloudWatch amazonCloudWatch;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        amazonCloudWatch = Mockito.mock(AmazonCloudWatch.class);
+        Mockito.when(cloudWatchDelegator.getAmazonCloudWatch()).thenReturn(amazonCloudWatch);
+        Mockito.when(amazonCloudWatch.describeAlarms(Mockito.any(DescribeAlarmsRequest.class))).thenAnswer(invocation -> {
+            DescribeAlarmsRequest request = (DescribeAlarmsRequest) invocation.getArguments()[0];
+            return new DescribeAlarmsResult().withMetricAlarms(request.getAlarmNames().stream()
+                    .filter(name -> !name.startsWith("missing"))
+                    .map(name -> alarm(name, "OK"))
+                    .collect(Collectors.toList()));
+        });
+
+        cloudWatchAlarmIndex.setTtlSeconds(60);
+        cloudWatchAlarmIndex.invalidate();
+    }
+
+    /**
+     * Test every page is read.
+     */
+    @Test
+    public void testPagination() {
+        Mockito.reset(amazonCloudWatch);
+        Mockito.when(amazonCloudWatch.describeAlarms(Mockito.any(DescribeAlarmsRequest.class))).thenReturn(
+                new DescribeAlarmsResult().withMetricAlarms(alarm("a-1", "ALARM")).withNextToken("page2"),
+                new DescribeAlarmsResult().withMetricAlarms(alarm("a-2", "ALARM")));
+
+        List<MetricAlarm> alarms = cloudWatchAlarmIndex.getAlarmsInState("alarm");
+
+        Assert.assertEquals(2, alarms.size());
+        Mockito.verify(amazonCloudWatch, Mockito.times(2)).describeAlarms(new DescribeAlarmsRequest().withStateValue("ALARM"));
+    }
+
+    /**
+     * Test bulk lookup is chunked, skips missing alarms and is served from the cache afterwards.
+     */
+    @Test
+    public void testBulkLookupIsChunkedAndCached() {
+        List<String> names = IntStream.range(0, 150).mapToObj(i -> "alarm-" + i).collect(Collectors.toList());
+        names.add("missing-alarm");
+
+        Map<String, MetricAlarm> alarms = cloudWatchAlarmIndex.getAlarms(names);
+        Assert.assertEquals(150, alarms.size());
+        Assert.assertFalse(alarms.containsKey("missing-alarm"));
+        Mockito.verify(amazonCloudWatch, Mockito.times(2)).describeAlarms(Mockito.any(DescribeAlarmsRequest.class));
+
+        Assert.assertEquals(2, cloudWatchAlarmIndex.getAlarms(Arrays.asList("alarm-1", "alarm-149")).size());
+        Mockito.verify(amazonCloudWatch, Mockito.times(2)).describeAlarms(Mockito.any(DescribeAlarmsRequest.class));
+    }
+
+    /**
+     * Test a zero ttl always describes the alarms again.
+     */
+    @Test
+    public void testZeroTtlDisablesCache() {
+        cloudWatchAlarmIndex.setTtlSeconds(0);
+        cloudWatchAlarmIndex.getAlarms(Arrays.asList("alarm-1"));
+        cloudWatchAlarmIndex.getAlarms(Arrays.asList("alarm-1"));
+        Mockito.verify(amazonCloudWatch, Mockito.times(2)).describeAlarms(Mockito.any(DescribeAlarmsRequest.class));
+    }
+
+    private MetricAlarm alarm(String name, String state) {
+        return new MetricAlarm().withAlarmName(name).withStateValue(state);
+    }
+
+    /**
+     * The type Cloud watch alarm index test context configuration.
+     */
+    @Configuration
+    protected static class CloudWatchAlarmIndexTestContextConfiguration {
+
+        /**
+         * Cloud watch alarm index.
+         *
+         * @return the cloud watch alarm index
+         */
+        @Bean
+        public CloudWatchAlarmIndex cloudWatchAlarmIndex() {
+            return new CloudWatchAlarmIndex();
+        }
+
+        /**
+         * Cloud watch delegator cloud watch delegator.
+         *
+         * @return the cloud watch delegator
+         */
+        @Bean
+        public CloudWatchDelegator cloudWatchDelegator() {
+            return Mockito.mock(CloudWatchDelegator.class);
+        }
+
+        /**
+         * Credentials credentials.
+         *
+         * @return the credentials
+         */
+        @Bean
+        public Credentials credentials() {
+            return new BasicCredentials();
+        }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+    }
+}
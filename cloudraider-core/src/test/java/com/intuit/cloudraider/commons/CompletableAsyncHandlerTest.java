@@ -0,0 +1,78 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.services.rds.model.DBInstance;
+import com.amazonaws.services.rds.model.RebootDBInstanceRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The type Completable async handler test.
+ */
+public class CompletableAsyncHandlerTest {
+
+    /**
+     * Test the future completes with the result passed to the handler.
+     */
+    @Test
+    public void testSuccess() {
+        DBInstance dbInstance = new DBInstance().withDBInstanceIdentifier("Test-DB");
+
+        CompletableFuture<DBInstance> future = CompletableAsyncHandler.<RebootDBInstanceRequest, DBInstance>call((request, handler) -> {
+            handler.onSuccess(request, dbInstance);
+            return CompletableFuture.completedFuture(dbInstance);
+        }, new RebootDBInstanceRequest());
+
+        Assert.assertSame(dbInstance, future.join());
+    }
+
+    /**
+     * Test the future fails with the error passed to the handler.
+     */
+    @Test
+    public void testError() {
+        CompletableFuture<DBInstance> future = CompletableAsyncHandler.<RebootDBInstanceRequest, DBInstance>call((request, handler) -> {
+            handler.onError(new IllegalStateException("boom"));
+            return new CompletableFuture<>();
+        }, new RebootDBInstanceRequest());
+
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+
+    /**
+     * Test a client that throws while submitting fails the future instead of the caller.
+     */
+    @Test
+    public void testSubmitFailure() {
+        CompletableFuture<DBInstance> future = CompletableAsyncHandler.<RebootDBInstanceRequest, DBInstance>call((request, handler) -> {
+            throw new IllegalStateException("rejected");
+        }, new RebootDBInstanceRequest());
+
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+}
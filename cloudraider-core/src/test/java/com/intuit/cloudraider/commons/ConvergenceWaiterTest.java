@@ -0,0 +1,84 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Convergence waiter test.
+ */
+public class ConvergenceWaiterTest {
+
+    private ConvergenceWaiter convergenceWaiter = new ConvergenceWaiter(5, 20);
+
+    /**
+     * Test wait returns as soon as the condition holds.
+     */
+    @Test
+    public void testConverges() {
+        AtomicInteger polls = new AtomicInteger();
+
+        ConvergenceWaiter.Result<Integer> result = convergenceWaiter.await("count", polls::incrementAndGet, c -> c == 3, 5000);
+
+        Assert.assertTrue(result.isConverged());
+        Assert.assertEquals(Integer.valueOf(3), result.getValue());
+        Assert.assertEquals(3, result.getAttempts());
+        Assert.assertTrue(result.getElapsedMillis() < 5000);
+    }
+
+    /**
+     * Test wait gives up at the deadline with the last value read.
+     */
+    @Test
+    public void testTimesOut() {
+        ConvergenceWaiter.Result<Integer> result = convergenceWaiter.await("count", () -> 1, c -> c == 2, 100);
+
+        Assert.assertFalse(result.isConverged());
+        Assert.assertEquals(Integer.valueOf(1), result.getValue());
+        Assert.assertTrue(result.getAttempts() > 1);
+        Assert.assertTrue(result.getElapsedMillis() >= 100);
+    }
+
+    /**
+     * Test failing polls are retried.
+     */
+    @Test
+    public void testFailedPollsAreRetried() {
+        AtomicInteger polls = new AtomicInteger();
+
+        ConvergenceWaiter.Result<Integer> result = convergenceWaiter.await("count", () -> {
+            if (polls.incrementAndGet() < 2) {
+                throw new IllegalStateException("throttled");
+            }
+            return 2;
+        }, c -> c == 2, 5000);
+
+        Assert.assertTrue(result.isConverged());
+        Assert.assertEquals(2, result.getAttempts());
+    }
+}
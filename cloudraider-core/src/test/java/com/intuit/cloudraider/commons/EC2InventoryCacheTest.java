@@ -0,0 +1,220 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.*;
+import com.intuit.cloudraider.model.BasicCredentials;
+import com.intuit.cloudraider.model.Credentials;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Arrays;
+
+/**
+ * The type Ec 2 inventory cache test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class EC2InventoryCacheTest {
+
+    @Autowired
+    private EC2InventoryCache ec2InventoryCache;
+
+    @Autowired
+    private EC2Delegator ec2Delegator;
+
+    private AmazonEC2 amazonEC2;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        amazonEC2 = Mockito.mock(AmazonEC2.class);
+        Mockito.when(ec2Delegator.getEc2()).thenReturn(amazonEC2);
+
+        Instance web1 = createInstance("i-1", "running", "us-west-2a", "subnet-a", "web");
+        Instance web2 = createInstance("i-2", "stopped", "us-west-2b", "subnet-b", "web");
+        Instance db1 = createInstance("i-3", "running", "us-west-2a", "subnet-a", "db");
+
+        Mockito.when(amazonEC2.describeInstances(Mockito.any(DescribeInstancesRequest.class))).thenReturn(
+                new DescribeInstancesResult()
+                        .withReservations(new Reservation().withInstances(web1, web2))
+                        .withNextToken("page2"),
+                new DescribeInstancesResult()
+                        .withReservations(new Reservation().withInstances(db1)));
+
+        ec2InventoryCache.setTtlSeconds(60);
+        ec2InventoryCache.invalidate();
+    }
+
+    /**
+     * Test snapshot reads every page and builds the indexes.
+     */
+    @Test
+    public void testSnapshotIndexes() {
+        EC2InventorySnapshot snapshot = ec2InventoryCache.getSnapshot();
+
+        Assert.assertEquals(3, snapshot.getInstances().size());
+        Assert.assertEquals("i-3", snapshot.getInstance("i-3").getInstanceId());
+        Assert.assertEquals(2, snapshot.getInstancesByTag("Name", "web").size());
+        Assert.assertEquals(3, snapshot.getInstancesByTagKey("Name").size());
+        Assert.assertEquals(2, snapshot.getInstancesByTagValue("web").size());
+        Assert.assertEquals(2, snapshot.getInstancesByAvailabilityZone("us-west-2a").size());
+        Assert.assertEquals(2, snapshot.getInstancesByState("running").size());
+        Assert.assertEquals(1, snapshot.getInstancesBySubnet("subnet-b").size());
+        Assert.assertEquals(3, snapshot.getInstancesByVpc("vpc-1").size());
+        Assert.assertTrue(snapshot.getInstancesByTag("Name", "missing").isEmpty());
+    }
+
+    /**
+     * Test index keys match exactly, like DescribeInstances filters, so cached and uncached lookups agree.
+     */
+    @Test
+    public void testSnapshotMatchesCaseSensitively() {
+        EC2InventorySnapshot snapshot = ec2InventoryCache.getSnapshot();
+
+        Assert.assertNull(snapshot.getInstance("I-3"));
+        Assert.assertTrue(snapshot.getInstancesByTag("name", "web").isEmpty());
+        Assert.assertTrue(snapshot.getInstancesByTag("Name", "WEB").isEmpty());
+        Assert.assertTrue(snapshot.getInstancesByTagKey("NAME").isEmpty());
+        Assert.assertTrue(snapshot.getInstancesByState("RUNNING").isEmpty());
+    }
+
+    /**
+     * Test filters are evaluated against the indexes.
+     */
+    @Test
+    public void testSnapshotQuery() {
+        EC2InventorySnapshot snapshot = ec2InventoryCache.getSnapshot();
+
+        Assert.assertEquals(1, snapshot.query(Arrays.asList(
+                new Filter("tag:Name", Arrays.asList("web")),
+                new Filter("instance-state-name", Arrays.asList("running")))).size());
+        Assert.assertEquals(3, snapshot.query(Arrays.asList(
+                new Filter("tag:Name", Arrays.asList("web", "db")))).size());
+        Assert.assertEquals(2, snapshot.query(Arrays.asList(
+                new Filter("instance-id", Arrays.asList("i-1", "i-3", "i-9")))).size());
+        Assert.assertFalse(snapshot.supports(Arrays.asList(new Filter("image-id", Arrays.asList("ami-1")))));
+    }
+
+    /**
+     * Test snapshot is reused until invalidated.
+     */
+    @Test
+    public void testSnapshotReusedUntilInvalidated() {
+        EC2InventorySnapshot first = ec2InventoryCache.getSnapshot();
+        Assert.assertSame(first, ec2InventoryCache.getSnapshot());
+        Mockito.verify(amazonEC2, Mockito.times(2)).describeInstances(Mockito.any(DescribeInstancesRequest.class));
+
+        ec2InventoryCache.invalidate();
+        Assert.assertNotSame(first, ec2InventoryCache.getSnapshot());
+    }
+
+    /**
+     * Test ttl of zero disables the cache.
+     */
+    @Test
+    public void testZeroTtlDisablesCache() {
+        ec2InventoryCache.setTtlSeconds(0);
+        Assert.assertFalse(ec2InventoryCache.isEnabled());
+    }
+
+    private Instance createInstance(String id, String state, String availabilityZone, String subnetId, String name) {
+        return new Instance()
+                .withInstanceId(id)
+                .withState(new InstanceState().withName(state))
+                .withPlacement(new Placement().withAvailabilityZone(availabilityZone))
+                .withSubnetId(subnetId)
+                .withVpcId("vpc-1")
+                .withTags(new Tag().withKey("Name").withValue(name));
+    }
+
+    /**
+     * The type Ec 2 inventory cache test context configuration.
+     */
+    @Configuration
+    protected static class EC2InventoryCacheTestContextConfiguration {
+
+        /**
+         * Ec 2 inventory cache.
+         *
+         * @return the ec 2 inventory cache
+         */
+        @Bean
+        public EC2InventoryCache ec2InventoryCache() {
+            return new EC2InventoryCache();
+        }
+
+        /**
+         * Ec 2 delegator ec 2 delegator.
+         *
+         * @return the ec 2 delegator
+         */
+        @Bean
+        public EC2Delegator ec2Delegator() {
+            return Mockito.mock(EC2Delegator.class);
+        }
+
+        /**
+         * Credentials credentials.
+         *
+         * @return the credentials
+         */
+        @Bean
+        public Credentials credentials() {
+            return new BasicCredentials();
+        }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+    }
+}
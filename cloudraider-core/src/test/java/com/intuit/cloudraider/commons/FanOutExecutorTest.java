@@ -0,0 +1,121 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.intuit.cloudraider.commons.FanOutExecutor.TargetType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The type Fan out executor test.
+ */
+public class FanOutExecutorTest {
+
+    private FanOutExecutor fanOutExecutor = new FanOutExecutor();
+
+    /**
+     * Test every target is attempted and failures are reported per target.
+     */
+    @Test
+    public void testFailuresReportedPerTarget() {
+        List<String> hosts = Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.3");
+        List<String> visited = new ArrayList<>();
+
+        FanOutExecutor.FanOutResult<String> result = fanOutExecutor.execute(TargetType.SSH, hosts, h -> h, h -> {
+            synchronized (visited) {
+                visited.add(h);
+            }
+            if (h.endsWith("2")) {
+                throw new RuntimeException("ssh failed");
+            }
+        });
+
+        Assert.assertEquals(3, visited.size());
+        Assert.assertFalse(result.isAllSucceeded());
+        Assert.assertEquals(Arrays.asList("10.0.0.1", "10.0.0.3"), result.getSucceeded());
+        Assert.assertEquals("ssh failed", result.getFailures().get("10.0.0.2").getMessage());
+    }
+
+    /**
+     * Test executeAll throws after all targets ran, naming the failed targets.
+     */
+    @Test
+    public void testExecuteAllThrowsWithFailedTargets() {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            fanOutExecutor.executeAll(TargetType.AWS, Arrays.asList("i-1", "i-2", "i-3"), h -> h, h -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("denied");
+            });
+            Assert.fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            Assert.assertEquals(3, attempts.get());
+            Assert.assertTrue(e.getMessage().contains("3 of 3"));
+            Assert.assertTrue(e.getMessage().contains("i-2"));
+            Assert.assertEquals(3, e.getSuppressed().length);
+        }
+    }
+
+    /**
+     * Test concurrency is bounded by the target type limit.
+     */
+    @Test
+    public void testConcurrencyIsBounded() {
+        int limit = fanOutExecutor.getMaxConcurrency(TargetType.AWS);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> targets = IntStream.range(0, limit * 3).boxed().collect(Collectors.toList());
+
+        FanOutExecutor.FanOutResult<Integer> result = fanOutExecutor.execute(TargetType.AWS, targets, String::valueOf, t -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        });
+
+        Assert.assertTrue(result.isAllSucceeded());
+        Assert.assertEquals(targets.size(), result.getSucceeded().size());
+        Assert.assertTrue(maxRunning.get() <= limit);
+        Assert.assertTrue(maxRunning.get() > 1);
+    }
+
+    /**
+     * Test empty target list.
+     */
+    @Test
+    public void testEmptyTargets() {
+        Assert.assertTrue(fanOutExecutor.execute(TargetType.SSM, new ArrayList<String>(), h -> h, h -> { }).isAllSucceeded());
+    }
+}
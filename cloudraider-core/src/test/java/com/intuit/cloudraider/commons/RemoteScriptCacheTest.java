@@ -0,0 +1,56 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The type Remote script cache test.
+ */
+public class RemoteScriptCacheTest {
+
+    /**
+     * Test scripts are tracked per host and addressed by content.
+     */
+    @Test
+    public void testManifest() {
+        RemoteScriptCache cache = new RemoteScriptCache();
+        String hash = RemoteScriptCache.hash("echo hi".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(64, hash.length());
+        Assert.assertNotEquals(hash, RemoteScriptCache.hash("echo bye".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals("/home/ec2-user/.cloudraider/scripts/" + hash + ".sh", cache.getRemotePath("/home/ec2-user", hash));
+
+        cache.add("10.1.1.1", hash);
+        Assert.assertTrue(cache.contains("10.1.1.1", hash));
+        Assert.assertFalse(cache.contains("10.1.1.2", hash));
+
+        cache.forget("10.1.1.1");
+        Assert.assertFalse(cache.contains("10.1.1.1", hash));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The type Ssh session pool test.
+ */
+public class SshSessionPoolTest {
+
+    private List<Session> opened;
+    private SshSessionPool sshSessionPool;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        opened = new ArrayList<>();
+        sshSessionPool = new SshSessionPool() {
+            @Override
+            protected Session newSession(String ip) {
+                Session session = Mockito.mock(Session.class);
+                Mockito.when(session.isConnected()).thenReturn(true);
+                opened.add(session);
+                return session;
+            }
+        };
+    }
+
+    /**
+     * Tear down.
+     */
+    @After
+    public void tearDown() {
+        sshSessionPool.close();
+    }
+
+    /**
+     * Test released session is reused for the same host only.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testSessionReused() throws Exception {
+        Session first = sshSessionPool.borrow("10.1.1.1");
+        sshSessionPool.release("10.1.1.1", first);
+
+        Assert.assertSame(first, sshSessionPool.borrow("10.1.1.1"));
+        Assert.assertNotSame(first, sshSessionPool.borrow("10.1.1.2"));
+        Assert.assertEquals(2, opened.size());
+        Mockito.verify(first, Mockito.times(1)).connect();
+    }
+
+    /**
+     * Test broken idle session is dropped.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testBrokenSessionDropped() throws Exception {
+        Session first = sshSessionPool.borrow("10.1.1.1");
+        sshSessionPool.release("10.1.1.1", first);
+        Mockito.when(first.isConnected()).thenReturn(false);
+
+        Session second = sshSessionPool.borrow("10.1.1.1");
+
+        Assert.assertNotSame(first, second);
+        Mockito.verify(first).disconnect();
+    }
+
+    /**
+     * Test max sessions per host.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testMaxSessionsPerHost() throws Exception {
+        sshSessionPool.setMaxSessionsPerHost(1);
+        sshSessionPool.setBorrowTimeoutSeconds(0);
+
+        Session first = sshSessionPool.borrow("10.1.1.1");
+        try {
+            sshSessionPool.borrow("10.1.1.1");
+            Assert.fail("expected JSchException");
+        } catch (JSchException e) {
+            Assert.assertTrue(e.getMessage().contains("10.1.1.1"));
+        }
+
+        sshSessionPool.invalidate("10.1.1.1", first);
+        Assert.assertNotNull(sshSessionPool.borrow("10.1.1.1"));
+    }
+
+    /**
+     * Test idle sessions are evicted.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testIdleSessionsEvicted() throws Exception {
+        Session first = sshSessionPool.borrow("10.1.1.1");
+        sshSessionPool.release("10.1.1.1", first);
+        Assert.assertEquals(1, sshSessionPool.getIdleCount("10.1.1.1"));
+
+        sshSessionPool.setIdleTimeoutSeconds(0);
+        sshSessionPool.evictIdle();
+
+        Assert.assertEquals(0, sshSessionPool.getIdleCount("10.1.1.1"));
+        Mockito.verify(first).disconnect();
+    }
+
+    /**
+     * Test the bastion session is kept when a borrow starts while eviction waits for the bastion lock.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testEvictionKeepsBastionForBorrowInFlight() throws Exception {
+        Session bastion = Mockito.mock(Session.class);
+        ReflectionTestUtils.setField(sshSessionPool, "bastionSession", bastion);
+
+        Thread evictor = new Thread(sshSessionPool::evictIdle);
+        synchronized (sshSessionPool) {
+            evictor.start();
+            evictor.join(200);
+            Assert.assertTrue(evictor.isAlive());
+            sshSessionPool.borrow("10.1.1.1");
+        }
+        evictor.join(5000);
+
+        Assert.assertFalse(evictor.isAlive());
+        Mockito.verify(bastion, Mockito.never()).disconnect();
+    }
+}
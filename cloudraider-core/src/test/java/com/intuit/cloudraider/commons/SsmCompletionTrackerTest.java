@@ -0,0 +1,152 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.commons;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.CommandInvocation;
+import com.amazonaws.services.simplesystemsmanagement.model.ListCommandInvocationsRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.ListCommandInvocationsResult;
+import com.intuit.cloudraider.model.SsmCommandBatch;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The type Ssm completion tracker test.
+ */
+public class SsmCompletionTrackerTest {
+
+    private AWSSimpleSystemsManagement amazonSSM;
+    private SsmCompletionTracker tracker;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        amazonSSM = Mockito.mock(AWSSimpleSystemsManagement.class);
+        SSMDelegator ssmDelegator = Mockito.mock(SSMDelegator.class);
+        Mockito.when(ssmDelegator.getAWSSimpleSystemsManagement()).thenReturn(amazonSSM);
+        tracker = new SsmCompletionTracker(ssmDelegator, 1, 4, 2000);
+    }
+
+    /**
+     * Tear down.
+     */
+    @After
+    public void tearDown() {
+        tracker.shutdown();
+    }
+
+    /**
+     * Test statuses are read from every page.
+     */
+    @Test
+    public void testStatusesReadFromEveryPage() {
+        Mockito.when(amazonSSM.listCommandInvocations(Mockito.any(ListCommandInvocationsRequest.class))).thenReturn(
+                new ListCommandInvocationsResult()
+                        .withCommandInvocations(invocation("i-1", "Success"), invocation("i-2", "InProgress"))
+                        .withNextToken("page2"),
+                new ListCommandInvocationsResult()
+                        .withCommandInvocations(invocation("i-3", "Failed")));
+
+        Map<String, String> statuses = tracker.getStatuses(new SsmCommandBatch("cmd-1", Arrays.asList("i-1", "i-2", "i-3", "i-4")));
+
+        Mockito.verify(amazonSSM, Mockito.times(2)).listCommandInvocations(Mockito.any(ListCommandInvocationsRequest.class));
+        Assert.assertEquals("Success", statuses.get("i-1"));
+        Assert.assertEquals("InProgress", statuses.get("i-2"));
+        Assert.assertEquals("Failed", statuses.get("i-3"));
+        Assert.assertEquals(SsmCompletionTracker.PENDING_STATUS, statuses.get("i-4"));
+    }
+
+    /**
+     * Test completion waits for every invocation to reach a terminal state and stops polling finished commands.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testCompletesWhenAllTerminal() throws Exception {
+        Mockito.when(amazonSSM.listCommandInvocations(Mockito.argThat(commandId("cmd-1")))).thenReturn(
+                new ListCommandInvocationsResult().withCommandInvocations(invocation("i-1", "Success")));
+        Mockito.when(amazonSSM.listCommandInvocations(Mockito.argThat(commandId("cmd-2")))).thenReturn(
+                new ListCommandInvocationsResult().withCommandInvocations(invocation("i-2", "Pending")),
+                new ListCommandInvocationsResult().withCommandInvocations(invocation("i-2", "InProgress")),
+                new ListCommandInvocationsResult().withCommandInvocations(invocation("i-2", "Failed")));
+
+        SsmCommandBatch batch = new SsmCommandBatch();
+        batch.addCommand("cmd-1", Arrays.asList("i-1"));
+        batch.addCommand("cmd-2", Arrays.asList("i-2"));
+        Map<String, String> statuses = tracker.whenComplete(batch).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals("Success", statuses.get("i-1"));
+        Assert.assertEquals("Failed", statuses.get("i-2"));
+        Mockito.verify(amazonSSM, Mockito.times(1)).listCommandInvocations(Mockito.argThat(commandId("cmd-1")));
+        Mockito.verify(amazonSSM, Mockito.times(3)).listCommandInvocations(Mockito.argThat(commandId("cmd-2")));
+    }
+
+    /**
+     * Test completion fails once the timeout elapsed.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        tracker.shutdown();
+        SSMDelegator ssmDelegator = Mockito.mock(SSMDelegator.class);
+        Mockito.when(ssmDelegator.getAWSSimpleSystemsManagement()).thenReturn(amazonSSM);
+        tracker = new SsmCompletionTracker(ssmDelegator, 1, 4, 20);
+        Mockito.when(amazonSSM.listCommandInvocations(Mockito.any(ListCommandInvocationsRequest.class))).thenReturn(
+                new ListCommandInvocationsResult().withCommandInvocations(invocation("i-1", "InProgress")));
+
+        try {
+            tracker.whenComplete(new SsmCommandBatch("cmd-1", Arrays.asList("i-1"))).get(5, TimeUnit.SECONDS);
+            Assert.fail("expected TimeoutException");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    private CommandInvocation invocation(String instanceId, String status) {
+        return new CommandInvocation().withInstanceId(instanceId).withStatus(status);
+    }
+
+    private ArgumentMatcher<ListCommandInvocationsRequest> commandId(String commandId) {
+        return new ArgumentMatcher<ListCommandInvocationsRequest>() {
+            @Override
+            public boolean matches(Object argument) {
+                return argument != null && commandId.equals(((ListCommandInvocationsRequest) argument).getCommandId());
+            }
+        };
+    }
+}
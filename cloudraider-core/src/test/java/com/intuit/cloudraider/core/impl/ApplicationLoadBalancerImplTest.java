@@ -32,14 +32,22 @@ import com.amazonaws.services.elasticloadbalancing.model.ListenerDescription;
 import com.amazonaws.services.elasticloadbalancing.model.LoadBalancerDescription;
 import com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancing;
 import com.amazonaws.services.elasticloadbalancingv2.model.*;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
 import com.intuit.cloudraider.commons.ApplicationLoadBalancerDelegator;
+import com.intuit.cloudraider.commons.EC2Delegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
+import com.intuit.cloudraider.commons.EC2InventorySnapshot;
+import com.intuit.cloudraider.commons.FanOutExecutor;
 import com.intuit.cloudraider.exceptions.UnSupportedFeatureException;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
+import com.intuit.cloudraider.model.TargetHealthSnapshot;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
@@ -53,6 +61,9 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -71,6 +82,9 @@ public class ApplicationLoadBalancerImplTest {
     @Autowired
     private ApplicationLoadBalancerDelegator applicationLoadBalancerDelegator;
 
+    @Autowired
+    private EC2InventoryCache ec2InventoryCache;
+
 
 
     private AmazonElasticLoadBalancing amazonElasticLoadBalancing;
@@ -399,6 +413,119 @@ public class ApplicationLoadBalancerImplTest {
         Assert.assertEquals(1, map.size());
     }
 
+    /**
+     * Test target health snapshot covers every target group and indexes targets by state and availability zone.
+     */
+    @Test
+    public void getTargetHealthSnapshotTest()
+    {
+        mockTargetHealth();
+
+        TargetHealthSnapshot snapshot = applicationLoadBalancerRaider.getTargetHealthSnapshot("helloTest");
+
+        Assert.assertEquals(Arrays.asList("arn:tg1", "arn:tg2"), snapshot.getTargetGroupArns());
+        Assert.assertEquals(Arrays.asList("i-1", "i-3"), snapshot.getTargetIds("HEALTHY"));
+        Assert.assertEquals(Arrays.asList("i-2"), snapshot.getTargetIds("unhealthy"));
+        Assert.assertEquals(3, snapshot.getTargetIds().size());
+        Assert.assertEquals(Integer.valueOf(1), snapshot.getCountsByTargetGroup().get("arn:tg1").get("unhealthy"));
+        Assert.assertEquals(Integer.valueOf(1), snapshot.getCountsByTargetGroup().get("arn:tg2").get("healthy"));
+        Assert.assertEquals(Integer.valueOf(1), snapshot.getCountsByAvailabilityZone().get("us-west-2a").get("healthy"));
+        Assert.assertEquals(Integer.valueOf(1), snapshot.getCountsByAvailabilityZone().get("us-west-2b").get("unhealthy"));
+        Assert.assertEquals("us-west-2b", snapshot.getAvailabilityZone("i-2"));
+        Assert.assertEquals(TargetHealthSnapshot.UNKNOWN_AVAILABILITY_ZONE, snapshot.getAvailabilityZone("i-3"));
+    }
+
+    /**
+     * Test in and out of service instances are read from every target group.
+     */
+    @Test
+    public void getServiceInstancesTest()
+    {
+        mockTargetHealth();
+
+        List<String> inService = applicationLoadBalancerRaider.getInServiceInstances("helloTest");
+        Collections.sort(inService);
+        Assert.assertEquals(Arrays.asList("i-1", "i-3"), inService);
+        Assert.assertEquals(Arrays.asList("i-2"), applicationLoadBalancerRaider.getOutOfServiceInstances("helloTest"));
+        Assert.assertEquals(3, applicationLoadBalancerRaider.getLoadBalancerInstances("helloTest").size());
+        Assert.assertEquals("i-1", applicationLoadBalancerRaider.getLoadBalancerInstances("helloTest").get(0).getInstanceId());
+    }
+
+    /**
+     * Test the target groups de-registered from are reported when the request for another group fails.
+     */
+    @Test
+    public void deregisterTargetsReportsSucceededGroupsOnFailure()
+    {
+        mockTargetHealth();
+        Mockito.when(amazonElasticLoadBalancing.deregisterTargets(Mockito.argThat(new ArgumentMatcher<DeregisterTargetsRequest>() {
+            @Override
+            public boolean matches(Object request) {
+                return "arn:tg2".equals(((DeregisterTargetsRequest) request).getTargetGroupArn());
+            }
+        }))).thenThrow(new RuntimeException("throttled"));
+
+        Map<String, List<TargetDescription>> reported = new LinkedHashMap<>();
+        try {
+            applicationLoadBalancerRaider.deregisterTargets("helloTest", Arrays.asList("i-2", "i-3"), reported::putAll);
+            Assert.fail("expected the failed target group to be thrown");
+        } catch (RuntimeException e) {
+            Assert.assertEquals(Arrays.asList("arn:tg1"), new ArrayList<>(reported.keySet()));
+            Assert.assertEquals(Integer.valueOf(8080), reported.get("arn:tg1").get(0).getPort());
+        }
+    }
+
+    /**
+     * Test instances are de-registered from every target group with one request per group, keeping their ports.
+     */
+    @Test
+    public void deregisterTargetsTest()
+    {
+        mockTargetHealth();
+
+        Map<String, List<TargetDescription>> removed = applicationLoadBalancerRaider.deregisterTargets("helloTest", Arrays.asList("i-2", "i-3"));
+
+        Assert.assertEquals(Arrays.asList("arn:tg1", "arn:tg2"), new ArrayList<>(removed.keySet()));
+        Assert.assertEquals(Integer.valueOf(8080), removed.get("arn:tg1").get(0).getPort());
+        Mockito.verify(amazonElasticLoadBalancing).deregisterTargets(new DeregisterTargetsRequest()
+                .withTargetGroupArn("arn:tg1").withTargets(removed.get("arn:tg1")));
+        Mockito.verify(amazonElasticLoadBalancing).deregisterTargets(new DeregisterTargetsRequest()
+                .withTargetGroupArn("arn:tg2").withTargets(removed.get("arn:tg2")));
+        Mockito.verify(amazonElasticLoadBalancing, Mockito.times(2)).deregisterTargets(Mockito.any(DeregisterTargetsRequest.class));
+
+        applicationLoadBalancerRaider.registerTargets(removed);
+        Mockito.verify(amazonElasticLoadBalancing).registerTargets(new RegisterTargetsRequest()
+                .withTargetGroupArn("arn:tg1").withTargets(removed.get("arn:tg1")));
+        Mockito.verify(amazonElasticLoadBalancing, Mockito.times(2)).registerTargets(Mockito.any(RegisterTargetsRequest.class));
+    }
+
+    private void mockTargetHealth() {
+        PowerMockito.when(amazonElasticLoadBalancing.describeTargetGroups(Mockito.any(DescribeTargetGroupsRequest.class)))
+                .thenReturn(new DescribeTargetGroupsResult().withTargetGroups(
+                        new TargetGroup().withTargetGroupArn("arn:tg1"),
+                        new TargetGroup().withTargetGroupArn("arn:tg2")));
+        PowerMockito.when(amazonElasticLoadBalancing.describeTargetHealth(new DescribeTargetHealthRequest().withTargetGroupArn("arn:tg1")))
+                .thenReturn(new DescribeTargetHealthResult().withTargetHealthDescriptions(
+                        createTargetHealth("i-1", "us-west-2a", "healthy"),
+                        createTargetHealth("i-2", null, "unhealthy")));
+        PowerMockito.when(amazonElasticLoadBalancing.describeTargetHealth(new DescribeTargetHealthRequest().withTargetGroupArn("arn:tg2")))
+                .thenReturn(new DescribeTargetHealthResult().withTargetHealthDescriptions(
+                        createTargetHealth("i-3", null, "healthy")));
+
+        com.amazonaws.services.ec2.model.Instance instance = new com.amazonaws.services.ec2.model.Instance()
+                .withInstanceId("i-2")
+                .withPlacement(new Placement().withAvailabilityZone("us-west-2b"));
+        PowerMockito.when(ec2InventoryCache.isEnabled()).thenReturn(true);
+        PowerMockito.when(ec2InventoryCache.getSnapshot())
+                .thenReturn(new EC2InventorySnapshot("us-west-2", Arrays.asList(instance), System.currentTimeMillis()));
+    }
+
+    private TargetHealthDescription createTargetHealth(String id, String availabilityZone, String state) {
+        return new TargetHealthDescription()
+                .withTarget(new TargetDescription().withId(id).withPort(8080).withAvailabilityZone(availabilityZone))
+                .withTargetHealth(new TargetHealth().withState(state));
+    }
+
     /**
      * The type Application load balancer impl test context configuration.
      */
@@ -435,6 +562,56 @@ public class ApplicationLoadBalancerImplTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
+        /**
+         * Ec 2 inventory cache.
+         *
+         * @return the ec 2 inventory cache
+         */
+        @Bean
+        public EC2InventoryCache ec2InventoryCache() {
+            return Mockito.mock(EC2InventoryCache.class);
+        }
+
+        /**
+         * Ec 2 delegator.
+         *
+         * @return the ec 2 delegator
+         */
+        @Bean
+        public EC2Delegator ec2Delegator() {
+            return Mockito.mock(EC2Delegator.class);
+        }
+
 
 
     }
@@ -26,10 +26,17 @@ package com.intuit.cloudraider.core.impl;
 
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
 import com.amazonaws.services.cloudwatch.model.*;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.CloudWatchAlarmIndex;
 import com.intuit.cloudraider.commons.CloudWatchDelegator;
+import com.intuit.cloudraider.commons.FanOutExecutor;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
 import com.intuit.cloudraider.model.AlarmStateValue;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
+import com.intuit.cloudraider.model.MetricQuery;
+import com.intuit.cloudraider.model.MetricTimeSeries;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -49,8 +56,11 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 @PowerMockIgnore({"javax.management.*","javax.net.ssl.*"})
@@ -66,6 +76,9 @@ public class CloudWatchRaiderImplTest {
     @Autowired
     private CloudWatchDelegator cwDelegator;
 
+    @Autowired
+    private CloudWatchAlarmIndex cloudWatchAlarmIndex;
+
 
     private  AmazonCloudWatch amazonCloudWatch;
 
@@ -80,6 +93,7 @@ public class CloudWatchRaiderImplTest {
 
         amazonCloudWatch = PowerMockito.mock(AmazonCloudWatch.class);
         PowerMockito.when(cwDelegator.getAmazonCloudWatch()).thenReturn(amazonCloudWatch);
+        cloudWatchAlarmIndex.invalidate();
 
         MetricAlarm metricAlarm = new MetricAlarm();
         metricAlarm.setAlarmName("test-alarm");
@@ -199,6 +213,91 @@ public class CloudWatchRaiderImplTest {
 
     }
 
+    /**
+     * Test get alarm states in bulk.
+     */
+    @Test
+    public void testGetAlarmStates() {
+
+        PowerMockito.when(amazonCloudWatch.describeAlarms(Mockito.any(DescribeAlarmsRequest.class))).thenReturn(
+                new DescribeAlarmsResult().withMetricAlarms(new MetricAlarm().withAlarmName("test-alarm").withStateValue("ALARM")));
+
+        Map<String, String> states = cwRaiderImplUnderTest.getAlarmStates(Arrays.asList("test-alarm", "missing-alarm"));
+        Assert.assertEquals("ALARM", states.get("test-alarm"));
+        Assert.assertEquals(AlarmStateValue.NON_EXISTENT.name(), states.get("missing-alarm"));
+    }
+
+    /**
+     * Test count alarms in state pushes the state filter to CloudWatch.
+     */
+    @Test
+    public void testCountAlarmsInStateFilter() {
+
+        PowerMockito.when(amazonCloudWatch.describeAlarms(Mockito.any(DescribeAlarmsRequest.class))).thenReturn(new DescribeAlarmsResult());
+        Assert.assertEquals(new Integer(0), cwRaiderImplUnderTest.countAlarmsInState("alarm"));
+        Mockito.verify(amazonCloudWatch).describeAlarms(new DescribeAlarmsRequest().withStateValue("ALARM"));
+    }
+
+    /**
+     * Test get ec 2 metrics returns a time series per instance.
+     */
+    @Test
+    public void testGetEC2Metrics() {
+
+        PowerMockito.when(amazonCloudWatch.getMetricStatistics(Mockito.any(GetMetricStatisticsRequest.class))).thenAnswer(invocation -> {
+            GetMetricStatisticsRequest request = (GetMetricStatisticsRequest) invocation.getArguments()[0];
+            double value = "i-1".equals(request.getDimensions().get(0).getValue()) ? 10.0 : 20.0;
+            return new GetMetricStatisticsResult().withDatapoints(
+                    new Datapoint().withTimestamp(new Date(120000)).withAverage(value + 1),
+                    new Datapoint().withTimestamp(new Date(60000)).withAverage(value));
+        });
+
+        Map<String, MetricTimeSeries> metrics = cwRaiderImplUnderTest.getEC2Metrics(Arrays.asList("i-1", "i-2", "i-1"),
+                "CPUUtilization", new Date(0), new Date(180000), 60);
+
+        Mockito.verify(amazonCloudWatch, Mockito.times(2)).getMetricStatistics(Mockito.any(GetMetricStatisticsRequest.class));
+        Assert.assertEquals(2, metrics.size());
+        Assert.assertEquals(Arrays.asList(10.0, 11.0), metrics.get("i-1").getValues());
+        Assert.assertEquals(new Double(21.0), metrics.get("i-2").getLatestValue());
+    }
+
+    /**
+     * Test long windows are split and expressions are evaluated on the fetched series.
+     */
+    @Test
+    public void testGetMetricDataWithExpression() {
+
+        PowerMockito.when(amazonCloudWatch.getMetricStatistics(Mockito.any(GetMetricStatisticsRequest.class))).thenAnswer(invocation -> {
+            GetMetricStatisticsRequest request = (GetMetricStatisticsRequest) invocation.getArguments()[0];
+            double value = "HTTPCode_Backend_5XX".equals(request.getMetricName()) ? 5.0 : 50.0;
+            return new GetMetricStatisticsResult().withDatapoints(
+                    new Datapoint().withTimestamp(request.getStartTime()).withSum(value));
+        });
+
+        Dimension dimension = new Dimension().withName("LoadBalancerName").withValue("test-lb");
+        List<MetricQuery> queries = Arrays.asList(
+                MetricQuery.metric("errors", "AWS/ELB", "HTTPCode_Backend_5XX", "Sum", dimension),
+                MetricQuery.metric("requests", "AWS/ELB", "RequestCount", "Sum", dimension),
+                MetricQuery.expression("rate", "100 * errors / requests"));
+
+        Map<String, MetricTimeSeries> metrics = cwRaiderImplUnderTest.getMetricData(queries,
+                new Date(0), new Date(TimeUnit.DAYS.toMillis(2)), 60);
+
+        Mockito.verify(amazonCloudWatch, Mockito.times(4)).getMetricStatistics(Mockito.any(GetMetricStatisticsRequest.class));
+        Assert.assertEquals(Arrays.asList("errors", "requests", "rate"), new ArrayList<>(metrics.keySet()));
+        Assert.assertEquals(2, metrics.get("errors").size());
+        Assert.assertEquals(Arrays.asList(10.0, 10.0), metrics.get("rate").getValues());
+    }
+
+    /**
+     * Test duplicate query ids are rejected.
+     */
+    @Test (expected = InvalidInputDataException.class)
+    public void testGetMetricDataDuplicateIds() {
+        cwRaiderImplUnderTest.getMetricData(Arrays.asList(MetricQuery.expression("a", "1"), MetricQuery.expression("a", "2")),
+                new Date(0), new Date(60000), 60);
+    }
+
     /**
      * Test get simple cloud watch metric alarm status.
      */
@@ -245,6 +344,26 @@ public class CloudWatchRaiderImplTest {
             return new CloudWatchRaiderImpl();
         }
 
+        /**
+         * Cloud watch alarm index.
+         *
+         * @return the cloud watch alarm index
+         */
+        @Bean
+        public CloudWatchAlarmIndex cloudWatchAlarmIndex() {
+            return new CloudWatchAlarmIndex();
+        }
+
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
         /**
          * Credentials credentials.
          *
@@ -255,6 +374,26 @@ public class CloudWatchRaiderImplTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
 
 
     }
@@ -24,6 +24,8 @@
 
 package com.intuit.cloudraider.core.impl;
 
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
 import com.intuit.cloudraider.commons.DynamoDBDelegator;
 import com.intuit.cloudraider.core.interfaces.SystemRaider;
 import com.intuit.cloudraider.model.BasicCredentials;
@@ -152,5 +154,25 @@ public class DynamoDBRaiderImplTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
     }
 }
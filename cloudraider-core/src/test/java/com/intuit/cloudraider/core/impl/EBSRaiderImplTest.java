@@ -26,6 +26,8 @@ package com.intuit.cloudraider.core.impl;
 
 import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.model.*;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
 import com.intuit.cloudraider.commons.EC2Delegator;
 import com.intuit.cloudraider.exceptions.InvalidInputDataException;
 import com.intuit.cloudraider.model.BasicCredentials;
@@ -225,6 +227,26 @@ public class EBSRaiderImplTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
 
 
     }
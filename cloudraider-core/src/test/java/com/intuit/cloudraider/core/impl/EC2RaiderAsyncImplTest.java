@@ -0,0 +1,254 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.impl;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.ec2.AmazonEC2Async;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceState;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.StopInstancesRequest;
+import com.amazonaws.services.ec2.model.TerminateInstancesRequest;
+import com.amazonaws.services.ec2.model.TerminateInstancesResult;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.EC2Delegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
+import com.intuit.cloudraider.core.interfaces.EC2RaiderAsync;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import com.intuit.cloudraider.model.BasicCredentials;
+import com.intuit.cloudraider.model.Credentials;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+
+/**
+ * The type Ec 2 raider async impl test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class EC2RaiderAsyncImplTest {
+
+    @Autowired
+    private EC2RaiderAsync ec2RaiderAsync;
+
+    @Autowired
+    private EC2Delegator ec2Delegator;
+
+    @Autowired
+    private EC2InventoryCache inventoryCache;
+
+    private AmazonEC2Async amazonEC2Async;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        Mockito.reset(inventoryCache);
+        amazonEC2Async = Mockito.mock(AmazonEC2Async.class);
+        Mockito.when(ec2Delegator.getEc2Async()).thenReturn(amazonEC2Async);
+
+        Instance instance = new Instance()
+                .withInstanceId("i-1234")
+                .withState(new InstanceState().withName("running"));
+        DescribeInstancesResult describeInstancesResult = new DescribeInstancesResult()
+                .withReservations(new Reservation().withInstances(instance));
+
+        Mockito.when(amazonEC2Async.describeInstancesAsync(Mockito.any(DescribeInstancesRequest.class), Mockito.any()))
+                .thenAnswer(succeed(describeInstancesResult));
+    }
+
+    /**
+     * Test get instance status by id.
+     */
+    @Test
+    public void testGetInstanceStatusById() {
+        Assert.assertEquals("running", ec2RaiderAsync.getInstanceStatusById("i-1234").join());
+    }
+
+    /**
+     * Test status of a missing instance fails the future.
+     */
+    @Test
+    public void testGetInstanceStatusByIdNotFound() {
+        try {
+            ec2RaiderAsync.getInstanceStatusById("i-9999").join();
+            Assert.fail("expected failure");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof ResourceNotFoundException);
+        }
+    }
+
+    /**
+     * Test terminate completes, and invalidates the inventory, only once the client call completes.
+     */
+    @Test
+    public void testTerminateEc2InstancesById() {
+        List<AsyncHandler<TerminateInstancesRequest, TerminateInstancesResult>> handlers = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            handlers.add(handler(invocation));
+            return new CompletableFuture<>();
+        }).when(amazonEC2Async).terminateInstancesAsync(Mockito.any(TerminateInstancesRequest.class), Mockito.any());
+
+        CompletableFuture<Void> future = ec2RaiderAsync.terminateEc2InstancesById(Arrays.asList("i-1234", "i-4567"));
+
+        Assert.assertEquals(1, handlers.size());
+        Assert.assertFalse(future.isDone());
+        Mockito.verify(inventoryCache, Mockito.never()).invalidate();
+
+        handlers.get(0).onSuccess(null, new TerminateInstancesResult());
+        Assert.assertTrue(future.isDone());
+        Assert.assertFalse(future.isCompletedExceptionally());
+        Mockito.verify(inventoryCache).invalidate();
+    }
+
+    /**
+     * Test stop surfaces the client error through the future.
+     */
+    @Test
+    public void testStopEc2InstancesFailure() {
+        Mockito.when(amazonEC2Async.stopInstancesAsync(Mockito.any(StopInstancesRequest.class), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    handler(invocation).onError(new IllegalStateException("boom"));
+                    return new CompletableFuture<>();
+                });
+
+        try {
+            ec2RaiderAsync.stopEc2Instances("i-1234").join();
+            Assert.fail("expected failure");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Mockito.verify(inventoryCache, Mockito.never()).invalidate();
+    }
+
+    /**
+     * Test invalid input is rejected before any call is made.
+     */
+    @Test(expected = InvalidInputDataException.class)
+    public void testTerminateEc2InstancesByIdEmpty() {
+        ec2RaiderAsync.terminateEc2InstancesById(new ArrayList<>());
+    }
+
+    private static <RESULT> Answer<Future<RESULT>> succeed(RESULT result) {
+        return invocation -> {
+            handler(invocation).onSuccess((AmazonWebServiceRequest) invocation.getArguments()[0], result);
+            return CompletableFuture.completedFuture(result);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <REQUEST extends AmazonWebServiceRequest, RESULT> AsyncHandler<REQUEST, RESULT> handler(InvocationOnMock invocation) {
+        return (AsyncHandler<REQUEST, RESULT>) invocation.getArguments()[1];
+    }
+
+    /**
+     * The type Ec 2 raider async impl test context configuration.
+     */
+    @Configuration
+    protected static class EC2RaiderAsyncImplTestContextConfiguration {
+
+        /**
+         * Ec 2 delegator ec 2 delegator.
+         *
+         * @return the ec 2 delegator
+         */
+        @Bean
+        public EC2Delegator ec2Delegator() {
+            return Mockito.mock(EC2Delegator.class);
+        }
+
+        /**
+         * Ec 2 inventory cache ec 2 inventory cache.
+         *
+         * @return the ec 2 inventory cache
+         */
+        @Bean
+        public EC2InventoryCache ec2InventoryCache() {
+            return Mockito.mock(EC2InventoryCache.class);
+        }
+
+        /**
+         * Ec 2 raider async ec 2 raider async.
+         *
+         * @return the ec 2 raider async
+         */
+        @Bean(name = {"ec2RaiderAsyncBean"})
+        public EC2RaiderAsync ec2RaiderAsync() {
+            return new EC2RaiderAsyncImpl();
+        }
+
+        /**
+         * Credentials credentials.
+         *
+         * @return the credentials
+         */
+        @Bean
+        public Credentials credentials() {
+            return new BasicCredentials();
+        }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+    }
+}
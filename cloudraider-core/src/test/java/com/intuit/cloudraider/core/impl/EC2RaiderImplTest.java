@@ -26,7 +26,10 @@ package com.intuit.cloudraider.core.impl;
 
 import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.model.*;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
 import com.intuit.cloudraider.commons.EC2Delegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
 import com.intuit.cloudraider.exceptions.InvalidInputDataException;
 import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
 import com.intuit.cloudraider.model.BasicCredentials;
@@ -37,6 +40,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
@@ -50,6 +54,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -69,6 +74,9 @@ public class EC2RaiderImplTest {
     @Autowired
     private  EC2Delegator ec2Delegator;
 
+    @Autowired
+    private EC2InventoryCache ec2InventoryCache;
+
     private  Instance instance;
 
     /**
@@ -90,7 +98,7 @@ public class EC2RaiderImplTest {
 
         instance = new Instance();
         instance.setInstanceId("1234");
-        instance.setState(new InstanceState().withName("Running"));
+        instance.setState(new InstanceState().withName("running"));
         instance.setPrivateIpAddress("10.1.1.1");
         instance.setPlacement(new Placement().withAvailabilityZone("us-west-2c"));
         GroupIdentifier sg = new GroupIdentifier();
@@ -122,6 +130,8 @@ public class EC2RaiderImplTest {
         PowerMockito.when(ec2Delegator.getEc2().describeInstanceAttribute(Mockito.anyObject()).getInstanceAttribute().getGroups()).thenReturn(securityGroups);
 
       //  ec2RaiderImplUnderTest = new EC2RaiderImpl();
+        ec2InventoryCache.setTtlSeconds(0);
+        ec2InventoryCache.invalidate();
     }
 
     /**
@@ -321,7 +331,7 @@ public class EC2RaiderImplTest {
         PowerMockito.when(ec2Delegator.getEc2().describeInstances(Mockito.anyObject()).getReservations()).thenReturn(reservations);
         PowerMockito.when(ec2Delegator.getEc2().terminateInstances(Mockito.anyObject())).thenReturn(response);
 
-        ec2RaiderImplUnderTest.terminateEc2InstancesByTags("service1", "service2");
+        ec2RaiderImplUnderTest.terminateEc2InstancesByTags("service1", "TAG1");
 
     }
 
@@ -358,8 +368,8 @@ public class EC2RaiderImplTest {
         TerminateInstancesResult response = PowerMockito.mock(TerminateInstancesResult.class);
         PowerMockito.when(ec2Delegator.getEc2().terminateInstances(Mockito.anyObject())).thenReturn(response);
 
-        ec2RaiderImplUnderTest.terminateEc2InstancesByTags("service1",1);
-        ec2RaiderImplUnderTest.terminateEc2InstancesByTags("service1",2);
+        ec2RaiderImplUnderTest.terminateEc2InstancesByTags("tag1",1);
+        ec2RaiderImplUnderTest.terminateEc2InstancesByTags("Tag1",2);
 
     }
 
@@ -413,6 +423,147 @@ public class EC2RaiderImplTest {
 
     }
 
+    /**
+     * Test get ec 2 status by ids keeps duplicates in caller order.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testGetEC2StatusByDuplicateIds() throws Exception{
+
+        List<EC2InstanceTO> ec2InstanceTOList = ec2RaiderImplUnderTest.getEC2InstancesByIds(Arrays.asList("1234", "1234"));
+        Assert.assertEquals(ec2InstanceTOList.size(), 2);
+        Assert.assertEquals(ec2InstanceTOList.get(1).getInstanceId(), "1234");
+    }
+
+    /**
+     * Test get ec 2 status by ids reports all missing ids.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testGetEC2StatusByInvalidIds() throws Exception{
+
+        try {
+            ec2RaiderImplUnderTest.getEC2InstancesByIds(Arrays.asList("1234", "999", "888"));
+            Assert.fail("expected ResourceNotFoundException");
+        } catch (ResourceNotFoundException e) {
+            Assert.assertTrue(e.getMessage().contains("999"));
+            Assert.assertTrue(e.getMessage().contains("888"));
+            Assert.assertFalse(e.getMessage().contains("1234"));
+        }
+    }
+
+    /**
+     * Test get ec 2 status by empty ids.
+     */
+    @Test
+    public void testGetEC2StatusByEmptyIds() {
+        Assert.assertTrue(ec2RaiderImplUnderTest.getEC2InstancesByIds(new ArrayList<>()).isEmpty());
+    }
+
+    /**
+     * Test ec 2 status by id sends instance id and state filters.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testEC2StatusByIdUsesFilters() throws Exception{
+
+        ec2RaiderImplUnderTest.getEC2InstanceById("1234");
+
+        ArgumentCaptor<DescribeInstancesRequest> captor = ArgumentCaptor.forClass(DescribeInstancesRequest.class);
+        Mockito.verify(ec2Delegator.getEc2(), Mockito.atLeastOnce()).describeInstances(captor.capture());
+        List<Filter> filters = captor.getValue().getFilters();
+        Assert.assertTrue(filters.contains(new Filter("instance-id", Arrays.asList("1234"))));
+        Assert.assertTrue(filters.contains(new Filter("instance-state-name", Arrays.asList("running"))));
+    }
+
+    /**
+     * Test tag lookups match the tag key and value case insensitively on the client.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testGetInstancesFromAnyTagsIgnoresCase() throws Exception{
+
+        List<EC2InstanceTO> ec2InstanceTOs = ec2RaiderImplUnderTest.getInstancesFromAnyTags(
+                Arrays.asList(new Tag().withKey("name").withValue("TAG1")));
+        Assert.assertEquals(ec2InstanceTOs.size(), 1);
+        Assert.assertEquals(ec2RaiderImplUnderTest.getInstancesByName("Tag1").size(), 1);
+
+        ArgumentCaptor<DescribeInstancesRequest> captor = ArgumentCaptor.forClass(DescribeInstancesRequest.class);
+        Mockito.verify(ec2Delegator.getEc2(), Mockito.atLeastOnce()).describeInstances(captor.capture());
+        List<Filter> filters = captor.getValue().getFilters();
+        Assert.assertEquals(filters, Arrays.asList(new Filter("instance-state-name", Arrays.asList("running"))));
+    }
+
+    /**
+     * Test lookups are served from the inventory cache when it is enabled.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testLookupsUseInventoryCache() throws Exception{
+
+        ec2InventoryCache.setTtlSeconds(60);
+
+        Assert.assertEquals(ec2RaiderImplUnderTest.getInstancesByName("TAG1").size(), 1);
+        Assert.assertEquals(ec2RaiderImplUnderTest.getEc2InstanceIPsForAvailabilityZone("us-west-2c", new ArrayList<>()).size(), 1);
+
+        Mockito.verify(ec2Delegator.getEc2(), Mockito.times(1)).describeInstances(new DescribeInstancesRequest());
+    }
+
+    /**
+     * Test id and status lookups bypass the inventory cache so they return the current state.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testStatusLookupsBypassInventoryCache() throws Exception{
+
+        ec2InventoryCache.setTtlSeconds(60);
+
+        Assert.assertEquals(ec2RaiderImplUnderTest.getEC2InstanceById("1234").getInstanceId(), "1234");
+        Assert.assertEquals(ec2RaiderImplUnderTest.getInstanceStatusById("1234"), "running");
+        Assert.assertEquals(ec2RaiderImplUnderTest.getEC2InstanceState("tag1").get("1234"), "running");
+
+        Mockito.verify(ec2Delegator.getEc2(), Mockito.never()).describeInstances(new DescribeInstancesRequest());
+    }
+
+    /**
+     * Test terminating an instance invalidates the inventory cache.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testTerminateInvalidatesInventoryCache() throws Exception{
+
+        ec2InventoryCache.setTtlSeconds(60);
+
+        ec2RaiderImplUnderTest.getInstancesByName("tag1");
+        ec2RaiderImplUnderTest.terminateEc2InstancesById("1234");
+        ec2RaiderImplUnderTest.getInstancesByName("tag1");
+
+        Mockito.verify(ec2Delegator.getEc2(), Mockito.times(2)).describeInstances(new DescribeInstancesRequest());
+    }
+
+    /**
+     * Test instance status by id follows next token to later pages.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testGetInstanceStatusByIdPaginates() throws Exception{
+
+        DescribeInstancesResult describeInstancesResult = ec2Delegator.getEc2().describeInstances(new DescribeInstancesRequest());
+        List<Reservation> reservations = describeInstancesResult.getReservations();
+        PowerMockito.when(describeInstancesResult.getReservations()).thenReturn(new ArrayList<>(), reservations);
+        PowerMockito.when(describeInstancesResult.getNextToken()).thenReturn("page2", (String) null);
+
+        Assert.assertEquals(ec2RaiderImplUnderTest.getInstanceStatusById("1234"), "running");
+    }
+
     /**
      * Test get ec 2 instance ids with compulsory tags for availability zone.
      *
@@ -525,7 +676,7 @@ public class EC2RaiderImplTest {
         EC2Status ec2Status = ec2RaiderImplUnderTest.getInstanceStatus("tag1");
         Assert.assertNotNull(ec2Status);
         Assert.assertEquals(ec2Status.getTagName(),"tag1");
-        Assert.assertEquals(ec2Status.getStatus().get("1234"),"Running");
+        Assert.assertEquals(ec2Status.getStatus().get("1234"),"running");
 
     }
 
@@ -538,7 +689,7 @@ public class EC2RaiderImplTest {
     public void testGetInstanceStatus() throws Exception{
 
         String ec2Status = ec2RaiderImplUnderTest.getInstanceStatusById("1234");
-        Assert.assertEquals(ec2Status,"Running");
+        Assert.assertEquals(ec2Status,"running");
 
     }
 
@@ -552,7 +703,7 @@ public class EC2RaiderImplTest {
 
         Map ec2Status = ec2RaiderImplUnderTest.getEC2InstanceState("tag1");
         Assert.assertNotNull(ec2Status);
-        Assert.assertEquals(ec2Status.get("1234"),"Running");
+        Assert.assertEquals(ec2Status.get("1234"),"running");
 
     }
 
@@ -726,6 +877,16 @@ public class EC2RaiderImplTest {
             return new EC2RaiderImpl();
         }
 
+        /**
+         * Ec 2 inventory cache.
+         *
+         * @return the ec 2 inventory cache
+         */
+        @Bean
+        public EC2InventoryCache ec2InventoryCache() {
+            return new EC2InventoryCache();
+        }
+
         /**
          * Credentials credentials.
          *
@@ -736,6 +897,26 @@ public class EC2RaiderImplTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
 
 
     }
@@ -0,0 +1,254 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.impl;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.elasticache.AmazonElastiCacheAsync;
+import com.amazonaws.services.elasticache.model.CacheCluster;
+import com.amazonaws.services.elasticache.model.CacheNode;
+import com.amazonaws.services.elasticache.model.DescribeCacheClustersRequest;
+import com.amazonaws.services.elasticache.model.DescribeCacheClustersResult;
+import com.amazonaws.services.elasticache.model.Endpoint;
+import com.amazonaws.services.elasticache.model.RebootCacheClusterRequest;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.ElastiCacheDelegator;
+import com.intuit.cloudraider.core.interfaces.ElastiCacheRaiderAsync;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import com.intuit.cloudraider.model.BasicCredentials;
+import com.intuit.cloudraider.model.Credentials;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+
+/**
+ * The type Elasti cache raider async impl test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class ElastiCacheRaiderAsyncImplTest {
+
+    @Autowired
+    private ElastiCacheRaiderAsync elastiCacheRaiderAsync;
+
+    @Autowired
+    private ElastiCacheDelegator elastiCacheDelegator;
+
+    private AmazonElastiCacheAsync amazonElastiCacheAsync;
+
+    private CacheCluster cacheCluster;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        amazonElastiCacheAsync = Mockito.mock(AmazonElastiCacheAsync.class);
+        Mockito.when(elastiCacheDelegator.getAmazonElastiCacheAsync()).thenReturn(amazonElastiCacheAsync);
+
+        CacheNode cacheNode = new CacheNode()
+                .withCacheNodeId("0001")
+                .withCacheNodeStatus("available")
+                .withEndpoint(new Endpoint().withAddress("node1.cache"));
+        cacheCluster = new CacheCluster()
+                .withCacheClusterId("cluster-1")
+                .withCacheClusterStatus("available")
+                .withCacheNodes(cacheNode);
+
+        Mockito.when(amazonElastiCacheAsync.describeCacheClustersAsync(Mockito.any(DescribeCacheClustersRequest.class), Mockito.any()))
+                .thenAnswer(succeed(new DescribeCacheClustersResult().withCacheClusters(cacheCluster)));
+        Mockito.when(amazonElastiCacheAsync.rebootCacheClusterAsync(Mockito.any(RebootCacheClusterRequest.class), Mockito.any()))
+                .thenAnswer(succeed(cacheCluster));
+    }
+
+    /**
+     * Test get elasti cache cluster status.
+     */
+    @Test
+    public void testGetElastiCacheClusterStatus() {
+        Assert.assertEquals("available", elastiCacheRaiderAsync.getElastiCacheClusterStatus("cluster-1").join());
+    }
+
+    /**
+     * Test get elasti cache node status.
+     */
+    @Test
+    public void testGetElastiCacheNodeStatus() {
+        Assert.assertEquals("available", elastiCacheRaiderAsync.getElastiCacheNodeStatus("node1.cache").join());
+    }
+
+    /**
+     * Test reboot of a node resolves its cluster before rebooting it.
+     */
+    @Test
+    public void testRebootElasticCacheNode() {
+        elastiCacheRaiderAsync.rebootElasticCacheNode("node1.cache").join();
+
+        ArgumentCaptor<RebootCacheClusterRequest> captor = ArgumentCaptor.forClass(RebootCacheClusterRequest.class);
+        Mockito.verify(amazonElastiCacheAsync).rebootCacheClusterAsync(captor.capture(), Mockito.any());
+        Assert.assertEquals("cluster-1", captor.getValue().getCacheClusterId());
+        Assert.assertEquals(Collections.singletonList("0001"), captor.getValue().getCacheNodeIdsToReboot());
+    }
+
+    /**
+     * Test reboot elasti cache cluster.
+     */
+    @Test
+    public void testRebootElastiCacheCluster() {
+        elastiCacheRaiderAsync.rebootElastiCacheCluster("cluster-1", 3).join();
+
+        ArgumentCaptor<RebootCacheClusterRequest> captor = ArgumentCaptor.forClass(RebootCacheClusterRequest.class);
+        Mockito.verify(amazonElastiCacheAsync).rebootCacheClusterAsync(captor.capture(), Mockito.any());
+        Assert.assertEquals("cluster-1", captor.getValue().getCacheClusterId());
+        Assert.assertEquals(Arrays.asList("0001", "0002", "0003"), captor.getValue().getCacheNodeIdsToReboot());
+    }
+
+    /**
+     * Test reboot of a missing node fails the future without rebooting anything.
+     */
+    @Test
+    public void testRebootElasticCacheNodeNotFound() {
+        try {
+            elastiCacheRaiderAsync.rebootElasticCacheNode("node9.cache").join();
+            Assert.fail("expected failure");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof ResourceNotFoundException);
+        }
+        Mockito.verify(amazonElastiCacheAsync, Mockito.never()).rebootCacheClusterAsync(Mockito.any(RebootCacheClusterRequest.class), Mockito.any());
+    }
+
+    /**
+     * Test reboot surfaces the client error through the future.
+     */
+    @Test
+    public void testRebootElastiCacheClusterFailure() {
+        Mockito.doAnswer(invocation -> {
+            handler(invocation).onError(new IllegalStateException("boom"));
+            return new CompletableFuture<>();
+        }).when(amazonElastiCacheAsync).rebootCacheClusterAsync(Mockito.any(RebootCacheClusterRequest.class), Mockito.any());
+
+        try {
+            elastiCacheRaiderAsync.rebootElastiCacheCluster("cluster-1", 1).join();
+            Assert.fail("expected failure");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Test invalid input is rejected before any call is made.
+     */
+    @Test(expected = InvalidInputDataException.class)
+    public void testRebootElasticCacheNodeEmpty() {
+        elastiCacheRaiderAsync.rebootElasticCacheNode("");
+    }
+
+    private static <RESULT> Answer<Future<RESULT>> succeed(RESULT result) {
+        return invocation -> {
+            handler(invocation).onSuccess((AmazonWebServiceRequest) invocation.getArguments()[0], result);
+            return CompletableFuture.completedFuture(result);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <REQUEST extends AmazonWebServiceRequest, RESULT> AsyncHandler<REQUEST, RESULT> handler(InvocationOnMock invocation) {
+        return (AsyncHandler<REQUEST, RESULT>) invocation.getArguments()[1];
+    }
+
+    /**
+     * The type Elasti cache raider async impl test context configuration.
+     */
+    @Configuration
+    protected static class ElastiCacheRaiderAsyncImplTestContextConfiguration {
+
+        /**
+         * Elasti cache delegator elasti cache delegator.
+         *
+         * @return the elasti cache delegator
+         */
+        @Bean
+        public ElastiCacheDelegator elastiCacheDelegator() {
+            return Mockito.mock(ElastiCacheDelegator.class);
+        }
+
+        /**
+         * Elasti cache raider async elasti cache raider async.
+         *
+         * @return the elasti cache raider async
+         */
+        @Bean(name = {"elastiCacheRaiderAsyncBean"})
+        public ElastiCacheRaiderAsync elastiCacheRaiderAsync() {
+            return new ElastiCacheRaiderAsyncImpl();
+        }
+
+        /**
+         * Credentials credentials.
+         *
+         * @return the credentials
+         */
+        @Bean
+        public Credentials credentials() {
+            return new BasicCredentials();
+        }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+    }
+}
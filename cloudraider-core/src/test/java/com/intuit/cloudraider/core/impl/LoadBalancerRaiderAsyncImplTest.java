@@ -0,0 +1,262 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.impl;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingAsync;
+import com.amazonaws.services.elasticloadbalancing.model.DeregisterInstancesFromLoadBalancerRequest;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeInstanceHealthRequest;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeInstanceHealthResult;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeLoadBalancersRequest;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeLoadBalancersResult;
+import com.amazonaws.services.elasticloadbalancing.model.InstanceState;
+import com.amazonaws.services.elasticloadbalancing.model.LoadBalancerDescription;
+import com.amazonaws.services.elasticloadbalancing.model.RegisterInstancesWithLoadBalancerRequest;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.LoadBalancerDelegator;
+import com.intuit.cloudraider.core.interfaces.LoadBalancerRaiderAsync;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import com.intuit.cloudraider.model.BasicCredentials;
+import com.intuit.cloudraider.model.Credentials;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+
+/**
+ * The type Load balancer raider async impl test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class LoadBalancerRaiderAsyncImplTest {
+
+    @Autowired
+    private LoadBalancerRaiderAsync loadBalancerRaiderAsync;
+
+    @Autowired
+    private LoadBalancerDelegator loadBalancerDelegator;
+
+    private AmazonElasticLoadBalancingAsync amazonElasticLoadBalancingAsync;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        amazonElasticLoadBalancingAsync = Mockito.mock(AmazonElasticLoadBalancingAsync.class);
+        Mockito.when(loadBalancerDelegator.getAmazonElasticLoadBalancingAsync()).thenReturn(amazonElasticLoadBalancingAsync);
+
+        DescribeInstanceHealthResult describeInstanceHealthResult = new DescribeInstanceHealthResult()
+                .withInstanceStates(
+                        new InstanceState().withInstanceId("i-1234").withState("InService"),
+                        new InstanceState().withInstanceId("i-4567").withState("OutOfService"));
+        Mockito.when(amazonElasticLoadBalancingAsync.describeInstanceHealthAsync(Mockito.any(DescribeInstanceHealthRequest.class), Mockito.any()))
+                .thenAnswer(succeed(describeInstanceHealthResult));
+        Mockito.when(amazonElasticLoadBalancingAsync.describeLoadBalancersAsync(Mockito.any(DescribeLoadBalancersRequest.class), Mockito.any()))
+                .thenAnswer(succeed(new DescribeLoadBalancersResult()
+                        .withLoadBalancerDescriptions(new LoadBalancerDescription().withLoadBalancerName("elb-1"))));
+        Mockito.when(amazonElasticLoadBalancingAsync.deregisterInstancesFromLoadBalancerAsync(Mockito.any(DeregisterInstancesFromLoadBalancerRequest.class), Mockito.any()))
+                .thenAnswer(succeed(null));
+        Mockito.when(amazonElasticLoadBalancingAsync.registerInstancesWithLoadBalancerAsync(Mockito.any(RegisterInstancesWithLoadBalancerRequest.class), Mockito.any()))
+                .thenAnswer(succeed(null));
+    }
+
+    /**
+     * Test get in service instances.
+     */
+    @Test
+    public void testGetInServiceInstances() {
+        Assert.assertEquals(Collections.singletonList("i-1234"), loadBalancerRaiderAsync.getInServiceInstances("elb-1").join());
+    }
+
+    /**
+     * Test get out of service instances.
+     */
+    @Test
+    public void testGetOutOfServiceInstances() {
+        Assert.assertEquals(Collections.singletonList("i-4567"), loadBalancerRaiderAsync.getOutOfServiceInstances("elb-1").join());
+    }
+
+    /**
+     * Test deregister is only issued once the load balancer lookup completes.
+     */
+    @Test
+    public void testDeregisterInstancesFromLoadBalancer() {
+        List<AsyncHandler<DescribeLoadBalancersRequest, DescribeLoadBalancersResult>> handlers = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            handlers.add(handler(invocation));
+            return new CompletableFuture<>();
+        }).when(amazonElasticLoadBalancingAsync).describeLoadBalancersAsync(Mockito.any(DescribeLoadBalancersRequest.class), Mockito.any());
+
+        CompletableFuture<Void> future = loadBalancerRaiderAsync.deregisterInstancesFromLoadBalancer("elb-1", Arrays.asList("i-1234", "i-4567"));
+
+        Assert.assertEquals(1, handlers.size());
+        Assert.assertFalse(future.isDone());
+        Mockito.verify(amazonElasticLoadBalancingAsync, Mockito.never())
+                .deregisterInstancesFromLoadBalancerAsync(Mockito.any(DeregisterInstancesFromLoadBalancerRequest.class), Mockito.any());
+
+        handlers.get(0).onSuccess(null, new DescribeLoadBalancersResult()
+                .withLoadBalancerDescriptions(new LoadBalancerDescription().withLoadBalancerName("elb-1")));
+        future.join();
+
+        ArgumentCaptor<DeregisterInstancesFromLoadBalancerRequest> captor = ArgumentCaptor.forClass(DeregisterInstancesFromLoadBalancerRequest.class);
+        Mockito.verify(amazonElasticLoadBalancingAsync).deregisterInstancesFromLoadBalancerAsync(captor.capture(), Mockito.any());
+        Assert.assertEquals("elb-1", captor.getValue().getLoadBalancerName());
+        Assert.assertEquals(2, captor.getValue().getInstances().size());
+    }
+
+    /**
+     * Test register against a missing load balancer fails the future without registering anything.
+     */
+    @Test
+    public void testRegisterInstancesLoadBalancerNotFound() {
+        Mockito.doAnswer(succeed(new DescribeLoadBalancersResult()))
+                .when(amazonElasticLoadBalancingAsync).describeLoadBalancersAsync(Mockito.any(DescribeLoadBalancersRequest.class), Mockito.any());
+
+        try {
+            loadBalancerRaiderAsync.registerInstancesFromLoadBalancer("elb-9", Collections.singletonList("i-1234")).join();
+            Assert.fail("expected failure");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof ResourceNotFoundException);
+        }
+        Mockito.verify(amazonElasticLoadBalancingAsync, Mockito.never())
+                .registerInstancesWithLoadBalancerAsync(Mockito.any(RegisterInstancesWithLoadBalancerRequest.class), Mockito.any());
+    }
+
+    /**
+     * Test deregister surfaces the client error through the future.
+     */
+    @Test
+    public void testDeregisterInstancesFromLoadBalancerFailure() {
+        Mockito.doAnswer(invocation -> {
+            handler(invocation).onError(new IllegalStateException("boom"));
+            return new CompletableFuture<>();
+        }).when(amazonElasticLoadBalancingAsync).deregisterInstancesFromLoadBalancerAsync(Mockito.any(DeregisterInstancesFromLoadBalancerRequest.class), Mockito.any());
+
+        try {
+            loadBalancerRaiderAsync.deregisterInstancesFromLoadBalancer("elb-1", Collections.singletonList("i-1234")).join();
+            Assert.fail("expected failure");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Test invalid input is rejected before any call is made.
+     */
+    @Test(expected = InvalidInputDataException.class)
+    public void testRegisterInstancesFromLoadBalancerEmpty() {
+        loadBalancerRaiderAsync.registerInstancesFromLoadBalancer("elb-1", new ArrayList<>());
+    }
+
+    private static <RESULT> Answer<Future<RESULT>> succeed(RESULT result) {
+        return invocation -> {
+            handler(invocation).onSuccess((AmazonWebServiceRequest) invocation.getArguments()[0], result);
+            return CompletableFuture.completedFuture(result);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <REQUEST extends AmazonWebServiceRequest, RESULT> AsyncHandler<REQUEST, RESULT> handler(InvocationOnMock invocation) {
+        return (AsyncHandler<REQUEST, RESULT>) invocation.getArguments()[1];
+    }
+
+    /**
+     * The type Load balancer raider async impl test context configuration.
+     */
+    @Configuration
+    protected static class LoadBalancerRaiderAsyncImplTestContextConfiguration {
+
+        /**
+         * Load balancer delegator load balancer delegator.
+         *
+         * @return the load balancer delegator
+         */
+        @Bean
+        public LoadBalancerDelegator loadBalancerDelegator() {
+            return Mockito.mock(LoadBalancerDelegator.class);
+        }
+
+        /**
+         * Load balancer raider async load balancer raider async.
+         *
+         * @return the load balancer raider async
+         */
+        @Bean(name = {"loadBalancerRaiderAsyncBean"})
+        public LoadBalancerRaiderAsync loadBalancerRaiderAsync() {
+            return new LoadBalancerRaiderAsyncImpl();
+        }
+
+        /**
+         * Credentials credentials.
+         *
+         * @return the credentials
+         */
+        @Bean
+        public Credentials credentials() {
+            return new BasicCredentials();
+        }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+    }
+}
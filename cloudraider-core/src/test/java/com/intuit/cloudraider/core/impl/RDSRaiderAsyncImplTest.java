@@ -0,0 +1,251 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.core.impl;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.rds.AmazonRDSAsync;
+import com.amazonaws.services.rds.model.DBInstance;
+import com.amazonaws.services.rds.model.DescribeDBInstancesRequest;
+import com.amazonaws.services.rds.model.DescribeDBInstancesResult;
+import com.amazonaws.services.rds.model.RebootDBInstanceRequest;
+import com.amazonaws.services.rds.model.StopDBInstanceRequest;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.RDSDelegator;
+import com.intuit.cloudraider.core.interfaces.RDSRaiderAsync;
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import com.intuit.cloudraider.model.BasicCredentials;
+import com.intuit.cloudraider.model.Credentials;
+import com.intuit.cloudraider.model.DBStatus;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+
+/**
+ * The type Rds raider async impl test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class RDSRaiderAsyncImplTest {
+
+    @Autowired
+    private RDSRaiderAsync rdsRaiderAsync;
+
+    @Autowired
+    private RDSDelegator rdsDelegator;
+
+    private AmazonRDSAsync amazonRDSAsync;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        amazonRDSAsync = Mockito.mock(AmazonRDSAsync.class);
+        Mockito.when(rdsDelegator.getAmazonRdsAsync()).thenReturn(amazonRDSAsync);
+
+        DBInstance dbInstance = new DBInstance()
+                .withDBInstanceIdentifier("Test-DB")
+                .withDBInstanceStatus("available");
+        DescribeDBInstancesResult describeDBInstancesResult = new DescribeDBInstancesResult()
+                .withDBInstances(dbInstance, new DBInstance().withDBInstanceIdentifier("Other-DB").withDBInstanceStatus("stopped"));
+
+        Mockito.when(amazonRDSAsync.describeDBInstancesAsync(Mockito.any(DescribeDBInstancesRequest.class), Mockito.any()))
+                .thenAnswer(succeed(describeDBInstancesResult));
+        Mockito.when(amazonRDSAsync.rebootDBInstanceAsync(Mockito.any(RebootDBInstanceRequest.class), Mockito.any()))
+                .thenAnswer(succeed(dbInstance));
+    }
+
+    /**
+     * Test get instances status.
+     */
+    @Test
+    public void testGetInstancesStatus() {
+        List<DBStatus> statuses = rdsRaiderAsync.getInstancesStatus(Arrays.asList("Test-DB")).join();
+
+        Assert.assertEquals(1, statuses.size());
+        Assert.assertEquals("Test-DB", statuses.get(0).getDbInstanceId());
+        Assert.assertEquals("available", statuses.get(0).getStatus());
+    }
+
+    /**
+     * Test get db instance status.
+     */
+    @Test
+    public void testGetDBInstanceStatus() {
+        Assert.assertEquals("available", rdsRaiderAsync.getDBInstanceStatus("Test-DB").join());
+    }
+
+    /**
+     * Test reboot db instances issues every reboot before any completes.
+     */
+    @Test
+    public void testRebootDbInstances() {
+        List<AsyncHandler<RebootDBInstanceRequest, DBInstance>> handlers = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            handlers.add(handler(invocation));
+            return new CompletableFuture<>();
+        }).when(amazonRDSAsync).rebootDBInstanceAsync(Mockito.any(RebootDBInstanceRequest.class), Mockito.any());
+
+        CompletableFuture<Void> future = rdsRaiderAsync.rebootDbInstances(Arrays.asList("Test-DB", "Other-DB"));
+
+        Assert.assertEquals(2, handlers.size());
+        Assert.assertFalse(future.isDone());
+
+        handlers.forEach(handler -> handler.onSuccess(null, new DBInstance()));
+        Assert.assertTrue(future.isDone());
+        Assert.assertFalse(future.isCompletedExceptionally());
+    }
+
+    /**
+     * Test stop instances surfaces the client error through the future.
+     */
+    @Test
+    public void testStopInstancesFailure() {
+        Mockito.when(amazonRDSAsync.stopDBInstanceAsync(Mockito.any(StopDBInstanceRequest.class), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    handler(invocation).onError(new IllegalStateException("boom"));
+                    return new CompletableFuture<>();
+                });
+
+        try {
+            rdsRaiderAsync.stopInstances(Arrays.asList("Test-DB")).join();
+            Assert.fail("expected failure");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Test reboot of a missing instance fails the future.
+     */
+    @Test
+    public void testRebootDbInstanceNotFound() {
+        Mockito.doAnswer(succeed(null))
+                .when(amazonRDSAsync).rebootDBInstanceAsync(Mockito.any(RebootDBInstanceRequest.class), Mockito.any());
+
+        try {
+            rdsRaiderAsync.rebootDbInstance("Test-DB").join();
+            Assert.fail("expected failure");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof ResourceNotFoundException);
+        }
+    }
+
+    /**
+     * Test invalid input is rejected before any call is made.
+     */
+    @Test(expected = InvalidInputDataException.class)
+    public void testRebootDbInstancesEmpty() {
+        rdsRaiderAsync.rebootDbInstances(new ArrayList<>());
+    }
+
+    private static <RESULT> Answer<Future<RESULT>> succeed(RESULT result) {
+        return invocation -> {
+            handler(invocation).onSuccess((AmazonWebServiceRequest) invocation.getArguments()[0], result);
+            return CompletableFuture.completedFuture(result);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <REQUEST extends AmazonWebServiceRequest, RESULT> AsyncHandler<REQUEST, RESULT> handler(InvocationOnMock invocation) {
+        return (AsyncHandler<REQUEST, RESULT>) invocation.getArguments()[1];
+    }
+
+    /**
+     * The type Rds raider async impl test context configuration.
+     */
+    @Configuration
+    protected static class RDSRaiderAsyncImplTestContextConfiguration {
+
+        /**
+         * Rds delegator rds delegator.
+         *
+         * @return the rds delegator
+         */
+        @Bean
+        public RDSDelegator rdsDelegator() {
+            return Mockito.mock(RDSDelegator.class);
+        }
+
+        /**
+         * Rds raider async rds raider async.
+         *
+         * @return the rds raider async
+         */
+        @Bean(name = {"rdsRaiderAsyncBean"})
+        public RDSRaiderAsync rdsRaiderAsync() {
+            return new RDSRaiderAsyncImpl();
+        }
+
+        /**
+         * Credentials credentials.
+         *
+         * @return the credentials
+         */
+        @Bean
+        public Credentials credentials() {
+            return new BasicCredentials();
+        }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+    }
+}
@@ -26,16 +26,26 @@ package com.intuit.cloudraider.core.impl;
 
 import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
 import com.amazonaws.services.simplesystemsmanagement.model.Command;
+import com.amazonaws.services.simplesystemsmanagement.model.CommandInvocation;
 import com.amazonaws.services.simplesystemsmanagement.model.GetCommandInvocationResult;
+import com.amazonaws.services.simplesystemsmanagement.model.ListCommandInvocationsRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.ListCommandInvocationsResult;
+import com.amazonaws.services.simplesystemsmanagement.model.SendCommandRequest;
 import com.amazonaws.services.simplesystemsmanagement.model.SendCommandResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Target;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.FanOutExecutor;
 import com.intuit.cloudraider.commons.SSMDelegator;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
+import com.intuit.cloudraider.model.SsmCommandBatch;
 import com.intuit.cloudraider.utils.CommandUtility;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
@@ -50,6 +60,10 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 @PowerMockIgnore({"javax.management.*","javax.net.ssl.*"})
@@ -171,6 +185,143 @@ public class SSMRaiderImplTest {
         Assert.assertTrue(errors.isEmpty());
     }
 
+    /**
+     * Test large instance lists are sent in chunks, each command id mapped to its chunk.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testSendShellCommandsInChunks() throws Exception{
+
+        PowerMockito.when(amazonSSM.sendCommand(Mockito.any(SendCommandRequest.class))).thenAnswer(invocation -> {
+            SendCommandRequest request = (SendCommandRequest) invocation.getArguments()[0];
+            return new SendCommandResult().withCommand(new Command().withCommandId("cmd-" + request.getInstanceIds().get(0)));
+        });
+
+        List<String> instances = IntStream.range(0, 120).mapToObj(i -> "i-" + i).collect(Collectors.toList());
+        SsmCommandBatch batch = ssmRaiderUnderTest.sendShellCommands(instances, createCommandsList());
+
+        Mockito.verify(amazonSSM, Mockito.times(3)).sendCommand(Mockito.any(SendCommandRequest.class));
+        Assert.assertEquals(3, batch.getCommandIds().size());
+        Assert.assertTrue(batch.getCommandIds().containsAll(Arrays.asList("cmd-i-0", "cmd-i-50", "cmd-i-100")));
+        Assert.assertEquals(50, batch.getInstanceIds("cmd-i-50").size());
+        Assert.assertEquals(20, batch.getInstanceIds("cmd-i-100").size());
+        Assert.assertEquals("cmd-i-50", batch.getCommandId("i-99"));
+        Assert.assertEquals(120, batch.getInstanceIds().size());
+        Assert.assertTrue(batch.getFailedInstanceIds().isEmpty());
+    }
+
+    /**
+     * Test chunks that could not be sent are reported without losing the others.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testSendShellCommandsPartialFailure() throws Exception{
+
+        PowerMockito.when(amazonSSM.sendCommand(Mockito.any(SendCommandRequest.class))).thenAnswer(invocation -> {
+            SendCommandRequest request = (SendCommandRequest) invocation.getArguments()[0];
+            if (request.getInstanceIds().contains("i-60")) {
+                throw new IllegalStateException("throttled");
+            }
+            return new SendCommandResult().withCommand(new Command().withCommandId("cmd-" + request.getInstanceIds().get(0)));
+        });
+
+        List<String> instances = IntStream.range(0, 70).mapToObj(i -> "i-" + i).collect(Collectors.toList());
+        SsmCommandBatch batch = ssmRaiderUnderTest.sendShellCommands(instances, createCommandsList());
+
+        Assert.assertEquals(Arrays.asList("cmd-i-0"), batch.getCommandIds());
+        Assert.assertEquals(20, batch.getFailedInstanceIds().size());
+        Assert.assertNull(batch.getCommandId("i-60"));
+    }
+
+    /**
+     * Test the single command id API fails instead of dropping the ids of other chunks.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testExecuteShellCommandsFailsOnSeveralChunks() throws Exception{
+
+        PowerMockito.when(amazonSSM.sendCommand(Mockito.any(SendCommandRequest.class))).thenAnswer(invocation -> {
+            SendCommandRequest request = (SendCommandRequest) invocation.getArguments()[0];
+            return new SendCommandResult().withCommand(new Command().withCommandId("cmd-" + request.getInstanceIds().get(0)));
+        });
+
+        List<String> instances = IntStream.range(0, 70).mapToObj(i -> "i-" + i).collect(Collectors.toList());
+        try {
+            ssmRaiderUnderTest.executeShellCommands(instances, createCommandsList());
+            Assert.fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("cmd-i-50"));
+        }
+    }
+
+    /**
+     * Test the single command id API fails when a chunk could not be sent.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testExecuteShellCommandsFailsOnFailedChunk() throws Exception{
+
+        PowerMockito.when(amazonSSM.sendCommand(Mockito.any(SendCommandRequest.class))).thenAnswer(invocation -> {
+            SendCommandRequest request = (SendCommandRequest) invocation.getArguments()[0];
+            if (request.getInstanceIds().contains("i-60")) {
+                throw new IllegalStateException("throttled");
+            }
+            return new SendCommandResult().withCommand(new Command().withCommandId("cmd-" + request.getInstanceIds().get(0)));
+        });
+
+        List<String> instances = IntStream.range(0, 70).mapToObj(i -> "i-" + i).collect(Collectors.toList());
+        try {
+            ssmRaiderUnderTest.executeShellCommands(instances, createCommandsList());
+            Assert.fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("i-60"));
+        }
+    }
+
+    /**
+     * Test commands sent to tag based targets.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testSendShellCommandsToTargets() throws Exception{
+
+        List<Target> targets = Arrays.asList(new Target().withKey("tag:Name").withValues("web"));
+        SsmCommandBatch batch = ssmRaiderUnderTest.sendShellCommandsToTargets(targets, createCommandsList());
+
+        Assert.assertEquals(Arrays.asList("777"), batch.getCommandIds());
+        Assert.assertTrue(batch.getInstanceIds("777").isEmpty());
+        Mockito.verify(amazonSSM).sendCommand(Mockito.argThat(new ArgumentMatcher<SendCommandRequest>() {
+            @Override
+            public boolean matches(Object argument) {
+                return targets.equals(((SendCommandRequest) argument).getTargets());
+            }
+        }));
+    }
+
+    /**
+     * Test command statuses of a batch.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testGetCommandStatuses() throws Exception{
+
+        PowerMockito.when(amazonSSM.listCommandInvocations(Mockito.any(ListCommandInvocationsRequest.class))).thenReturn(
+                new ListCommandInvocationsResult().withCommandInvocations(
+                        new CommandInvocation().withInstanceId("i-1234").withStatus("Success")));
+
+        Map<String, String> statuses = ssmRaiderUnderTest.getCommandStatuses(new SsmCommandBatch("777", createInstancesList()));
+        Assert.assertEquals("Success", statuses.get("i-1234"));
+        Assert.assertEquals("Pending", statuses.get("i-4567"));
+        Assert.assertEquals("Success", ssmRaiderUnderTest.trackCommandCompletion(new SsmCommandBatch("777", Arrays.asList("i-1234")))
+                .get(5, TimeUnit.SECONDS).get("i-1234"));
+    }
+
     private List<String> createCommandsList()
     {
         return Arrays.asList("#Comment Line","ps -aef |grep java");
@@ -208,6 +359,16 @@ public class SSMRaiderImplTest {
             return new SSMRaiderImpl();
         }
 
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
         /**
          * Credentials credentials.
          *
@@ -218,6 +379,26 @@ public class SSMRaiderImplTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
 
 
     }
@@ -25,12 +25,15 @@
 package com.intuit.cloudraider.core.impl;
 
 import com.intuit.cloudraider.commons.CloudRaiderSSHSessionFactory;
+import com.intuit.cloudraider.commons.SshSessionPool;
 import com.intuit.cloudraider.commons.SystemDelegator;
 import com.intuit.cloudraider.core.interfaces.SystemRaider;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
+import com.intuit.cloudraider.model.ScriptExecutionResult;
 import com.intuit.cloudraider.model.SshParameters;
 import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.Proxy;
 import com.jcraft.jsch.Session;
 import com.pastdev.jsch.SessionFactory;
 import com.pastdev.jsch.proxy.SshProxy;
@@ -51,11 +54,18 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
@@ -65,7 +75,7 @@ import static org.mockito.Matchers.anyInt;
 @RunWith(PowerMockRunner.class)
 @PowerMockRunnerDelegate(SpringJUnit4ClassRunner.class)
 @ContextConfiguration
-@PrepareForTest({SystemRaiderImpl.class, Credentials.class, SystemDelegator.class, ScpFile.class})
+@PrepareForTest({SystemRaiderImpl.class, SshSessionPool.class, Credentials.class, SystemDelegator.class, ScpFile.class})
 public class SystemRaiderImplTest {
 
 
@@ -77,6 +87,13 @@ public class SystemRaiderImplTest {
 
     private  SshParameters sshParameters;
     private  CloudRaiderSSHSessionFactory mockedSessionFactory;
+    private  AtomicReference<OutputStream> channelOutput;
+    private static volatile String remoteOutput;
+    private  AtomicReference<OutputStream> channelErr;
+    private static volatile long channelCloseDelayMillis;
+    private static volatile int exitStatus;
+    private static volatile Queue<ScriptOutcome> scriptOutcomes;
+    private static volatile List<String> executedCommands;
 
     /**
      * Sets .
@@ -112,11 +129,11 @@ public class SystemRaiderImplTest {
 
         PowerMockito.when(mockedSessionFactory.newSessionFactoryBuilder()).thenReturn(sessionFactoryBuilder);
 
-        PowerMockito.when(mockedSessionFactory.newSessionFactoryBuilder().setHostname(systemDelegator.getSshParameters().getBastionHost())).thenReturn(sessionFactoryBuilder);
-        PowerMockito.when(mockedSessionFactory.newSessionFactoryBuilder().setPort(SessionFactory.SSH_PORT)).thenReturn(sessionFactoryBuilder);
+        PowerMockito.when(sessionFactoryBuilder.setHostname(Mockito.anyString())).thenReturn(sessionFactoryBuilder);
+        PowerMockito.when(sessionFactoryBuilder.setPort(SessionFactory.SSH_PORT)).thenReturn(sessionFactoryBuilder);
 
 
-        PowerMockito.when(mockedSessionFactory.newSessionFactoryBuilder().setProxy(sshProxy)).thenReturn(sessionFactoryBuilder);
+        PowerMockito.when(sessionFactoryBuilder.setProxy(any(Proxy.class))).thenReturn(sessionFactoryBuilder);
         PowerMockito.when(mockedSessionFactory.newSessionFactoryBuilder().build()).thenReturn(mockedSessionFactory);
 
         PowerMockito.when(mockedSessionFactory.newSession()).thenReturn(session);
@@ -131,6 +148,46 @@ public class SystemRaiderImplTest {
         PowerMockito.when(inputStream.read(any(byte[].class),anyInt(),anyInt())).thenReturn(-1);
         PowerMockito.when(channel.getOutputStream()).thenReturn(PowerMockito.mock(OutputStream.class));
 
+        channelOutput = new AtomicReference<>();
+        remoteOutput = "done\n";
+        Mockito.doAnswer(invocation -> {
+            channelOutput.set((OutputStream) invocation.getArguments()[0]);
+            return null;
+        }).when(channel).setOutputStream(any(OutputStream.class));
+        channelErr = new AtomicReference<>();
+        Mockito.doAnswer(invocation -> {
+            channelErr.set((OutputStream) invocation.getArguments()[0]);
+            return null;
+        }).when(channel).setErrStream(any(OutputStream.class));
+        Mockito.doAnswer(invocation -> {
+            OutputStream out = channelOutput.getAndSet(null);
+            if (out != null) {
+                out.write(remoteOutput.getBytes(StandardCharsets.UTF_8));
+                out.close();
+            }
+            OutputStream err = channelErr.getAndSet(null);
+            if (err != null) {
+                String command = executedCommands.get(executedCommands.size() - 1);
+                ScriptOutcome outcome = command.contains("sudo sh") ? scriptOutcomes.poll() : null;
+                if (outcome == null) {
+                    outcome = new ScriptOutcome(0, "");
+                }
+                err.write(outcome.stderr.getBytes(StandardCharsets.UTF_8));
+                closeChannel(err, outcome.exitStatus);
+            }
+            return null;
+        }).when(channel).connect();
+        scriptOutcomes = new ConcurrentLinkedQueue<>();
+        channelCloseDelayMillis = 0;
+        executedCommands = new CopyOnWriteArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            executedCommands.add((String) invocation.getArguments()[0]);
+            return null;
+        }).when(channel).setCommand(Mockito.anyString());
+        PowerMockito.when(channel.isClosed()).thenReturn(true);
+        exitStatus = 0;
+        PowerMockito.when(channel.getExitStatus()).thenAnswer(invocation -> exitStatus);
+
     }
 
     /**
@@ -168,6 +225,137 @@ public class SystemRaiderImplTest {
     }
 
 
+    /**
+     * Execute for result reports exit status and output.
+     */
+    @Test
+    public void executeForResultTest() {
+        String path  = getClass().getClassLoader().getResource("test.sh").getPath();
+        ScriptExecutionResult result = systemRaider.executeScriptForResult("127.0.0.1", path, Collections.singletonList("param1"));
+
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertFalse(result.isDetached());
+        Assert.assertEquals(Integer.valueOf(0), result.getExitStatus());
+        Assert.assertEquals("done\n", result.getStdout());
+        Assert.assertTrue(result.getCommand().matches("sudo sh /home/.*/\\.cloudraider/scripts/[0-9a-f]{64}\\.sh param1"));
+    }
+
+    /**
+     * Script is uploaded once per host.
+     */
+    @Test
+    public void executeUploadsScriptOncePerHostTest() {
+        String path  = getClass().getClassLoader().getResource("test.sh").getPath();
+        systemRaider.executeScript("127.0.0.2", path, "param1");
+        systemRaider.executeScript("127.0.0.2", path, "param2");
+
+        Assert.assertEquals(1, executedCommands.stream().filter(c -> c.contains("scp -t")).count());
+        Assert.assertEquals(1, executedCommands.stream().filter(c -> c.startsWith("mv -f")).count());
+        Assert.assertEquals(2, executedCommands.stream().filter(c -> c.contains("sudo sh")).count());
+
+        systemRaider.executeScript("127.0.0.3", path, "param1");
+        Assert.assertEquals(2, executedCommands.stream().filter(c -> c.contains("scp -t")).count());
+    }
+
+    /**
+     * A script removed from the host is detected before it runs, uploaded again and run once.
+     */
+    @Test
+    public void executeReuploadsMissingScriptTest() {
+        String path  = getClass().getClassLoader().getResource("test.sh").getPath();
+        systemRaider.executeScript("127.0.0.10", path, "param1");
+        executedCommands.clear();
+
+        scriptOutcomes.add(new ScriptOutcome(200, "cloudraider: script missing\n"));
+        ScriptExecutionResult result = systemRaider.executeScriptForResult("127.0.0.10", path, Collections.singletonList("param1"));
+
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(1, executedCommands.stream().filter(c -> c.contains("scp -t")).count());
+        Assert.assertEquals(2, executedCommands.stream().filter(c -> c.contains("sudo sh")).count());
+        Assert.assertTrue(executedCommands.get(0).startsWith("[ -f "));
+    }
+
+    /**
+     * A command missing inside the script is reported, and the script is never run a second time.
+     */
+    @Test
+    public void executeDoesNotRerunStartedScriptTest() {
+        String path  = getClass().getClassLoader().getResource("test.sh").getPath();
+        systemRaider.executeScript("127.0.0.11", path, "param1");
+        executedCommands.clear();
+
+        ScriptExecutionResult first = systemRaider.executeScriptForResult("127.0.0.11", path, Collections.emptyList());
+        String remotePath = first.getCommand().substring("sudo sh ".length());
+        executedCommands.clear();
+
+        scriptOutcomes.add(new ScriptOutcome(127, remotePath + ": 3: tc: not found\n"));
+        ScriptExecutionResult result = systemRaider.executeScriptForResult("127.0.0.11", path, Collections.emptyList());
+
+        Assert.assertEquals(Integer.valueOf(127), result.getExitStatus());
+        Assert.assertEquals(1, executedCommands.size());
+        Assert.assertEquals(0, executedCommands.stream().filter(c -> c.contains("scp -t")).count());
+    }
+
+    /**
+     * Execute returns as soon as the script detaches.
+     */
+    @Test
+    public void executeDetachedTest() {
+        remoteOutput = "stress started\nexecuting..\n";
+        String path  = getClass().getClassLoader().getResource("test.sh").getPath();
+        ScriptExecutionResult result = systemRaider.executeScriptForResult("127.0.0.1", path, Collections.emptyList());
+
+        Assert.assertTrue(result.isDetached());
+        Assert.assertNull(result.getExitStatus());
+    }
+
+    /**
+     * Exit status is read as soon as the channel closes, which may come after stdout ends.
+     */
+    @Test
+    public void executeWaitsForChannelCloseTest() {
+        channelCloseDelayMillis = 100;
+        scriptOutcomes.add(new ScriptOutcome(3, ""));
+
+        String path  = getClass().getClassLoader().getResource("test.sh").getPath();
+        long start = System.currentTimeMillis();
+        ScriptExecutionResult result = systemRaider.executeScriptForResult("127.0.0.9", path, Collections.emptyList());
+
+        Assert.assertEquals(Integer.valueOf(3), result.getExitStatus());
+        Assert.assertTrue(System.currentTimeMillis() - start < 1500);
+    }
+
+    /**
+     * Closes the channel's stderr as JSch does when the channel closes, after the exit status of the command arrived.
+     */
+    private static void closeChannel(OutputStream err, int status) throws IOException {
+        if (channelCloseDelayMillis == 0) {
+            exitStatus = status;
+            err.close();
+            return;
+        }
+        exitStatus = -1;
+        new Thread(() -> {
+            try {
+                Thread.sleep(channelCloseDelayMillis);
+                exitStatus = status;
+                err.close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }).start();
+    }
+
+    private static class ScriptOutcome {
+        private final int exitStatus;
+        private final String stderr;
+
+        private ScriptOutcome(int exitStatus, String stderr) {
+            this.exitStatus = exitStatus;
+            this.stderr = stderr;
+        }
+    }
+
     /**
      * The type System raider impl test context configuration.
      */
@@ -194,6 +382,16 @@ public class SystemRaiderImplTest {
             return new SystemRaiderImpl();
         }
 
+        /**
+         * Ssh session pool ssh session pool.
+         *
+         * @return the ssh session pool
+         */
+        @Bean
+        public SshSessionPool sshSessionPool() {
+            return new SshSessionPool();
+        }
+
         /**
          * Credentials credentials.
          *
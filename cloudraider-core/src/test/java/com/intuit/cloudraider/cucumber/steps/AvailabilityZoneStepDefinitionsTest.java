@@ -25,7 +25,11 @@
 package com.intuit.cloudraider.cucumber.steps;
 
 import com.amazonaws.services.ec2.model.Tag;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
 import com.intuit.cloudraider.commons.EC2Delegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
+import com.intuit.cloudraider.commons.FanOutExecutor;
 import com.intuit.cloudraider.core.impl.EC2RaiderImpl;
 import com.intuit.cloudraider.core.impl.SSMRaiderImpl;
 import com.intuit.cloudraider.core.interfaces.EC2Raider;
@@ -189,6 +193,16 @@ public class AvailabilityZoneStepDefinitionsTest {
             return Mockito.mock(EC2Delegator.class);
         }
 
+        /**
+         * Ec 2 inventory cache.
+         *
+         * @return the ec 2 inventory cache
+         */
+        @Bean
+        public EC2InventoryCache ec2InventoryCache() {
+            return Mockito.mock(EC2InventoryCache.class);
+        }
+
         /**
          * Ec 2 raider ec 2 raider.
          *
@@ -209,6 +223,26 @@ public class AvailabilityZoneStepDefinitionsTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
         /**
          * Availability zone step definitions availability zone step definitions.
          *
@@ -229,5 +263,15 @@ public class AvailabilityZoneStepDefinitionsTest {
             return new ExecutionStateCache();
         }
 
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
     }
 }
\ No newline at end of file
@@ -24,9 +24,14 @@
 
 package com.intuit.cloudraider.cucumber.steps;
 
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.CloudWatchAlarmIndex;
 import com.intuit.cloudraider.commons.CloudWatchDelegator;
+import com.intuit.cloudraider.commons.FanOutExecutor;
 import com.intuit.cloudraider.core.impl.CloudWatchRaiderImpl;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.util.AlarmWatcher;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
 import org.junit.Before;
@@ -44,6 +49,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 
 @PowerMockIgnore({"javax.management.*","javax.net.ssl.*"})
 @RunWith(PowerMockRunner.class)
@@ -62,6 +71,9 @@ public class CloudWatchStepDefinitionsTest {
     @Autowired
     private ExecutionStateCache executionStateCache;
 
+    @Autowired
+    private AlarmWatcher alarmWatcher;
+
     /**
      * Sets method.
      *
@@ -103,6 +115,57 @@ public class CloudWatchStepDefinitionsTest {
         cloudWatchStepDefinitions.assertCloudWatchAlarmState("alarmName", "OK");
     }
 
+    /**
+     * Test guardrail alarms are handed to the alarm watcher.
+     */
+    @Test
+    public void testGivenGuardrailAlarms()
+    {
+        cloudWatchStepDefinitions.givenGuardrailAlarms("alarm-1, alarm-2");
+        Mockito.verify(alarmWatcher).setGuardrailAlarms(Arrays.asList("alarm-1", "alarm-2"));
+    }
+
+    /**
+     * Test assert guardrail alarms not triggered fails once the watcher aborted.
+     */
+    @Test (expected = AssertionError.class)
+    public void testAssertGuardrailAlarmsNotTriggeredFailure()
+    {
+        PowerMockito.when(alarmWatcher.isAborted()).thenReturn(true);
+        PowerMockito.when(alarmWatcher.getTriggeredAlarms()).thenReturn(Arrays.asList("alarm-1"));
+        try {
+            cloudWatchStepDefinitions.assertGuardrailAlarmsNotTriggered();
+        } finally {
+            Mockito.reset(alarmWatcher);
+        }
+    }
+
+    /**
+     * Test assert cloud watch alarm states in bulk.
+     */
+    @Test
+    public void testAssertCloudWatchAlarmStates()
+    {
+        Map<String, String> states = new LinkedHashMap<>();
+        states.put("alarm-1", "OK");
+        states.put("alarm-2", "OK");
+        PowerMockito.when(cloudWatchRaider.getAlarmStates(Arrays.asList("alarm-1", "alarm-2"))).thenReturn(states);
+        cloudWatchStepDefinitions.assertCloudWatchAlarmStates("alarm-1, alarm-2", "OK");
+    }
+
+    /**
+     * Test assert cloud watch alarm states fails on any alarm in another state.
+     */
+    @Test (expected = AssertionError.class)
+    public void testAssertCloudWatchAlarmStatesFailure()
+    {
+        Map<String, String> states = new LinkedHashMap<>();
+        states.put("alarm-1", "OK");
+        states.put("alarm-2", "NON_EXISTENT");
+        PowerMockito.when(cloudWatchRaider.getAlarmStates(Arrays.asList("alarm-1", "alarm-2"))).thenReturn(states);
+        cloudWatchStepDefinitions.assertCloudWatchAlarmStates("alarm-1,alarm-2", "OK");
+    }
+
     /**
      * Test is alarm on.
      */
@@ -173,6 +236,36 @@ public class CloudWatchStepDefinitionsTest {
             return  Mockito.mock(CloudWatchRaiderImpl.class);
         }
 
+        /**
+         * Cloud watch alarm index.
+         *
+         * @return the cloud watch alarm index
+         */
+        @Bean
+        public CloudWatchAlarmIndex cloudWatchAlarmIndex() {
+            return Mockito.mock(CloudWatchAlarmIndex.class);
+        }
+
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
+        /**
+         * Alarm watcher.
+         *
+         * @return the alarm watcher
+         */
+        @Bean (name={"alarmWatcher"})
+        public AlarmWatcher alarmWatcher() {
+            return Mockito.mock(AlarmWatcher.class);
+        }
+
         /**
          * Credentials credentials.
          *
@@ -183,6 +276,26 @@ public class CloudWatchStepDefinitionsTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
         /**
          * Cloud watch step definitions cloud watch step definitions.
          *
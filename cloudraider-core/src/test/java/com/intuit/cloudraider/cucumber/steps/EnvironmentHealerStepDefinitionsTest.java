@@ -24,21 +24,38 @@
 
 package com.intuit.cloudraider.cucumber.steps;
 
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.CloudWatchAlarmIndex;
+import com.intuit.cloudraider.commons.CloudWatchDelegator;
+import com.intuit.cloudraider.commons.FanOutExecutor;
 import com.intuit.cloudraider.commons.SSMDelegator;
+import com.intuit.cloudraider.commons.SshSessionPool;
 import com.intuit.cloudraider.commons.SystemDelegator;
 import com.intuit.cloudraider.core.impl.SSMRaiderImpl;
 import com.intuit.cloudraider.core.impl.SystemRaiderImpl;
 import com.intuit.cloudraider.core.interfaces.SSMRaider;
 import com.intuit.cloudraider.core.interfaces.SystemRaider;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.model.RecoveryReport;
+import com.intuit.cloudraider.cucumber.util.AlarmWatcher;
+import com.intuit.cloudraider.cucumber.util.FaultJournal;
+import com.intuit.cloudraider.cucumber.util.RecoveryPlanner;
 import com.intuit.cloudraider.cucumber.util.ScriptExecutor;
+import com.intuit.cloudraider.cucumber.util.ScriptRegistry;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
 import com.intuit.cloudraider.model.EC2InstanceTO;
+import com.intuit.cloudraider.model.ScriptExecutionResult;
+import com.intuit.cloudraider.model.SsmCommandBatch;
 import com.intuit.cloudraider.utils.CommandUtility;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
@@ -53,7 +70,14 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 
 @PowerMockIgnore({"javax.management.*","javax.net.ssl.*"})
@@ -79,6 +103,21 @@ public class EnvironmentHealerStepDefinitionsTest {
     @Autowired
     private ExecutionStateCache executionStateCache;
 
+    @Autowired
+    private FaultJournal faultJournal;
+
+    @Autowired
+    private SystemRaider systemRaider;
+
+    @Autowired
+    private ScriptRegistry scriptRegistry;
+
+    @Autowired
+    private AlarmWatcher alarmWatcher;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Sets method.
      *
@@ -89,6 +128,15 @@ public class EnvironmentHealerStepDefinitionsTest {
 
          String commandId = "1234";
 
+        Mockito.reset(ssmRaider, systemRaider);
+        Mockito.when(scriptRegistry.getScript(Mockito.anyString())).thenReturn("echo heal".getBytes());
+        StringBuilder stdout = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            stdout.append("cloudraider-heal-result ").append(i).append(" 0\n");
+        }
+        Mockito.when(systemRaider.executeScriptForResult(Mockito.anyString(), Mockito.any(byte[].class), Mockito.anyListOf(String.class)))
+                .thenReturn(new ScriptExecutionResult("10.1.1.1", "sudo sh heal.sh", 0, false, stdout.toString(), "", 0, 5));
+
         PowerMockito.when(ssmRaider.executeShellCommands(Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandId);
 
 
@@ -99,7 +147,18 @@ public class EnvironmentHealerStepDefinitionsTest {
                 Mockito.anyObject(), Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandId);
 
 
+        SsmCommandBatch commandBatch = new SsmCommandBatch(commandId, Arrays.asList("i-1234", "i-4567"));
+        PowerMockito.when(ssmRaider.sendShellCommands(Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandBatch);
+        mockCommandStatuses("Success", "Success");
+
+        PowerMockito.when(ssmRaider.sendShellCommand(Mockito.anyObject(),
+                Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandBatch);
+
+        PowerMockito.when(ssmRaider.sendShellCommand(Mockito.anyObject(),
+                Mockito.anyObject(), Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandBatch);
+
         PowerMockito.when(ssmRaider.getCommandStatus(Mockito.anyObject(), Mockito.anyObject())).thenReturn("Success");
+        PowerMockito.when(ssmRaider.getCommandStandardOutput(Mockito.anyString(), Mockito.anyString())).thenReturn(stdout.toString());
 
 
         PowerMockito.mockStatic(CommandUtility.class);
@@ -153,6 +212,299 @@ public class EnvironmentHealerStepDefinitionsTest {
 
     }
 
+    /**
+     * Test faults left outstanding in the journal are healed and recorded as healed.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testHealOutstandingFaults() throws Exception
+    {
+        faultJournal.setPath(temporaryFolder.newFile("faults.journal").toPath());
+        try {
+            executionStateCache.clear();
+            executionStateCache.setSsmCommandInvocationInstances(createInstances());
+            executionStateCache.setCpuSpiked(true);
+            Assert.assertEquals(1, faultJournal.getOutstandingFaults().size());
+
+            executionStateCache.clear();
+            Assert.assertEquals(1, faultJournal.getOutstandingFaults().size());
+
+            environmentHealerStepDefinitions.healOutstandingFaults();
+
+            Assert.assertTrue(faultJournal.getOutstandingFaults().isEmpty());
+            Mockito.verify(ssmRaider, Mockito.atLeastOnce()).sendShellCommands(Mockito.eq(Arrays.asList("i-1234", "i-4567")), Mockito.anyObject());
+        } finally {
+            faultJournal.setPath(null);
+        }
+    }
+
+    /**
+     * Test recover records the faults as healed in the journal.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRecoverMarksFaultsHealed() throws Exception
+    {
+        faultJournal.setPath(temporaryFolder.newFile("faults.journal").toPath());
+        try {
+            executionStateCache.clear();
+            executionStateCache.setUnhealthyInstances(createInstances());
+            executionStateCache.setRamDiskFull(true);
+            Assert.assertTrue(faultJournal.getOutstandingFaults().containsKey(executionStateCache.getJournalId()));
+
+            environmentHealerStepDefinitions.recover();
+
+            Assert.assertTrue(faultJournal.getOutstandingFaults().isEmpty());
+        } finally {
+            faultJournal.setPath(null);
+            executionStateCache.clear();
+        }
+    }
+
+    /**
+     * Test every heal action of a host runs in one invocation, processes restarted last.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRecoverMergesHealActionsPerHost() throws Exception
+    {
+        executionStateCache.clear();
+        executionStateCache.setUnhealthyInstances(createInstances());
+        executionStateCache.addProcessName("nginx");
+        executionStateCache.setHealProcess(true);
+        executionStateCache.addPortNum(8080);
+        executionStateCache.setBlockPort(true);
+        executionStateCache.addBlockedDomain("example.com");
+
+        environmentHealerStepDefinitions.recover();
+
+        Mockito.verify(systemRaider, Mockito.times(1)).executeScriptForResult(Mockito.eq("10.1.1.1"), Mockito.any(byte[].class), Mockito.anyListOf(String.class));
+        Mockito.verify(systemRaider, Mockito.times(1)).executeScriptForResult(Mockito.eq("10.1.1.2"), Mockito.any(byte[].class), Mockito.anyListOf(String.class));
+
+        RecoveryReport report = environmentHealerStepDefinitions.getLastRecoveryReport();
+        Assert.assertTrue(report.isSuccess());
+        Assert.assertEquals(6, report.getActionResults().size());
+        Assert.assertTrue(report.getFailedActions().isEmpty());
+
+        List<String> hostActions = new ArrayList<>();
+        report.getActionResults().stream().filter(result -> result.getHost().equals("10.1.1.1"))
+                .forEach(result -> hostActions.add(result.getAction()));
+        Assert.assertEquals(Arrays.asList("unblock domain example.com", "unblock port 8080", "restart process nginx"), hostActions);
+        Assert.assertTrue(executionStateCache.getConvergenceTimes().containsKey(EnvironmentHealerStepDefinitions.RECOVERY_TIME));
+        executionStateCache.clear();
+    }
+
+    /**
+     * Test every heal command is sent to the SSM instances in one invocation.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRecoverSendsOneSSMInvocation() throws Exception
+    {
+        executionStateCache.clear();
+        executionStateCache.setSsmCommandInvocationInstances(createInstances());
+        executionStateCache.addProcessName("nginx");
+        executionStateCache.setHealProcess(true);
+        executionStateCache.setCpuSpiked(true);
+        executionStateCache.setRamDiskFull(true);
+
+        environmentHealerStepDefinitions.recover();
+
+        Mockito.verify(ssmRaider, Mockito.times(1)).sendShellCommands(Mockito.anyObject(), Mockito.anyObject());
+        Assert.assertEquals(6, environmentHealerStepDefinitions.getLastRecoveryReport().getActionResults().size());
+        executionStateCache.clear();
+    }
+
+    /**
+     * Test recover fails when a host cannot be reached.
+     *
+     * @throws Exception the exception
+     */
+    @Test(expected = RuntimeException.class)
+    public void testRecoverFailsOnUnreachableHost() throws Exception
+    {
+        Mockito.when(systemRaider.executeScriptForResult(Mockito.eq("10.1.1.2"), Mockito.any(byte[].class), Mockito.anyListOf(String.class)))
+                .thenThrow(new RuntimeException("unable to connect"));
+        executionStateCache.clear();
+        executionStateCache.setUnhealthyInstances(createInstances());
+        executionStateCache.setCpuSpiked(true);
+        try {
+            environmentHealerStepDefinitions.recover();
+        } finally {
+            executionStateCache.clear();
+        }
+    }
+
+    /**
+     * Test an SSM heal fails when the commands could not be sent to some of the instances.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testSSMHealFailsOnPartialSend() throws Exception
+    {
+        SsmCommandBatch commandBatch = new SsmCommandBatch("1234", Arrays.asList("i-1234"));
+        commandBatch.addFailedInstances(Arrays.asList("i-4567"));
+        PowerMockito.when(ssmRaider.sendShellCommands(Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandBatch);
+
+        try {
+            environmentHealerStepDefinitions.healSSMGivenInstancesByFixingCPU(createInstances());
+            Assert.fail("expected the heal to fail");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("i-4567"));
+        }
+    }
+
+    /**
+     * Test an abort recovers once, after the injection in flight, and refuses later injections.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testAbortRecoversAfterInjectionInFlight() throws Exception
+    {
+        ArgumentCaptor<Consumer> abortCallback = ArgumentCaptor.forClass(Consumer.class);
+        Mockito.verify(alarmWatcher).registerAbortCallback(Mockito.anyString(), abortCallback.capture());
+        environmentHealerStepDefinitions.clearCache();
+        executionStateCache.setUnhealthyInstances(createInstances());
+        executionStateCache.setHealNetwork(true);
+
+        EC2InstanceTO lateInstance = new EC2InstanceTO();
+        lateInstance.setInstanceId("i-7890");
+        lateInstance.setPrivateIpAddress("10.1.1.3");
+        CountDownLatch injecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread injection = new Thread(() -> executionStateCache.injectFault(() -> {
+            injecting.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executionStateCache.setCpuSpiked(true);
+            executionStateCache.addUnHealthyInstance(lateInstance);
+        }));
+        injection.start();
+        Assert.assertTrue(injecting.await(5, TimeUnit.SECONDS));
+
+        Thread watcher = new Thread(() -> abortCallback.getValue().accept(Arrays.asList("guardrail")));
+        watcher.start();
+        Thread.sleep(200);
+        Mockito.verify(systemRaider, Mockito.never()).executeScriptForResult(Mockito.anyString(), Mockito.any(byte[].class), Mockito.anyListOf(String.class));
+
+        release.countDown();
+        injection.join(5000);
+        watcher.join(5000);
+        Mockito.verify(systemRaider).executeScriptForResult(Mockito.eq("10.1.1.3"), Mockito.any(byte[].class), Mockito.anyListOf(String.class));
+
+        try {
+            executionStateCache.injectFault(() -> Assert.fail("injected after the abort"));
+            Assert.fail("expected the injection to be refused");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("aborted"));
+        }
+
+        environmentHealerStepDefinitions.recover();
+        Mockito.verify(systemRaider, Mockito.times(3)).executeScriptForResult(Mockito.anyString(), Mockito.any(byte[].class), Mockito.anyListOf(String.class));
+        environmentHealerStepDefinitions.clearCache();
+    }
+
+    /**
+     * Test SSM instances the heal commands could not be sent to are reported as failed.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRecoverReportsUnsentSSMInstances() throws Exception
+    {
+        SsmCommandBatch commandBatch = new SsmCommandBatch("1234", Arrays.asList("i-1234"));
+        commandBatch.addFailedInstances(Arrays.asList("i-4567"));
+        PowerMockito.when(ssmRaider.sendShellCommands(Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandBatch);
+        PowerMockito.when(ssmRaider.trackCommandCompletion(commandBatch))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonMap("i-1234", "Success")));
+
+        RecoveryReport report = recoverSSMInstances();
+
+        Assert.assertTrue(report.getErrors().stream().anyMatch(error -> error.contains("i-4567")));
+        report.getActionResults().forEach(result -> Assert.assertEquals(result.getHost().equals("i-1234"), result.isSuccess()));
+    }
+
+    /**
+     * Test an SSM instance is healed only once its heal invocation completed with Success.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRecoverWaitsForSSMCompletion() throws Exception
+    {
+        mockCommandStatuses("Success", "Failed");
+
+        RecoveryReport report = recoverSSMInstances();
+
+        Mockito.verify(ssmRaider).trackCommandCompletion(Mockito.anyObject());
+        Assert.assertEquals(Arrays.asList("SSM i-4567: command 1234 Failed"), report.getErrors());
+        report.getActionResults().forEach(result -> Assert.assertEquals(result.getHost().equals("i-1234"), result.isSuccess()));
+    }
+
+    /**
+     * Test each SSM heal action gets its own result, and a failed action does not fail the recovery, as over SSH.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testRecoverReportsSSMActionResults() throws Exception
+    {
+        PowerMockito.when(ssmRaider.getCommandStandardOutput("1234", "i-4567"))
+                .thenReturn("cloudraider-heal-result 0 0\ncloudraider-heal-result 1 1\n");
+        executionStateCache.clear();
+        executionStateCache.setSsmCommandInvocationInstances(createInstances());
+        executionStateCache.setCpuSpiked(true);
+        executionStateCache.setRamDiskFull(true);
+
+        environmentHealerStepDefinitions.recover();
+
+        ArgumentCaptor<List> commands = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(ssmRaider).sendShellCommands(Mockito.anyObject(), commands.capture());
+        Assert.assertTrue(commands.getValue().contains("echo \"cloudraider-heal-result 1 $?\""));
+
+        RecoveryReport report = environmentHealerStepDefinitions.getLastRecoveryReport();
+        Assert.assertTrue(report.isSuccess());
+        Assert.assertEquals(4, report.getActionResults().size());
+        Assert.assertEquals(1, report.getFailedActions().size());
+        Assert.assertEquals("i-4567", report.getFailedActions().get(0).getHost());
+        Assert.assertEquals("clear RAM disk", report.getFailedActions().get(0).getAction());
+        Assert.assertEquals("exit status 1", report.getFailedActions().get(0).getMessage());
+        executionStateCache.clear();
+    }
+
+    private RecoveryReport recoverSSMInstances()
+    {
+        executionStateCache.clear();
+        executionStateCache.setSsmCommandInvocationInstances(createInstances());
+        executionStateCache.setCpuSpiked(true);
+        try {
+            environmentHealerStepDefinitions.recover();
+            Assert.fail("expected the recovery to fail");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("i-4567"));
+        } finally {
+            executionStateCache.clear();
+        }
+        return environmentHealerStepDefinitions.getLastRecoveryReport();
+    }
+
+    private void mockCommandStatuses(String firstStatus, String secondStatus)
+    {
+        Map<String, String> statuses = new LinkedHashMap<>();
+        statuses.put("i-1234", firstStatus);
+        statuses.put("i-4567", secondStatus);
+        PowerMockito.when(ssmRaider.trackCommandCompletion(Mockito.anyObject())).thenReturn(CompletableFuture.completedFuture(statuses));
+    }
+
     private List<EC2InstanceTO> createInstances()
     {
         EC2InstanceTO ec2InstanceTO = new EC2InstanceTO();
@@ -190,6 +542,16 @@ public class EnvironmentHealerStepDefinitionsTest {
             return Mockito.mock(ScriptExecutor.class);
         }
 
+        /**
+         * Script registry script registry.
+         *
+         * @return the script registry
+         */
+        @Bean
+        public ScriptRegistry scriptRegistry() {
+            return Mockito.mock(ScriptRegistry.class);
+        }
+
         /**
          * Ssm raider ssm raider.
          *
@@ -220,6 +582,26 @@ public class EnvironmentHealerStepDefinitionsTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
         /**
          * Environment healer step definitions environment healer step definitions.
          *
@@ -240,6 +622,66 @@ public class EnvironmentHealerStepDefinitionsTest {
             return new ExecutionStateCache();
         }
 
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
+        /**
+         * Alarm watcher.
+         *
+         * @return the alarm watcher
+         */
+        @Bean (name={"alarmWatcher"})
+        public AlarmWatcher alarmWatcher() {
+            return Mockito.mock(AlarmWatcher.class);
+        }
+
+        /**
+         * Fault journal fault journal.
+         *
+         * @return the fault journal
+         */
+        @Bean (name={"faultJournal"})
+        public FaultJournal faultJournal() {
+            return new FaultJournal();
+        }
+
+        /**
+         * Recovery planner recovery planner.
+         *
+         * @return the recovery planner
+         */
+        @Bean (name={"recoveryPlanner"})
+        public RecoveryPlanner recoveryPlanner() {
+            return new RecoveryPlanner();
+        }
+
+        /**
+         * Cloud watch alarm index.
+         *
+         * @return the cloud watch alarm index
+         */
+        @Bean
+        public CloudWatchAlarmIndex cloudWatchAlarmIndex() {
+            return Mockito.mock(CloudWatchAlarmIndex.class);
+        }
+
+        /**
+         * Cloud watch delegator.
+         *
+         * @return the cloud watch delegator
+         */
+        @Bean
+        public CloudWatchDelegator cloudWatchDelegator() {
+            return Mockito.mock(CloudWatchDelegator.class);
+        }
+
         /**
          * System delegator system delegator.
          *
@@ -250,6 +692,16 @@ public class EnvironmentHealerStepDefinitionsTest {
             return Mockito.mock(SystemDelegator.class);
         }
 
+        /**
+         * Ssh session pool ssh session pool.
+         *
+         * @return the ssh session pool
+         */
+        @Bean
+        public SshSessionPool sshSessionPool() {
+            return Mockito.mock(SshSessionPool.class);
+        }
+
         /**
          * Ssm delegator ssm delegator.
          *
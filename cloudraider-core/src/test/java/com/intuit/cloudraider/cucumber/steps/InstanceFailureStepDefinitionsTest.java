@@ -24,21 +24,31 @@
 
 package com.intuit.cloudraider.cucumber.steps;
 
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
 import com.intuit.cloudraider.commons.EC2Delegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
+import com.intuit.cloudraider.commons.FanOutExecutor;
 import com.intuit.cloudraider.commons.SSMDelegator;
+import com.intuit.cloudraider.commons.SshSessionPool;
 import com.intuit.cloudraider.commons.SystemDelegator;
 import com.intuit.cloudraider.core.impl.EC2RaiderImpl;
 import com.intuit.cloudraider.core.impl.SSMRaiderImpl;
 import com.intuit.cloudraider.core.impl.SystemRaiderImpl;
 import com.intuit.cloudraider.core.interfaces.EC2Raider;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.model.FaultJournalEntry;
+import com.intuit.cloudraider.cucumber.util.FaultJournal;
 import com.intuit.cloudraider.cucumber.util.ScriptExecutor;
+import com.intuit.cloudraider.cucumber.util.ScriptRegistry;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
 import com.intuit.cloudraider.model.EC2InstanceTO;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
@@ -52,6 +62,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -74,6 +86,15 @@ public class InstanceFailureStepDefinitionsTest {
     @Autowired
     private ExecutionStateCache executionStateCache;
 
+    @Autowired
+    private ScriptExecutor scriptExecutor;
+
+    @Autowired
+    private FaultJournal faultJournal;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Sets method.
      *
@@ -413,6 +434,42 @@ public class InstanceFailureStepDefinitionsTest {
         Assert.assertFalse(executionStateCache.getUnhealthyInstances().isEmpty());
     }
 
+    /**
+     * Test the fault is journaled with its host before it is injected, so a new process replaying the journal finds
+     * the host to heal.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testInjectedFaultIsJournaledBeforeInjection() throws Exception
+    {
+        Path path = temporaryFolder.newFile("faults.journal").toPath();
+        faultJournal.setPath(path);
+        faultJournal.setSyncIntervalMillis(0);
+        List<String> journaledAtInjection = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            FaultJournalEntry entry = faultJournal.getOutstandingFaults().get(executionStateCache.getJournalId());
+            entry.toExecutionStateCache().getUnhealthyInstances().forEach(i -> journaledAtInjection.add(i.getInstanceId()));
+            return null;
+        }).when(scriptExecutor).executeRandomNetworkLatency(Mockito.eq("10.1.1.2"), Mockito.anyString(), Mockito.anyString());
+        try {
+            executionStateCache.addInstances(createInstances());
+            instanceFailureStepDefinitions.injectNetworkLatencyGivenInstanceCucumber(20, 80, "i-4567", "10.1.1.2");
+            Assert.assertEquals(Arrays.asList("i-4567"), journaledAtInjection);
+            faultJournal.close();
+
+            FaultJournal replayed = new FaultJournal();
+            replayed.setPath(path);
+            ExecutionStateCache restored = replayed.getOutstandingFaults().get(executionStateCache.getJournalId()).toExecutionStateCache();
+            replayed.close();
+            Assert.assertTrue(restored.isHealNetwork());
+            Assert.assertEquals("10.1.1.2", restored.getUnhealthyInstances().get(0).getPrivateIpAddress());
+        } finally {
+            faultJournal.setPath(null);
+            executionStateCache.clear();
+        }
+    }
+
     private List<EC2InstanceTO> createInstances() {
         EC2InstanceTO ec2InstanceTO = new EC2InstanceTO();
         ec2InstanceTO.setAvailabilityZone("us-west-2a");
@@ -444,6 +501,16 @@ public class InstanceFailureStepDefinitionsTest {
             return Mockito.mock(EC2Delegator.class);
         }
 
+        /**
+         * Ec 2 inventory cache.
+         *
+         * @return the ec 2 inventory cache
+         */
+        @Bean
+        public EC2InventoryCache ec2InventoryCache() {
+            return Mockito.mock(EC2InventoryCache.class);
+        }
+
         /**
          * Ec 2 raider ec 2 raider.
          *
@@ -484,6 +551,26 @@ public class InstanceFailureStepDefinitionsTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
         /**
          * Instance failure step definitions instance failure step definitions.
          *
@@ -504,6 +591,26 @@ public class InstanceFailureStepDefinitionsTest {
             return new ExecutionStateCache();
         }
 
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
+        /**
+         * Fault journal fault journal.
+         *
+         * @return the fault journal
+         */
+        @Bean (name={"faultJournal"})
+        public FaultJournal faultJournal() {
+            return new FaultJournal();
+        }
+
         /**
          * Script executor script executor.
          *
@@ -514,6 +621,16 @@ public class InstanceFailureStepDefinitionsTest {
             return Mockito.mock(ScriptExecutor.class);
         }
 
+        /**
+         * Script registry script registry.
+         *
+         * @return the script registry
+         */
+        @Bean
+        public ScriptRegistry scriptRegistry() {
+            return Mockito.mock(ScriptRegistry.class);
+        }
+
         /**
          * Ssm delegator ssm delegator.
          *
@@ -534,5 +651,15 @@ public class InstanceFailureStepDefinitionsTest {
             return Mockito.mock(SystemDelegator.class);
         }
 
+        /**
+         * Ssh session pool ssh session pool.
+         *
+         * @return the ssh session pool
+         */
+        @Bean
+        public SshSessionPool sshSessionPool() {
+            return Mockito.mock(SshSessionPool.class);
+        }
+
     }
 }
@@ -24,6 +24,9 @@
 
 package com.intuit.cloudraider.cucumber.steps;
 
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.amazonaws.services.elasticloadbalancingv2.model.TargetDescription;
 import com.intuit.cloudraider.commons.*;
 import com.intuit.cloudraider.core.impl.ApplicationLoadBalancerRaiderImpl;
 import com.intuit.cloudraider.core.impl.EC2RaiderImpl;
@@ -51,8 +54,10 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 
 @PowerMockIgnore({"javax.management.*","javax.net.ssl.*"})
@@ -177,6 +182,29 @@ public class LoadBalancerStepDefinitionsTest {
         loadBalancerStepDefinitions.assertHealthyHostCount(2);
     }
 
+    /**
+     * Test assert healthy host count within a deadline records the time to converge.
+     *
+     * @throws Throwable the throwable
+     */
+    @Test
+    public void testAssertHealthyHostCountWithin() throws Throwable {
+        loadBalancerStepDefinitions.givenLoadBalancerName("ELB", "elb");
+        loadBalancerStepDefinitions.assertHealthyHostCountWithin(2, 5);
+        Assert.assertTrue(executionStateCache.getConvergenceTimes().containsKey("healthy host count of elb = 2"));
+    }
+
+    /**
+     * Test assert healthy host count within a deadline fails once the deadline passed.
+     *
+     * @throws Throwable the throwable
+     */
+    @Test (expected = AssertionError.class)
+    public void testAssertHealthyHostCountWithinTimeout() throws Throwable {
+        loadBalancerStepDefinitions.givenLoadBalancerName("ELB", "elb");
+        loadBalancerStepDefinitions.assertHealthyHostCountWithin(3, 0);
+    }
+
     /**
      * Test assert un healthy host count.
      *
@@ -255,6 +283,31 @@ public class LoadBalancerStepDefinitionsTest {
     }
 
 
+    /**
+     * Test instances detached from an ALB are attached back to the target groups they were removed from in one call.
+     *
+     * @throws Throwable the throwable
+     */
+    @Test
+    public void testDeRegisterAndRegisterApplicationLoadBalancerTargets() throws Throwable {
+        Map<String, List<TargetDescription>> removed = new LinkedHashMap<>();
+        removed.put("arn:tg1", Arrays.asList(new TargetDescription().withId("id-123").withPort(8080)));
+        removed.put("arn:tg2", Arrays.asList(new TargetDescription().withId("id-123").withPort(9090)));
+        Mockito.doAnswer(invocation -> {
+            ((Consumer<Map<String, List<TargetDescription>>>) invocation.getArguments()[2]).accept(removed);
+            return removed;
+        }).when(applicationLoadBalancerRaider).deregisterTargets(Mockito.eq("alb"), Mockito.anyListOf(String.class), Mockito.any(Consumer.class));
+
+        loadBalancerStepDefinitions.givenLoadBalancerName("ALB", "alb");
+        loadBalancerStepDefinitions.deRegisterInstances(1);
+        Assert.assertEquals(removed, executionStateCache.getDeregisteredTargets());
+
+        loadBalancerStepDefinitions.registerInstances();
+        Mockito.verify(applicationLoadBalancerRaider).registerTargets(removed);
+        Assert.assertTrue(executionStateCache.getDeregisteredTargets().isEmpty());
+        Assert.assertTrue(executionStateCache.getDeregistedInstance().isEmpty());
+    }
+
     /**
      * Test confirm un healthy host count.
      *
@@ -388,6 +441,16 @@ public class LoadBalancerStepDefinitionsTest {
             return Mockito.mock(EC2Delegator.class);
         }
 
+        /**
+         * Ec 2 inventory cache.
+         *
+         * @return the ec 2 inventory cache
+         */
+        @Bean
+        public EC2InventoryCache ec2InventoryCache() {
+            return Mockito.mock(EC2InventoryCache.class);
+        }
+
         /**
          * Ec 2 raider ec 2 raider.
          *
@@ -428,6 +491,26 @@ public class LoadBalancerStepDefinitionsTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
         /**
          * Load balancer step definitions load balancer step definitions.
          *
@@ -468,5 +551,15 @@ public class LoadBalancerStepDefinitionsTest {
             return Mockito.mock(LoadBalancerDelegator.class);
         }
 
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
     }
 }
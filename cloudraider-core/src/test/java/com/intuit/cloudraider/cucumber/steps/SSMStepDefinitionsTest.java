@@ -24,7 +24,11 @@
 
 package com.intuit.cloudraider.cucumber.steps;
 
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
 import com.intuit.cloudraider.commons.EC2Delegator;
+import com.intuit.cloudraider.commons.EC2InventoryCache;
+import com.intuit.cloudraider.commons.FanOutExecutor;
 import com.intuit.cloudraider.commons.SSMDelegator;
 import com.intuit.cloudraider.core.impl.EC2RaiderImpl;
 import com.intuit.cloudraider.core.impl.SSMRaiderImpl;
@@ -33,6 +37,7 @@ import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
 import com.intuit.cloudraider.model.EC2InstanceTO;
+import com.intuit.cloudraider.model.SsmCommandBatch;
 import com.intuit.cloudraider.utils.CommandUtility;
 import org.junit.Assert;
 import org.junit.Before;
@@ -51,7 +56,11 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 
 @PowerMockIgnore({"javax.management.*","javax.net.ssl.*"})
@@ -101,8 +110,23 @@ public class SSMStepDefinitionsTest {
                 Mockito.anyObject(), Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandId);
 
 
+        SsmCommandBatch commandBatch = new SsmCommandBatch(commandId, Arrays.asList("i-1234"));
+        PowerMockito.when(ssmRaider.sendShellCommands(Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandBatch);
+
+        PowerMockito.when(ssmRaider.sendShellCommand(Mockito.anyObject(),
+                Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandBatch);
+
+        PowerMockito.when(ssmRaider.sendShellCommand(Mockito.anyObject(),
+                Mockito.anyObject(), Mockito.anyObject(), Mockito.anyObject())).thenReturn(commandBatch);
+
         PowerMockito.when(ssmRaider.getCommandStatus(Mockito.anyObject(), Mockito.anyObject())).thenReturn("Success");
 
+        Map<String, String> statuses = new HashMap<>();
+        statuses.put("i-1234", "Success");
+        statuses.put("i-4567", "Success");
+        PowerMockito.when(ssmRaider.getCommandStatuses(Mockito.anyObject())).thenReturn(statuses);
+        PowerMockito.when(ssmRaider.trackCommandCompletion(Mockito.anyObject())).thenReturn(CompletableFuture.completedFuture(statuses));
+
 
         executionStateCache.clear();
 
@@ -495,6 +519,46 @@ public class SSMStepDefinitionsTest {
 
     }
 
+    /**
+     * Assert command execution status tracks the batch of the last sent commands until completion.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void assertCommandExecutionStatusBatch() throws Exception
+    {
+        SsmCommandBatch batch = new SsmCommandBatch();
+        batch.addCommand("cmd-1", Arrays.asList("i-1234"));
+        batch.addCommand("cmd-2", Arrays.asList("i-4567"));
+        executionStateCache.setSsmCommandInvocationInstances(createInstances());
+        executionStateCache.setSsmCommandBatch(batch);
+
+        ssmStepDefinitions.assertCommandExecutionStatus("Success");
+        Mockito.verify(ssmRaider).trackCommandCompletion(batch);
+        Assert.assertEquals(executionStateCache.getCommandId(), "cmd-1");
+        Assert.assertEquals(executionStateCache.getCommandId("i-4567"), "cmd-2");
+
+        executionStateCache.setCommandId("1234");
+        Assert.assertNull(executionStateCache.getSsmCommandBatch());
+    }
+
+    /**
+     * Wait for command completion fails when tracking fails.
+     *
+     * @throws Exception the exception
+     */
+    @Test (expected = RuntimeException.class)
+    public void waitForCommandCompletionFailure() throws Exception
+    {
+        CompletableFuture<Map<String, String>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new TimeoutException("still running"));
+        PowerMockito.when(ssmRaider.trackCommandCompletion(Mockito.anyObject())).thenReturn(failed);
+
+        executionStateCache.setSsmCommandInvocationInstances(createInstances());
+        executionStateCache.setCommandId("1234");
+        ssmStepDefinitions.waitForCommandCompletion();
+    }
+
     /**
      * Assert command execution status exception.
      *
@@ -565,6 +629,16 @@ public class SSMStepDefinitionsTest {
             return Mockito.mock(EC2Delegator.class);
         }
 
+        /**
+         * Ec 2 inventory cache.
+         *
+         * @return the ec 2 inventory cache
+         */
+        @Bean
+        public EC2InventoryCache ec2InventoryCache() {
+            return Mockito.mock(EC2InventoryCache.class);
+        }
+
         /**
          * Ec 2 raider ec 2 raider.
          *
@@ -595,6 +669,26 @@ public class SSMStepDefinitionsTest {
             return new BasicCredentials();
         }
 
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
         /**
          * Ssm step definitions ssm step definitions.
          *
@@ -625,6 +719,16 @@ public class SSMStepDefinitionsTest {
             return Mockito.mock(SSMDelegator.class);
         }
 
+        /**
+         * Fan out executor.
+         *
+         * @return the fan out executor
+         */
+        @Bean
+        public FanOutExecutor fanOutExecutor() {
+            return new FanOutExecutor();
+        }
+
     }
 
 
@@ -0,0 +1,187 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.model;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
+import com.amazonaws.services.securitytoken.model.AssumeRoleRequest;
+import com.amazonaws.services.securitytoken.model.AssumeRoleResult;
+import com.amazonaws.services.securitytoken.model.Credentials;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Refreshing credentials provider test.
+ */
+public class RefreshingCredentialsProviderTest {
+
+    private RefreshingCredentialsProvider provider;
+
+    /**
+     * Tear down.
+     */
+    @After
+    public void tearDown() {
+        if (provider != null) {
+            provider.close();
+        }
+    }
+
+    /**
+     * Test credentials are loaded once and served until renewal.
+     */
+    @Test
+    public void testLoadsOnce() {
+        AtomicInteger loads = new AtomicInteger();
+        provider = new RefreshingCredentialsProvider("test", () -> session(loads.incrementAndGet(), 3600000), 300000, 300000);
+
+        Assert.assertEquals("key1", provider.getCredentials().getAWSAccessKeyId());
+        Assert.assertEquals("key1", provider.getCredentials().getAWSAccessKeyId());
+        Assert.assertEquals(1, loads.get());
+
+        provider.refresh();
+        Assert.assertEquals("key2", provider.getCredentials().getAWSAccessKeyId());
+    }
+
+    /**
+     * Test credentials are renewed in the background ahead of expiry.
+     */
+    @Test
+    public void testRenewsAheadOfExpiry() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        provider = new RefreshingCredentialsProvider("test", () -> session(loads.incrementAndGet(), 1500), 1000, 300000);
+
+        Assert.assertEquals("key1", provider.getCredentials().getAWSAccessKeyId());
+        waitForLoads(loads, 2);
+
+        Assert.assertEquals("key2", provider.getCredentials().getAWSAccessKeyId());
+        Assert.assertTrue(provider.getExpiration().after(new Date()));
+    }
+
+    /**
+     * Test a failed renewal keeps serving the current credentials.
+     */
+    @Test
+    public void testFailedRenewalKeepsCredentials() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        provider = new RefreshingCredentialsProvider("test", () -> {
+            if (loads.incrementAndGet() > 1) {
+                throw new RuntimeException("sts unavailable");
+            }
+            return session(1, 60000);
+        }, 59900, 300000);
+
+        Assert.assertEquals("key1", provider.getCredentials().getAWSAccessKeyId());
+        waitForLoads(loads, 2);
+
+        Assert.assertEquals("key1", provider.getCredentials().getAWSAccessKeyId());
+    }
+
+    /**
+     * Test credentials without an expiry are reloaded every refresh interval.
+     */
+    @Test
+    public void testReloadsWithoutExpiry() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        AWSCredentialsProvider profile = new AWSCredentialsProvider() {
+            @Override
+            public AWSCredentials getCredentials() {
+                return new BasicAWSCredentials("key" + loads.get(), "secret");
+            }
+
+            @Override
+            public void refresh() {
+                loads.incrementAndGet();
+            }
+        };
+        provider = new RefreshingCredentialsProvider("test", RefreshingCredentialsProvider.reload(profile), 1000, 200);
+
+        Assert.assertEquals("key1", provider.getCredentials().getAWSAccessKeyId());
+        Assert.assertNull(provider.getExpiration());
+        waitForLoads(loads, 3);
+
+        Assert.assertNotEquals("key1", provider.getCredentials().getAWSAccessKeyId());
+    }
+
+    /**
+     * Test the assume role loader reuses the given STS client.
+     */
+    @Test
+    public void testAssumeRole() {
+        AWSSecurityTokenService sts = Mockito.mock(AWSSecurityTokenService.class);
+        Date expiration = new Date(System.currentTimeMillis() + 3600000);
+        Mockito.when(sts.assumeRole(Mockito.any(AssumeRoleRequest.class))).thenReturn(new AssumeRoleResult().withCredentials(
+                new Credentials("key", "secret", "token", expiration)));
+
+        provider = new RefreshingCredentialsProvider("test",
+                RefreshingCredentialsProvider.assumeRole(sts, "arn:aws:iam::123:role/deployer", "chaos-session-2", "uuid"), 300000, 300000);
+        provider.getCredentials();
+        provider.refresh();
+
+        ArgumentCaptor<AssumeRoleRequest> captor = ArgumentCaptor.forClass(AssumeRoleRequest.class);
+        Mockito.verify(sts, Mockito.times(2)).assumeRole(captor.capture());
+        Assert.assertEquals("arn:aws:iam::123:role/deployer", captor.getValue().getRoleArn());
+        Assert.assertEquals("chaos-session-2", captor.getValue().getRoleSessionName());
+        Assert.assertEquals("uuid", captor.getValue().getExternalId());
+        Assert.assertEquals("token", ((BasicSessionCredentials) provider.getCredentials()).getSessionToken());
+        Assert.assertEquals(expiration, provider.getExpiration());
+    }
+
+    /**
+     * Test credentials loaded after close are not renewed in the background.
+     */
+    @Test
+    public void testNoRenewalAfterClose() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        provider = new RefreshingCredentialsProvider("test", () -> session(loads.incrementAndGet(), 1100), 1000, 300000);
+        provider.close();
+
+        Assert.assertEquals("key1", provider.getCredentials().getAWSAccessKeyId());
+        Thread.sleep(500);
+        Assert.assertEquals(1, loads.get());
+    }
+
+    private RefreshingCredentialsProvider.Session session(int number, long validMillis) {
+        return new RefreshingCredentialsProvider.Session(new BasicSessionCredentials("key" + number, "secret", "token"),
+                new Date(System.currentTimeMillis() + validMillis));
+    }
+
+    private void waitForLoads(AtomicInteger loads, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loads.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertTrue(loads.get() >= expected);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.utils;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.cloudwatch.model.MetricAlarm;
+import com.intuit.cloudraider.commons.AwsApiRateLimiter;
+import com.intuit.cloudraider.commons.AwsClientFactory;
+import com.intuit.cloudraider.commons.CloudWatchAlarmIndex;
+import com.intuit.cloudraider.commons.CloudWatchDelegator;
+import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.util.AlarmWatcher;
+import com.intuit.cloudraider.model.Credentials;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Alarm watcher test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class AlarmWatcherTest {
+
+    @Autowired
+    private AlarmWatcher alarmWatcher;
+
+    @Autowired
+    private CloudWatchAlarmIndex cloudWatchAlarmIndex;
+
+    @Autowired
+    private ExecutionStateCache executionStateCache;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        Mockito.reset(cloudWatchAlarmIndex);
+        executionStateCache.clear();
+    }
+
+    /**
+     * Tear down method.
+     */
+    @After
+    public void tearDownMethod() {
+        alarmWatcher.setGuardrailAlarms(Collections.emptyList());
+        alarmWatcher.unregisterAbortCallback("test");
+    }
+
+    /**
+     * Test abort callback runs once a guardrail alarm enters ALARM during a fault.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testAbortOnAlarm() throws Exception {
+        Map<String, MetricAlarm> alarms = new LinkedHashMap<>();
+        alarms.put("latency", new MetricAlarm().withAlarmName("latency").withStateValue("ALARM"));
+        alarms.put("errors", new MetricAlarm().withAlarmName("errors").withStateValue("OK"));
+        Mockito.when(cloudWatchAlarmIndex.refreshAlarms(Mockito.anyCollectionOf(String.class))).thenReturn(alarms);
+
+        CountDownLatch aborted = new CountDownLatch(1);
+        List<String> triggered = new ArrayList<>();
+        alarmWatcher.registerAbortCallback("test", names -> {
+            triggered.addAll(names);
+            aborted.countDown();
+        });
+
+        executionStateCache.setCpuSpiked(true);
+        alarmWatcher.setGuardrailAlarms(Arrays.asList("latency", "errors"));
+
+        Assert.assertTrue(aborted.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("latency"), triggered);
+        Assert.assertTrue(alarmWatcher.isAborted());
+        Assert.assertFalse(alarmWatcher.isArmed());
+        Assert.assertEquals(Arrays.asList("latency"), alarmWatcher.getTriggeredAlarms());
+    }
+
+    /**
+     * Test alarms are not described while no fault is active.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testNoPollingWithoutFaults() throws Exception {
+        alarmWatcher.setGuardrailAlarms(Arrays.asList("latency"));
+        Assert.assertTrue(alarmWatcher.isArmed());
+
+        Thread.sleep(200);
+
+        Mockito.verify(cloudWatchAlarmIndex, Mockito.never()).refreshAlarms(Mockito.anyCollectionOf(String.class));
+        Assert.assertFalse(alarmWatcher.isAborted());
+    }
+
+    /**
+     * Test watcher stays disarmed without guardrail alarms.
+     */
+    @Test
+    public void testNotArmedWithoutAlarms() {
+        alarmWatcher.start();
+        Assert.assertFalse(alarmWatcher.isArmed());
+        Assert.assertTrue(alarmWatcher.getGuardrailAlarms().isEmpty());
+    }
+
+    /**
+     * The type Alarm watcher test context configuration.
+     */
+    @Configuration
+    protected static class AlarmWatcherTestContextConfiguration {
+
+        /**
+         * Alarm watcher.
+         *
+         * @return the alarm watcher
+         */
+        @Bean
+        public AlarmWatcher alarmWatcher() {
+            return new AlarmWatcher();
+        }
+
+        /**
+         * Cloud watch alarm index.
+         *
+         * @return the cloud watch alarm index
+         */
+        @Bean
+        public CloudWatchAlarmIndex cloudWatchAlarmIndex() {
+            return Mockito.mock(CloudWatchAlarmIndex.class);
+        }
+
+        /**
+         * Cloud watch delegator.
+         *
+         * @return the cloud watch delegator
+         */
+        @Bean
+        public CloudWatchDelegator cloudWatchDelegator() {
+            return Mockito.mock(CloudWatchDelegator.class);
+        }
+
+        /**
+         * Credentials credentials.
+         *
+         * @return the credentials
+         */
+        @Bean
+        public Credentials credentials() {
+            Credentials credentials = Mockito.mock(Credentials.class);
+            Mockito.when(credentials.getAwsCredentials()).thenReturn(new BasicAWSCredentials("accessKey", "secretKey"));
+            Mockito.when(credentials.getAwsCredentialProvider())
+                    .thenReturn(new AWSStaticCredentialsProvider(new BasicAWSCredentials("accessKey", "secretKey")));
+            Mockito.when(credentials.getRegion()).thenReturn("us-west-2");
+            return credentials;
+        }
+
+        /**
+         * Aws api rate limiter aws api rate limiter.
+         *
+         * @return the aws api rate limiter
+         */
+        @Bean
+        public AwsApiRateLimiter awsApiRateLimiter() {
+            return new AwsApiRateLimiter();
+        }
+
+        /**
+         * Aws client factory aws client factory.
+         *
+         * @return the aws client factory
+         */
+        @Bean
+        public AwsClientFactory awsClientFactory() {
+            return new AwsClientFactory();
+        }
+
+        /**
+         * Execution state cache.
+         *
+         * @return the execution state cache
+         */
+        @Bean
+        public ExecutionStateCache executionStateCache() {
+            return new ExecutionStateCache();
+        }
+    }
+}
@@ -25,33 +25,13 @@
 package com.intuit.cloudraider.utils;
 
 import org.junit.Assert;
-import org.junit.Ignore;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.Mockito;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.io.IOException;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 
 
-@RunWith(PowerMockRunner.class)
-@PrepareForTest({Files.class, CommandUtility.class, Paths.class})
 public class CommandUtilityTest {
 
-    /**
-     * The Mocked path.
-     */
-    Path mockedPath = Paths.get("\\tmp");
-
     /**
      * Test command utility.
      *
@@ -60,44 +40,25 @@ public class CommandUtilityTest {
     @Test
     public void testCommandUtility() throws Exception{
 
-        List<String> commands = new ArrayList<>();
-        commands.add("# comment");
-        commands.add("ps -aef | grep {0}");
-        Stream<String> commandStream = commands.stream();
-        PowerMockito.mockStatic(Paths.class);
-        PowerMockito.mockStatic(Files.class);
-        PowerMockito.mockStatic(ClassLoader.class);
-
-        URL url = PowerMockito.mock(URL.class);
-        PowerMockito.when(ClassLoader.getSystemResource(Mockito.anyString())).thenReturn(url);
-
-        PowerMockito.when(Paths.get(Mockito.anyObject())).thenReturn(mockedPath);
-        PowerMockito.when(Files.lines(Mockito.any(Path.class))).thenReturn(commandStream);
-
-        List<String> processedCommands = CommandUtility.getCommandsFromFile("test.txt", "nginx");
+        List<String> processedCommands = CommandUtility.getCommandsFromFile("testCommand.txt", "nginx");
         Assert.assertNotNull(processedCommands);
+        Assert.assertEquals(1, processedCommands.size());
         Assert.assertTrue(processedCommands.get(0).contains("nginx"));
+
+        processedCommands = CommandUtility.getCommandsFromFile("testCommand.txt", "httpd");
+        Assert.assertEquals("ps -aef | grep httpd", processedCommands.get(0));
+        Assert.assertSame(CommandUtility.getTemplates("testCommand.txt"), CommandUtility.getTemplates("testCommand.txt"));
     }
 
     /**
-     * Test command utility io exception.
+     * Test command utility with a missing file.
      *
      * @throws Exception the exception
      */
-    @Test @Ignore
-    public void testCommandUtilityIOException() throws Exception{
-
-        PowerMockito.mockStatic(Paths.class);
-        PowerMockito.mockStatic(Files.class);
-        PowerMockito.mockStatic(ClassLoader.class);
-
-        URL url = PowerMockito.mock(URL.class);
-        PowerMockito.when(ClassLoader.getSystemResource(Mockito.anyString())).thenReturn(url);
-
-        PowerMockito.when(Paths.get(Mockito.anyObject())).thenReturn(mockedPath);
-        PowerMockito.when(Files.lines(Mockito.any(Path.class))).thenThrow(new IOException("IO Exception!!"));
+    @Test
+    public void testCommandUtilityMissingFile() throws Exception{
 
-        List<String> processedCommands = CommandUtility.getCommandsFromFile("test.txt", "nginx");
+        List<String> processedCommands = CommandUtility.getCommandsFromFile("missing.txt", "nginx");
         Assert.assertNotNull(processedCommands);
         Assert.assertTrue(processedCommands.isEmpty());
     }
@@ -0,0 +1,233 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.utils;
+
+import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
+import com.intuit.cloudraider.cucumber.model.FaultJournalEntry;
+import com.intuit.cloudraider.cucumber.util.FaultJournal;
+import com.intuit.cloudraider.model.EC2InstanceTO;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The type Fault journal test.
+ */
+public class FaultJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FaultJournal faultJournal;
+    private Path path;
+
+    /**
+     * Sets method.
+     *
+     * @throws Exception the exception
+     */
+    @Before
+    public void setupMethod() throws Exception {
+        path = temporaryFolder.getRoot().toPath().resolve("journal/faults.journal");
+        faultJournal = new FaultJournal();
+        faultJournal.setPath(path);
+        faultJournal.setSyncIntervalMillis(0);
+    }
+
+    /**
+     * Tear down method.
+     */
+    @After
+    public void tearDownMethod() {
+        faultJournal.close();
+    }
+
+    /**
+     * Test injected faults are outstanding until they are healed.
+     */
+    @Test
+    public void testOutstandingFaults() {
+        ExecutionStateCache first = createFaults("nginx");
+        ExecutionStateCache second = createFaults("tomcat");
+
+        faultJournal.recordInject("first", first);
+        faultJournal.recordInject("second", second);
+        faultJournal.recordHeal("first");
+
+        Map<String, FaultJournalEntry> outstanding = faultJournal.getOutstandingFaults();
+        Assert.assertEquals(1, outstanding.size());
+
+        ExecutionStateCache restored = outstanding.get("second").toExecutionStateCache();
+        Assert.assertTrue(restored.isHealProcess());
+        Assert.assertTrue(restored.isBlockPort());
+        Assert.assertEquals(Arrays.asList("tomcat"), restored.getProcessNames());
+        Assert.assertEquals(Arrays.asList(8080), restored.getPortNums());
+        Assert.assertEquals(Arrays.asList("example.com"), restored.getBlockedDomains());
+        Assert.assertEquals("10.1.1.1", restored.getUnhealthyInstances().get(0).getPrivateIpAddress());
+        Assert.assertFalse(restored.isCpuSpiked());
+    }
+
+    /**
+     * Test the journal is replayed by a new journal on the same file.
+     */
+    @Test
+    public void testReplayByNewProcess() {
+        faultJournal.recordInject("scenario", createFaults("nginx"));
+        faultJournal.close();
+
+        FaultJournal replayed = new FaultJournal();
+        replayed.setPath(path);
+        Assert.assertEquals(Arrays.asList("nginx"),
+                replayed.getOutstandingFaults().get("scenario").getProcessNames());
+        replayed.close();
+    }
+
+    /**
+     * Test a torn record at the end of the journal is ignored and truncated before the next append.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testTornRecordIsTruncated() throws Exception {
+        faultJournal.recordInject("scenario", createFaults("nginx"));
+        faultJournal.close();
+
+        byte[] torn = new byte[8];
+        ByteBuffer.wrap(torn).putInt(1000).putInt(42);
+        Files.write(path, torn, StandardOpenOption.APPEND);
+
+        FaultJournal replayed = new FaultJournal();
+        replayed.setPath(path);
+        replayed.setSyncIntervalMillis(0);
+        Assert.assertEquals(1, replayed.replay().size());
+
+        replayed.recordInject("other", createFaults("tomcat"));
+        List<FaultJournalEntry> entries = replayed.replay();
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals("other", entries.get(1).getJournalId());
+        Assert.assertEquals(2, replayed.getOutstandingFaults().size());
+        replayed.close();
+    }
+
+    /**
+     * Test healed scenarios and superseded records are compacted away when the journal is opened.
+     */
+    @Test
+    public void testCompactedOnOpen() {
+        faultJournal.recordInject("first", createFaults("nginx"));
+        faultJournal.recordInject("second", createFaults("tomcat"));
+        faultJournal.recordInject("first", createFaults("httpd"));
+        faultJournal.recordHeal("second");
+        faultJournal.close();
+        Assert.assertEquals(4, faultJournal.replay().size());
+
+        FaultJournal reopened = new FaultJournal();
+        reopened.setPath(path);
+        reopened.setSyncIntervalMillis(0);
+        reopened.recordInject("third", createFaults("java"));
+
+        List<FaultJournalEntry> entries = reopened.replay();
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals(Arrays.asList("httpd"), entries.get(0).getProcessNames());
+        Assert.assertEquals("third", entries.get(1).getJournalId());
+        reopened.close();
+    }
+
+    /**
+     * Test the journal is emptied once no fault it records is outstanding.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testEmptiedWhenAllHealed() throws Exception {
+        faultJournal.recordInject("first", createFaults("nginx"));
+        faultJournal.recordInject("second", createFaults("tomcat"));
+        faultJournal.recordHeal("first");
+        Assert.assertEquals(3, faultJournal.replay().size());
+
+        faultJournal.recordHeal("second");
+        Assert.assertEquals(0, Files.size(path));
+        Assert.assertTrue(faultJournal.getOutstandingFaults().isEmpty());
+    }
+
+    /**
+     * Test faults marked healed are not journaled again by a later change.
+     */
+    @Test
+    public void testHealedFaultsNotJournaledAgain() {
+        ExecutionStateCache executionStateCache = new ExecutionStateCache();
+        ReflectionTestUtils.setField(executionStateCache, "faultJournal", faultJournal);
+        executionStateCache.addProcessName("nginx");
+        executionStateCache.setHealProcess(true);
+        executionStateCache.addBlockedDomain("example.com");
+        Assert.assertEquals(1, faultJournal.getOutstandingFaults().size());
+
+        executionStateCache.markFaultsHealed();
+        Assert.assertFalse(executionStateCache.hasRecoverableFaults());
+        executionStateCache.addProcessName("tomcat");
+
+        Assert.assertTrue(faultJournal.getOutstandingFaults().isEmpty());
+    }
+
+    /**
+     * Test nothing is written when the journal is disabled.
+     */
+    @Test
+    public void testDisabled() {
+        faultJournal.setPath(null);
+        faultJournal.recordInject("scenario", createFaults("nginx"));
+
+        Assert.assertFalse(faultJournal.isEnabled());
+        Assert.assertFalse(Files.exists(path));
+        Assert.assertTrue(faultJournal.replay().isEmpty());
+    }
+
+    private ExecutionStateCache createFaults(String processName) {
+        EC2InstanceTO instance = new EC2InstanceTO();
+        instance.setInstanceId("i-1234");
+        instance.setPrivateIpAddress("10.1.1.1");
+
+        ExecutionStateCache executionStateCache = new ExecutionStateCache();
+        executionStateCache.setUnhealthyInstances(Arrays.asList(instance));
+        executionStateCache.addProcessName(processName);
+        executionStateCache.setHealProcess(true);
+        executionStateCache.addPortNum(8080);
+        executionStateCache.setBlockPort(true);
+        executionStateCache.addBlockedDomain("example.com");
+        return executionStateCache;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.utils;
+
+import com.intuit.cloudraider.exceptions.InvalidInputDataException;
+import com.intuit.cloudraider.model.MetricTimeSeries;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * The type Metric math test.
+ */
+public class MetricMathTest {
+
+    private static final Date T1 = new Date(60000);
+    private static final Date T2 = new Date(120000);
+    private static final Date T3 = new Date(180000);
+
+    private Map<String, MetricTimeSeries> series;
+
+    /**
+     * Sets method.
+     */
+    @Before
+    public void setupMethod() {
+        series = new HashMap<>();
+        series.put("errors", timeSeries("errors", 1.0, 2.0, null));
+        series.put("requests", timeSeries("requests", 10.0, 0.0, 40.0));
+        series.put("m2", timeSeries("m2", 4.0, 6.0, 8.0));
+    }
+
+    /**
+     * Test arithmetic is applied on common timestamps and division by zero drops the datapoint.
+     */
+    @Test
+    public void testArithmetic() {
+        MetricTimeSeries result = MetricMath.evaluate("rate", "100 * errors / requests", series, ids());
+
+        Assert.assertEquals(Arrays.asList(T1), result.getTimestamps());
+        Assert.assertEquals(10.0, result.getLatestValue(), 0.0001);
+    }
+
+    /**
+     * Test precedence, parentheses and unary minus.
+     */
+    @Test
+    public void testPrecedence() {
+        MetricTimeSeries result = MetricMath.evaluate("e", "-(m2 - 2) * 2 + 1", series, ids());
+
+        Assert.assertEquals(Arrays.asList(-3.0, -7.0, -11.0), result.getValues());
+    }
+
+    /**
+     * Test functions aggregate per timestamp, over explicit ids or METRICS().
+     */
+    @Test
+    public void testFunctions() {
+        Assert.assertEquals(Arrays.asList(5.0, 8.0, 8.0), MetricMath.evaluate("s", "SUM(errors, m2)", series, ids()).getValues());
+        Assert.assertEquals(Arrays.asList(10.0, 6.0, 40.0), MetricMath.evaluate("x", "MAX(METRICS())", series, ids()).getValues());
+        Assert.assertEquals(Arrays.asList(1.0, 0.0, 8.0), MetricMath.evaluate("n", "min(METRICS())", series, ids()).getValues());
+
+        List<Double> average = MetricMath.evaluate("a", "AVG(METRICS())", series, ids()).getValues();
+        Assert.assertEquals(5.0, average.get(0), 0.0001);
+        Assert.assertEquals(8.0 / 3, average.get(1), 0.0001);
+        Assert.assertEquals(24.0, average.get(2), 0.0001);
+    }
+
+    /**
+     * Test invalid expressions.
+     */
+    @Test
+    public void testInvalidExpressions() {
+        for (String expression : Arrays.asList("missing + 1", "STDDEV(m2)", "SUM(m2", "m2 m2", "1 + 2", "m2 $ 2")) {
+            try {
+                MetricMath.evaluate("e", expression, series, ids());
+                Assert.fail("expected InvalidInputDataException for " + expression);
+            } catch (InvalidInputDataException e) {
+                Assert.assertTrue(e.getMessage().contains(expression));
+            }
+        }
+    }
+
+    private List<String> ids() {
+        return Arrays.asList("errors", "requests", "m2");
+    }
+
+    private MetricTimeSeries timeSeries(String id, Double v1, Double v2, Double v3) {
+        MetricTimeSeries timeSeries = new MetricTimeSeries(id, id);
+        timeSeries.add(T1, v1);
+        timeSeries.add(T2, v2);
+        timeSeries.add(T3, v3);
+        return timeSeries;
+    }
+}
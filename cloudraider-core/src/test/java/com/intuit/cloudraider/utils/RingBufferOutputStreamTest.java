@@ -0,0 +1,70 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The type Ring buffer output stream test.
+ */
+public class RingBufferOutputStreamTest {
+
+    /**
+     * Test output under capacity is kept whole.
+     */
+    @Test
+    public void testUnderCapacity() {
+        RingBufferOutputStream out = new RingBufferOutputStream(16);
+        out.write("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
+        out.write(' ');
+        out.write("world".getBytes(StandardCharsets.UTF_8), 0, 5);
+
+        Assert.assertEquals("hello world", out.toString());
+        Assert.assertFalse(out.isTruncated());
+    }
+
+    /**
+     * Test only the tail is kept once capacity is exceeded.
+     */
+    @Test
+    public void testKeepsTail() {
+        RingBufferOutputStream out = new RingBufferOutputStream(8);
+        byte[] first = "0123456".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "789abc".getBytes(StandardCharsets.UTF_8);
+        out.write(first, 0, first.length);
+        out.write(second, 0, second.length);
+
+        Assert.assertEquals("56789abc", out.toString());
+        Assert.assertTrue(out.isTruncated());
+        Assert.assertEquals(13, out.getTotalBytes());
+
+        byte[] large = "ABCDEFGHIJKLMNOP".getBytes(StandardCharsets.UTF_8);
+        out.write(large, 0, large.length);
+        Assert.assertEquals("IJKLMNOP", out.toString());
+    }
+}
@@ -24,10 +24,13 @@
 
 package com.intuit.cloudraider.utils;
 
+import com.intuit.cloudraider.commons.SshSessionPool;
 import com.intuit.cloudraider.commons.SystemDelegator;
 import com.intuit.cloudraider.core.impl.SystemRaiderImpl;
 import com.intuit.cloudraider.cucumber.model.ExecutionStateCache;
 import com.intuit.cloudraider.cucumber.util.ScriptExecutor;
+import com.intuit.cloudraider.cucumber.util.ScriptRegistry;
+import com.intuit.cloudraider.model.Actions;
 import com.intuit.cloudraider.model.BasicCredentials;
 import com.intuit.cloudraider.model.Credentials;
 import org.junit.Before;
@@ -45,10 +48,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
-import java.io.File;
-import java.net.URL;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 
 
 @PowerMockIgnore({"javax.management.*","javax.net.ssl.*"})
@@ -63,7 +63,8 @@ public class ScriptExecutorTest {
     @Autowired
     private   ScriptExecutor scriptExecutor;
 
-    private Path mockedPath = Paths.get("\\tmp");
+    @Autowired
+    private   ScriptRegistry scriptRegistry;
 
 
     /**
@@ -74,19 +75,8 @@ public class ScriptExecutorTest {
     @Before
     public void setupMethod() throws Exception{
 
-         File mockFile = PowerMockito.mock(File.class);
-
-        PowerMockito.mockStatic(ClassLoader.class);
-        URL mockURL = PowerMockito.mock(URL.class);
-        PowerMockito.when(ClassLoader.getSystemResource(Mockito.anyString())).thenReturn(mockURL);
-
-        PowerMockito.when(mockURL.getFile()).thenReturn("/test");
-
-
-         PowerMockito.whenNew(File.class).withAnyArguments().thenReturn(mockFile);
-         PowerMockito.when(mockFile.getAbsolutePath()).thenReturn("/test");
-
-
+        PowerMockito.when(scriptRegistry.getScript(Mockito.any(Actions.class))).thenReturn("#!/bin/sh".getBytes(StandardCharsets.UTF_8));
+        PowerMockito.when(scriptRegistry.getScript(Mockito.anyString())).thenReturn("#!/bin/sh".getBytes(StandardCharsets.UTF_8));
 
     }
 
@@ -293,6 +283,26 @@ public class ScriptExecutorTest {
                 return Mockito.mock(SystemDelegator.class);
             }
 
+        /**
+         * Ssh session pool ssh session pool.
+         *
+         * @return the ssh session pool
+         */
+        @Bean
+            public SshSessionPool sshSessionPool () {
+                return Mockito.mock(SshSessionPool.class);
+            }
+
+        /**
+         * Script registry script registry.
+         *
+         * @return the script registry
+         */
+        @Bean(name = {"scriptRegistry"})
+            public ScriptRegistry scriptRegistry () {
+                return Mockito.mock(ScriptRegistry.class);
+            }
+
     }
 
 
@@ -0,0 +1,59 @@
+/*
+ * Apache 2.0 License
+ *
+ * Copyright (c) 2019 Intuit Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.intuit.cloudraider.utils;
+
+import com.intuit.cloudraider.cucumber.util.ScriptRegistry;
+import com.intuit.cloudraider.exceptions.ResourceNotFoundException;
+import com.intuit.cloudraider.model.Actions;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The type Script registry test.
+ */
+public class ScriptRegistryTest {
+
+    /**
+     * Test scripts are loaded once and served from memory.
+     */
+    @Test
+    public void testScriptsLoadedAtStartup() {
+        ScriptRegistry scriptRegistry = new ScriptRegistry();
+        scriptRegistry.loadAll();
+
+        byte[] script = scriptRegistry.getScript(Actions.BLOCKDYNAMO);
+        Assert.assertTrue(script.length > 0);
+        Assert.assertSame(script, scriptRegistry.getScript("blockdynamo"));
+        Assert.assertSame(scriptRegistry.getScript("test"), scriptRegistry.getScript("test"));
+    }
+
+    /**
+     * Test missing script.
+     */
+    @Test(expected = ResourceNotFoundException.class)
+    public void testMissingScript() {
+        new ScriptRegistry().getScript("missing");
+    }
+}